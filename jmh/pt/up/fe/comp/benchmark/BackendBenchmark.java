@@ -0,0 +1,92 @@
+package pt.up.fe.comp.benchmark;
+
+import jasmin.ClassFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get the bytes of the class files from OLLIR, either through Jasmin code assembled in memory or by writing
+ * the class file directly.
+ * <p>
+ * Only the units both backends handle are used, Jasmin fails to assemble the code of some fixtures and the class file
+ * writer rejects methods with jumps longer than 16 bits. Run with 'gradle jmh --args="BackendBenchmark"'.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class BackendBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BackendInputs {
+
+        List<OllirResult> ollirResults;
+
+        @Setup(Level.Trial)
+        public void setup(CompilerInputs inputs) {
+            ollirResults = new ArrayList<>();
+
+            for (var ollirResult : inputs.ollirResults) {
+                try {
+                    assemble(ollirResult);
+                    new ClassFileBackendImpl().toClassFile(ollirResult);
+                    ollirResults.add(ollirResult);
+                } catch (Exception e) {
+                    // Not handled by one of the backends
+                }
+            }
+
+            if (ollirResults.isEmpty()) {
+                throw new RuntimeException("No unit of input '" + inputs.input + "' is handled by both backends");
+            }
+        }
+    }
+
+    private static byte[] assemble(OllirResult ollirResult) throws Exception {
+        var jasminResult = new JasminBackendImpl().toJasmin(ollirResult);
+
+        var classFile = new ClassFile();
+        classFile.readJasmin(new StringReader(jasminResult.getJasminCode()), jasminResult.getClassName(), true);
+        if (classFile.errorCount() > 0) {
+            throw new RuntimeException("Could not assemble class " + jasminResult.getClassName());
+        }
+
+        var bytes = new ByteArrayOutputStream();
+        classFile.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public void jasminAssembled(BackendInputs inputs, Blackhole blackhole) throws Exception {
+        for (var ollirResult : inputs.ollirResults) {
+            blackhole.consume(assemble(ollirResult));
+        }
+    }
+
+    @Benchmark
+    public void classFile(BackendInputs inputs, Blackhole blackhole) {
+        for (var ollirResult : inputs.ollirResults) {
+            blackhole.consume(new ClassFileBackendImpl().toClassFile(ollirResult).bytes());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package pt.up.fe.comp.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pt.up.fe.comp.analysis.SemanticAnalysisBenchmark;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The units compiled by each benchmark, together with the result of every stage, so that a stage can be measured
+ * starting from the output of the previous one.
+ * <p>
+ * The input is either "fixtures", every .jmm file under the directory given by the 'jmm.fixtures' property (by
+ * default 'test') that compiles without errors, or a generated class, "statements-N" with a method of N statements
+ * or "members-N" with N fields and N methods.
+ */
+@State(Scope.Benchmark)
+public class CompilerInputs {
+
+    private static final String FIXTURES = "fixtures";
+
+    @Param({FIXTURES, "statements-10000", "members-1000"})
+    public String input;
+
+    Map<String, String> config;
+    List<String> codes;
+    List<JmmParserResult> parserResults;
+    List<JmmSemanticsResult> semanticsResults;
+    List<OllirResult> ollirResults;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        config = CompilerConfig.getDefault();
+        codes = new ArrayList<>();
+        parserResults = new ArrayList<>();
+        semanticsResults = new ArrayList<>();
+        ollirResults = new ArrayList<>();
+
+        if (input.equals(FIXTURES)) {
+            var fixtures = new File(System.getProperty("jmm.fixtures", "test"));
+            for (var file : SpecsIo.getFilesRecursive(fixtures, "jmm")) {
+                // Files that fail some stage, such as the semantic error tests, are skipped
+                add(SpecsIo.read(file), false);
+            }
+
+            if (codes.isEmpty()) {
+                throw new RuntimeException("No compilable .jmm files found in '" + fixtures.getAbsolutePath() + "'");
+            }
+            return;
+        }
+
+        add(generate(input), true);
+    }
+
+    private static String generate(String input) {
+        var separator = input.lastIndexOf('-');
+        if (separator == -1) {
+            throw new IllegalArgumentException("Unknown benchmark input '" + input + "'");
+        }
+
+        var kind = input.substring(0, separator);
+        var size = Integer.parseInt(input.substring(separator + 1));
+
+        return switch (kind) {
+            case "statements" -> SemanticAnalysisBenchmark.generate(size);
+            case "members" -> SemanticAnalysisBenchmark.generateMembers(size);
+            default -> throw new IllegalArgumentException("Unknown benchmark input '" + input + "'");
+        };
+    }
+
+    private void add(String code, boolean required) {
+        try {
+            var parserResult = new JmmParserImpl().parse(code, config);
+            check(parserResult.getReports());
+
+            var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+            check(semanticsResult.getReports());
+
+            var ollirResult = new JmmOptimizationImpl().toOllir(semanticsResult);
+            check(ollirResult.getReports());
+
+            check(new JasminBackendImpl().toJasmin(ollirResult).getReports());
+
+            codes.add(code);
+            parserResults.add(parserResult);
+            semanticsResults.add(semanticsResult);
+            ollirResults.add(ollirResult);
+        } catch (RuntimeException e) {
+            if (required) {
+                throw new RuntimeException("Benchmark input '" + input + "' does not compile", e);
+            }
+        }
+    }
+
+    private static void check(List<Report> reports) {
+        for (var report : reports) {
+            if (report.getType() == ReportType.ERROR) {
+                throw new RuntimeException(report.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package pt.up.fe.comp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of each compiler stage over all the units of the input, starting from the result of the previous stage.
+ * <p>
+ * Run with 'gradle jmh', which also reports allocations per operation ('gc.alloc.rate.norm'). Arguments are passed
+ * to JMH, e.g. 'gradle jmh --args="-p input=fixtures parse"'.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class CompilerStagesBenchmark {
+
+    @Benchmark
+    public void parse(CompilerInputs inputs, Blackhole blackhole) {
+        var parser = new JmmParserImpl();
+        for (var code : inputs.codes) {
+            blackhole.consume(parser.parse(code, inputs.config));
+        }
+    }
+
+    @Benchmark
+    public void buildSymbolTable(CompilerInputs inputs, Blackhole blackhole) {
+        for (var parserResult : inputs.parserResults) {
+            blackhole.consume(JmmSymbolTableBuilder.build(parserResult.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void semanticAnalysis(CompilerInputs inputs, Blackhole blackhole) {
+        for (var parserResult : inputs.parserResults) {
+            blackhole.consume(new JmmAnalysisImpl().semanticAnalysis(parserResult));
+        }
+    }
+
+    @Benchmark
+    public void toOllir(CompilerInputs inputs, Blackhole blackhole) {
+        for (var semanticsResult : inputs.semanticsResults) {
+            blackhole.consume(new JmmOptimizationImpl().toOllir(semanticsResult));
+        }
+    }
+
+    @Benchmark
+    public void toJasmin(CompilerInputs inputs, Blackhole blackhole) {
+        for (var ollirResult : inputs.ollirResults) {
+            blackhole.consume(new JasminBackendImpl().toJasmin(ollirResult));
+        }
+    }
+}
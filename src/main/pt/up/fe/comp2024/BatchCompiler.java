@@ -0,0 +1,196 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compiles many .jmm files in a single JVM, running the full pipeline for each unit on a fixed-size worker pool.
+ * <p>
+ * The input is either a directory, searched recursively for .jmm files, or a text file with one path per line.
+ */
+public class BatchCompiler {
+
+    private static final String EXTENSION = "jmm";
+
+    private final Map<String, String> config;
+    private final int numThreads;
+
+    public BatchCompiler(Map<String, String> config) {
+        this.config = config;
+        this.numThreads = CompilerConfig.getThreads(config);
+    }
+
+    /**
+     * @param output the class file written for the unit, or null if none was written
+     */
+    public record UnitResult(File file, boolean success, String message, File output, long elapsedNanos,
+                             CompilationMetrics metrics) {
+    }
+
+    public record Summary(List<UnitResult> results, long elapsedNanos) {
+
+        public int numFailed() {
+            return (int) results.stream().filter(result -> !result.success()).count();
+        }
+
+        public double filesPerSecond() {
+            if (elapsedNanos == 0) {
+                return 0;
+            }
+            return results.size() / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+
+    /**
+     * Compiles every unit of the batch input, printing a line per file and a final summary.
+     *
+     * @return
+     */
+    public Summary run() {
+        return run(System.out);
+    }
+
+    /**
+     * Same as {@link #run()}, printing to the given stream.
+     *
+     * @param out
+     * @return
+     */
+    public Summary run(PrintStream out) {
+        var batchInput = CompilerConfig.getBatchInput(config).orElseThrow();
+        var summary = compile(collectFiles(batchInput));
+
+        var timing = CompilerConfig.getTiming(config);
+        var timingFile = CompilerConfig.getTimingFile(config);
+
+        for (var result : summary.results()) {
+            out.println(format(result));
+            if (timing && timingFile.isEmpty()) {
+                out.print(result.metrics().toTable());
+            }
+        }
+
+        timingFile.ifPresent(file -> SpecsIo.write(file, CompilationMetrics.toJson(toJsonObjects(summary))));
+
+        out.println(String.format("Compiled %d files (%d failed) in %d ms using %d threads, %.1f files/sec",
+                summary.results().size(),
+                summary.numFailed(),
+                summary.elapsedNanos() / 1_000_000,
+                numThreads,
+                summary.filesPerSecond()));
+
+        return summary;
+    }
+
+    public Summary compile(List<File> files) {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        long start = System.nanoTime();
+
+        try {
+            List<Future<UnitResult>> futures = new ArrayList<>();
+            for (var file : files) {
+                futures.add(pool.submit(() -> compileUnit(file)));
+            }
+
+            List<UnitResult> results = new ArrayList<>();
+            for (var future : futures) {
+                results.add(future.get());
+            }
+
+            return new Summary(results, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for batch compilation", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected exception during batch compilation", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private UnitResult compileUnit(File file) {
+        long start = System.nanoTime();
+
+        // Each unit gets its own copy of the config, pointing to its own input file
+        var unitConfig = new HashMap<>(config);
+        unitConfig.put("inputFile", file.getAbsolutePath());
+
+        // Each unit runs on a single worker thread, so the per-thread CPU time and allocations are its own
+        var metrics = new CompilationMetrics();
+
+        try {
+            var code = SpecsIo.read(file);
+            String className;
+            File output = null;
+            if (CompilerConfig.getClassFile(unitConfig)) {
+                var classFileResult = Launcher.compileToClassFile(code, unitConfig, metrics);
+                output = classFileResult.write(CompilerConfig.getClassFileOutput(unitConfig));
+                className = classFileResult.className();
+            } else {
+                className = Launcher.compile(code, unitConfig, metrics).getClassName();
+            }
+            return new UnitResult(file, true, className, output, System.nanoTime() - start, metrics);
+        } catch (Exception | StackOverflowError e) {
+            // Keep only the first line, some stages embed the whole generated code in the message
+            var message = String.valueOf(e.getMessage()).lines().findFirst().orElse("");
+            return new UnitResult(file, false, e.getClass().getSimpleName() + ": " + message, null,
+                    System.nanoTime() - start, metrics);
+        }
+    }
+
+    private static List<Map<String, Object>> toJsonObjects(Summary summary) {
+        List<Map<String, Object>> objects = new ArrayList<>();
+
+        for (var result : summary.results()) {
+            var object = result.metrics().toJsonObject(result.file());
+            object.put("success", result.success());
+            objects.add(object);
+        }
+
+        return objects;
+    }
+
+    private static String format(UnitResult result) {
+        var status = result.success() ? "[OK]   " : "[FAIL] ";
+        var line = status + result.file().getPath() + " (" + result.elapsedNanos() / 1_000_000 + " ms)";
+
+        if (!result.success()) {
+            line += ": " + result.message();
+        }
+
+        return line;
+    }
+
+    private static List<File> collectFiles(File batchInput) {
+        if (batchInput.isDirectory()) {
+            return SpecsIo.getFilesRecursive(batchInput, EXTENSION);
+        }
+
+        // File list, one path per line, relative paths are resolved against the list location
+        List<File> files = new ArrayList<>();
+        for (var line : SpecsIo.read(batchInput).split("\\R")) {
+            var path = line.strip();
+            if (path.isEmpty() || path.startsWith("#")) {
+                continue;
+            }
+
+            var file = new File(path);
+            if (!file.isAbsolute()) {
+                file = new File(batchInput.getAbsoluteFile().getParentFile(), path);
+            }
+            files.add(file);
+        }
+
+        return files;
+    }
+}
@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.GsonBuilder;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Wall time, CPU time and allocated bytes of each stage of a compilation, together with the size of what the stage
+ * produced (AST nodes, OLLIR instructions or Jasmin lines).
+ * <p>
+ * CPU time and allocations are those of the current thread, so a compilation must run on a single thread. They are -1
+ * when the JVM does not support measuring them.
+ */
+public class CompilationMetrics {
+
+    public record StageMetrics(String stage, long wallNanos, long cpuNanos, long allocatedBytes, String countName,
+                               long count) {
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final List<StageMetrics> stages;
+
+    public CompilationMetrics() {
+        this.stages = new ArrayList<>();
+    }
+
+    /**
+     * Runs the stage, recording its costs and the count of the result given by the counter, which is not measured.
+     */
+    public <T> T measure(String stage, Supplier<T> action, String countName, ToLongFunction<T> counter) {
+        long cpuStart = cpuTime();
+        long allocatedStart = allocatedBytes();
+        long wallStart = System.nanoTime();
+
+        var result = action.get();
+
+        long wall = System.nanoTime() - wallStart;
+        long allocated = difference(allocatedStart, allocatedBytes());
+        long cpu = difference(cpuStart, cpuTime());
+
+        stages.add(new StageMetrics(stage, wall, cpu, allocated, countName, counter.applyAsLong(result)));
+        return result;
+    }
+
+    public List<StageMetrics> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    public long getTotalWallNanos() {
+        return stages.stream().mapToLong(StageMetrics::wallNanos).sum();
+    }
+
+    public static long countNodes(JmmNode root) {
+        if (root == null) {
+            return 0;
+        }
+
+        // Iterative, generated methods can be deeper than the call stack allows
+        long count = 0;
+        var stack = new ArrayList<JmmNode>();
+        stack.add(root);
+
+        while (!stack.isEmpty()) {
+            var node = stack.remove(stack.size() - 1);
+            count++;
+            stack.addAll(node.getChildren());
+        }
+
+        return count;
+    }
+
+    public static long countInstructions(OllirResult ollirResult) {
+        if (ollirResult.getOllirClass() == null) {
+            return 0;
+        }
+
+        return ollirResult.getOllirClass().getMethods().stream()
+                .mapToLong(method -> method.getInstructions().size())
+                .sum();
+    }
+
+    public static long countLines(String code) {
+        return code.lines().filter(line -> !line.isBlank()).count();
+    }
+
+    public String toTable() {
+        var table = new StringBuilder();
+        table.append(String.format("%-16s %10s %10s %12s   %s%n", "stage", "wall ms", "cpu ms", "alloc KB", "output"));
+
+        for (var stage : stages) {
+            table.append(String.format("%-16s %10.2f %10s %12s   %d %s%n",
+                    stage.stage(),
+                    stage.wallNanos() / 1e6,
+                    stage.cpuNanos() < 0 ? "-" : String.format("%.2f", stage.cpuNanos() / 1e6),
+                    stage.allocatedBytes() < 0 ? "-" : String.valueOf(stage.allocatedBytes() / 1024),
+                    stage.count(),
+                    stage.countName()));
+        }
+
+        table.append(String.format("%-16s %10.2f%n", "total", getTotalWallNanos() / 1e6));
+        return table.toString();
+    }
+
+    /**
+     * @return the stages as a list of JSON objects, with the count under the name of what was counted
+     */
+    private List<Map<String, Object>> toJsonObjects() {
+        List<Map<String, Object>> objects = new ArrayList<>();
+
+        for (var stage : stages) {
+            Map<String, Object> object = new LinkedHashMap<>();
+            object.put("stage", stage.stage());
+            object.put("wallNanos", stage.wallNanos());
+            object.put("cpuNanos", stage.cpuNanos());
+            object.put("allocatedBytes", stage.allocatedBytes());
+            object.put(stage.countName(), stage.count());
+            objects.add(object);
+        }
+
+        return objects;
+    }
+
+    /**
+     * @return a JSON object with the given file and the stages of its compilation
+     */
+    public Map<String, Object> toJsonObject(File file) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("file", file.getPath());
+        object.put("wallNanos", getTotalWallNanos());
+        object.put("stages", toJsonObjects());
+        return object;
+    }
+
+    public static String toJson(Object object) {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(object);
+    }
+
+    private static long cpuTime() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static long allocatedBytes() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long difference(long start, long end) {
+        if (start < 0 || end < 0) {
+            return -1;
+        }
+        return end - start;
+    }
+}
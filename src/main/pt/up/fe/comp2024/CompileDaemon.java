@@ -0,0 +1,310 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a warmed-up compiler running, and compiles what clients send to a loopback socket, several requests at a
+ * time. The port and a random token are written to the port file of the config, on two lines, which only its owner can
+ * read. The file is deleted when the daemon stops.
+ * <p>
+ * Each connection carries one request and its response, as lines of UTF-8 text. The request starts with the token, so
+ * that other users of the machine cannot compile, read or write files as the owner of the daemon. Then it has the
+ * folder the paths are relative to, the command line arguments, optionally the code to compile instead of the input
+ * file, and ends with a line with 'end':
+ * <pre>
+ * token &lt;TOKEN&gt;
+ * cwd &lt;PATH&gt;
+ * arg &lt;ARGUMENT&gt;
+ * code &lt;LINE&gt;
+ * end
+ * </pre>
+ * The response has what the compiler printed, the error that made it fail, the files it wrote, and ends with the exit
+ * status:
+ * <pre>
+ * out &lt;LINE&gt;
+ * error &lt;LINE&gt;
+ * output &lt;PATH&gt;
+ * status &lt;STATUS&gt;
+ * </pre>
+ */
+public class CompileDaemon implements AutoCloseable {
+
+    /**
+     * How long the daemon waits for each part of a request, so that clients that send nothing do not keep its threads.
+     */
+    public static final int REQUEST_TIMEOUT_MS = 5_000;
+    public static final int MAX_REQUEST_BYTES = 16 * 1024 * 1024;
+
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final String WARM_UP_CODE = """
+            import io;
+            class WarmUp {
+                public int add(int count, int step) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = 0;
+                    while (i < count) {
+                        if (i < 2 && !(step < 0)) {
+                            total = total + i * step;
+                        } else {
+                            total = total + 1;
+                        }
+                        i = i + 1;
+                    }
+                    return total;
+                }
+                public static void main(String[] args) {
+                    WarmUp warmUp;
+                    int total;
+                    warmUp = new WarmUp();
+                    total = warmUp.add(10, 4);
+                    io.println(total);
+                }
+            }
+            """;
+
+    private final File portFile;
+    private final String token;
+    private final ServerSocket server;
+    private final ExecutorService pool;
+
+    public CompileDaemon(Map<String, String> config) {
+        this.portFile = CompilerConfig.getDaemonPortFile(config);
+        this.token = newToken();
+        this.pool = Executors.newFixedThreadPool(CompilerConfig.getThreads(config));
+
+        try {
+            this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open a socket for the compile daemon", e);
+        }
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Warms up the compiler, writes the port file and handles requests until the daemon is closed.
+     */
+    public void run() {
+        warmUp();
+
+        writePortFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(portFile::delete));
+        System.out.println("Compile daemon listening on port " + getPort() + ", written to '" + portFile + "'");
+
+        try {
+            while (true) {
+                var socket = server.accept();
+                pool.submit(() -> handle(socket));
+            }
+        } catch (SocketException e) {
+            // Thrown when the daemon is closed
+        } catch (IOException e) {
+            throw new RuntimeException("Could not accept compile requests", e);
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Nothing left to do with the socket
+        }
+
+        pool.shutdownNow();
+        portFile.delete();
+    }
+
+    private static String newToken() {
+        var bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    /**
+     * Writes the port and the token to a temporary file that is then moved, so that clients never read a partially
+     * written file. The temporary file is only readable by its owner before the token is written to it.
+     */
+    private void writePortFile() {
+        var tempFile = new File(portFile.getPath() + ".tmp");
+        SpecsIo.mkdir(tempFile.getAbsoluteFile().getParentFile());
+
+        try {
+            Files.deleteIfExists(tempFile.toPath());
+            try {
+                Files.createFile(tempFile.toPath(),
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system, the owner is the only one allowed to read and write it
+                Files.createFile(tempFile.toPath());
+                tempFile.setReadable(false, false);
+                tempFile.setWritable(false, false);
+                tempFile.setReadable(true, true);
+                tempFile.setWritable(true, true);
+            }
+
+            Files.writeString(tempFile.toPath(), getPort() + "\n" + token + "\n");
+            Files.move(tempFile.toPath(), portFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write the port file '" + portFile + "'", e);
+        }
+    }
+
+    /**
+     * Compiles the same code with every stage a few times, so that the classes are loaded and the hottest methods are
+     * compiled by the JIT before the first request.
+     */
+    private void warmUp() {
+        var warmUpConfig = CompilerConfig.parseArgs(new String[]{"-o"}, SpecsIo.getWorkingDir());
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            Launcher.compile(WARM_UP_CODE, warmUpConfig);
+            Launcher.compileToClassFile(WARM_UP_CODE, warmUpConfig, new CompilationMetrics());
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             var in = new BufferedReader(new InputStreamReader(limit(socket.getInputStream()), StandardCharsets.UTF_8));
+             var out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            socket.setSoTimeout(REQUEST_TIMEOUT_MS);
+            for (var line : compile(in)) {
+                out.print(line + "\n");
+            }
+        } catch (IOException e) {
+            // The client is gone, too slow or sent too much, there is no one to answer to
+        }
+    }
+
+    /**
+     * @return the stream, that fails after reading more than the maximum size of a request
+     */
+    private static InputStream limit(InputStream in) {
+        return new FilterInputStream(in) {
+
+            private int remaining = MAX_REQUEST_BYTES;
+
+            @Override
+            public int read() throws IOException {
+                var b = super.read();
+                consume(b == -1 ? 0 : 1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                var count = super.read(b, off, Math.min(len, remaining + 1));
+                consume(Math.max(count, 0));
+                return count;
+            }
+
+            private void consume(int count) throws IOException {
+                remaining -= count;
+                if (remaining < 0) {
+                    throw new IOException("The request is larger than " + MAX_REQUEST_BYTES + " bytes");
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the lines of the response
+     */
+    private List<String> compile(BufferedReader in) throws IOException {
+        var tokenLine = in.readLine();
+        if (tokenLine == null || !MessageDigest.isEqual(tokenLine.getBytes(StandardCharsets.UTF_8),
+                ("token " + token).getBytes(StandardCharsets.UTF_8))) {
+            return List.of("error The request does not start with the token of the daemon", "status 1");
+        }
+
+        var workingDir = SpecsIo.getWorkingDir();
+        List<String> args = new ArrayList<>();
+        StringBuilder code = null;
+
+        String line;
+        while ((line = in.readLine()) != null && !line.equals("end")) {
+            var separator = line.indexOf(' ');
+            var key = separator == -1 ? line : line.substring(0, separator);
+            var value = separator == -1 ? "" : line.substring(separator + 1);
+
+            switch (key) {
+                case "cwd" -> workingDir = new File(value);
+                case "arg" -> args.add(value);
+                case "code" -> {
+                    if (code == null) {
+                        code = new StringBuilder();
+                    }
+                    code.append(value).append("\n");
+                }
+                default -> {
+                    return List.of("error Unknown request line '" + line + "'", "status 1");
+                }
+            }
+        }
+
+        var output = new ByteArrayOutputStream();
+        List<String> response = new ArrayList<>();
+        int status;
+        try (var printStream = new PrintStream(output, true, StandardCharsets.UTF_8)) {
+            var requestConfig = CompilerConfig.parseArgs(args.toArray(String[]::new), workingDir);
+            if (CompilerConfig.getDaemon(requestConfig)) {
+                throw new RuntimeException("Option '-d' cannot be sent to a running daemon");
+            }
+
+            if (code == null && CompilerConfig.getInputFile(requestConfig).isEmpty()
+                    && CompilerConfig.getBatchInput(requestConfig).isEmpty()) {
+                throw new RuntimeException(
+                        "Expected an input file, use '-i=<PATH_TO_FILE>' or '-b=<PATH_TO_DIR_OR_LIST>'");
+            }
+
+            var result = Launcher.run(requestConfig, code == null ? null : code.toString(), printStream);
+            result.outputs().forEach(file -> response.add("output " + file.getPath()));
+            status = result.status();
+        } catch (RuntimeException | StackOverflowError e) {
+            String.valueOf(e).lines().forEach(errorLine -> response.add("error " + errorLine));
+            status = 1;
+        }
+
+        List<String> lines = new ArrayList<>();
+        output.toString(StandardCharsets.UTF_8).lines().forEach(outLine -> lines.add("out " + outLine));
+        lines.addAll(response);
+        lines.add("status " + status);
+
+        return lines;
+    }
+}
@@ -1,5 +1,7 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.specs.util.SpecsIo;
+
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
@@ -10,6 +12,13 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH = "batch";
+    private static final String THREADS = "threads";
+    private static final String TIMING = "timing";
+    private static final String CLASS_FILE = "classFile";
+    private static final String DAEMON = "daemon";
+
+    public static final String DEFAULT_DAEMON_PORT_FILE = "build/jmm-daemon.port";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +27,11 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH);
+        shortToLong.put("j", CompilerConfig.THREADS);
+        shortToLong.put("t", CompilerConfig.TIMING);
+        shortToLong.put("c", CompilerConfig.CLASS_FILE);
+        shortToLong.put("d", CompilerConfig.DAEMON);
     }
 
 
@@ -32,6 +46,30 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    /**
+     * The batch input is either a directory, which is searched recursively for .jmm files, or a text file
+     * with one path per line.
+     */
+    public static Optional<File> getBatchInput(Map<String, String> config) {
+        var batchInput = config.get(BATCH);
+
+        if (batchInput == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(batchInput));
+    }
+
+    public static int getThreads(Map<String, String> config) {
+        var threads = config.get(THREADS);
+
+        if (threads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return Integer.parseInt(threads);
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
@@ -41,6 +79,51 @@ public class CompilerConfig {
     }
 
 
+    /**
+     * Whether to report the cost of each stage, '-t' prints a table and '-t=<PATH>' writes JSON to the given file.
+     */
+    public static boolean getTiming(Map<String, String> config) {
+        var timing = config.get(TIMING);
+        return timing != null && !timing.equals("false");
+    }
+
+    public static Optional<File> getTimingFile(Map<String, String> config) {
+        if (!getTiming(config) || config.get(TIMING).equals("true")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(config.get(TIMING)));
+    }
+
+    /**
+     * Whether to write the class file directly instead of generating Jasmin, '-c' writes it to the working
+     * directory and '-c=<DIR>' to the given directory.
+     */
+    public static boolean getClassFile(Map<String, String> config) {
+        var classFile = config.get(CLASS_FILE);
+        return classFile != null && !classFile.equals("false");
+    }
+
+    public static File getClassFileOutput(Map<String, String> config) {
+        var classFile = config.getOrDefault(CLASS_FILE, "true");
+        return classFile.equals("true") ? new File(".") : new File(classFile);
+    }
+
+    /**
+     * Whether to start a compile daemon, '-d' writes its port to {@link #DEFAULT_DAEMON_PORT_FILE} and '-d=<PATH>' to
+     * the given file.
+     */
+    public static boolean getDaemon(Map<String, String> config) {
+        var daemon = config.get(DAEMON);
+        return daemon != null && !daemon.equals("false");
+    }
+
+    public static File getDaemonPortFile(Map<String, String> config) {
+        var daemon = config.getOrDefault(DAEMON, "true");
+        return new File(daemon.equals("true") ? DEFAULT_DAEMON_PORT_FILE : daemon);
+    }
+
+
     public static Map<String, String> getDefault() {
 
         var config = new HashMap<String, String>();
@@ -62,6 +145,22 @@ public class CompilerConfig {
     }
 
     public static Map<String, String> parseArgs(String[] args) {
+        var config = parseArgs(args, SpecsIo.getWorkingDir());
+
+        if (!config.containsKey(INPUT_FILE) && !config.containsKey(BATCH) && !getDaemon(config)) {
+
+            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>' or '-b=<PATH_TO_DIR_OR_LIST>'");
+        }
+
+        return config;
+    }
+
+    /**
+     * Parses the arguments as if the compiler ran in the given folder, making every path in the config absolute.
+     * <p>
+     * Does not require an input file, so that the code can also be given in some other way.
+     */
+    public static Map<String, String> parseArgs(String[] args, File workingDir) {
 
         // default options for config
         var config = getDefault();
@@ -89,26 +188,53 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
-        if (!config.containsKey(INPUT_FILE)) {
+        // make sure we save the absolute path of the input file
+        if (config.containsKey(INPUT_FILE)) {
+            var inputFile = resolve(workingDir, config.get(INPUT_FILE));
+            if (!inputFile.isFile()) {
+                throw new RuntimeException("Could not find input file '" + inputFile + "'");
+            }
+
+            config.put(INPUT_FILE, inputFile.getPath());
+        }
+
+        if (config.containsKey(BATCH)) {
+            var batchInput = resolve(workingDir, config.get(BATCH));
+            if (!batchInput.exists()) {
+                throw new RuntimeException("Could not find batch input '" + config.get(BATCH) + "'");
+            }
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
+            config.put(BATCH, batchInput.getPath());
         }
 
-        // make sure we save the absolute path of the input file
-        var inputFile = new File(config.get(INPUT_FILE));
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Could not find input file '" + inputFile + "'");
+        // Output paths are also relative to the working folder
+        if (getClassFile(config)) {
+            config.put(CLASS_FILE, resolve(workingDir, getClassFileOutput(config).getPath()).getPath());
         }
 
-        var absolutePath = inputFile.getAbsolutePath();
-        config.put(INPUT_FILE, absolutePath);
+        getTimingFile(config).ifPresent(file -> config.put(TIMING, resolve(workingDir, file.getPath()).getPath()));
+
+        if (getDaemon(config)) {
+            config.put(DAEMON, resolve(workingDir, getDaemonPortFile(config).getPath()).getPath());
+        }
 
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        if (getThreads(config) < 1) {
+            throw new RuntimeException("Option '-j' expects a positive number of threads");
+        }
 
         return config;
     }
 
+    private static File resolve(File workingDir, String path) {
+        var file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(workingDir, path);
+        }
+
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
 
 }
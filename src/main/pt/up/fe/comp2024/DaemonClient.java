@@ -0,0 +1,108 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sends compile requests to a running {@link CompileDaemon}, see its documentation for the protocol.
+ * <p>
+ * The 'jmm' script speaks the same protocol from the shell, so that it does not have to start a JVM.
+ */
+public class DaemonClient {
+
+    private final int port;
+    private final String token;
+
+    /**
+     * @param token the token the daemon wrote to its port file
+     */
+    public DaemonClient(int port, String token) {
+        this.port = port;
+        this.token = token;
+    }
+
+    /**
+     * @return a client for the daemon whose port and token are in the given file, or empty if there is no such file
+     */
+    public static Optional<DaemonClient> fromPortFile(File portFile) {
+        if (!portFile.isFile()) {
+            return Optional.empty();
+        }
+
+        var lines = SpecsIo.read(portFile).lines().toList();
+        if (lines.size() < 2) {
+            throw new RuntimeException("Expected the port and the token in the port file '" + portFile + "'");
+        }
+
+        return Optional.of(new DaemonClient(Integer.parseInt(lines.get(0).strip()), lines.get(1).strip()));
+    }
+
+    /**
+     * @param output  what the compiler printed
+     * @param errors  the error that made the compiler fail, if any
+     * @param outputs the files that were written
+     */
+    public record Response(int status, List<String> output, List<String> errors, List<File> outputs) {
+    }
+
+    /**
+     * @param workingDir the folder the paths in the arguments are relative to
+     * @param code       the code to compile instead of the input file, or null
+     */
+    public Response compile(File workingDir, List<String> args, String code) {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             var out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            out.print("token " + token + "\n");
+            out.print("cwd " + workingDir.getAbsolutePath() + "\n");
+            args.forEach(arg -> out.print("arg " + arg + "\n"));
+            if (code != null) {
+                code.lines().forEach(line -> out.print("code " + line + "\n"));
+            }
+            out.print("end\n");
+            out.flush();
+
+            return readResponse(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not send the request to the compile daemon on port " + port, e);
+        }
+    }
+
+    private static Response readResponse(BufferedReader in) throws IOException {
+        List<String> output = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        List<File> outputs = new ArrayList<>();
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            var separator = line.indexOf(' ');
+            var key = separator == -1 ? line : line.substring(0, separator);
+            var value = separator == -1 ? "" : line.substring(separator + 1);
+
+            switch (key) {
+                case "out" -> output.add(value);
+                case "error" -> errors.add(value);
+                case "output" -> outputs.add(new File(value));
+                case "status" -> {
+                    return new Response(Integer.parseInt(value), output, errors, outputs);
+                }
+                default -> throw new RuntimeException("Unknown response line '" + line + "'");
+            }
+        }
+
+        throw new RuntimeException("The compile daemon closed the connection before sending the exit status");
+    }
+}
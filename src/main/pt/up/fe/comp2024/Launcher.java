@@ -6,30 +6,176 @@ import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
 import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.backend.classfile.ClassFileResult;
 import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2024.parser.JmmParserImpl;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class Launcher {
 
+    private static final String AST_NODES = "astNodes";
+    private static final String OLLIR_INSTRUCTIONS = "ollirInstructions";
+    private static final String JASMIN_LINES = "jasminLines";
+    private static final String CLASS_FILE_BYTES = "classFileBytes";
+
+    // Name of the input in the timing report when the code is not read from a file
+    private static final String INLINE_CODE = "<inline>";
+
     public static void main(String[] args) {
         SpecsSystem.programStandardInit();
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
-        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
+        // Daemon mode, keeps a warmed-up compiler running and compiles what the clients send
+        if (CompilerConfig.getDaemon(config)) {
+            new CompileDaemon(config).run();
+            return;
+        }
+
+        var result = run(config, null, System.out);
+        if (result.status() != 0) {
+            System.exit(result.status());
+        }
+    }
+
+    /**
+     * @param status  the exit status of the compiler
+     * @param outputs the files that were written
+     */
+    public record RunResult(int status, List<File> outputs) {
+    }
+
+    /**
+     * Compiles what the config asks for, as when running the compiler from the command line, printing to the given
+     * stream. Throws if a single unit does not compile.
+     *
+     * @param config
+     * @param code   the code to compile instead of the input file, or null to read the input file
+     * @param out
+     * @return
+     */
+    public static RunResult run(Map<String, String> config, String code, PrintStream out) {
+
+        // Batch mode, compiles every unit found in the given directory or file list
+        if (CompilerConfig.getBatchInput(config).isPresent()) {
+            var summary = new BatchCompiler(config).run(out);
+            var outputs = summary.results().stream()
+                    .map(BatchCompiler.UnitResult::output)
+                    .filter(Objects::nonNull)
+                    .toList();
+            return new RunResult(summary.numFailed() > 0 ? 1 : 0, outputs);
+        }
+
+        var inputFile = CompilerConfig.getInputFile(config).orElse(new File(INLINE_CODE));
+        if (code == null) {
+            if (!inputFile.isFile()) {
+                throw new RuntimeException("Option '-i' expects a path to an existing input file, got '"
+                        + inputFile + "'.");
+            }
+            code = SpecsIo.read(inputFile);
+        }
+
+        var metrics = new CompilationMetrics();
+        List<File> outputs = new ArrayList<>();
+        try {
+            if (CompilerConfig.getClassFile(config)) {
+                outputs.add(compileToClassFile(code, config, metrics).write(CompilerConfig.getClassFileOutput(config)));
+            } else {
+                compile(code, config, metrics);
+            }
+        } finally {
+            // Also reported when a stage fails, with the stages that ran until then
+            if (CompilerConfig.getTiming(config)) {
+                report(inputFile, metrics, config, out);
+            }
         }
-        String code = SpecsIo.read(inputFile);
+
+        return new RunResult(0, outputs);
+    }
+
+    private static void report(File inputFile, CompilationMetrics metrics, Map<String, String> config,
+                               PrintStream out) {
+        var timingFile = CompilerConfig.getTimingFile(config);
+        if (timingFile.isPresent()) {
+            SpecsIo.write(timingFile.get(), CompilationMetrics.toJson(metrics.toJsonObject(inputFile)));
+            return;
+        }
+
+        out.print(metrics.toTable());
+    }
+
+    /**
+     * Runs the full pipeline (parsing, semantic analysis, OLLIR generation and Jasmin generation) over the given code.
+     * Throws if any of the stages reports an error.
+     *
+     * @param code
+     * @param config
+     * @return
+     */
+    public static JasminResult compile(String code, Map<String, String> config) {
+        return compile(code, config, new CompilationMetrics());
+    }
+
+    /**
+     * Same as {@link #compile(String, Map)}, recording the cost of each stage in the given metrics.
+     *
+     * @param code
+     * @param config
+     * @param metrics
+     * @return
+     */
+    public static JasminResult compile(String code, Map<String, String> config, CompilationMetrics metrics) {
+        OllirResult ollirResult = toOllir(code, config, metrics);
+
+        // Code generation stage
+        JasminBackendImpl jasminGen = new JasminBackendImpl();
+        JasminResult jasminResult = metrics.measure("jasmin", () -> jasminGen.toJasmin(ollirResult),
+                JASMIN_LINES, result -> CompilationMetrics.countLines(result.getJasminCode()));
+        TestUtils.noErrors(jasminResult.getReports());
+
+        // Print Jasmin code
+        //System.out.println(jasminResult.getJasminCode());
+
+        return jasminResult;
+    }
+
+    /**
+     * Runs the same stages as {@link #compile(String, Map, CompilationMetrics)}, but writes the class file directly
+     * instead of generating Jasmin code.
+     *
+     * @param code
+     * @param config
+     * @param metrics
+     * @return
+     */
+    public static ClassFileResult compileToClassFile(String code, Map<String, String> config,
+                                                     CompilationMetrics metrics) {
+        OllirResult ollirResult = toOllir(code, config, metrics);
+
+        ClassFileBackendImpl classFileGen = new ClassFileBackendImpl();
+        ClassFileResult classFileResult = metrics.measure("classfile", () -> classFileGen.toClassFile(ollirResult),
+                CLASS_FILE_BYTES, result -> result.bytes().length);
+        TestUtils.noErrors(classFileResult.reports());
+
+        return classFileResult;
+    }
+
+    private static OllirResult toOllir(String code, Map<String, String> config, CompilationMetrics metrics) {
 
         // Parsing stage
         JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
+        JmmParserResult parserResult = metrics.measure("parse", () -> parser.parse(code, config),
+                AST_NODES, result -> CompilationMetrics.countNodes(result.getRootNode()));
         TestUtils.noErrors(parserResult.getReports());
 
         // Print AST
@@ -37,25 +183,25 @@ public class Launcher {
 
         // Semantic Analysis stage
         JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+        JmmSemanticsResult analysisResult = metrics.measure("semantic", () -> sema.semanticAnalysis(parserResult),
+                AST_NODES, result -> CompilationMetrics.countNodes(result.getRootNode()));
+        TestUtils.noErrors(analysisResult.getReports());
 
 
         // Optimization stage
         JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
+        JmmSemanticsResult semanticsResult = metrics.measure("optimize-ast", () -> ollirGen.optimize(analysisResult),
+                AST_NODES, result -> CompilationMetrics.countNodes(result.getRootNode()));
+        OllirResult generatedOllir = metrics.measure("ollir", () -> ollirGen.toOllir(semanticsResult),
+                OLLIR_INSTRUCTIONS, CompilationMetrics::countInstructions);
+        OllirResult ollirResult = metrics.measure("optimize-ollir", () -> ollirGen.optimize(generatedOllir),
+                OLLIR_INSTRUCTIONS, CompilationMetrics::countInstructions);
         TestUtils.noErrors(ollirResult.getReports());
 
         // Print OLLIR code
         //System.out.println(ollirResult.getOllirCode());
 
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
-
-        // Print Jasmin code
-        //System.out.println(jasminResult.getJasminCode());
+        return ollirResult;
     }
 
 }
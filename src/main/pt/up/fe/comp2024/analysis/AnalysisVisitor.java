@@ -4,6 +4,7 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,6 +15,8 @@ import java.util.List;
 public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
+    private NodeIndex index;
+    private JmmSymbolTable symbols;
 
     public AnalysisVisitor() {
         reports = new ArrayList<>();
@@ -28,9 +31,26 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         return reports;
     }
 
+    /**
+     * @return the index of the tree being analysed
+     */
+    protected NodeIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the table being used, with lookups by name
+     */
+    protected JmmSymbolTable getSymbols() {
+        return symbols;
+    }
+
 
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
+        index = NodeIndex.build(root);
+        symbols = JmmSymbolTable.of(table);
+
         // Visit the node
         visit(root, table);
 
@@ -0,0 +1,135 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the nodes of an AST by kind, built in a single traversal.
+ * <p>
+ * Nodes are numbered in pre-order, so the descendants of a node are the nodes numbered after it up to the end of its
+ * subtree. Queries return the same nodes, in the same order, as {@link JmmNode#getDescendants(String)}, without
+ * visiting the subtree again.
+ */
+public class NodeIndex {
+
+    private final List<JmmNode> nodes;
+    private final Map<JmmNode, Integer> positions;
+    private final Map<JmmNode, Integer> subtreeEnds;
+    private final Map<String, List<Integer>> positionsByKind;
+
+    private NodeIndex() {
+        this.nodes = new ArrayList<>();
+        this.positions = new IdentityHashMap<>();
+        this.subtreeEnds = new IdentityHashMap<>();
+        this.positionsByKind = new HashMap<>();
+    }
+
+    public static NodeIndex build(JmmNode root) {
+        var index = new NodeIndex();
+        index.add(root);
+        return index;
+    }
+
+    private void add(JmmNode root) {
+        // Iterative, generated methods can be deeper than the call stack allows
+        var stack = new ArrayList<JmmNode>();
+        var open = new ArrayList<JmmNode>();
+        stack.add(root);
+
+        while (!stack.isEmpty()) {
+            var node = stack.remove(stack.size() - 1);
+
+            if (node == null) {
+                // Marker pushed after the children of the last opened node
+                subtreeEnds.put(open.remove(open.size() - 1), nodes.size());
+                continue;
+            }
+
+            int position = nodes.size();
+            nodes.add(node);
+            positions.put(node, position);
+            for (var kind : node.getHierarchy()) {
+                positionsByKind.computeIfAbsent(kind, k -> new ArrayList<>()).add(position);
+            }
+
+            open.add(node);
+            stack.add(null);
+            var children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.add(children.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return the descendants of the node, in pre-order
+     */
+    public List<JmmNode> getDescendants(JmmNode node) {
+        int position = getPosition(node);
+        return Collections.unmodifiableList(nodes.subList(position + 1, subtreeEnds.get(node)));
+    }
+
+    /**
+     * @return the descendants of the node of the given kind, in pre-order
+     */
+    public List<JmmNode> getDescendants(JmmNode node, String kind) {
+        var kindPositions = positionsByKind.get(kind);
+        if (kindPositions == null) {
+            return Collections.emptyList();
+        }
+
+        int position = getPosition(node);
+        int from = lowerBound(kindPositions, position + 1);
+        int to = lowerBound(kindPositions, subtreeEnds.get(node));
+
+        var descendants = new ArrayList<JmmNode>(to - from);
+        for (int i = from; i < to; i++) {
+            descendants.add(nodes.get(kindPositions.get(i)));
+        }
+        return descendants;
+    }
+
+    /**
+     * @return the number of descendants of the node of the given kind
+     */
+    public int countDescendants(JmmNode node, String kind) {
+        var kindPositions = positionsByKind.get(kind);
+        if (kindPositions == null) {
+            return 0;
+        }
+
+        int position = getPosition(node);
+        return lowerBound(kindPositions, subtreeEnds.get(node)) - lowerBound(kindPositions, position + 1);
+    }
+
+    private int getPosition(JmmNode node) {
+        var position = positions.get(node);
+        if (position == null) {
+            throw new IllegalArgumentException("Node is not part of the indexed tree: " + node);
+        }
+        return position;
+    }
+
+    /**
+     * @return the index of the first element of the sorted list that is not smaller than the value
+     */
+    private static int lowerBound(List<Integer> sorted, int value) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted.get(middle) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
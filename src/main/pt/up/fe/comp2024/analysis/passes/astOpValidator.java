@@ -9,15 +9,23 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
 import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class astOpValidator extends AnalysisVisitor {
     private String currentMethod;
     private final List<JmmNode> methods = new ArrayList<JmmNode>();
+    private final Map<String, JmmNode> methodsByName = new HashMap<>();
+    private boolean hasRepeatedMethods = false;
+    private final Map<String, Integer> repeatedLocalPairs = new HashMap<>();
     List<List<String>> returnTypes = new ArrayList<>();
     private List<String> imports = new ArrayList<>();
     private List<Pair<JmmNode, JmmNode>> functionsCalled = new ArrayList<>(); // Guarda o node da chamada feita a uma função e o node da declaração da variável que chama a função
@@ -59,9 +67,14 @@ public class astOpValidator extends AnalysisVisitor {
     }
 
     private Void visitProgram(JmmNode programNode, SymbolTable symbolTable) {
-        var methodsNodes = programNode.getDescendants("MethodDecl");
+        var methodsNodes = getIndex().getDescendants(programNode, "MethodDecl");
         for (var method : methodsNodes) {
             methods.add(method);
+            if (method.hasAttribute("methodName")) {
+                // a primeira declaração é a que fica registada
+                var previous = methodsByName.putIfAbsent(method.get("methodName"), method);
+                if (previous != null) hasRepeatedMethods = true;
+            }
         }
         return null;
     }
@@ -71,15 +84,11 @@ public class astOpValidator extends AnalysisVisitor {
 
         // verificar se existem fields repetidos
         if (symbolTable.getFields() != null) {
-            var fields = symbolTable.getFields();
-            for (int i = 0; i < fields.size(); i++) {
-                for (int j = i + 1; j < fields.size(); j++) {
-                    if (fields.get(i) != null && fields.get(j) != null) {
-                        if (fields.get(i).getName().equals(fields.get(j).getName())) {
-                            valid = false;
-                            break;
-                        }
-                    }
+            var fieldNames = new HashSet<String>();
+            for (var field : symbolTable.getFields()) {
+                if (field != null && !fieldNames.add(field.getName())) {
+                    valid = false;
+                    break;
                 }
             }
         }
@@ -116,10 +125,26 @@ public class astOpValidator extends AnalysisVisitor {
         return null;
     }
 
+    // Declarações visíveis no método atual com o nome do node, pela ordem local, parametro, field
+    private List<ResolvedSymbol> declarationsOf(JmmNode node) {
+        if (!node.hasAttribute("name")) return List.of();
+        return getSymbols().resolveAll(currentMethod, node.get("name"));
+    }
+
+    // Acesso a um field que não é escondido por uma variável local
+    private boolean isFieldAccess(JmmNode node) {
+        if (!node.hasAttribute("name")) return false;
+        var name = node.get("name");
+        return getSymbols().getField(name).isPresent() && getSymbols().getLocalVariable(currentMethod, name).isEmpty();
+    }
+
     private Void visitBinaryOp(JmmNode binaryOpNode, SymbolTable symbolTable) {
         boolean valid = true;
 
-        var varRefExpressions = binaryOpNode.getDescendants("VarRefExpr");
+        // Só os operandos do próprio operador, uma comparação dentro de '&&' já é booleana
+        var varRefExpressions = getOperands(binaryOpNode).stream()
+                .filter(operand -> operand.getKind().equals("VarRefExpr"))
+                .toList();
         int countBoolConsts = 0;
         int countIntConsts = binaryOpNode.getChildren("IntegerLiteral").size();
 
@@ -130,59 +155,22 @@ public class astOpValidator extends AnalysisVisitor {
                     countBoolConsts++;
                 }
             }
-            else {
-                // se forem variáveis locais
-                if (symbolTable.getLocalVariables(currentMethod) != null) {
-                    for (var locarVar : symbolTable.getLocalVariables(currentMethod)) {
-                        if (var.hasAttribute("name")) {
-                            if (locarVar.getName().equals(var.get("name"))) {
-                                if (locarVar.getType().getName().equals("boolean")) {
-                                    countBoolConsts++;
-                                }
-                            }
-                        }
-                    }
-                }
-                // se forem parametros
-                if (symbolTable.getParameters(currentMethod) != null) {
-                    for (var param : symbolTable.getParameters(currentMethod)) {
-                        if (var.hasAttribute("name")) {
-                            if (param.getName().equals(var.get("name"))) {
-                                if (param.getType().getName().equals("boolean")) {
-                                    countBoolConsts++;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
         }
 
         // contar valores inteiros numa VarRefExpr
         for (var var : varRefExpressions) {
+            if (!var.hasAttribute("name")) continue;
+            var name = var.get("name");
+
             // se forem variáveis locais
-            if (symbolTable.getLocalVariables(currentMethod) != null) {
-                for (var locarVar : symbolTable.getLocalVariables(currentMethod)) {
-                    if (var.hasAttribute("name")) {
-                        if (locarVar.getName().equals(var.get("name"))) {
-                            if (locarVar.getType().getName().equals("int")) {
-                                countIntConsts++;
-                            }
-                        }
-                    }
-                }
+            var localVar = getSymbols().getLocalVariable(currentMethod, name);
+            if (localVar.isPresent() && localVar.get().getType().getName().equals("int")) {
+                countIntConsts++;
             }
             // se forem parametros
-            if (symbolTable.getParameters(currentMethod) != null) {
-                for (var param : symbolTable.getParameters(currentMethod)) {
-                    if (var.hasAttribute("name")) {
-                        if (param.getName().equals(var.get("name"))) {
-                            if (param.getType().getName().equals("int")) {
-                                countIntConsts++;
-                            }
-                        }
-                    }
-                }
+            var param = getSymbols().getParameter(currentMethod, name);
+            if (param.isPresent() && param.get().getType().getName().equals("int")) {
+                countIntConsts++;
             }
         }
 
@@ -222,39 +210,33 @@ public class astOpValidator extends AnalysisVisitor {
         return null;
     }
 
+    private static List<JmmNode> getOperands(JmmNode binaryOpNode) {
+        var operands = new ArrayList<JmmNode>();
+        for (var child : binaryOpNode.getChildren()) {
+            while (child.getKind().equals("Parentesis")) {
+                child = child.getChild(0);
+            }
+            operands.add(child);
+        }
+        return operands;
+    }
+
     private Void visitBinaryExpr(JmmNode binaryExprNode, SymbolTable symbolTable) {
         boolean valid = true;
 
-        var allVariables = binaryExprNode.getDescendants("VarRefExpr");
+        var allVariables = getIndex().getDescendants(binaryExprNode, "VarRefExpr");
 
         // Se for uma operação aritmética entre variáveis, verificar se são do tipo int
         for (var variable : allVariables) {
-            // verificar se é variável local
-            if (symbolTable.getLocalVariables(currentMethod) != null) {
-                for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                    if (variable.hasAttribute("name")) {
-                        if (localVar.getName().equals(variable.get("name"))) {
-                            // varExpr só podem ter elementos inteiros, não booleanos
-                            if (!localVar.getType().getName().equals("int")) {
-                                valid = false;
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-            // verificar se é parametro da função atual
-            for (var param : symbolTable.getParameters(currentMethod)) {
-                if (variable.hasAttribute("name")) {
-                    if (param.getName().equals(variable.get("name"))) {
-                        // varExpr só podem ter elementos inteiros, não booleanos
-                        if (!param.getType().getName().equals("int")) {
-                            valid = false;
-                            break;
-                        }
-                    }
-                }
-            }
+            if (!variable.hasAttribute("name")) continue;
+            var name = variable.get("name");
+
+            // varExpr só podem ter elementos inteiros, não booleanos
+            var localVar = getSymbols().getLocalVariable(currentMethod, name);
+            if (localVar.isPresent() && !localVar.get().getType().getName().equals("int")) valid = false;
+
+            var param = getSymbols().getParameter(currentMethod, name);
+            if (param.isPresent() && !param.get().getType().getName().equals("int")) valid = false;
         }
 
         if (!valid) {
@@ -310,34 +292,15 @@ public class astOpValidator extends AnalysisVisitor {
                 }
             }
             // Se é constante true ou false, já é validado. Se não for...
-            if (!isConstTrueOrFalse) {
+            if (!isConstTrueOrFalse && negatedVar.hasAttribute("name")) {
+                var name = negatedVar.get("name");
                 // verificar se é variável local
-                if (symbolTable.getLocalVariables(currentMethod) != null) {
-                    for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                        if (negatedVar.hasAttribute("name")) {
-                            if (localVar.getName().equals(negatedVar.get("name"))) {
-                                if (!localVar.getType().getName().equals("boolean")) {
-                                    valid = false;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
+                var localVar = getSymbols().getLocalVariable(currentMethod, name);
+                if (localVar.isPresent() && !localVar.get().getType().getName().equals("boolean")) valid = false;
 
                 // verificar se é parametro
-                if (symbolTable.getParameters(currentMethod) != null) {
-                    for (var param : symbolTable.getParameters(currentMethod)) {
-                        if (negatedVar.hasAttribute("name")) {
-                            if (param.getName().equals(negatedVar.get("name"))) {
-                                if (!param.getType().getName().equals("boolean")) {
-                                    valid = false;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
+                var param = getSymbols().getParameter(currentMethod, name);
+                if (param.isPresent() && !param.get().getType().getName().equals("boolean")) valid = false;
             }
         }
 
@@ -373,45 +336,9 @@ public class astOpValidator extends AnalysisVisitor {
 
         if (!lengthNode.getChildren().isEmpty()) {
             var varUsedOnNode = lengthNode.getChildren().get(0);
-            // Verificar se length é chamada em variáveis locais
-            if (symbolTable.getLocalVariables(currentMethod) != null) {
-                for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                    if (varUsedOnNode.hasAttribute("name")) {
-                        if (localVar.getName().equals(varUsedOnNode.get("name"))) {
-                            if (!localVar.getType().isArray()) {
-                                valid = false;
-                            }
-                        }
-                    }
-                }
-            }
-            if (valid) {
-                // Verificar se length é chamada em parametros da função atual
-                if (symbolTable.getParameters(currentMethod) != null) {
-                    for (var param : symbolTable.getParameters(currentMethod)) {
-                        if (varUsedOnNode.hasAttribute("name")) {
-                            if (param.getName().equals(varUsedOnNode.get("name"))) {
-                                if (!param.getType().isArray()) {
-                                    valid = false;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            if (valid) {
-                // Verificar se length é chamada em fields da classe
-                if (symbolTable.getFields() != null) {
-                    for (var field : symbolTable.getFields()) {
-                        if (varUsedOnNode.hasAttribute("name")) {
-                            if (field.getName().equals(varUsedOnNode.get("name"))) {
-                                if (!field.getType().isArray()) {
-                                    valid = false;
-                                }
-                            }
-                        }
-                    }
-                }
+            // Verificar se length é chamada em variáveis locais, parametros ou fields
+            for (var symbol : declarationsOf(varUsedOnNode)) {
+                if (!symbol.getType().isArray()) valid = false;
             }
         }
 
@@ -443,41 +370,9 @@ public class astOpValidator extends AnalysisVisitor {
         }
         // Verificar se é uma constante
         else if (!indexNode.getKind().equals("IntegerLiteral")) {
-            // Verificar se é uma variável local
-            if (symbolTable.getLocalVariables(currentMethod) != null) {
-                for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                    if (indexNode.hasAttribute("name")) {
-                        if (localVar.getName().equals(indexNode.get("name"))) {
-                            if (!localVar.getType().getName().equals("int") || localVar.getType().isArray()) {
-                                valid = false;
-                            }
-                        }
-                    }
-                }
-            }
-            // Verificar se é um parametro da função atual
-            if (symbolTable.getParameters(currentMethod) != null) {
-                for (var param : symbolTable.getParameters(currentMethod)) {
-                    if (indexNode.hasAttribute("name")) {
-                        if (param.getName().equals(indexNode.get("name"))) {
-                            if (!param.getType().getName().equals("int") || param.getType().isArray()) {
-                                valid = false;
-                            }
-                        }
-                    }
-                }
-            }
-            // Verificar se é um field da classe
-            if (symbolTable.getFields() != null) {
-                for (var field : symbolTable.getFields()) {
-                    if (indexNode.hasAttribute("name")) {
-                        if (field.getName().equals(indexNode.get("name"))) {
-                            if (!field.getType().getName().equals("int") || field.getType().isArray()) {
-                                valid = false;
-                            }
-                        }
-                    }
-                }
+            // Verificar se é uma variável local, um parametro da função atual ou um field da classe
+            for (var symbol : declarationsOf(indexNode)) {
+                if (!symbol.getType().getName().equals("int") || symbol.getType().isArray()) valid = false;
             }
         }
 
@@ -508,40 +403,12 @@ public class astOpValidator extends AnalysisVisitor {
                     boolean cameFromImport = false;
                     boolean foundMethodCalled = false;
 
-                    // Verificar se a variável que chama o método existe nas variáveis locais
+                    // Verificar se a variável que chama o método existe nas variáveis locais, parâmetros e fields
                     if (!expressionNode.getChildren().isEmpty() && !expressionNode.getChildren().get(0).getChildren("VarRefExpr").isEmpty()) {
                         var varThatCalledMethod = expressionNode.getChildren().get(0).getChildren("VarRefExpr").get(0);
-                        if (symbolTable.getLocalVariables(currentMethod) != null) {
-                            for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                                if (varThatCalledMethod.hasAttribute("name")) {
-                                    if (localVar.getName().equals(varThatCalledMethod.get("name"))) {
-                                        varTypeThatCalledFunction = localVar.getType().getName();
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                        // Verificar se a variável que chama o método existe nos parâmetros
-                        if (symbolTable.getParameters(currentMethod) != null) {
-                            for (var param : symbolTable.getParameters(currentMethod)) {
-                                if (varThatCalledMethod.hasAttribute("name")) {
-                                    if (param.getName().equals(varThatCalledMethod.get("name"))) {
-                                        varTypeThatCalledFunction = param.getType().getName();
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                        // Verificar se a variável que chama o método existe nos fields
-                        if (symbolTable.getFields() != null) {
-                            for (var field : symbolTable.getFields()) {
-                                if (varThatCalledMethod.hasAttribute("name")) {
-                                    if (field.getName().equals(varThatCalledMethod.get("name"))) {
-                                        varTypeThatCalledFunction = field.getType().getName();
-                                        break;
-                                    }
-                                }
-                            }
+                        // o último encontrado prevalece
+                        for (var symbol : declarationsOf(varThatCalledMethod)) {
+                            varTypeThatCalledFunction = symbol.getType().getName();
                         }
                         // Verificar se a variável que chama o método existe nos imports
                         if (symbolTable.getImports() != null) {
@@ -579,15 +446,8 @@ public class astOpValidator extends AnalysisVisitor {
                         // se a variável local que chamou a função possui o tipo do import, assume-se que a função chamada já existe
                         if (!cameFromImport) {
                             // Verificar se o método chamado existe
-                            if (symbolTable.getMethods() != null) {
-                                for (var method : symbolTable.getMethods()) {
-                                    if (methodNameCalled.equals(method)) {
-                                        methodFound = true;
-                                        break;
-                                    }
-                                }
-                                if (!methodFound) valid = false;
-                            }
+                            methodFound = getSymbols().hasMethod(methodNameCalled);
+                            if (!methodFound) valid = false;
                         }
                     }
                 }
@@ -625,42 +485,13 @@ public class astOpValidator extends AnalysisVisitor {
                     paramGivenType = "boolean";
                 }
 
-                // procurar pelo valor dado caso ainda não tenha sido encontrado
-                if (paramGivenType.isEmpty()) {
-                    // procurar pelo tipo do valor dado nas locals
-                    if (symbolTable.getLocalVariables(currentMethod) != null) {
-                        for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                            if (paramGiven.hasAttribute("name")) {
-                                if (localVar.getName().equals(paramGiven.get("name"))) {
-                                    paramGivenType = localVar.getType().getName();
-                                }
-                            }
-                        }
-                    }
-                }
-                if (paramGivenType.isEmpty()) {
-                    // procurar pelo tipo do valor dado nos fields
-                    if (symbolTable.getFields() != null) {
-                        for (var field : symbolTable.getFields()) {
-                            if (paramGiven.hasAttribute("name")) {
-                                if (field.getName().equals(paramGiven.get("name"))) {
-                                    paramGivenType = field.getType().getName();
-                                }
-                            }
-                        }
-                    }
-                }
-                if (paramGivenType.isEmpty()) {
-                    // procurar pelo tipo do valor dado nos parametros
-                    if (symbolTable.getParameters(currentMethod) != null) {
-                        for (var param : symbolTable.getParameters(currentMethod)) {
-                            if (paramGiven.hasAttribute("name")) {
-                                if (param.getName().equals(paramGiven.get("name"))) {
-                                    paramGivenType = param.getType().getName();
-                                }
-                            }
-                        }
-                    }
+                // procurar pelo valor dado caso ainda não tenha sido encontrado, nas locals, fields e parametros
+                if (paramGivenType.isEmpty() && paramGiven.hasAttribute("name")) {
+                    var name = paramGiven.get("name");
+                    var declaration = getSymbols().getLocalVariable(currentMethod, name)
+                            .or(() -> getSymbols().getField(name))
+                            .or(() -> getSymbols().getParameter(currentMethod, name));
+                    if (declaration.isPresent()) paramGivenType = declaration.get().getType().getName();
                 }
 
                 if (paramGivenType.isEmpty() && !paramGiven.getKind().equals("BinaryExpr")) {
@@ -672,7 +503,7 @@ public class astOpValidator extends AnalysisVisitor {
                 for (var method : this.methods) {
                     if (method.hasAttribute("methodName") && expressionNode.hasAttribute("methodName")) {
                         if (method.get("methodName").equals(expressionNode.get("methodName"))) {
-                            var hasVarArgsDescendents = !method.getDescendants("VarArgs").isEmpty();
+                            var hasVarArgsDescendents = !getIndex().getDescendants(method, "VarArgs").isEmpty();
                             if (!hasVarArgsDescendents) {
                                 if (!method.getChildren("Param").isEmpty()) {
                                     var expectedParam = method.getChildren("Param").get(i - 1);
@@ -700,46 +531,12 @@ public class astOpValidator extends AnalysisVisitor {
 
             for (var functionElement : expressionNode.getChildren()) {
                 // retirar tipo dos elementos e inseri-lo nos nodes que constituem a chamada à função
-                if (functionElement.getKind().equals("VarRefExpr")) {
-                    if (symbolTable.getImports() != null) {
-                        for (var importName : symbolTable.getImports()) {
-                            if (functionElement.hasAttribute("name")) {
-                                if (importName.equals(functionElement.get("name"))) {
-                                    functionElement.put("type", importName);
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    if (symbolTable.getLocalVariables(currentMethod) != null) {
-                        for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                            if (functionElement.hasAttribute("name")) {
-                                if (localVar.getName().equals(functionElement.get("name"))) {
-                                    functionElement.put("type", localVar.getType().getName());
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    if (symbolTable.getParameters(currentMethod) != null) {
-                        for (var param : symbolTable.getParameters(currentMethod)) {
-                            if (functionElement.hasAttribute("name")) {
-                                if (param.getName().equals(functionElement.get("name"))) {
-                                    functionElement.put("type", param.getType().getName());
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    if (symbolTable.getFields() != null) {
-                        for (var field : symbolTable.getFields()) {
-                            if (functionElement.hasAttribute("name")) {
-                                if (field.getName().equals(functionElement.get("name"))) {
-                                    functionElement.put("type", field.getType().getName());
-                                    break;
-                                }
-                            }
-                        }
+                if (functionElement.getKind().equals("VarRefExpr") && functionElement.hasAttribute("name")) {
+                    var name = functionElement.get("name");
+                    if (getSymbols().hasImport(name)) functionElement.put("type", name);
+                    // o último encontrado prevalece: import, local, parametro, field
+                    for (var symbol : getSymbols().resolveAll(currentMethod, name)) {
+                        functionElement.put("type", symbol.getType().getName());
                     }
                 }
             }
@@ -766,68 +563,18 @@ public class astOpValidator extends AnalysisVisitor {
         var varLeft = newClassNode.getParent().getChildren().get(0);
         var varLeftType = "";
 
-        // verificar o tipo da varLeft
-        // se for variável local
-        if (symbolTable.getLocalVariables(currentMethod) != null) {
-            for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                if (varLeft.hasAttribute("name")) {
-                    if (localVar.getName().equals(varLeft.get("name"))) {
-                        varLeftType = localVar.getType().getName();
-                    }
-                }
-            }
-        }
-        // se for parametro da função atual
-        if (varLeftType.isEmpty()) {
-            if (symbolTable.getParameters(currentMethod) != null) {
-                for (var param : symbolTable.getParameters(currentMethod)) {
-                    if (varLeft.hasAttribute("name")) {
-                        if (param.getName().equals(varLeft.get("name"))) {
-                            varLeftType = param.getType().getName();
-                        }
-                    }
-                }
-            }
-        }
-        // se for field da classe
-        if (varLeftType.isEmpty()) {
-            if (symbolTable.getFields() != null) {
-                for (var field : symbolTable.getFields()) {
-                    if (varLeft.hasAttribute("name")) {
-                        if (field.getName().equals(varLeft.get("name"))) {
-                            varLeftType = field.getType().getName();
-                        }
-                    }
-                }
-            }
-        }
-        // se for do tipo import
-        if (varLeftType.isEmpty()) {
-            if (symbolTable.getImports() != null) {
-                for (var importName : symbolTable.getImports()) {
-                    if (varLeft.hasAttribute("name")) {
-                        if (importName.equals(varLeft.get("name"))) {
-                            varLeftType = importName;
-                        }
-                    }
-                }
-            }
+        // verificar o tipo da varLeft: variável local, parametro da função atual, field da classe ou import
+        if (varLeft.hasAttribute("name")) {
+            var name = varLeft.get("name");
+            var declaration = getSymbols().resolve(currentMethod, name);
+            if (declaration.isPresent()) varLeftType = declaration.get().getType().getName();
+            else if (getSymbols().hasImport(name)) varLeftType = name;
         }
         // não está declarada
         if (varLeftType.isEmpty()) valid = false;
 
-        boolean found = false;
         // variável da esquerda é declaração do import
-        if (symbolTable.getImports() != null) {
-            for (var importName : symbolTable.getImports()) {
-                if (!varLeftType.isEmpty()) {
-                    if (importName.equals(varLeftType)) {
-                        found = true;
-                        break;
-                    }
-                }
-            }
-        }
+        boolean found = !varLeftType.isEmpty() && getSymbols().hasImport(varLeftType);
         // se for do tipo da classe
         if (symbolTable.getClassName() != null) {
             if (varLeftType.equals(symbolTable.getClassName())) {
@@ -861,31 +608,29 @@ public class astOpValidator extends AnalysisVisitor {
         if (!arrayInitNode.getParent().getChildren("VarRefExpr").isEmpty()) {
             var varStoring = arrayInitNode.getParent().getChildren("VarRefExpr").get(0);
             // Se for uma variável local
-            if (symbolTable.getLocalVariables(currentMethod) != null) {
-                for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                    // se a variável que está a guardar for array é aceite
-                    if (!varStoring.hasAttribute("name")) continue;
-                    if (localVar.getName().equals(varStoring.get("name")) && localVar.getType().isArray()) {
-                        // se esta for do tipo int
-                        if (localVar.getType().getName().equals("int")) {
-                            for (var valueGiven : valuesGiven) {
-                                if (!valueGiven.getKind().equals("IntegerLiteral")) {
-                                    valid = false;
-                                    break;
-                                }
-                                type = "int";
+            if (varStoring.hasAttribute("name")) {
+                var localVar = getSymbols().getLocalVariable(currentMethod, varStoring.get("name"));
+                // se a variável que está a guardar for array é aceite
+                if (localVar.isPresent() && localVar.get().getType().isArray()) {
+                    // se esta for do tipo int
+                    if (localVar.get().getType().getName().equals("int")) {
+                        for (var valueGiven : valuesGiven) {
+                            if (!valueGiven.getKind().equals("IntegerLiteral")) {
+                                valid = false;
+                                break;
                             }
+                            type = "int";
                         }
-                        if (localVar.getType().getName().equals("boolean")) {
-                            for (var valueGiven : valuesGiven) {
-                                if (valueGiven.hasAttribute("name")) {
-                                    if (!valueGiven.get("name").equals("true") && !valueGiven.get("name").equals("false")) {
-                                        valid = false;
-                                        break;
-                                    }
+                    }
+                    if (localVar.get().getType().getName().equals("boolean")) {
+                        for (var valueGiven : valuesGiven) {
+                            if (valueGiven.hasAttribute("name")) {
+                                if (!valueGiven.get("name").equals("true") && !valueGiven.get("name").equals("false")) {
+                                    valid = false;
+                                    break;
                                 }
-                                type = "boolean";
                             }
+                            type = "boolean";
                         }
                     }
                 }
@@ -923,18 +668,10 @@ public class astOpValidator extends AnalysisVisitor {
         // a condição é feita com uma variável
         else if (operatorUsedKind.equals("VarRefExpr")) {
             // procuramos pela variável utilizada para estudar o seu tipo
-            if (symbolTable.getLocalVariables(currentMethod) != null) {
-                for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                    if (operatorUsed.hasAttribute("name")) {
-                        if (localVar.getName().equals(operatorUsed.get("name"))) {
-                            // se não for do tipo booleano dá erro
-                            if (!localVar.getType().getName().equals("boolean")) {
-                                valid = false;
-                                break;
-                            }
-                        }
-                    }
-                }
+            if (operatorUsed.hasAttribute("name")) {
+                var localVar = getSymbols().getLocalVariable(currentMethod, operatorUsed.get("name"));
+                // se não for do tipo booleano dá erro
+                if (localVar.isPresent() && !localVar.get().getType().getName().equals("boolean")) valid = false;
             }
         }
 
@@ -966,16 +703,10 @@ public class astOpValidator extends AnalysisVisitor {
             }
             // se for uma operação de comparação
             else if (operatorUsed.equals("BinaryOp")) {
-                var operations = ifConditionNode.getDescendants();
                 var operationNode = ifConditionNode.getChildren("BinaryOp").get(0);
 
-                for (var operation : operations) {
-                    if (operation.getKind().equals("BinaryExpr")) {
-                        binaryExprCounter++;
-                    } else if (operation.getKind().equals("BinaryOp")) {
-                        binaryOpCounter++;
-                    }
-                }
+                binaryExprCounter += getIndex().countDescendants(ifConditionNode, "BinaryExpr");
+                binaryOpCounter += getIndex().countDescendants(ifConditionNode, "BinaryOp");
             }
         }
 
@@ -1036,14 +767,6 @@ public class astOpValidator extends AnalysisVisitor {
 
     private Void visitAssignStatement(JmmNode assignStatm, SymbolTable symbolTable) {
         List<JmmNode> assignElements = assignStatm.getChildren();
-        List<Symbol> localsVar;
-        if (symbolTable.getLocalVariables(currentMethod) != null) {
-            localsVar = symbolTable.getLocalVariables(currentMethod);
-        }
-        else {
-            localsVar = new ArrayList<Symbol>();
-        }
-        var importNames = symbolTable.getImports();
 
         boolean valid = true;
         boolean found = false;
@@ -1057,75 +780,14 @@ public class astOpValidator extends AnalysisVisitor {
         }
 
         // verificar se no caso de variáveis, estas são declaradas
-        if (symbolTable.getLocalVariables(currentMethod) != null) {
-            var localVariables = symbolTable.getLocalVariables(currentMethod);
-            if (localVariables != null) {
-                for (var localVar : localVariables) {
-                    if (!assignElements.isEmpty()) {
-                        if (assignElements.get(0).getKind().equals("VarRefExpr")) {
-                            if (assignElements.get(0).hasAttribute("name")) {
-                                if (localVar.getName().equals(assignElements.get(0).get("name"))) {
-                                    assignStatm.getChildren().get(0).put("type", localVar.getType().getName());
-                                    isDeclared = true;
-                                    break;
-                                }
-                            }
-                        } else if (assignElements.get(0).getKind().equals("IntegerLiteral")) {
-                            if (assignElements.get(0).hasAttribute("name")) {
-                                if (localVar.getName().equals(assignElements.get(0).get("name"))) {
-                                    assignStatm.getChildren().get(0).put("type", "int");
-                                    isDeclared = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        var params = symbolTable.getParameters(currentMethod);
-        if (params != null) {
-            for (var param : params) {
-                if (assignElements.get(0).getKind().equals("VarRefExpr")) {
-                    if (assignElements.get(0).hasAttribute("name")) {
-                        if (param.getName().equals(assignElements.get(0).get("name"))) {
-                            assignStatm.getChildren().get(0).put("type", param.getType().getName());
-                            isDeclared = true;
-                            break;
-                        }
-                    }
-                }
-                else if (assignElements.get(0).getKind().equals("IntegerLiteral")) {
-                    if (assignElements.get(0).hasAttribute("name")) {
-                        if (param.getName().equals(assignElements.get(0).get("name"))) {
-                            assignStatm.getChildren().get(0).put("type", "int");
-                            isDeclared = true;
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-        var fields = symbolTable.getFields();
-        if (fields != null) {
-            for (var field : fields) {
-                if (assignElements.get(0).getKind().equals("VarRefExpr")) {
-                    if (assignElements.get(0).hasAttribute("name")) {
-                        if (field.getName().equals(assignElements.get(0).get("name"))) {
-                            assignStatm.getChildren().get(0).put("type", field.getType().getName());
-                            isDeclared = true;
-                            break;
-                        }
-                    }
-                }
-                else if (assignElements.get(0).getKind().equals("IntegerLiteral")) {
-                    if (assignElements.get(0).hasAttribute("name")) {
-                        if (field.getName().equals(assignElements.get(0).get("name"))) {
-                            assignStatm.getChildren().get(0).put("type", "int");
-                            isDeclared = true;
-                            break;
-                        }
-                    }
+        if (!assignElements.isEmpty()) {
+            var target = assignElements.get(0);
+            boolean isVarRef = target.getKind().equals("VarRefExpr");
+            if ((isVarRef || target.getKind().equals("IntegerLiteral")) && target.hasAttribute("name")) {
+                // locais, parametros e fields, por esta ordem
+                for (var symbol : getSymbols().resolveAll(currentMethod, target.get("name"))) {
+                    target.put("type", isVarRef ? symbol.getType().getName() : "int");
+                    isDeclared = true;
                 }
             }
         }
@@ -1133,133 +795,94 @@ public class astOpValidator extends AnalysisVisitor {
         if (!isDeclared) valid = false;
 
         // Lidar com arrays
-        if (localsVar != null) {
-            for (var localVar : localsVar) {
-                // assignElement.get(0) é sempre igual à variável na qual guardamos valores
-                if (assignElements.get(0).hasAttribute("name")) {
-                    if (localVar.getName().equals(assignElements.get(0).get("name"))) {
-                        assignStatm.getChildren().get(0).put("type", localVar.getType().getName());
-                        // Se for do tipo array só pode dar assign a elementos do tipo array
-                        if (localVar.getType().isArray()) {
-                            assignStatm.getChildren().get(0).put("isArray", "true");
-                            assignStatm.put("isArray", "true");
-                            // Testar para quando o assign é feito com uma chamada a uma função que retorna um array
-                            if (assignElements.get(1).getKind().equals("FunctionCall")) {
-                                var functionCallReturn = symbolTable.getReturnType(assignElements.get(1).get("methodName"));
-                                var retType = functionCallReturn.getName();
-                                var isRetArray = functionCallReturn.isArray();
-                                // como verificamos se uma variável array recebe um array na chamada a uma função, se no retorno não receber array dá erro
-                                if (!isRetArray) {
-                                    valid = false;
-                                    break;
-                                }
-                                // se os tipos forem diferentes, dá erro
-                                if (!retType.equals(localVar.getType().getName())) {
-                                    valid = false;
-                                    break;
-                                }
-                                assignStatm.put("type", retType);
-                            }
-                            // Testar para quando o assign é feito com um array
-                            else if (!assignElements.get(1).getKind().equals("ArrayInit") && !assignElements.get(1).getKind().equals("NewArray")) {
-                                valid = false;
-                                break;
-                            }
-                            assignStatm.put("type", localVar.getType().getName());
-                        }
-                        // Se não for do tipo array, não pode dar assign a elementos do tipo array
-                        else {
-                            if (assignElements.get(1).getKind().equals("ArrayInit") || assignElements.get(1).getKind().equals("NewArray")) {
-                                valid = false;
-                                break;
-                            }
-                            // Ex: caso em que a = a[10] e 'a' é do tipo int
-                            // se a variável for do tipo array
-                            if (assignElements.get(1).getKind().equals("ArrayAccess")) {
-                                // e tiver o mesmo nome que a variável da direita, dá erro (Variável esquerda nesta fase já não é array)
-                                if (assignElements.get(1).getChildren().get(0).hasAttribute("name") && assignElements.get(0).hasAttribute("name")) {
-                                    if (assignElements.get(1).getChildren().get(0).get("name").equals(assignElements.get(0).get("name"))) {
-                                        valid = false;
-                                        break;
-                                    }
-                                }
-                            }
-                            assignStatm.put("type", localVar.getType().getName());
+        // assignElement.get(0) é sempre igual à variável na qual guardamos valores
+        var localLeft = assignElements.get(0).hasAttribute("name") ? getSymbols().getLocalVariable(currentMethod, assignElements.get(0).get("name")) : Optional.<ResolvedSymbol>empty();
+        if (localLeft.isPresent()) {
+            var localVar = localLeft.get();
+            assignStatm.getChildren().get(0).put("type", localVar.getType().getName());
+            // Se for do tipo array só pode dar assign a elementos do tipo array
+            if (localVar.getType().isArray()) {
+                assignStatm.getChildren().get(0).put("isArray", "true");
+                assignStatm.put("isArray", "true");
+                // Testar para quando o assign é feito com uma chamada a uma função que retorna um array
+                if (assignElements.get(1).getKind().equals("FunctionCall")) {
+                    var functionCallReturn = symbolTable.getReturnType(assignElements.get(1).get("methodName"));
+                    var retType = functionCallReturn.getName();
+                    var isRetArray = functionCallReturn.isArray();
+                    // como verificamos se uma variável array recebe um array na chamada a uma função, se no retorno não receber array dá erro
+                    if (!isRetArray) valid = false;
+                    // se os tipos forem diferentes, dá erro
+                    if (!retType.equals(localVar.getType().getName())) valid = false;
+                    assignStatm.put("type", retType);
+                }
+                // Testar para quando o assign é feito com um array
+                else if (!assignElements.get(1).getKind().equals("ArrayInit") && !assignElements.get(1).getKind().equals("NewArray")) {
+                    valid = false;
+                }
+                assignStatm.put("type", localVar.getType().getName());
+            }
+            // Se não for do tipo array, não pode dar assign a elementos do tipo array
+            else {
+                if (assignElements.get(1).getKind().equals("ArrayInit") || assignElements.get(1).getKind().equals("NewArray")) {
+                    valid = false;
+                }
+                // Ex: caso em que a = a[10] e 'a' é do tipo int
+                // se a variável for do tipo array
+                if (assignElements.get(1).getKind().equals("ArrayAccess")) {
+                    // e tiver o mesmo nome que a variável da direita, dá erro (Variável esquerda nesta fase já não é array)
+                    if (assignElements.get(1).getChildren().get(0).hasAttribute("name")) {
+                        if (assignElements.get(1).getChildren().get(0).get("name").equals(assignElements.get(0).get("name"))) {
+                            valid = false;
                         }
                     }
                 }
+                assignStatm.put("type", localVar.getType().getName());
             }
         }
 
         // Para variáveis que dão assign a inteiros
         if (assignElements.get(1).getKind().equals("IntegerLiteral")) {
-            if (localsVar != null) {
-                for (var localVar : localsVar) {
-                    if (assignElements.get(0).hasAttribute("name")) {
-                        if (localVar.getName().equals(assignElements.get(0).get("name"))) {
-                            var expectedValueType = localVar.getType().getName();
-                            if (!expectedValueType.equals("int")) {
-                                valid = false;
-                            }
-                        }
-                    }
+            if (localLeft.isPresent()) {
+                var expectedValueType = localLeft.get().getType().getName();
+                if (!expectedValueType.equals("int")) {
+                    valid = false;
                 }
             }
         }
         // assign a uma variável (Ex: varLeft = varRight) ou constante booleana (varLeft = constant)
         else if (assignElements.get(1).getKind().equals("VarRefExpr")) {
             // pesquisa-se pela variável que recebe o valor
-            if (localsVar != null) {
-                for (var varLeft : localsVar) {
-                    if (assignElements.get(0).get("name").equals(varLeft.getName())) {
-                        // se for constante booleana
-                        if (assignElements.get(1).hasAttribute("name")) {
-                            if (assignElements.get(1).get("name").equals("true") || assignElements.get(1).get("name").equals("false")) {
-                                if (!varLeft.getType().getName().equals("boolean")) {
+            var varLeftLookup = getSymbols().getLocalVariable(currentMethod, assignElements.get(0).get("name"));
+            if (varLeftLookup.isPresent() && assignElements.get(1).hasAttribute("name")) {
+                var varLeft = varLeftLookup.get();
+                var rightName = assignElements.get(1).get("name");
+                // se for constante booleana
+                if (rightName.equals("true") || rightName.equals("false")) {
+                    if (!varLeft.getType().getName().equals("boolean")) {
+                        valid = false;
+                    }
+                }
+
+                // pesquisa-se pela variável que dá o valor
+                var varRightLookup = getSymbols().getLocalVariable(currentMethod, rightName);
+                if (varRightLookup.isPresent()) {
+                    var varRight = varRightLookup.get();
+                    // se tiverem tipos diferentes
+                    if (!varLeft.getType().getName().equals(varRight.getType().getName())) {
+                        // se a variável da direita for um objeto da classe
+                        if (varRight.getType().getName().equals(symbolTable.getClassName())) {
+                            // e se a variável da esquerda for um import que não extende a classe da variável da direita, dá erro
+                            if (getSymbols().hasImport(varLeft.getType().getName())) {
+                                if (!varLeft.getType().getName().equals(symbolTable.getSuper())) {
                                     valid = false;
-                                    break;
                                 }
                             }
-                        }
-
-                        // pesquisa-se pela variável que dá o valor
-                        for (var varRight : localsVar) {
-                            if (assignElements.get(1).hasAttribute("name")) {
-                                if (assignElements.get(1).get("name").equals(varRight.getName())) {
-                                    // se tiverem tipos diferentes
-                                    if (!varLeft.getType().getName().equals(varRight.getType().getName())) {
-                                        // se a variável da direita for um objeto da classe
-                                        if (varRight.getType().getName().equals(symbolTable.getClassName())) {
-                                            // e se a variável da esquerda for um import
-                                            for (var importName : importNames) {
-                                                if (varLeft.getType().getName().equals(importName)) {
-                                                    // se esse import não extender classe da variável da direita, dá erro
-                                                    if (!varLeft.getType().getName().equals(symbolTable.getSuper())) {
-                                                        valid = false;
-                                                    }
-                                                }
-
-                                            }
-                                        } else {
-                                            // verificar se ambas as variáveis provêm de imports
-                                            var foundImportLeft = false;
-                                            var foundImportRight = false;
-                                            if (symbolTable.getImports() != null) {
-                                                for (var importName : symbolTable.getImports()) {
-                                                    if (varLeft.getType().getName().equals(importName))
-                                                        foundImportLeft = true;
-                                                    else if (varRight.getType().getName().equals(importName))
-                                                        foundImportRight = true;
-                                                    if (foundImportLeft && foundImportRight) break;
-                                                }
-                                            }
-                                            if ((foundImportLeft && !foundImportRight) || (!foundImportLeft && foundImportRight)) {
-                                                valid = false;
-                                                break;
-                                            }
-                                        }
-                                    }
-                                }
+                        } else {
+                            // verificar se ambas as variáveis provêm de imports
+                            var foundImportLeft = getSymbols().hasImport(varLeft.getType().getName());
+                            var foundImportRight = getSymbols().hasImport(varRight.getType().getName());
+                            if (foundImportLeft != foundImportRight) {
+                                valid = false;
                             }
                         }
                     }
@@ -1272,47 +895,16 @@ public class astOpValidator extends AnalysisVisitor {
                 var varThatCalledFunction = assignElements.get(1).getChildren().get(0);
                 // se não for do tipo this, verifica-se se a variável existe no ficheiro
                 if (varThatCalledFunction.hasAttribute("name")) {
-                    if (!varThatCalledFunction.get("name").equals("this")) {
-                        // verificar se variável que chamou a função existe na classe ou nos imports
-                        if (symbolTable.getImports() != null) {
-                            for (var importName : symbolTable.getImports()) {
-                                if (importName.equals(varThatCalledFunction.get("name"))) {
-                                    found = true;
-                                    break;
-                                }
-                            }
-                        }
-                        if (!found) {
-                            if (symbolTable.getLocalVariables(currentMethod) != null) {
-                                for (var localVar : symbolTable.getLocalVariables(currentMethod)) {
-                                    if (localVar.getName().equals(varThatCalledFunction.get("name"))) {
-                                        found = true;
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                        if (!found) {
-                            if (symbolTable.getParameters(currentMethod) != null) {
-                                for (var param : symbolTable.getParameters(currentMethod)) {
-                                    if (param.getName().equals(varThatCalledFunction.get("name"))) {
-                                        found = true;
-                                        break;
-                                    }
-                                }
-                            }
-                        }
+                    var name = varThatCalledFunction.get("name");
+                    if (!name.equals("this")) {
+                        // verificar se variável que chamou a função existe nos imports, nas variáveis locais ou nos parametros
+                        found = getSymbols().hasImport(name)
+                                || getSymbols().getLocalVariable(currentMethod, name).isPresent()
+                                || getSymbols().getParameter(currentMethod, name).isPresent();
                     }
                     // se for o caso do this, temos de verificar se a função chamada existe na classe
                     else {
-                        if (symbolTable.getMethods() != null) {
-                            for (var methodName : symbolTable.getMethods()) {
-                                if (methodName.equals(assignElements.get(1).get("methodName"))) {
-                                    found = true;
-                                    break;
-                                }
-                            }
-                        }
+                        found = getSymbols().hasMethod(assignElements.get(1).get("methodName"));
                     }
                 }
             }
@@ -1337,18 +929,11 @@ public class astOpValidator extends AnalysisVisitor {
 
     private Void visitImportStatement(JmmNode importStatm, SymbolTable symbolTable) {
         boolean valid = true;
-        List<JmmNode> importStatements = importStatm.getDescendants();
+        List<JmmNode> importStatements = getIndex().getDescendants(importStatm);
         List<String> imports = symbolTable.getImports();
 
         // verificar se existem imports duplicados
-        for (int i = 0; i < symbolTable.getImports().size(); i++) {
-            for (int j = i + 1; j < symbolTable.getImports().size(); j++) {
-                if (imports.get(i).equals(imports.get(j))) {
-                    valid = false;
-                    break;
-                }
-            }
-        }
+        if (new HashSet<>(imports).size() != imports.size()) valid = false;
 
         for (JmmNode impStat : importStatements) {
             imports.add(impStat.get("name"));
@@ -1371,7 +956,7 @@ public class astOpValidator extends AnalysisVisitor {
 
     private Void visitRetStatement(JmmNode returnStatm, SymbolTable symbolTable) {
         // return kind and name of elements that are being assigned
-        List<JmmNode> returnElements = returnStatm.getDescendants();
+        List<JmmNode> returnElements = getIndex().getDescendants(returnStatm);
         List<Symbol> localVariables;
         if (symbolTable.getLocalVariables(currentMethod) != null) {
             localVariables = symbolTable.getLocalVariables(currentMethod);
@@ -1382,27 +967,22 @@ public class astOpValidator extends AnalysisVisitor {
         var parameters = symbolTable.getParameters(currentMethod);
         boolean valid = true;
 
-        if (!returnStatm.getDescendants("VarArgs").isEmpty()) valid = false;
+        if (!getIndex().getDescendants(returnStatm, "VarArgs").isEmpty()) valid = false;
 
         // se for variável ou array o primeiro elemento é válido
-        var arrayAccessNodes = returnStatm.getDescendants("ArrayAccess");
+        var arrayAccessNodes = getIndex().getDescendants(returnStatm, "ArrayAccess");
         for (var arrayAccessNode : arrayAccessNodes) {
             if (!arrayAccessNode.getChildren().get(0).getKind().equals("ArrayInit") && !arrayAccessNode.getChildren().get(0).getKind().equals("VarRefExpr")) valid = false;
         }
 
         // não pode conter varargs num return
-        if (methods != null) {
-            for (var method : methods) {
-                if (!returnStatm.getChildren("FunctionCall").isEmpty()) {
-                    // se encontrar a função chamada
-                    if (returnStatm.getChildren("FunctionCall").get(0).hasAttribute("methodName")) {
-                        if (method.get("methodName").equals(returnStatm.getChildren("FunctionCall").get(0).get("methodName"))) {
-                            boolean hasVarArgs = !method.getDescendants("VarArgs").isEmpty();
-                            if (hasVarArgs) valid = false;
-                            break;
-                        }
-                    }
-                }
+        var functionCalls = returnStatm.getChildren("FunctionCall");
+        if (!functionCalls.isEmpty() && functionCalls.get(0).hasAttribute("methodName")) {
+            // se encontrar a função chamada
+            var method = methodsByName.get(functionCalls.get(0).get("methodName"));
+            if (method != null) {
+                boolean hasVarArgs = getIndex().countDescendants(method, "VarArgs") > 0;
+                if (hasVarArgs) valid = false;
             }
         }
 
@@ -1436,7 +1016,7 @@ public class astOpValidator extends AnalysisVisitor {
             for (var returnElement : returnElements) {
                 found = false;
                 // se for variável
-                var hasArrayAccess = !returnStatm.getDescendants("ArrayAccess").isEmpty();
+                var hasArrayAccess = !getIndex().getDescendants(returnStatm, "ArrayAccess").isEmpty();
                 if (returnElement.getKind().equals("VarRefExpr")) {
                     if (localVariables != null && !localVariables.isEmpty()) {
                         // procura nas variáveis locais se existe
@@ -1859,60 +1439,36 @@ public class astOpValidator extends AnalysisVisitor {
 
         boolean valid = true;
 
-        var arrayAccessNodes = method.getDescendants("ArrayAccess");
+        var arrayAccessNodes = getIndex().getDescendants(method, "ArrayAccess");
 
         for (var arrayAccessNode : arrayAccessNodes) {
             if (!arrayAccessNode.getChildren().get(0).getKind().equals("ArrayInit") && !arrayAccessNode.getChildren().get(0).getKind().equals("VarRefExpr")) valid = false;
         }
 
         // verificar se existem métodos repetidos
-        for (int i = 0; i < methods.size(); i++) {
-            for (int j = i + 1; j < methods.size(); j++) {
-                if (methods.get(i).hasAttribute("methodName") && methods.get(j).hasAttribute("methodName")) {
-                    if (methods.get(i).get("methodName").equals(methods.get(j).get("methodName"))) {
-                        valid = false;
-                        break;
-                    }
-                }
-            }
-        }
+        if (hasRepeatedMethods) valid = false;
 
         // verificar se existem parametros repetidos
         if (table.getParameters(currentMethod) != null) {
-            for (int i = 0; i < table.getParameters(currentMethod).size(); i++) {
-                for (int j = i + 1; j < table.getParameters(currentMethod).size(); j++) {
-                    if (table.getParameters(currentMethod).get(i).getName().equals(table.getParameters(currentMethod).get(j).getName())) {
-                        valid = false;
-                        break;
-                    }
-                }
-            }
-        }
-
-        // verificar se existe uma variável com o nome reservado length
-        if (table.getLocalVariables(currentMethod) != null) {
-            for (var localVar : table.getLocalVariables(currentMethod)) {
-                if (localVar.getName().equals("length")) {
-                    valid = false;
-                    break;
-                }
-            }
-        }
-        if (table.getFields() != null) {
-            for (var field : table.getFields()) {
-                if (field.getName().equals("length")) {
+            var paramNames = new HashSet<String>();
+            for (var param : table.getParameters(currentMethod)) {
+                if (!paramNames.add(param.getName())) {
                     valid = false;
                     break;
                 }
             }
         }
 
+        // verificar se existe uma variável com o nome reservado length
+        if (getSymbols().getLocalVariable(currentMethod, "length").isPresent()) valid = false;
+        if (getSymbols().getField("length").isPresent()) valid = false;
+
         // verificar se tem mais que um return
-        var returnNodes = method.getDescendants("ReturnStmt");
+        var returnNodes = getIndex().getDescendants(method, "ReturnStmt");
         if (returnNodes.size() > 1) valid = false;
 
         // verificar se n tem return no tipo void
-        if (!method.getDescendants("Void").isEmpty()) {
+        if (!getIndex().getDescendants(method, "Void").isEmpty()) {
             if (!returnNodes.isEmpty()) valid = false;
         }
         else {
@@ -1922,7 +1478,6 @@ public class astOpValidator extends AnalysisVisitor {
         }
 
         // verificar se o return não é o último return existente
-        var descendents = method.getDescendants();
         // se não for a função main
         if (!currentMethod.equals("main")) {
             // se não conter o tipo void
@@ -1934,7 +1489,7 @@ public class astOpValidator extends AnalysisVisitor {
 
         // verificar se tem return para o caso de uma função que precise de retornar um tipo
         if (method.getChildren().get(0).hasAttribute("value")) {
-            int numReturns = method.getDescendants("ReturnStmt").size();
+            int numReturns = returnNodes.size();
             if (method.getChildren().get(0).hasAttribute("value")) {
                 String funcRetType = method.getChildren().get(0).get("value");
                 if (funcRetType.equals("int") || funcRetType.equals("boolean")) {
@@ -1964,7 +1519,7 @@ public class astOpValidator extends AnalysisVisitor {
             }
 
             // se conter this. é inválido já que é static
-            var functionCalls = method.getDescendants("VarRefExpr");
+            var functionCalls = getIndex().getDescendants(method, "VarRefExpr");
             if (!functionCalls.isEmpty()) {
                 for (var functionCall : functionCalls) {
                     if (functionCall.hasAttribute("name")) {
@@ -1978,43 +1533,17 @@ public class astOpValidator extends AnalysisVisitor {
 
             // Se o método main utilizar um field num assign, dá erro por ser static
             if (table.getFields() != null) {
-                var assigns = method.getDescendants("AssignStmt");
+                var assigns = getIndex().getDescendants(method, "AssignStmt");
                 if (!assigns.isEmpty()) {
                     for (var assignStmt : assigns) {
                         var leftVar = assignStmt.getChildren().get(0);
                         var rightVar = assignStmt.getChildren().get(1);
-                        boolean leftVarIsLocal = false;
-                        boolean rightVarIsLocal = false;
-
-                        if (table.getLocalVariables(currentMethod) != null) {
-                            for (var localVar : table.getLocalVariables(currentMethod)) {
-                                if (leftVar.hasAttribute("name")) {
-                                    if (localVar.getName().equals(leftVar.get("name"))) {
-                                        leftVarIsLocal = true;
-                                    }
-                                }
-                                if (rightVar.hasAttribute("name")) {
-                                    if (localVar.getName().equals(rightVar.get("name"))) {
-                                        rightVarIsLocal = true;
-                                    }
-                                }
-                            }
-                        }
 
-                        for (var field : table.getFields()) {
-                            if (leftVar.hasAttribute("name")) {
-                                if (field.getName().equals(leftVar.get("name"))) {
-                                    if (!leftVarIsLocal) valid = false; // se não for inicializada como variável local, dá erro por tentar aceder a um field
-                                }
-                            }
-                            if (rightVar.hasAttribute("name")) {
-                                if (field.getName().equals(rightVar.get("name"))) {
-                                    if (!rightVarIsLocal) valid = false;
-                                }
-                            }
-                            if (!valid) break;
+                        // se não for inicializada como variável local, dá erro por tentar aceder a um field
+                        if (isFieldAccess(leftVar) || isFieldAccess(rightVar)) {
+                            valid = false;
+                            break;
                         }
-                        if (!valid) break;
                     }
                 }
             }
@@ -2034,7 +1563,7 @@ public class astOpValidator extends AnalysisVisitor {
         // verificar se recebe tipo de retorno esperado
         if (!currentMethod.equals("main")) {
             if (method.getChildren("Void").isEmpty()) {
-                var returnNode = method.getDescendants("ReturnStmt");
+                var returnNode = returnNodes;
                 if (returnNode.size() > 1) valid = false;
                 else {
                     var returnNodeKind = returnNode.get(0).getChildren().get(0);
@@ -2049,41 +1578,8 @@ public class astOpValidator extends AnalysisVisitor {
                     }
                     else if (returnNodeKind.getKind().equals("VarRefExpr")) {
                         // descobrir o tipo da variável
-                        if (table.getParameters(currentMethod) != null) {
-                            for (var param : table.getParameters(currentMethod)) {
-                                if (returnNodeKind.hasAttribute("name")) {
-                                    if (param.getName().equals(returnNodeKind.get("name"))) {
-                                        if (!returnType.getName().equals(param.getType().getName())) {
-                                            valid = false;
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        if (table.getLocalVariables(currentMethod) != null) {
-                            for (var localVar : table.getLocalVariables(currentMethod)) {
-                                if (returnNodeKind.hasAttribute("name")) {
-                                    if (localVar.getName().equals(returnNodeKind.get("name"))) {
-                                        if (!returnType.getName().equals(localVar.getType().getName())) {
-                                            valid = false;
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        if (table.getFields() != null) {
-                            for (var field : table.getFields()) {
-                                if (returnNodeKind.hasAttribute("name")) {
-                                    if (field.getName().equals(returnNodeKind.get("name"))) {
-                                        if (!returnType.getName().equals(field.getType().getName())) {
-                                            valid = false;
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
+                        for (var symbol : declarationsOf(returnNodeKind)) {
+                            if (!returnType.getName().equals(symbol.getType().getName())) valid = false;
                         }
                     }
                 }
@@ -2092,7 +1588,7 @@ public class astOpValidator extends AnalysisVisitor {
             else {
                 // Se tiver returnNode, falha. Ex: return; seria aceite, mas não é registado pela nossa gramática daí,
                 // se tiver mais que um node ReturnStmt, é um return com valores, por isso tem que falhar
-                var returnNode = method.getDescendants("ReturnStmt");
+                var returnNode = returnNodes;
                 if (!returnNode.isEmpty()) valid = false;
             }
         }
@@ -2168,7 +1664,7 @@ public class astOpValidator extends AnalysisVisitor {
                     if (methodChild.getKind().equals("Param")) {
                         int parametersNumber = method.getChildren("Param").size();
 
-                        var varArgsNodes = method.getDescendants("VarArgs");
+                        var varArgsNodes = getIndex().getDescendants(method, "VarArgs");
                         numVarArgsCalled = varArgsNodes.size();
 
                         // se existir pelo menos um parametro varargs
@@ -2286,7 +1782,7 @@ public class astOpValidator extends AnalysisVisitor {
         // verificar se o ‘id’ da declaração existe
         boolean correctID = false;
 
-        if (!varDecl.getDescendants("VarArgs").isEmpty()) {
+        if (!getIndex().getDescendants(varDecl, "VarArgs").isEmpty()) {
             var message = String.format("Can´t use varargs on locals or fields '%s'.", varDecl);
             addReport(Report.newError(
                     Stage.SEMANTIC,
@@ -2313,14 +1809,7 @@ public class astOpValidator extends AnalysisVisitor {
             }
 
             if (!correctID) {
-                if (table.getImports() != null) {
-                    for (var importName : table.getImports()) {
-                        if (importName.equals(idVarDecl.get("value"))) {
-                            correctID = true;
-                            break;
-                        }
-                    }
-                }
+                if (getSymbols().hasImport(idVarDecl.get("value"))) correctID = true;
             }
 
             if (!correctID) {
@@ -2343,21 +1832,17 @@ public class astOpValidator extends AnalysisVisitor {
         if (varDecl.getParent().getKind().equals("MethodDecl")) {
             if (table.getLocalVariables(currentMethod) != null) {
                 var localVariables = table.getLocalVariables(currentMethod);
-                if (localVariables != null && !localVariables.isEmpty()) {
-                    for (int i = 0; i < localVariables.size(); i++) {
-                        for (int j = i + 1; j < localVariables.size(); j++) {
-                            if (localVariables.get(i).equals(localVariables.get(j))) {
-                                var message = String.format("Repeated variable '%s'.", varDecl);
-                                addReport(Report.newError(
-                                        Stage.SEMANTIC,
-                                        NodeUtils.getLine(varDecl),
-                                        NodeUtils.getColumn(varDecl),
-                                        message,
-                                        null)
-                                );
-                            }
-                        }
-                    }
+                // um report por cada par de declarações iguais
+                int repeatedPairs = repeatedLocalPairs.computeIfAbsent(currentMethod, method -> countRepeatedPairs(localVariables));
+                for (int i = 0; i < repeatedPairs; i++) {
+                    var message = String.format("Repeated variable '%s'.", varDecl);
+                    addReport(Report.newError(
+                            Stage.SEMANTIC,
+                            NodeUtils.getLine(varDecl),
+                            NodeUtils.getColumn(varDecl),
+                            message,
+                            null)
+                    );
                 }
             }
         }
@@ -2366,8 +1851,7 @@ public class astOpValidator extends AnalysisVisitor {
         var varRefName = varDecl.get("name");
 
         // Var is a field, return
-        if (table.getFields().stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
+        if (getSymbols().getField(varRefName).isPresent()) {
             if (varDecl.getChildren().get(0).getKind().equals("Array")) {
                 if (varDecl.getChildren().get(0).getChildren().get(0).hasAttribute("value")) {
                     varDecl.put("type", varDecl.getChildren().get(0).getChildren().get(0).get("value"));
@@ -2382,8 +1866,7 @@ public class astOpValidator extends AnalysisVisitor {
         }
 
         // Var is a parameter, return
-        if (table.getParameters(currentMethod).stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
+        if (getSymbols().getParameter(currentMethod, varRefName).isPresent()) {
             if (varDecl.getChildren().get(0).getKind().equals("Array")) {
                 if (varDecl.getChildren().get(0).getChildren().get(0).hasAttribute("value")) {
                     varDecl.put("type", varDecl.getChildren().get(0).getChildren().get(0).get("value"));
@@ -2399,10 +1882,7 @@ public class astOpValidator extends AnalysisVisitor {
 
         // Var is a declared variable or imported package, return
         if (table.getLocalVariables(currentMethod) != null) {
-            if (table.getLocalVariables(currentMethod).stream()
-                    .anyMatch(varDec -> varDec.getName().equals(varRefName)) ||
-                    table.getImports().stream().anyMatch(imp -> imp.equals(varRefName))
-            ) {
+            if (getSymbols().getLocalVariable(currentMethod, varRefName).isPresent() || getSymbols().hasImport(varRefName)) {
                 if (varDecl.getChildren().get(0).getKind().equals("Array")) {
                     if (varDecl.getChildren().get(0).getChildren().get(0).hasAttribute("value")) {
                         varDecl.put("type", varDecl.getChildren().get(0).getChildren().get(0).get("value"));
@@ -2421,8 +1901,7 @@ public class astOpValidator extends AnalysisVisitor {
         }
 
         if (table.getImports() != null) {
-            if (table.getImports().stream()
-                    .anyMatch(varDec -> varDec.equals(varRefName))) {
+            if (getSymbols().hasImport(varRefName)) {
                 return null;
             }
         }
@@ -2439,4 +1918,16 @@ public class astOpValidator extends AnalysisVisitor {
 
         return null;
     }
+
+    // Número de pares (i, j) de declarações iguais
+    private static int countRepeatedPairs(List<Symbol> symbols) {
+        Map<Symbol, Integer> counts = new HashMap<>();
+        int pairs = 0;
+        for (var symbol : symbols) {
+            int previous = counts.getOrDefault(symbol, 0);
+            pairs += previous;
+            counts.put(symbol, previous + 1);
+        }
+        return pairs;
+    }
 }
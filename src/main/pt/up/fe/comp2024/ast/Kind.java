@@ -15,14 +15,26 @@ public enum Kind {
     METHOD_DECL,
     PARAM,
     ASSIGN_STMT,
+    ASSIGN_VAR,
+    ASSIGN_ARRAY,
     RETURN_STMT,
+    EXPRESSION,
+    BRACKETS,
+    IF_CONDITION,
+    WHILE_LOOP,
     BINARY_EXPR,
+    BINARY_OP,
+    NEGATE,
+    PARENTESIS,
     INTEGER_LITERAL,
+    BOLEAN,
     VAR_REF_EXPR;
 
 
-    private static final Set<Kind> STATEMENTS = Set.of(ASSIGN_STMT, RETURN_STMT);
-    private static final Set<Kind> EXPRESSIONS = Set.of(BINARY_EXPR, INTEGER_LITERAL, VAR_REF_EXPR);
+    private static final Set<Kind> STATEMENTS = Set.of(ASSIGN_STMT, ASSIGN_VAR, ASSIGN_ARRAY, RETURN_STMT, EXPRESSION,
+            BRACKETS, IF_CONDITION, WHILE_LOOP);
+    private static final Set<Kind> EXPRESSIONS = Set.of(BINARY_EXPR, BINARY_OP, NEGATE, PARENTESIS, INTEGER_LITERAL,
+            BOLEAN, VAR_REF_EXPR);
 
     private final String name;
 
@@ -60,6 +72,13 @@ public enum Kind {
         return STATEMENTS.contains(this);
     }
 
+    /**
+     * @return true if the node is a statement, false otherwise
+     */
+    public static boolean isStmt(JmmNode node) {
+        return STATEMENTS.stream().anyMatch(kind -> kind.check(node));
+    }
+
     /**
      * @return true if this kind represents an expression, false otherwise
      */
@@ -0,0 +1,20 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.classfile.ClassFileGenerator;
+import pt.up.fe.comp2024.backend.classfile.ClassFileResult;
+
+/**
+ * Backend that writes the class file directly, instead of generating Jasmin code that is then assembled.
+ */
+public class ClassFileBackendImpl {
+
+    public ClassFileResult toClassFile(OllirResult ollirResult) {
+
+        var classFileGenerator = new ClassFileGenerator(ollirResult);
+        var bytes = classFileGenerator.build();
+
+        return new ClassFileResult(classFileGenerator.getClassName(), bytes, classFileGenerator.getReports());
+    }
+
+}
@@ -3,6 +3,10 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.io.IOException;
+import java.util.List;
 
 public class JasminBackendImpl implements JasminBackend {
 
@@ -15,4 +19,20 @@ public class JasminBackendImpl implements JasminBackend {
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
+    /**
+     * Writes the Jasmin code to the given output (e.g. a file or the input of the assembler) as it is generated,
+     * instead of returning the code of the whole class.
+     *
+     * @param ollirResult
+     * @param out
+     * @return the reports of the code generation
+     */
+    public List<Report> toJasmin(OllirResult ollirResult, Appendable out) throws IOException {
+
+        var jasminGenerator = new JasminGenerator(ollirResult);
+        jasminGenerator.build(out);
+
+        return jasminGenerator.getReports();
+    }
+
 }
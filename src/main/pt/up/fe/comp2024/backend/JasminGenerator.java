@@ -4,16 +4,23 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.backend.peephole.JasminInstruction;
+import pt.up.fe.comp2024.backend.peephole.PeepholeOptimizer;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
 import javax.lang.model.type.NullType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 /**
  * Generates Jasmin code from an OllirResult.
@@ -33,14 +40,16 @@ public class JasminGenerator {
 
     Method currentMethod;
 
+    // Labels of the comparisons that are computed as values, numbered per method
+    private int labelCounter;
+
     Field currentField;
 
     ClassUnit currentClassUnit;
     private final FunctionClassMap<TreeNode, String> generators;
 
-    int lim_stack;
-    int cur_stack;
-    int call_arg;
+    // Only with -o, null otherwise
+    private final PeepholeOptimizer peephole;
 
     public JasminGenerator(OllirResult ollirResult) {
         this.ollirResult = ollirResult;
@@ -48,10 +57,9 @@ public class JasminGenerator {
         reports = new ArrayList<>();
         code = null;
         currentMethod = null;
+        peephole = CompilerConfig.getOptimize(ollirResult.getConfig()) ? PeepholeOptimizer.withDefaultRules() : null;
 
         this.generators = new FunctionClassMap<>();
-        generators.put(ClassUnit.class, this::generateClassUnit);
-        generators.put(Method.class, this::generateMethod);
         generators.put(Field.class, this::generateField);
         generators.put(AssignInstruction.class, this::generateAssign);
         generators.put(PutFieldInstruction.class, this::generatePutField);
@@ -76,14 +84,35 @@ public class JasminGenerator {
 
         // This way, build is idempotent
         if (code == null) {
-            code = generators.apply(ollirResult.getOllirClass());
+            var out = new StringBuilder();
+            try {
+                build(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not build Jasmin code", e);
+            }
+            code = out.toString();
         }
 
         return code;
     }
 
+    /**
+     * Writes the Jasmin code to the given output as it is generated. Only the body of the current method is kept in
+     * memory, since its stack limit must be written before it.
+     */
+    public void build(Appendable out) throws IOException {
+        generateClassUnit(ollirResult.getOllirClass(), out);
+
+        if (peephole != null) {
+            for (var rule : peephole.getRewrites().entrySet()) {
+                reports.add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1,
+                        "Peephole rule '" + rule.getKey() + "' made " + rule.getValue() + " rewrites"));
+            }
+        }
+    }
 
-    private String generateClassUnit(ClassUnit classUnit) {
+
+    private void generateClassUnit(ClassUnit classUnit, Appendable out) throws IOException {
 
         var code = new StringBuilder();
         currentClassUnit = classUnit;
@@ -144,8 +173,10 @@ public class JasminGenerator {
         }
         code.append("/<init>()V").append(NL);
         code.append(endDefaultConstructor);
+        out.append(code);
 
-        // generate code for all other methods
+        // generate code for all other methods, reusing the buffer of the method body
+        var body = new StringBuilder();
         for (var method : ollirResult.getOllirClass().getMethods()) {
 
             // Ignore constructor, since there is always one constructor
@@ -155,10 +186,10 @@ public class JasminGenerator {
                 continue;
             }
 
-            code.append(generators.apply(method));
+            body.setLength(0);
+            generateMethod(method, body, out);
         }
         currentClassUnit = null;
-        return code.toString();
     }
 
     private String generateField(Field field) {
@@ -238,10 +269,11 @@ public class JasminGenerator {
     }
 
 
-    private String generateMethod(Method method) {
+    private void generateMethod(Method method, StringBuilder body, Appendable out) throws IOException {
 
         // set method
         currentMethod = method;
+        labelCounter = 0;
 
         var code = new StringBuilder();
 
@@ -273,40 +305,61 @@ public class JasminGenerator {
         var returnType = getJasminType(method.getReturnType());
         code.append(returnType).append(NL);
 
-        cur_stack = 0;
-        lim_stack = 0;
-
-        var instCodeFull = new StringBuilder();
+        // Labels of each instruction, looked up once per method instead of once per instruction
+        Map<Instruction, List<String>> labels = new HashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(label.getValue(), inst -> new ArrayList<>()).add(label.getKey());
+        }
 
-        for (var inst : method.getInstructions()) {
-            for(var lable : method.getLabels().entrySet()){
-                    if(lable.getValue().equals(inst)) {
-                        instCodeFull.append(TAB).append(lable.getKey()).append(":").append(NL);
-                    }
+        var instructions = method.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            for (var label : labels.getOrDefault(inst, List.of())) {
+                body.append(TAB).append(label).append(":").append(NL);
             }
 
-            var instCode = StringLines.getLines(generators.apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
-            instCodeFull.append(instCode);
+            appendIndented(body, generators.apply(inst));
             // fazer if para o pop
             if (inst.getInstType() == InstructionType.CALL
                     && ((CallInstruction) inst).getReturnType().getTypeOfElement() != ElementType.VOID) {
-                instCodeFull.append(TAB).append("pop").append(NL);
-                cur_stack--;
+                body.append(TAB).append("pop").append(NL);
+            }
+        }
+
+        if (peephole != null) {
+            var optimized = peephole.optimize(JasminInstruction.parse(body));
+            body.setLength(0);
+            for (var inst : optimized) {
+                body.append(TAB).append(inst).append(NL);
             }
         }
-        code.append(TAB).append(".limit stack 20").append(NL);
-        //code.append(TAB).append(".limit stack ").append(lim_stack).append(NL);
-        code.append(TAB).append(".limit locals ").append(getLocalNumber(method)).append(NL);
 
-        code.append(instCodeFull);
+        code.append(TAB).append(".limit stack ").append(StackLimitCalculator.maxStack(body)).append(NL);
+        code.append(TAB).append(".limit locals ").append(getLocalNumber(method)).append(NL);
 
-        code.append(".end method\n");
+        out.append(code);
+        out.append(body);
+        out.append(".end method\n");
 
         // unset method
         currentMethod = null;
+    }
 
-        return code.toString();
+    /**
+     * Appends the code of an instruction with every line indented, ending with a new line.
+     */
+    private static void appendIndented(StringBuilder body, String instCode) {
+        int start = 0;
+        int end;
+        while ((end = instCode.indexOf('\n', start)) != -1) {
+            body.append(TAB).append(instCode, start, end + 1);
+            start = end + 1;
+        }
+
+        // Last line without a new line, or an instruction without code
+        if (start < instCode.length() || start == 0) {
+            body.append(TAB).append(instCode, start, instCode.length()).append(NL);
+        }
     }
 
     private String IincHandler(AssignInstruction assign) {
@@ -315,10 +368,15 @@ public class JasminGenerator {
         boolean expectedOperationType = op.equals(OperationType.SUB) || op.equals(OperationType.ADD);
 
         if (expectedOperationType) {
-            boolean onlyLeftOperandIsLiteral = binInst.getLeftOperand().isLiteral() && !binInst.getRightOperand().isLiteral();
+            // 'c - i' is not an increment of i
+            boolean onlyLeftOperandIsLiteral = binInst.getLeftOperand().isLiteral() && !binInst.getRightOperand().isLiteral()
+                    && op.equals(OperationType.ADD);
             boolean onlyRightOperandIsLiteral = !binInst.getLeftOperand().isLiteral() && binInst.getRightOperand().isLiteral();
 
-            if (onlyLeftOperandIsLiteral || onlyRightOperandIsLiteral) {
+            boolean isArrayAccess = binInst.getLeftOperand() instanceof ArrayOperand
+                    || binInst.getRightOperand() instanceof ArrayOperand;
+
+            if ((onlyLeftOperandIsLiteral || onlyRightOperandIsLiteral) && !isArrayAccess) {
                 Operand ope;
                 LiteralElement lit;
                 if (binInst.getLeftOperand().isLiteral()) {
@@ -340,7 +398,7 @@ public class JasminGenerator {
                 if (hasSameVarName && hasOneByte) {
                     int virtualRegId = currentMethod.getVarTable().get(ope.getName()).getVirtualReg();
 
-                    return "\tiinc " + virtualRegId + " " + litValue + "\n";
+                    return "iinc " + virtualRegId + " " + litValue + NL;
                 }
             }
         }
@@ -350,6 +408,12 @@ public class JasminGenerator {
     private String generateAssign(AssignInstruction assign) {
         var code = new StringBuilder();
 
+        // 'i := i + 1' only needs an iinc, without loading anything
+        if (assign.getRhs().getInstType() == InstructionType.BINARYOPER && !(assign.getDest() instanceof ArrayOperand)) {
+            String ret = this.IincHandler(assign);
+            if (ret != null) return ret;
+        }
+
         // generate code for loading what's on the right
         code.append(generators.apply(assign.getRhs()));
 
@@ -375,11 +439,6 @@ public class JasminGenerator {
             return code.toString();
         }
 
-        if (assign.getRhs().getInstType() == InstructionType.BINARYOPER) {
-            String ret = this.IincHandler(assign);
-            if (ret != null) return code.append(ret).toString();
-        }
-
         if (reg > 3) {
             storeType = switch (storeTypeName) {
                 case "INT32", "BOOLEAN" -> "istore ";
@@ -396,14 +455,6 @@ public class JasminGenerator {
             };
         }
 
-        int nStack;
-        nStack = switch (storeTypeName) {
-            case "INT32", "BOOLEAN" -> 3;
-            case "ARRAYREF", "STRING", "OBJECTREF", "THIS", "CLASS", "VOID" -> 1;
-            default -> throw new IllegalArgumentException("Unsupported type: " + storeTypeName);
-        };
-        cur_stack -= nStack;
-
         code.append(storeType).append(reg).append(NL);
 
 
@@ -413,7 +464,6 @@ public class JasminGenerator {
     //var muito bem esta função
     private String getAssignArray(AssignInstruction assign, int reg) {
         var code = new StringBuilder();
-        incrementStackNumber(1);
 
         if(reg > 3) code.append("aload ").append(reg);
         else code.append("aload_").append(reg);
@@ -431,7 +481,6 @@ public class JasminGenerator {
     }
 
     private String generatePutField(PutFieldInstruction putFieldInstruction) {
-        cur_stack -= 2;
         var code = new StringBuilder();
         var type = getJasminType(putFieldInstruction.getValue().getType());
         var spec1 = this.currentClassUnit.getClassName();
@@ -463,7 +512,6 @@ public class JasminGenerator {
 
 
     private String generateCall(CallInstruction callInstruction){
-        call_arg = 0;
         String code;
         // nestes todos ainda está tudo em código que precisa de ser melhorado
         code = switch (callInstruction.getInvocationType()) {
@@ -482,7 +530,6 @@ public class JasminGenerator {
             case ldc -> getLdcCall(callInstruction);
         };
 
-        cur_stack -= call_arg;
         return code;
     }
 
@@ -491,11 +538,8 @@ public class JasminGenerator {
         var className = ollirResult.getOllirClass().getClassName();
         code.append(generators.apply(callInstruction.getOperands().get(0)));
 
-        call_arg = 1;
-
         for (var argument : callInstruction.getArguments()) {
             code.append(generators.apply(argument));
-            call_arg++;
         }
 
         code.append("invokevirtual ");
@@ -527,8 +571,6 @@ public class JasminGenerator {
         var retType = getJasminType(callInstruction.getReturnType());
         code.append(retType).append(NL);
 
-        call_arg = retType.equals("V") ? call_arg : call_arg - 1;
-
         return code.toString();
     }
 
@@ -542,10 +584,8 @@ public class JasminGenerator {
     private String getStaticCall(CallInstruction callInstruction) {
         var code = new StringBuilder();
         var className = ollirResult.getOllirClass().getClassName();
-        call_arg = 0;
 
         for (var argument : callInstruction.getArguments()) {
-            call_arg++;
             code.append(generators.apply(argument));
         }
 
@@ -579,8 +619,6 @@ public class JasminGenerator {
         var retType = getJasminType(callInstruction.getReturnType());
         code.append(retType).append(NL);
 
-        call_arg = retType.equals("V") ? call_arg : call_arg - 1;
-
         return code.toString();
     }
 
@@ -614,16 +652,12 @@ public class JasminGenerator {
         var retType = getJasminType(callInstruction.getReturnType());
         code.append(retType).append(NL);
 
-        call_arg = retType.equals("V") ? call_arg : call_arg - 1;
-
         return code.toString();
     }
 
     private String getNewCall(CallInstruction callInstruction) {
         var code = new StringBuilder();
-        call_arg = -1;
         for (var agr : callInstruction.getArguments()){
-            call_arg++;
             code.append(generators.apply(agr));
         }
 
@@ -646,10 +680,8 @@ public class JasminGenerator {
 
     private String getNewArrayCall(CallInstruction callInstruction){
         var code = new StringBuilder();
-        call_arg = -1;
 
         for (var agr : callInstruction.getArguments()) {
-            call_arg++;
             code.append(generators.apply(agr));
         }
         code.append("newarray int").append(NL);
@@ -681,124 +713,128 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * Jumps to the label if the condition holds.
+     */
     private String generateBranch(CondBranchInstruction condBranchInstruction) {
         var code = new StringBuilder();
-        var condition = condBranchInstruction.getCondition().getInstType();
-        String result = new String();
+        var condition = condBranchInstruction.getCondition();
+        var label = condBranchInstruction.getLabel();
 
-        switch (condition){
-            case UNARYOPER -> {
-                result = getUnaryoperBranch((UnaryOpInstruction) condBranchInstruction.getCondition());
-            }
-            case BINARYOPER -> {
-                result = getBinaryoperBranch((BinaryOpInstruction) condBranchInstruction.getCondition());
-            }
-            default -> {
-                code.append(generators.apply(condBranchInstruction.getCondition()));
-                code.append("ifne ");
-                cur_stack--;
-            }
+        if (condition instanceof BinaryOpInstruction binaryOp && isComparison(binaryOp.getOperation().getOpType())) {
+            return generateCompareAndJump(binaryOp, label, false);
+        }
 
+        if (condition instanceof UnaryOpInstruction unaryOp
+                && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            code.append(generators.apply(unaryOp.getOperand()));
+            code.append("ifeq ").append(label).append(NL);
+            return code.toString();
         }
-        code.append(result);
-        code.append(condBranchInstruction.getLabel()).append(NL);
 
+        // Any other condition is computed as a boolean
+        code.append(generators.apply(condition));
+        code.append("ifne ").append(label).append(NL);
 
         return code.toString();
     }
 
-    private String getUnaryoperBranch(UnaryOpInstruction unaryOpInstruction){
+    /**
+     * Jumps if the comparison holds (or does not hold, when negated), comparing against zero directly when one of
+     * the operands is the literal 0.
+     */
+    private String generateCompareAndJump(BinaryOpInstruction comparison, String label, boolean negate) {
         var code = new StringBuilder();
-        if(unaryOpInstruction.getOperation().getOpType() == OperationType.NOTB){
-            code.append(generators.apply(unaryOpInstruction.getOperand()));
-            code.append("ifeq ");
-            cur_stack--;
+        var op = comparison.getOperation().getOpType();
+        if (negate) {
+            op = negate(op);
         }
-        return code.toString();
-    }
 
-    private String getBinaryoperBranch(BinaryOpInstruction binaryOpInstruction){
-        var code = new StringBuilder();
-        var code1 = new StringBuilder();
-        var code2 = new StringBuilder();
-        var code3 = new StringBuilder();
-        boolean if1 = false;
-        boolean if2 = false;
-        boolean if3 = false;
-
-        Integer literalOp = null;
-        switch (binaryOpInstruction.getOperation().getOpType()){
-            case LTH -> {
-                if(binaryOpInstruction.getRightOperand() instanceof LiteralElement){
-                    literalOp = Integer.parseInt(((LiteralElement) binaryOpInstruction.getRightOperand()).getLiteral());
-                    code1.append(generators.apply(binaryOpInstruction.getLeftOperand()));
-                    code1.append("iflt ");
-                    cur_stack--;
-                    if1 = true;
-                }
+        var left = comparison.getLeftOperand();
+        var right = comparison.getRightOperand();
 
-                if(binaryOpInstruction.getLeftOperand() instanceof LiteralElement){
-                    literalOp = Integer.parseInt(((LiteralElement) binaryOpInstruction.getLeftOperand()).getLiteral());
-                    code2.append(generators.apply(binaryOpInstruction.getRightOperand()));
-                    code2.append("ifgt ");
-                    cur_stack--;
-                    if2 = true;
-                }
+        if (isZero(right)) {
+            code.append(generators.apply(left));
+            code.append(getCompareWithZeroOpcode(op));
+        } else if (isZero(left)) {
+            code.append(generators.apply(right));
+            code.append(getCompareWithZeroOpcode(swap(op)));
+        } else {
+            code.append(generators.apply(left));
+            code.append(generators.apply(right));
+            code.append(getCompareOpcode(op));
+        }
 
-                if(!(literalOp != null && literalOp == 0)){
-                    code3.append(generators.apply(binaryOpInstruction.getLeftOperand()))
-                            .append(generators.apply(binaryOpInstruction.getRightOperand()));
-                    code3.append("if_icmplt ");
-                    cur_stack -= 2;
-                    if3 = true;
-                }
-            }
+        code.append(" ").append(label).append(NL);
+        return code.toString();
+    }
 
-            case GTE -> {
-                if(binaryOpInstruction.getRightOperand() instanceof LiteralElement){
-                    literalOp = Integer.parseInt(((LiteralElement) binaryOpInstruction.getRightOperand()).getLiteral());
-                    code1.append(generators.apply(binaryOpInstruction.getLeftOperand()));
-                    code1.append("ifle ");
-                    cur_stack--;
-                    if1 = true;
-                }
+    private static boolean isZero(Element element) {
+        if (!(element instanceof LiteralElement literal)) {
+            return false;
+        }
 
-                if(binaryOpInstruction.getLeftOperand() instanceof LiteralElement) {
-                    literalOp = Integer.parseInt(((LiteralElement) binaryOpInstruction.getLeftOperand()).getLiteral());
-                    code2.append(generators.apply(binaryOpInstruction.getRightOperand()));
-                    code2.append("ifge ");
-                    cur_stack--;
-                    if2 = true;
-                }
+        var type = literal.getType().getTypeOfElement();
+        return (type == ElementType.INT32 || type == ElementType.BOOLEAN) && Integer.parseInt(literal.getLiteral()) == 0;
+    }
 
-                if(!(literalOp != null && literalOp == 0)){
-                    code3.append(generators.apply(binaryOpInstruction.getLeftOperand()))
-                            .append(generators.apply(binaryOpInstruction.getRightOperand()));
-                    code3.append("if_icmpge ");
-                    cur_stack -= 2;
-                    if3 = true;
-                }
-            }
+    private static boolean isComparison(OperationType op) {
+        return switch (op) {
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> true;
+            default -> false;
+        };
+    }
 
-            case ANDB -> {
-                code.append(generators.apply(binaryOpInstruction));
-                code.append("ifne ");
-                cur_stack--;
-            }
+    /**
+     * @return the comparison with the operands in the opposite order, e.g. 'a < b' is 'b > a'
+     */
+    private static OperationType swap(OperationType op) {
+        return switch (op) {
+            case LTH -> OperationType.GTH;
+            case GTH -> OperationType.LTH;
+            case LTE -> OperationType.GTE;
+            case GTE -> OperationType.LTE;
+            default -> op;
+        };
+    }
 
-            default -> code.append("");
-        }
-        if(if1){
-            if(if2){
-                if(if3){
-                    return code.append(code3).toString();
-                }
-                return code.append(code2).toString();
-            }
-            return code.append(code1).toString();
-        }
+    /**
+     * @return the comparison that holds when the given one does not, e.g. 'a < b' is 'a >= b'
+     */
+    private static OperationType negate(OperationType op) {
+        return switch (op) {
+            case LTH -> OperationType.GTE;
+            case GTE -> OperationType.LTH;
+            case GTH -> OperationType.LTE;
+            case LTE -> OperationType.GTH;
+            case EQ -> OperationType.NEQ;
+            case NEQ -> OperationType.EQ;
+            default -> throw new NotImplementedException(op);
+        };
+    }
 
-        return code.toString();
+    private static String getCompareOpcode(OperationType op) {
+        return switch (op) {
+            case LTH -> "if_icmplt";
+            case GTH -> "if_icmpgt";
+            case LTE -> "if_icmple";
+            case GTE -> "if_icmpge";
+            case EQ -> "if_icmpeq";
+            case NEQ -> "if_icmpne";
+            default -> throw new NotImplementedException(op);
+        };
+    }
+
+    private static String getCompareWithZeroOpcode(OperationType op) {
+        return switch (op) {
+            case LTH -> "iflt";
+            case GTH -> "ifgt";
+            case LTE -> "ifle";
+            case GTE -> "ifge";
+            case EQ -> "ifeq";
+            case NEQ -> "ifne";
+            default -> throw new NotImplementedException(op);
+        };
     }
 
     private String generateSingleOp(SingleOpInstruction singleOp) {
@@ -806,7 +842,6 @@ public class JasminGenerator {
     }
 
     private String generateLiteral(LiteralElement literal) {
-        incrementStackNumber(1);
         var code = new StringBuilder();
         if (literal.getType().getTypeOfElement() != ElementType.INT32 && literal.getType().getTypeOfElement() != ElementType.BOOLEAN) {
             return "ldc " + literal.getLiteral() + NL;
@@ -827,17 +862,14 @@ public class JasminGenerator {
     }
 
     private String generateArrayOperand(ArrayOperand arrayOperand) {
-        incrementStackNumber(1);
         var code = new StringBuilder();
         code.append("aload ").append(currentMethod.getVarTable().get(arrayOperand.getName()).getVirtualReg()).append(NL);
         code.append(generators.apply(arrayOperand.getIndexOperands().get(0)));
         code.append("iaload").append(NL);
-        cur_stack--;
         return code.toString();
     }
 
     private String generateOperand(Operand operand) {
-        incrementStackNumber(1);
         // get register
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
 
@@ -875,8 +907,7 @@ public class JasminGenerator {
             case DIV -> "idiv";
             case ANDB -> "iand";
             case NOTB -> "ixor";
-            case LTH -> "if_icmplt";
-            case GTE -> "if_icmpte";
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> getCompareOpcode(operationType);
             default -> null;
         };
     }
@@ -893,10 +924,24 @@ public class JasminGenerator {
     }
 
     private String generateBinaryOp(BinaryOpInstruction binaryOp) {
-        cur_stack --;
         //Fazer aqui as alterações para a iinc
         var code = new StringBuilder();
 
+        if (isComparison(binaryOp.getOperation().getOpType())) {
+            // Pushes 1 if the comparison holds, 0 otherwise
+            var isFalse = "cmp_false_" + labelCounter;
+            var end = "cmp_end_" + labelCounter;
+            labelCounter++;
+
+            code.append(generateCompareAndJump(binaryOp, isFalse, true));
+            code.append("iconst_1").append(NL);
+            code.append("goto ").append(end).append(NL);
+            code.append(isFalse).append(":").append(NL);
+            code.append("iconst_0").append(NL);
+            code.append(end).append(":").append(NL);
+            return code.toString();
+        }
+
         // load values on the left and on the right
         code.append(generators.apply(binaryOp.getLeftOperand()));
         code.append(generators.apply(binaryOp.getRightOperand()));
@@ -907,7 +952,12 @@ public class JasminGenerator {
             case MUL -> "imul";
             case DIV -> "idiv";
             case SUB -> "isub";
-            case ANDB -> "iand";
+            case AND, ANDB -> "iand";
+            case OR, ORB -> "ior";
+            case XOR -> "ixor";
+            case SHL -> "ishl";
+            case SHR -> "ishr";
+            case SHRR -> "iushr";
             case NOTB -> "ifeq";
             default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
         };
@@ -937,27 +987,18 @@ public class JasminGenerator {
     }
 
     private String getLocalNumber(Method method){
-        var code = new StringBuilder();
-        var list = new ArrayList<>();
+        // 'this' always takes register 0
+        int number = method.isStaticMethod() ? 0 : 1;
 
         for (var value : method.getVarTable().values()) {
-            if (!list.contains(value.getVirtualReg()))
-                list.add(value.getVirtualReg());
-        }
-
-        var number = list.size();
+            // Fields and class names used as callers of static calls do not take a register
+            if (value.getScope() == VarScope.FIELD || value.getVarType().getTypeOfElement() == ElementType.CLASS)
+                continue;
 
-        if (!list.contains(0) && !method.isStaticMethod()){
-            number++;
+            number = Math.max(number, value.getVirtualReg() + 1);
         }
 
-        code.append(number);
-        return code.toString();
-    }
-
-    private void incrementStackNumber(int n){
-        cur_stack += n;
-        lim_stack = Math.max(lim_stack, cur_stack);
+        return String.valueOf(number);
     }
 
     private boolean between(int value, int lower, int upper) {
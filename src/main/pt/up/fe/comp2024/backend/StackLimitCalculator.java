@@ -0,0 +1,202 @@
+package pt.up.fe.comp2024.backend;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the maximum operand stack depth of the body of a Jasmin method.
+ * <p>
+ * Simulates the stack effect of every instruction along all control-flow paths (fall-through and branch targets),
+ * so the value is exact for the code that is actually emitted.
+ */
+public class StackLimitCalculator {
+
+    private final List<String[]> instructions;
+    private final Map<String, Integer> labels;
+
+    private StackLimitCalculator(CharSequence methodBody) {
+        this.instructions = new ArrayList<>();
+        this.labels = new HashMap<>();
+
+        int start = 0;
+        while (start < methodBody.length()) {
+            int end = start;
+            while (end < methodBody.length() && methodBody.charAt(end) != '\n') {
+                end++;
+            }
+
+            var stripped = methodBody.subSequence(start, end).toString().strip();
+            start = end + 1;
+
+            if (stripped.isEmpty() || stripped.startsWith(";") || stripped.startsWith(".")) {
+                continue;
+            }
+
+            if (stripped.endsWith(":")) {
+                labels.put(stripped.substring(0, stripped.length() - 1), instructions.size());
+                continue;
+            }
+
+            instructions.add(stripped.split("\\s+"));
+        }
+    }
+
+    /**
+     * @param methodBody the Jasmin instructions and labels of a method, one per line
+     * @return the maximum depth the operand stack can reach
+     */
+    public static int maxStack(CharSequence methodBody) {
+        return new StackLimitCalculator(methodBody).compute();
+    }
+
+    private int compute() {
+        var depthAt = new int[instructions.size()];
+        Arrays.fill(depthAt, -1);
+
+        var worklist = new ArrayDeque<Integer>();
+        int max = 0;
+
+        if (!instructions.isEmpty()) {
+            depthAt[0] = 0;
+            worklist.push(0);
+        }
+
+        while (!worklist.isEmpty()) {
+            int index = worklist.pop();
+            var inst = instructions.get(index);
+            var opcode = inst[0];
+
+            int depth = depthAt[index] + getStackEffect(inst);
+            if (depth < 0) {
+                throw new IllegalStateException("Operand stack underflow at '" + String.join(" ", inst) + "'");
+            }
+            max = Math.max(max, Math.max(depth, depthAt[index] + getPeak(inst)));
+
+            for (int successor : getSuccessors(index, opcode, inst)) {
+                if (depthAt[successor] == -1) {
+                    depthAt[successor] = depth;
+                    worklist.push(successor);
+                } else if (depthAt[successor] != depth) {
+                    throw new IllegalStateException("Inconsistent operand stack depth at '"
+                            + String.join(" ", instructions.get(successor)) + "'");
+                }
+            }
+        }
+
+        return max;
+    }
+
+    private List<Integer> getSuccessors(int index, String opcode, String[] inst) {
+        List<Integer> successors = new ArrayList<>(2);
+
+        if (opcode.equals("goto") || opcode.startsWith("if")) {
+            var target = labels.get(inst[1]);
+            if (target == null) {
+                throw new IllegalStateException("Unknown label '" + inst[1] + "'");
+            }
+            if (target < instructions.size()) {
+                successors.add(target);
+            }
+        }
+
+        boolean fallsThrough = !opcode.equals("goto") && !opcode.endsWith("return") && !opcode.equals("athrow");
+        if (fallsThrough && index + 1 < instructions.size()) {
+            successors.add(index + 1);
+        }
+
+        return successors;
+    }
+
+    /**
+     * Instructions that push before popping reach a depth above their final one.
+     */
+    private static int getPeak(String[] inst) {
+        return switch (inst[0]) {
+            case "dup", "dup_x1", "dup_x2" -> 1;
+            default -> 0;
+        };
+    }
+
+    private static int getStackEffect(String[] inst) {
+        var opcode = inst[0];
+
+        if (opcode.startsWith("iconst_") || opcode.startsWith("iload") || opcode.startsWith("aload_")) {
+            return 1;
+        }
+
+        if (opcode.startsWith("istore") || opcode.startsWith("astore")) {
+            return -1;
+        }
+
+        if (opcode.startsWith("if_")) {
+            return -2;
+        }
+
+        if (opcode.startsWith("invoke")) {
+            return getInvokeEffect(opcode, inst[1]);
+        }
+
+        return switch (opcode) {
+            case "bipush", "sipush", "ldc", "aload", "new", "dup", "dup_x1", "dup_x2", "getstatic" -> 1;
+            case "iinc", "goto", "nop", "return", "newarray", "anewarray", "arraylength", "getfield", "ineg",
+                    "swap", "checkcast" -> 0;
+            case "iadd", "isub", "imul", "idiv", "irem", "iand", "ior", "ixor", "ishl", "ishr", "iushr",
+                    "iaload", "aaload", "baload", "pop", "ireturn", "areturn", "athrow", "putstatic",
+                    "ifeq", "ifne", "iflt", "ifle", "ifgt", "ifge", "ifnull", "ifnonnull" -> -1;
+            case "putfield", "pop2" -> -2;
+            case "iastore", "aastore", "bastore" -> -3;
+            default -> throw new IllegalArgumentException("Unsupported instruction: " + String.join(" ", inst));
+        };
+    }
+
+    private static int getInvokeEffect(String opcode, String methodRef) {
+        var descriptor = methodRef.substring(methodRef.indexOf('('));
+        var returnType = descriptor.substring(descriptor.indexOf(')') + 1);
+
+        int effect = -getNumArgSlots(descriptor);
+
+        // Receiver
+        if (!opcode.equals("invokestatic")) {
+            effect--;
+        }
+
+        if (!returnType.equals("V")) {
+            effect += returnType.equals("J") || returnType.equals("D") ? 2 : 1;
+        }
+
+        return effect;
+    }
+
+    private static int getNumArgSlots(String descriptor) {
+        int slots = 0;
+        int i = 1;
+
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+
+            // Arrays take a single slot, whatever the element type
+            if (c == '[') {
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                if (descriptor.charAt(i) == 'L') {
+                    i = descriptor.indexOf(';', i);
+                }
+                slots++;
+            } else if (c == 'L') {
+                i = descriptor.indexOf(';', i);
+                slots++;
+            } else {
+                slots += c == 'J' || c == 'D' ? 2 : 1;
+            }
+
+            i++;
+        }
+
+        return slots;
+    }
+}
@@ -0,0 +1,172 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The code of a method being written, with forward references to labels and the depth of the operand stack.
+ * <p>
+ * The depth is tracked while instructions are added, from the stack effect given for each one. After an unconditional
+ * jump, the depth at the next label is the one recorded by the jumps to it.
+ */
+public class Bytecode {
+
+    public static class Label {
+        private int position = -1;
+        private int stackDepth = -1;
+    }
+
+    private record Jump(int opcodePosition, int offsetPosition, Label target) {
+    }
+
+    private byte[] code;
+    private int length;
+    private final List<Jump> jumps;
+    private int stackDepth;
+    private int maxStack;
+    private boolean reachable;
+
+    public Bytecode() {
+        this.code = new byte[64];
+        this.length = 0;
+        this.jumps = new ArrayList<>();
+        this.stackDepth = 0;
+        this.maxStack = 0;
+        this.reachable = true;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    /**
+     * Adds an instruction without operands.
+     *
+     * @param stackEffect how many values the instruction pushes minus how many it pops
+     */
+    public void op(int opcode, int stackEffect) {
+        u1(opcode);
+        adjustStack(stackEffect);
+
+        if (opcode == Opcodes.GOTO || opcode == Opcodes.RETURN || opcode == Opcodes.IRETURN
+                || opcode == Opcodes.ARETURN) {
+            reachable = false;
+        }
+    }
+
+    /**
+     * Adds an instruction with a single byte operand.
+     */
+    public void opU1(int opcode, int operand, int stackEffect) {
+        u1(opcode);
+        u1(operand);
+        adjustStack(stackEffect);
+    }
+
+    /**
+     * Adds an instruction with a two byte operand, such as a constant pool index.
+     */
+    public void opU2(int opcode, int operand, int stackEffect) {
+        u1(opcode);
+        u2(operand);
+        adjustStack(stackEffect);
+    }
+
+    /**
+     * Adds a load or store of a local variable, using the short form for the first four.
+     *
+     * @param opcode      the generic form, e.g. iload
+     * @param shortOpcode the form for variable 0, e.g. iload_0
+     */
+    public void local(int opcode, int shortOpcode, int index, int stackEffect) {
+        if (index <= 3) {
+            op(shortOpcode + index, stackEffect);
+        } else if (index <= 0xFF) {
+            opU1(opcode, index, stackEffect);
+        } else {
+            u1(Opcodes.WIDE);
+            opU2(opcode, index, stackEffect);
+        }
+    }
+
+    public void iinc(int index, int increment) {
+        if (index <= 0xFF && increment >= Byte.MIN_VALUE && increment <= Byte.MAX_VALUE) {
+            u1(Opcodes.IINC);
+            u1(index);
+            u1(increment);
+        } else {
+            u1(Opcodes.WIDE);
+            u1(Opcodes.IINC);
+            u2(index);
+            u2(increment);
+        }
+    }
+
+    public void jump(int opcode, Label target, int stackEffect) {
+        int opcodePosition = length;
+        u1(opcode);
+        jumps.add(new Jump(opcodePosition, length, target));
+        u2(0);
+        adjustStack(stackEffect);
+
+        target.stackDepth = stackDepth;
+        if (opcode == Opcodes.GOTO) {
+            reachable = false;
+        }
+    }
+
+    public void place(Label label) {
+        if (label.position != -1) {
+            throw new IllegalStateException("Label placed twice");
+        }
+
+        label.position = length;
+        if (!reachable) {
+            stackDepth = Math.max(0, label.stackDepth);
+        }
+        reachable = true;
+    }
+
+    /**
+     * @return the code, with the offsets of all jumps resolved
+     */
+    public byte[] toByteArray() {
+        for (var jump : jumps) {
+            if (jump.target().position == -1) {
+                throw new IllegalStateException("Jump to a label that was never placed");
+            }
+
+            int offset = jump.target().position - jump.opcodePosition();
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Jump offset " + offset + " does not fit in 16 bits, method is too large");
+            }
+
+            code[jump.offsetPosition()] = (byte) (offset >> 8);
+            code[jump.offsetPosition() + 1] = (byte) offset;
+        }
+
+        if (length > 0xFFFF) {
+            throw new RuntimeException("Method code has " + length + " bytes, the limit is 65535");
+        }
+
+        return Arrays.copyOf(code, length);
+    }
+
+    private void adjustStack(int stackEffect) {
+        stackDepth += stackEffect;
+        maxStack = Math.max(maxStack, stackDepth);
+    }
+
+    private void u1(int value) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[length++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+}
@@ -0,0 +1,705 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static pt.up.fe.comp2024.backend.classfile.Opcodes.*;
+
+/**
+ * Generates the bytes of a class file directly from an OllirResult, without going through Jasmin text.
+ * <p>
+ * Selects instructions like {@link pt.up.fe.comp2024.backend.JasminGenerator}, except that 'new' is not followed by a
+ * 'dup', since OLLIR calls the constructor on the variable the object is assigned to. Every OLLIR instruction starts
+ * and ends with an empty operand stack, so the maximum depth is tracked while the code is written.
+ * <p>
+ * One ClassFileGenerator instance per OllirResult.
+ */
+public class ClassFileGenerator {
+
+    // Java 5, the last version whose classes are verified without stack map frames
+    private static final int MAJOR_VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_PROTECTED = 0x0004;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final OllirResult ollirResult;
+    private final List<Report> reports;
+    private final ConstantPool pool;
+
+    private ClassUnit classUnit;
+    private String className;
+    private String superName;
+    private Method currentMethod;
+    private Bytecode code;
+    private Map<String, Bytecode.Label> labels;
+
+    private byte[] bytes;
+
+    public ClassFileGenerator(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+        this.reports = new ArrayList<>();
+        this.pool = new ConstantPool();
+        this.bytes = null;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public String getClassName() {
+        return ollirResult.getOllirClass().getClassName();
+    }
+
+    public byte[] build() {
+        // This way, build is idempotent
+        if (bytes == null) {
+            try {
+                bytes = generateClassUnit(ollirResult.getOllirClass());
+            } catch (IOException e) {
+                throw new RuntimeException("Could not write class file", e);
+            }
+        }
+
+        return bytes;
+    }
+
+    private byte[] generateClassUnit(ClassUnit classUnit) throws IOException {
+        this.classUnit = classUnit;
+        this.className = classUnit.getClassName();
+        this.superName = classUnit.getSuperClass() == null ? "java/lang/Object" : resolveClass(classUnit.getSuperClass());
+
+        // Fields and methods first, they fill the constant pool that comes before them
+        var members = new ByteArrayOutputStream();
+        var out = new DataOutputStream(members);
+
+        out.writeShort(classUnit.getNumFields());
+        for (var field : classUnit.getFields()) {
+            generateField(field, out);
+        }
+
+        // A single constructor without arguments, as in the Jasmin backend
+        var methods = classUnit.getMethods().stream().filter(method -> !method.isConstructMethod()).toList();
+        out.writeShort(methods.size() + 1);
+        generateDefaultConstructor(out);
+        for (var method : methods) {
+            generateMethod(method, out);
+        }
+
+        int thisClass = pool.classRef(className);
+        int superClass = pool.classRef(superName);
+
+        var classFile = new ByteArrayOutputStream();
+        var classOut = new DataOutputStream(classFile);
+        classOut.writeInt(0xCAFEBABE);
+        classOut.writeShort(0);
+        classOut.writeShort(MAJOR_VERSION);
+        pool.write(classOut);
+        classOut.writeShort(ACC_PUBLIC | ACC_SUPER);
+        classOut.writeShort(thisClass);
+        classOut.writeShort(superClass);
+        // Interfaces
+        classOut.writeShort(0);
+        members.writeTo(classOut);
+        // Attributes
+        classOut.writeShort(0);
+
+        this.classUnit = null;
+        return classFile.toByteArray();
+    }
+
+    private void generateField(Field field, DataOutputStream out) throws IOException {
+        int flags = getAccessFlags(field.getFieldAccessModifier());
+        if (field.isStaticField()) flags |= ACC_STATIC;
+        if (field.isFinalField()) flags |= ACC_FINAL;
+
+        out.writeShort(flags);
+        out.writeShort(pool.utf8(field.getFieldName()));
+        out.writeShort(pool.utf8(getDescriptor(field.getFieldType())));
+
+        // The JVM only uses the initial value of static fields
+        if (field.isInitialized() && field.isStaticField()) {
+            out.writeShort(1);
+            out.writeShort(pool.utf8("ConstantValue"));
+            out.writeInt(2);
+            out.writeShort(pool.integer(field.getInitialValue()));
+        } else {
+            out.writeShort(0);
+        }
+    }
+
+    private void generateDefaultConstructor(DataOutputStream out) throws IOException {
+        code = new Bytecode();
+        code.op(ALOAD_0, 1);
+        code.opU2(INVOKESPECIAL, pool.methodRef(superName, "<init>", "()V"), -1);
+        code.op(RETURN, 0);
+
+        writeMethod(ACC_PUBLIC, "<init>", "()V", 1, out);
+        code = null;
+    }
+
+    private void generateMethod(Method method, DataOutputStream out) throws IOException {
+        currentMethod = method;
+        code = new Bytecode();
+        labels = new HashMap<>();
+
+        // Labels of each instruction, looked up once per method instead of once per instruction
+        Map<Instruction, List<String>> instLabels = new HashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            instLabels.computeIfAbsent(label.getValue(), inst -> new ArrayList<>()).add(label.getKey());
+        }
+
+        for (var inst : method.getInstructions()) {
+            for (var label : instLabels.getOrDefault(inst, List.of())) {
+                code.place(getLabel(label));
+            }
+
+            generateInstruction(inst);
+        }
+
+        int flags = getAccessFlags(method.getMethodAccessModifier());
+        if (method.isStaticMethod()) flags |= ACC_STATIC;
+        if (method.isFinalMethod()) flags |= ACC_FINAL;
+
+        var descriptor = new StringBuilder("(");
+        for (var param : method.getParams()) {
+            descriptor.append(getDescriptor(param.getType()));
+        }
+        descriptor.append(")").append(getDescriptor(method.getReturnType()));
+
+        writeMethod(flags, method.getMethodName(), descriptor.toString(), getNumLocals(method), out);
+
+        currentMethod = null;
+        code = null;
+        labels = null;
+    }
+
+    private void writeMethod(int flags, String name, String descriptor, int maxLocals, DataOutputStream out)
+            throws IOException {
+        var codeBytes = code.toByteArray();
+
+        out.writeShort(flags);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(descriptor));
+
+        // Code attribute
+        out.writeShort(1);
+        out.writeShort(pool.utf8("Code"));
+        out.writeInt(12 + codeBytes.length);
+        out.writeShort(code.getMaxStack());
+        out.writeShort(maxLocals);
+        out.writeInt(codeBytes.length);
+        out.write(codeBytes);
+        // Exception table and attributes of the code
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private Bytecode.Label getLabel(String name) {
+        return labels.computeIfAbsent(name, key -> new Bytecode.Label());
+    }
+
+    private void generateInstruction(Instruction inst) {
+        switch (inst.getInstType()) {
+            case ASSIGN -> generateAssign((AssignInstruction) inst);
+            case PUTFIELD -> generatePutField((PutFieldInstruction) inst);
+            case GOTO -> code.jump(GOTO, getLabel(((GotoInstruction) inst).getLabel()), 0);
+            case BRANCH -> generateBranch((CondBranchInstruction) inst);
+            case RETURN -> generateReturn((ReturnInstruction) inst);
+            case CALL -> {
+                generateCall((CallInstruction) inst);
+                // Result of a call used as a statement
+                if (((CallInstruction) inst).getReturnType().getTypeOfElement() != ElementType.VOID) {
+                    code.op(POP, -1);
+                }
+            }
+            default -> {
+                // Value without destination
+                generateValue(inst);
+                code.op(POP, -1);
+            }
+        }
+    }
+
+    /**
+     * Pushes the value of an instruction that can be the right-hand side of an assignment.
+     */
+    private void generateValue(Instruction inst) {
+        switch (inst.getInstType()) {
+            case CALL -> generateCall((CallInstruction) inst);
+            case GETFIELD -> generateGetField((GetFieldInstruction) inst);
+            case UNARYOPER -> generateUnaryOp((UnaryOpInstruction) inst);
+            case BINARYOPER -> generateBinaryOp((BinaryOpInstruction) inst);
+            case NOPER -> load(((SingleOpInstruction) inst).getSingleOperand());
+            default -> throw new NotImplementedException(inst.getInstType());
+        }
+    }
+
+    private void generateAssign(AssignInstruction assign) {
+        var dest = (Operand) assign.getDest();
+        int reg = getRegister(dest.getName());
+
+        if (dest instanceof ArrayOperand arrayDest) {
+            code.local(ALOAD, ALOAD_0, reg, 1);
+            load(arrayDest.getIndexOperands().get(0));
+            generateValue(assign.getRhs());
+            code.op(isIntLike(getElementType(assign.getTypeOfAssign())) ? IASTORE : AASTORE, -3);
+            return;
+        }
+
+        if (generateIinc(dest, reg, assign.getRhs())) {
+            return;
+        }
+
+        generateValue(assign.getRhs());
+        if (isIntLike(assign.getTypeOfAssign())) {
+            code.local(ISTORE, ISTORE_0, reg, -1);
+        } else {
+            code.local(ASTORE, ASTORE_0, reg, -1);
+        }
+    }
+
+    /**
+     * Uses iinc for 'a = a + c', 'a = c + a' and 'a = a - c', with a constant that fits in a byte.
+     *
+     * @return true if the assignment was generated
+     */
+    private boolean generateIinc(Operand dest, int reg, Instruction rhs) {
+        if (!(rhs instanceof BinaryOpInstruction binaryOp)) {
+            return false;
+        }
+
+        var op = binaryOp.getOperation().getOpType();
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+
+        Element variable;
+        int increment;
+        if (right instanceof LiteralElement literal && (op == OperationType.ADD || op == OperationType.SUB)) {
+            variable = left;
+            increment = Integer.parseInt(literal.getLiteral());
+            if (op == OperationType.SUB) {
+                increment = -increment;
+            }
+        } else if (left instanceof LiteralElement literal && op == OperationType.ADD) {
+            variable = right;
+            increment = Integer.parseInt(literal.getLiteral());
+        } else {
+            return false;
+        }
+
+        boolean sameVariable = variable instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && !operand.isLiteral() && operand.getName().equals(dest.getName());
+        if (!sameVariable || increment < Byte.MIN_VALUE || increment > Byte.MAX_VALUE) {
+            return false;
+        }
+
+        code.iinc(reg, increment);
+        return true;
+    }
+
+    private void generatePutField(PutFieldInstruction putField) {
+        load(putField.getObject());
+        load(putField.getValue());
+
+        var field = putField.getField();
+        code.opU2(PUTFIELD, pool.fieldRef(className, field.getName(), getDescriptor(field.getType())), -2);
+    }
+
+    private void generateGetField(GetFieldInstruction getField) {
+        load(getField.getObject());
+
+        var field = getField.getField();
+        code.opU2(GETFIELD, pool.fieldRef(className, field.getName(), getDescriptor(getField.getFieldType())), 0);
+    }
+
+    private void generateCall(CallInstruction call) {
+        switch (call.getInvocationType()) {
+            case invokevirtual -> {
+                load(call.getCaller());
+                var owner = getClassName(call.getCaller().getType());
+                generateInvoke(INVOKEVIRTUAL, owner, getMethodName(call), call, -1);
+            }
+            case invokestatic -> {
+                var caller = (Operand) call.getCaller();
+                var owner = caller.getName().equals("this") ? className : resolveClass(caller.getName());
+                generateInvoke(INVOKESTATIC, owner, getMethodName(call), call, 0);
+            }
+            case invokespecial -> {
+                load(call.getCaller());
+                var callerType = call.getCaller().getType();
+                var owner = callerType.getTypeOfElement() == ElementType.THIS ? superName : getClassName(callerType);
+                generateInvoke(INVOKESPECIAL, owner, "<init>", call, -1);
+            }
+            case NEW -> generateNew(call);
+            case arraylength -> {
+                load(call.getCaller());
+                code.op(ARRAYLENGTH, 0);
+            }
+            case ldc -> load(call.getArguments().get(0));
+            default -> throw new NotImplementedException(call.getInvocationType());
+        }
+    }
+
+    /**
+     * Pushes the arguments and invokes the method.
+     *
+     * @param receiverEffect -1 when the receiver was already pushed, 0 for static calls
+     */
+    private void generateInvoke(int opcode, String owner, String name, CallInstruction call, int receiverEffect) {
+        var descriptor = new StringBuilder("(");
+        for (var argument : call.getArguments()) {
+            load(argument);
+            descriptor.append(getDescriptor(argument.getType()));
+        }
+        var returnType = call.getReturnType();
+        descriptor.append(")").append(getDescriptor(returnType));
+
+        int effect = receiverEffect - call.getArguments().size();
+        if (returnType.getTypeOfElement() != ElementType.VOID) {
+            effect++;
+        }
+
+        code.opU2(opcode, pool.methodRef(owner, name, descriptor.toString()), effect);
+    }
+
+    private void generateNew(CallInstruction call) {
+        var returnType = call.getReturnType();
+
+        if (returnType instanceof ArrayType arrayType) {
+            load(call.getArguments().get(0));
+            var elementType = arrayType.getElementType();
+            if (isIntLike(elementType)) {
+                code.opU1(NEWARRAY, T_INT, 0);
+            } else {
+                code.opU2(ANEWARRAY, pool.classRef(getInternalName(elementType)), 0);
+            }
+            return;
+        }
+
+        // The constructor is called by the next instruction, on the variable the object is assigned to
+        code.opU2(NEW, pool.classRef(getClassName(returnType)), 1);
+    }
+
+    private void generateBranch(CondBranchInstruction branch) {
+        var target = getLabel(branch.getLabel());
+        var condition = branch.getCondition();
+
+        if (condition instanceof BinaryOpInstruction binaryOp && isComparison(binaryOp.getOperation().getOpType())) {
+            generateCompareAndJump(binaryOp, target);
+            return;
+        }
+
+        if (condition instanceof UnaryOpInstruction unaryOp && isNot(unaryOp.getOperation().getOpType())) {
+            load(unaryOp.getOperand());
+            code.jump(IFEQ, target, -1);
+            return;
+        }
+
+        generateValue(condition);
+        code.jump(IFNE, target, -1);
+    }
+
+    /**
+     * Jumps if the comparison holds, comparing against zero directly when one of the operands is the literal 0.
+     */
+    private void generateCompareAndJump(BinaryOpInstruction comparison, Bytecode.Label target) {
+        var op = comparison.getOperation().getOpType();
+        var left = comparison.getLeftOperand();
+        var right = comparison.getRightOperand();
+
+        if (isZero(right)) {
+            load(left);
+            code.jump(getCompareWithZeroOpcode(op), target, -1);
+        } else if (isZero(left)) {
+            load(right);
+            code.jump(getCompareWithZeroOpcode(swap(op)), target, -1);
+        } else {
+            load(left);
+            load(right);
+            code.jump(getCompareOpcode(op), target, -2);
+        }
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction unaryOp) {
+        var op = unaryOp.getOperation().getOpType();
+        if (!isNot(op)) {
+            throw new NotImplementedException(op);
+        }
+
+        load(unaryOp.getOperand());
+        code.op(ICONST_1, 1);
+        code.op(IXOR, -1);
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction binaryOp) {
+        var op = binaryOp.getOperation().getOpType();
+
+        if (isComparison(op)) {
+            // Pushes 1 if the comparison holds, 0 otherwise
+            var isTrue = new Bytecode.Label();
+            var end = new Bytecode.Label();
+
+            generateCompareAndJump(binaryOp, isTrue);
+            code.op(ICONST_0, 1);
+            code.jump(GOTO, end, 0);
+            code.place(isTrue);
+            code.op(ICONST_1, 1);
+            code.place(end);
+            return;
+        }
+
+        load(binaryOp.getLeftOperand());
+        load(binaryOp.getRightOperand());
+
+        var opcode = switch (op) {
+            case ADD -> IADD;
+            case SUB -> ISUB;
+            case MUL -> IMUL;
+            case DIV -> IDIV;
+            case AND, ANDB -> IAND;
+            case OR, ORB -> IOR;
+            case XOR -> IXOR;
+            case SHL -> ISHL;
+            case SHR -> ISHR;
+            case SHRR -> IUSHR;
+            default -> throw new NotImplementedException(op);
+        };
+        code.op(opcode, -1);
+    }
+
+    private void generateReturn(ReturnInstruction returnInst) {
+        if (!returnInst.hasReturnValue()) {
+            code.op(RETURN, 0);
+            return;
+        }
+
+        load(returnInst.getOperand());
+        code.op(isIntLike(returnInst.getReturnType()) ? IRETURN : ARETURN, -1);
+    }
+
+    /**
+     * Pushes the value of an operand or literal.
+     */
+    private void load(Element element) {
+        if (element instanceof LiteralElement literal) {
+            loadLiteral(literal);
+            return;
+        }
+
+        if (element.getType().getTypeOfElement() == ElementType.THIS) {
+            code.op(ALOAD_0, 1);
+            return;
+        }
+
+        var operand = (Operand) element;
+        int reg = getRegister(operand.getName());
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            code.local(ALOAD, ALOAD_0, reg, 1);
+            load(arrayOperand.getIndexOperands().get(0));
+            code.op(isIntLike(getElementType(arrayOperand.getType())) ? IALOAD : AALOAD, -1);
+            return;
+        }
+
+        if (isIntLike(operand.getType())) {
+            code.local(ILOAD, ILOAD_0, reg, 1);
+        } else {
+            code.local(ALOAD, ALOAD_0, reg, 1);
+        }
+    }
+
+    private void loadLiteral(LiteralElement literal) {
+        if (!isIntLike(literal.getType())) {
+            var value = literal.getLiteral();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            loadConstant(pool.string(value));
+            return;
+        }
+
+        int value = Integer.parseInt(literal.getLiteral());
+        if (value >= -1 && value <= 5) {
+            code.op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.opU1(BIPUSH, value, 1);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.opU2(SIPUSH, value, 1);
+        } else {
+            loadConstant(pool.integer(value));
+        }
+    }
+
+    private void loadConstant(int index) {
+        if (index <= 0xFF) {
+            code.opU1(LDC, index, 1);
+        } else {
+            code.opU2(LDC_W, index, 1);
+        }
+    }
+
+    private int getRegister(String name) {
+        var descriptor = currentMethod.getVarTable().get(name);
+        if (descriptor == null) {
+            throw new RuntimeException("Variable '" + name + "' not found in method '"
+                    + currentMethod.getMethodName() + "'");
+        }
+        return descriptor.getVirtualReg();
+    }
+
+    private static String getMethodName(CallInstruction call) {
+        return ((LiteralElement) call.getMethodName()).getLiteral().replace("\"", "");
+    }
+
+    private static boolean isIntLike(Type type) {
+        var elementType = type.getTypeOfElement();
+        return elementType == ElementType.INT32 || elementType == ElementType.BOOLEAN;
+    }
+
+    /**
+     * @return the type of the elements when given an array type, otherwise the type itself
+     */
+    private static Type getElementType(Type type) {
+        return type instanceof ArrayType arrayType ? arrayType.getElementType() : type;
+    }
+
+    private static boolean isZero(Element element) {
+        return element instanceof LiteralElement literal && isIntLike(literal.getType())
+                && Integer.parseInt(literal.getLiteral()) == 0;
+    }
+
+    private static boolean isNot(OperationType op) {
+        return op == OperationType.NOTB || op == OperationType.NOT;
+    }
+
+    private static boolean isComparison(OperationType op) {
+        return switch (op) {
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the comparison with the operands in the opposite order, e.g. 'a < b' is 'b > a'
+     */
+    private static OperationType swap(OperationType op) {
+        return switch (op) {
+            case LTH -> OperationType.GTH;
+            case GTH -> OperationType.LTH;
+            case LTE -> OperationType.GTE;
+            case GTE -> OperationType.LTE;
+            default -> op;
+        };
+    }
+
+    private static int getCompareOpcode(OperationType op) {
+        return switch (op) {
+            case LTH -> IF_ICMPLT;
+            case GTH -> IF_ICMPGT;
+            case LTE -> IF_ICMPLE;
+            case GTE -> IF_ICMPGE;
+            case EQ -> IF_ICMPEQ;
+            case NEQ -> IF_ICMPNE;
+            default -> throw new NotImplementedException(op);
+        };
+    }
+
+    private static int getCompareWithZeroOpcode(OperationType op) {
+        return switch (op) {
+            case LTH -> IFLT;
+            case GTH -> IFGT;
+            case LTE -> IFLE;
+            case GTE -> IFGE;
+            case EQ -> IFEQ;
+            case NEQ -> IFNE;
+            default -> throw new NotImplementedException(op);
+        };
+    }
+
+    private static int getAccessFlags(AccessModifier modifier) {
+        return switch (modifier) {
+            case PUBLIC -> ACC_PUBLIC;
+            case PRIVATE -> ACC_PRIVATE;
+            case PROTECTED -> ACC_PROTECTED;
+            case DEFAULT -> 0;
+        };
+    }
+
+    private String getDescriptor(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> "I";
+            case BOOLEAN -> "Z";
+            case STRING -> "Ljava/lang/String;";
+            case VOID -> "V";
+            case ARRAYREF -> {
+                var arrayType = (ArrayType) type;
+                yield "[".repeat(Math.max(1, arrayType.getNumDimensions())) + getDescriptor(arrayType.getElementType());
+            }
+            case OBJECTREF, CLASS, THIS -> "L" + getClassName(type) + ";";
+        };
+    }
+
+    /**
+     * @return the name of the class of an array element, as used by anewarray
+     */
+    private String getInternalName(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case STRING -> "java/lang/String";
+            case ARRAYREF -> getDescriptor(type);
+            default -> getClassName(type);
+        };
+    }
+
+    private String getClassName(Type type) {
+        if (type.getTypeOfElement() == ElementType.THIS) {
+            return className;
+        }
+        return resolveClass(((ClassType) type).getName());
+    }
+
+    /**
+     * @return the internal name of the class, using the full name of the import when the class was imported
+     */
+    private String resolveClass(String name) {
+        if (name.equals(className) || name.equals("this")) {
+            return className;
+        }
+
+        for (var importClass : classUnit.getImports()) {
+            if (importClass.equals(name) || importClass.endsWith("." + name)) {
+                return importClass.replace('.', '/');
+            }
+        }
+
+        return name.replace('.', '/');
+    }
+
+    private static int getNumLocals(Method method) {
+        // 'this' always takes register 0
+        int number = method.isStaticMethod() ? 0 : 1;
+
+        for (var value : method.getVarTable().values()) {
+            // Fields and class names used as callers of static calls do not take a register
+            if (value.getScope() == VarScope.FIELD || value.getVarType().getTypeOfElement() == ElementType.CLASS)
+                continue;
+
+            number = Math.max(number, value.getVirtualReg() + 1);
+        }
+
+        return number;
+    }
+}
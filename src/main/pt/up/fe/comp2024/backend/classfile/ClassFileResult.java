@@ -0,0 +1,36 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * The class file generated for a class, together with the reports of the generation.
+ *
+ * @param className the name of the class
+ * @param bytes     the contents of the class file
+ * @param reports   the reports of the generation
+ */
+public record ClassFileResult(String className, byte[] bytes, List<Report> reports) {
+
+    /**
+     * Writes the class file to the given folder, creating it if needed.
+     *
+     * @return the written class file
+     */
+    public File write(File outputDir) {
+        var classFile = new File(SpecsIo.mkdir(outputDir), className + ".class");
+
+        try {
+            Files.write(classFile.toPath(), bytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write class file '" + classFile + "'", e);
+        }
+
+        return classFile;
+    }
+}
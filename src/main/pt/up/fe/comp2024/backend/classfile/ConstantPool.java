@@ -0,0 +1,118 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constant pool of a class file. Each constant is added once, later additions of the same constant return the index
+ * of the first one.
+ */
+public class ConstantPool {
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELDREF = 9;
+    private static final int METHODREF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream entries;
+    private final DataOutputStream out;
+    private final Map<String, Integer> indexes;
+    private int size;
+
+    public ConstantPool() {
+        this.entries = new ByteArrayOutputStream();
+        this.out = new DataOutputStream(entries);
+        this.indexes = new HashMap<>();
+        // Index 0 is not used
+        this.size = 1;
+    }
+
+    public int utf8(String value) {
+        var key = "utf8 " + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            out.writeByte(UTF8);
+            // Class files use the same modified UTF-8 as DataOutput
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not add constant '" + value + "'", e);
+        }
+        return register(key);
+    }
+
+    public int integer(int value) {
+        return add("integer " + value, INTEGER, value >>> 16, value & 0xFFFF);
+    }
+
+    /**
+     * @param internalName the class name, with '/' separating packages
+     */
+    public int classRef(String internalName) {
+        return add("class " + internalName, CLASS, utf8(internalName));
+    }
+
+    public int string(String value) {
+        return add("string " + value, STRING, utf8(value));
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return add("field " + owner + "." + name + ":" + descriptor, FIELDREF, classRef(owner),
+                nameAndType(name, descriptor));
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return add("method " + owner + "." + name + descriptor, METHODREF, classRef(owner),
+                nameAndType(name, descriptor));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return add("nameAndType " + name + ":" + descriptor, NAME_AND_TYPE, utf8(name), utf8(descriptor));
+    }
+
+    /**
+     * Adds a constant made of a tag followed by u2 values.
+     */
+    private int add(String key, int tag, int... values) {
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            out.writeByte(tag);
+            for (var value : values) {
+                out.writeShort(value);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not add constant '" + key + "'", e);
+        }
+        return register(key);
+    }
+
+    private int register(String key) {
+        if (size > 0xFFFF) {
+            throw new RuntimeException("Constant pool has more than 65535 entries");
+        }
+
+        indexes.put(key, size);
+        return size++;
+    }
+
+    /**
+     * Writes the number of entries followed by the constants.
+     */
+    public void write(DataOutputStream classFile) throws IOException {
+        classFile.writeShort(size);
+        entries.writeTo(classFile);
+    }
+}
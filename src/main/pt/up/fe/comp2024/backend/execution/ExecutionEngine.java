@@ -0,0 +1,193 @@
+package pt.up.fe.comp2024.backend.execution;
+
+import pt.up.fe.comp2024.backend.classfile.ClassFileResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Runs compiled programs in the current JVM, instead of starting a new JVM for each one.
+ * <p>
+ * Each run loads the program and the Java-- runtime with a new class loader, which is discarded after the run, and
+ * has its own standard output, error and input. The result is the same as running the program with the 'java'
+ * command: the exit status, 1 if an exception is not caught, and what was printed, with the uncaught exception.
+ * <p>
+ * Programs that run for longer than the timeout are stopped, and have -1 as the exit status. Their thread is
+ * interrupted, and their classes check for it before each backward branch. Programs that do not stop that way, such as
+ * one that loops in a class compiled for Java 6 or later, make the run fail instead.
+ */
+public class ExecutionEngine implements AutoCloseable {
+
+    public static final String RUNTIME_FOLDER = "libs-jmm/compiled";
+    public static final long DEFAULT_TIMEOUT_MS = 5_000;
+
+    private final File runtimeFolder;
+    private final long timeoutMs;
+    private final ExecutorService executor;
+    private final Map<String, Optional<byte[]>> runtimeClasses;
+
+    public ExecutionEngine() {
+        this(new File(RUNTIME_FOLDER), Runtime.getRuntime().availableProcessors(), DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param runtimeFolder the folder with the class files of the classes that programs import
+     * @param numThreads    how many programs run at the same time, when submitted
+     * @param timeoutMs     how long a program can run before it is stopped
+     */
+    public ExecutionEngine(File runtimeFolder, int numThreads, long timeoutMs) {
+        this.runtimeFolder = runtimeFolder;
+        this.timeoutMs = timeoutMs;
+        this.executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            var thread = new Thread(runnable, "jmm-execution");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.runtimeClasses = new ConcurrentHashMap<>();
+    }
+
+    public ProcessOutputAsString run(ClassFileResult program) {
+        return run(program, Collections.emptyList(), null);
+    }
+
+    /**
+     * Runs the main method of the program in a new thread, and waits for it to end.
+     *
+     * @param input what the program reads from the standard input, or null for no input
+     */
+    public ProcessOutputAsString run(ClassFileResult program, List<String> args, String input) {
+        var out = new ByteArrayOutputStream();
+        var err = new ByteArrayOutputStream();
+        var in = new ByteArrayInputStream(input == null ? new byte[0] : input.getBytes());
+        var status = new int[]{-1};
+
+        var thread = new Thread(() -> {
+            ProgramSystem.redirect(out, err, in);
+            try {
+                status[0] = runMain(program, args, new PrintStream(err, true));
+            } finally {
+                ProgramSystem.reset();
+            }
+        }, "jmm-" + program.className());
+        thread.setDaemon(true);
+        thread.start();
+
+        boolean timedOut = !join(thread, timeoutMs);
+        if (timedOut) {
+            thread.interrupt();
+            if (!join(thread, timeoutMs)) {
+                throw new RuntimeException("Program " + program.className() + " did not stop after running for "
+                        + timeoutMs + " ms and being interrupted");
+            }
+
+            err.writeBytes(("Program stopped after running for " + timeoutMs + " ms\n").getBytes());
+        }
+
+        return new ProcessOutputAsString(timedOut ? -1 : status[0], toLines(out), toLines(err));
+    }
+
+    /**
+     * Runs the program in one of the threads of the engine, at the same time as the other submitted programs.
+     */
+    public Future<ProcessOutputAsString> submit(ClassFileResult program, List<String> args, String input) {
+        return executor.submit(() -> run(program, args, input));
+    }
+
+    public Future<ProcessOutputAsString> submit(ClassFileResult program) {
+        return submit(program, Collections.emptyList(), null);
+    }
+
+    public ProcessOutputAsString runJasmin(String jasminCode, String input) {
+        return run(JasminAssembler.assemble(jasminCode), Collections.emptyList(), input);
+    }
+
+    public ProcessOutputAsString runJasmin(String jasminCode) {
+        return runJasmin(jasminCode, null);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the exit status of the program
+     */
+    private int runMain(ClassFileResult program, List<String> args, PrintStream err) {
+        var loader = new InMemoryClassLoader(Map.of(program.className(), program.bytes()), this::getRuntimeClass);
+
+        try {
+            var main = loader.loadClass(program.className()).getMethod("main", String[].class);
+            main.invoke(null, (Object) args.toArray(String[]::new));
+            return 0;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof ProgramExit exit) {
+                return exit.getStatus();
+            }
+
+            if (e.getCause() instanceof ProgramStopped) {
+                return -1;
+            }
+
+            err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace(err);
+            return 1;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            err.println("Error: Could not run the main method of class " + program.className());
+            e.printStackTrace(err);
+            return 1;
+        }
+    }
+
+    private byte[] getRuntimeClass(String name) {
+        return runtimeClasses.computeIfAbsent(name, className -> {
+            var classFile = new File(runtimeFolder, className.replace('.', '/') + ".class");
+            if (!classFile.isFile()) {
+                return Optional.empty();
+            }
+
+            try {
+                return Optional.of(Files.readAllBytes(classFile.toPath()));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read runtime class '" + classFile + "'", e);
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * @return true if the thread ended
+     */
+    private static boolean join(Thread thread, long timeoutMs) {
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return !thread.isAlive();
+    }
+
+    /**
+     * @return the output with a line separator after each line, as when reading the output of a process
+     */
+    private static String toLines(ByteArrayOutputStream output) {
+        return output.toString().lines()
+                .map(line -> line + System.lineSeparator())
+                .collect(Collectors.joining());
+    }
+}
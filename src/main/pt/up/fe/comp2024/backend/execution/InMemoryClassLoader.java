@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.backend.execution;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Loads the classes of one program from memory, and the classes of the Java-- runtime from a shared cache, so that
+ * each run has its own copy of them, with their own static fields.
+ * <p>
+ * Other classes come from the platform class loader, which does not see the classes of the compiler, except for
+ * {@link ProgramSystem} and {@link ProgramExit}, which the loaded classes use instead of System.
+ */
+class InMemoryClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> classes;
+    private final Function<String, byte[]> runtime;
+
+    /**
+     * @param classes the class files of the program, by binary name
+     * @param runtime gives the class file of a runtime class, or null if there is none
+     */
+    InMemoryClassLoader(Map<String, byte[]> classes, Function<String, byte[]> runtime) {
+        super("jmm-program", ClassLoader.getPlatformClassLoader());
+        this.classes = classes;
+        this.runtime = runtime;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (name.equals(ProgramSystem.class.getName())) {
+            return ProgramSystem.class;
+        }
+
+        if (name.equals(ProgramExit.class.getName())) {
+            return ProgramExit.class;
+        }
+
+        return super.loadClass(name, resolve);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        var bytes = classes.get(name);
+        if (bytes == null) {
+            bytes = runtime.apply(name);
+        }
+
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        var redirected = SystemRedirector.redirect(InterruptCheckInserter.insert(bytes));
+        return defineClass(name, redirected, 0, redirected.length);
+    }
+}
@@ -0,0 +1,442 @@
+package pt.up.fe.comp2024.backend.execution;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes a class file call {@link ProgramSystem#checkInterrupted()} before each backward branch, so that every loop of
+ * the program stops when its thread is interrupted.
+ * <p>
+ * The call is added to the constant pool, and the offsets of the code that moves are fixed in the branches, switches,
+ * exception tables, line numbers and local variables. Classes from Java 6 on are left as they are, their stack map
+ * frames would have to be fixed too, and the classes of the compiler are older.
+ */
+class InterruptCheckInserter {
+
+    private static final String PROGRAM_SYSTEM = ProgramSystem.class.getName().replace('.', '/');
+    private static final int FIRST_VERSION_WITH_FRAMES = 50;
+
+    private static final int UTF8 = 1;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+    private static final int GOTO_W = 0xc8;
+    private static final int JSR_W = 0xc9;
+    private static final int JSR = 0xa8;
+    private static final int CHECK_SIZE = 3;
+
+    /**
+     * @return the class file with the checks, or the same array if it uses stack map frames
+     */
+    static byte[] insert(byte[] classFile) {
+        try {
+            return insertChecks(classFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the class file", e);
+        }
+    }
+
+    private static byte[] insertChecks(byte[] classFile) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(classFile));
+        in.skipBytes(6);
+        if (in.readUnsignedShort() >= FIRST_VERSION_WITH_FRAMES) {
+            return classFile;
+        }
+
+        int count = in.readUnsignedShort();
+        Map<Integer, String> strings = new HashMap<>();
+        for (int index = 1; index < count; index++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case UTF8 -> strings.put(index, in.readUTF());
+                case CLASS -> in.skipBytes(2);
+                case FIELD_REF, METHOD_REF, NAME_AND_TYPE -> in.skipBytes(4);
+                default -> in.skipBytes(SystemRedirector.getSize(tag));
+            }
+
+            // Longs and doubles take two entries
+            if (tag == LONG || tag == DOUBLE) {
+                index++;
+            }
+        }
+
+        int checkIndex = count + 5;
+        var bytes = new ByteArrayOutputStream(classFile.length * 2);
+        var out = new DataOutputStream(bytes);
+
+        // Everything before the constant pool, and the constant pool with the method reference at its end
+        int poolEnd = classFile.length - in.available();
+        out.write(classFile, 0, 8);
+        out.writeShort(count + 6);
+        out.write(classFile, 10, poolEnd - 10);
+        out.writeByte(UTF8);
+        out.writeUTF(PROGRAM_SYSTEM);
+        out.writeByte(CLASS);
+        out.writeShort(count);
+        out.writeByte(UTF8);
+        out.writeUTF("checkInterrupted");
+        out.writeByte(UTF8);
+        out.writeUTF("()V");
+        out.writeByte(NAME_AND_TYPE);
+        out.writeShort(count + 2);
+        out.writeShort(count + 3);
+        out.writeByte(METHOD_REF);
+        out.writeShort(count + 1);
+        out.writeShort(count + 4);
+
+        // Access flags, this class and super class
+        copy(in, out, 6);
+        int interfaces = copyShort(in, out);
+        copy(in, out, 2 * interfaces);
+
+        int fields = copyShort(in, out);
+        for (int i = 0; i < fields; i++) {
+            copy(in, out, 6);
+            copyAttributes(in, out);
+        }
+
+        int methods = copyShort(in, out);
+        for (int i = 0; i < methods; i++) {
+            copy(in, out, 6);
+            int attributes = copyShort(in, out);
+            for (int j = 0; j < attributes; j++) {
+                int name = copyShort(in, out);
+                var attribute = new byte[in.readInt()];
+                in.readFully(attribute);
+
+                if ("Code".equals(strings.get(name))) {
+                    attribute = insertInCode(attribute, strings, checkIndex);
+                }
+
+                out.writeInt(attribute.length);
+                out.write(attribute);
+            }
+        }
+
+        // The attributes of the class
+        in.transferTo(out);
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the Code attribute with the checks, without its name and length
+     */
+    private static byte[] insertInCode(byte[] attribute, Map<Integer, String> strings, int checkIndex)
+            throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(attribute));
+        var bytes = new ByteArrayOutputStream(attribute.length * 2);
+        var out = new DataOutputStream(bytes);
+
+        // Max stack and max locals, the call neither takes nor leaves values on the stack
+        copy(in, out, 4);
+        var code = new byte[in.readInt()];
+        in.readFully(code);
+
+        var instructions = decode(code);
+        var newCode = encode(code, instructions, checkIndex);
+        out.writeInt(newCode.length);
+        out.write(newCode);
+
+        int handlers = copyShort(in, out);
+        for (int i = 0; i < handlers; i++) {
+            out.writeShort(instructions.newOffset(in.readUnsignedShort()));
+            out.writeShort(instructions.newOffset(in.readUnsignedShort()));
+            out.writeShort(instructions.newOffset(in.readUnsignedShort()));
+            copy(in, out, 2);
+        }
+
+        int attributes = copyShort(in, out);
+        for (int i = 0; i < attributes; i++) {
+            int name = copyShort(in, out);
+            int length = copyInt(in, out);
+
+            switch (String.valueOf(strings.get(name))) {
+                case "LineNumberTable" -> {
+                    int lines = copyShort(in, out);
+                    for (int j = 0; j < lines; j++) {
+                        out.writeShort(instructions.newOffset(in.readUnsignedShort()));
+                        copy(in, out, 2);
+                    }
+                }
+                case "LocalVariableTable", "LocalVariableTypeTable" -> {
+                    int variables = copyShort(in, out);
+                    for (int j = 0; j < variables; j++) {
+                        int start = in.readUnsignedShort();
+                        int end = start + in.readUnsignedShort();
+                        out.writeShort(instructions.newOffset(start));
+                        out.writeShort(instructions.newOffset(end) - instructions.newOffset(start));
+                        copy(in, out, 6);
+                    }
+                }
+                default -> copy(in, out, length);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Where each instruction starts, and where it starts after the checks are inserted, which is the start of its
+     * check if it has one.
+     */
+    private record Instructions(List<Integer> offsets, List<Boolean> checked, Map<Integer, Integer> newOffsets,
+                                Map<Integer, Integer> newPositions) {
+
+        int newOffset(int offset) {
+            var newOffset = newOffsets.get(offset);
+            if (newOffset == null) {
+                throw new RuntimeException("Offset " + offset + " is not the start of an instruction");
+            }
+
+            return newOffset;
+        }
+    }
+
+    private static Instructions decode(byte[] code) {
+        List<Integer> offsets = new ArrayList<>();
+        List<Boolean> checked = new ArrayList<>();
+
+        int offset = 0;
+        while (offset < code.length) {
+            int opcode = code[offset] & 0xFF;
+            int start = offset;
+            boolean backward = getTargets(code, offset).stream().anyMatch(target -> target <= start);
+
+            // Subroutines return to where they were called, they do not loop
+            offsets.add(offset);
+            checked.add(backward && opcode != JSR && opcode != JSR_W);
+            offset += getLength(code, offset, offset);
+        }
+
+        Map<Integer, Integer> newOffsets = new HashMap<>();
+        Map<Integer, Integer> newPositions = new HashMap<>();
+        int newOffset = 0;
+        for (int i = 0; i < offsets.size(); i++) {
+            newOffsets.put(offsets.get(i), newOffset);
+            if (checked.get(i)) {
+                newOffset += CHECK_SIZE;
+            }
+
+            newPositions.put(offsets.get(i), newOffset);
+            newOffset += getLength(code, offsets.get(i), newOffset);
+        }
+
+        // The end of the code, used by exception tables and local variables
+        newOffsets.put(code.length, newOffset);
+
+        if (newOffset > 0xFFFF) {
+            throw new RuntimeException("Code is too large to insert interrupt checks");
+        }
+
+        return new Instructions(offsets, checked, newOffsets, newPositions);
+    }
+
+    private static byte[] encode(byte[] code, Instructions instructions, int checkIndex) throws IOException {
+        var bytes = new ByteArrayOutputStream(code.length * 2);
+        var out = new DataOutputStream(bytes);
+
+        for (int i = 0; i < instructions.offsets().size(); i++) {
+            int offset = instructions.offsets().get(i);
+            int position = instructions.newPositions().get(offset);
+            int opcode = code[offset] & 0xFF;
+
+            if (instructions.checked().get(i)) {
+                out.writeByte(INVOKESTATIC);
+                out.writeShort(checkIndex);
+            }
+
+            if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+                int operands = offset + 1 + padding(offset);
+                out.writeByte(opcode);
+                out.write(new byte[padding(position)]);
+                out.writeInt(instructions.newOffset(offset + readInt(code, operands)) - position);
+
+                int entries;
+                int step;
+                if (opcode == TABLESWITCH) {
+                    out.writeInt(readInt(code, operands + 4));
+                    out.writeInt(readInt(code, operands + 8));
+                    entries = readInt(code, operands + 8) - readInt(code, operands + 4) + 1;
+                    operands += 12;
+                    step = 4;
+                } else {
+                    entries = readInt(code, operands + 4);
+                    out.writeInt(entries);
+                    operands += 8;
+                    step = 8;
+                }
+
+                for (int j = 0; j < entries; j++) {
+                    if (opcode == LOOKUPSWITCH) {
+                        out.writeInt(readInt(code, operands));
+                    }
+
+                    int target = offset + readInt(code, operands + step - 4);
+                    out.writeInt(instructions.newOffset(target) - position);
+                    operands += step;
+                }
+            } else if (isBranch(opcode)) {
+                int target = opcode == GOTO_W || opcode == JSR_W
+                        ? offset + readInt(code, offset + 1)
+                        : offset + (short) (((code[offset + 1] & 0xFF) << 8) | (code[offset + 2] & 0xFF));
+                int jump = instructions.newOffset(target) - position;
+
+                out.writeByte(opcode);
+                if (opcode == GOTO_W || opcode == JSR_W) {
+                    out.writeInt(jump);
+                } else if (jump == (short) jump) {
+                    out.writeShort(jump);
+                } else {
+                    throw new RuntimeException("Branch at offset " + offset + " is too far to insert interrupt checks");
+                }
+            } else {
+                out.write(code, offset, getLength(code, offset, offset));
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the offsets the instruction can jump to, empty if it is not a branch or a switch
+     */
+    private static List<Integer> getTargets(byte[] code, int offset) {
+        int opcode = code[offset] & 0xFF;
+
+        if (opcode == GOTO_W || opcode == JSR_W) {
+            return List.of(offset + readInt(code, offset + 1));
+        }
+
+        if (isBranch(opcode)) {
+            return List.of(offset + (short) (((code[offset + 1] & 0xFF) << 8) | (code[offset + 2] & 0xFF)));
+        }
+
+        if (opcode != TABLESWITCH && opcode != LOOKUPSWITCH) {
+            return List.of();
+        }
+
+        int operands = offset + 1 + padding(offset);
+        List<Integer> targets = new ArrayList<>();
+        targets.add(offset + readInt(code, operands));
+
+        if (opcode == TABLESWITCH) {
+            int entries = readInt(code, operands + 8) - readInt(code, operands + 4) + 1;
+            for (int i = 0; i < entries; i++) {
+                targets.add(offset + readInt(code, operands + 12 + 4 * i));
+            }
+        } else {
+            int entries = readInt(code, operands + 4);
+            for (int i = 0; i < entries; i++) {
+                targets.add(offset + readInt(code, operands + 12 + 8 * i));
+            }
+        }
+
+        return targets;
+    }
+
+    private static boolean isBranch(int opcode) {
+        return (opcode >= 0x99 && opcode <= JSR) || opcode == 0xc6 || opcode == 0xc7 || opcode == GOTO_W
+                || opcode == JSR_W;
+    }
+
+    /**
+     * @param position where the instruction is written, which changes the padding of switches
+     * @return the size of the instruction in bytes
+     */
+    private static int getLength(byte[] code, int offset, int position) {
+        int opcode = code[offset] & 0xFF;
+
+        if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+            int operands = offset + 1 + padding(offset);
+            int size = opcode == TABLESWITCH
+                    ? 12 + 4 * (readInt(code, operands + 8) - readInt(code, operands + 4) + 1)
+                    : 8 + 8 * readInt(code, operands + 4);
+            return 1 + padding(position) + size;
+        }
+
+        if (opcode == WIDE) {
+            return (code[offset + 1] & 0xFF) == 0x84 ? 6 : 4;
+        }
+
+        if (opcode <= 0x0f || (opcode >= 0x1a && opcode <= 0x35) || (opcode >= 0x3b && opcode <= 0x83)
+                || (opcode >= 0x85 && opcode <= 0x98) || (opcode >= 0xac && opcode <= 0xb1) || opcode == 0xbe
+                || opcode == 0xbf || opcode == 0xc2 || opcode == 0xc3) {
+            return 1;
+        }
+
+        if (opcode == 0x10 || opcode == 0x12 || (opcode >= 0x15 && opcode <= 0x19)
+                || (opcode >= 0x36 && opcode <= 0x3a) || opcode == 0xa9 || opcode == 0xbc) {
+            return 2;
+        }
+
+        if (opcode == 0x11 || opcode == 0x13 || opcode == 0x14 || opcode == 0x84
+                || (isBranch(opcode) && opcode < GOTO_W) || (opcode >= 0xb2 && opcode <= INVOKESTATIC) || opcode == 0xbb || opcode == 0xbd || opcode == 0xc0
+                || opcode == 0xc1) {
+            return 3;
+        }
+
+        if (opcode == 0xc5) {
+            return 4;
+        }
+
+        if (opcode == 0xb9 || opcode == 0xba || opcode == GOTO_W || opcode == JSR_W) {
+            return 5;
+        }
+
+        throw new RuntimeException("Unknown opcode " + opcode + " at offset " + offset);
+    }
+
+    /**
+     * @return the bytes between a switch at the given position and its operands, which start at a multiple of 4
+     */
+    private static int padding(int position) {
+        return (4 - (position + 1) % 4) % 4;
+    }
+
+    private static int readInt(byte[] code, int offset) {
+        return ((code[offset] & 0xFF) << 24) | ((code[offset + 1] & 0xFF) << 16) | ((code[offset + 2] & 0xFF) << 8)
+                | (code[offset + 3] & 0xFF);
+    }
+
+    private static void copyAttributes(DataInputStream in, DataOutputStream out) throws IOException {
+        int attributes = copyShort(in, out);
+        for (int i = 0; i < attributes; i++) {
+            copy(in, out, 2);
+            copy(in, out, copyInt(in, out));
+        }
+    }
+
+    private static void copy(DataInputStream in, DataOutputStream out, int length) throws IOException {
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        out.write(bytes);
+    }
+
+    private static int copyShort(DataInputStream in, DataOutputStream out) throws IOException {
+        int value = in.readUnsignedShort();
+        out.writeShort(value);
+        return value;
+    }
+
+    private static int copyInt(DataInputStream in, DataOutputStream out) throws IOException {
+        int value = in.readInt();
+        out.writeInt(value);
+        return value;
+    }
+}
@@ -0,0 +1,43 @@
+package pt.up.fe.comp2024.backend.execution;
+
+import jasmin.ClassFile;
+import pt.up.fe.comp2024.backend.classfile.ClassFileResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Collections;
+
+/**
+ * Assembles Jasmin code into the bytes of a class file, without writing files.
+ */
+public class JasminAssembler {
+
+    // The scanner of Jasmin keeps state in static fields, classes are assembled one at a time
+    private static final Object LOCK = new Object();
+
+    public static ClassFileResult assemble(String jasminCode) {
+        var classFile = new ClassFile();
+        var bytes = new ByteArrayOutputStream();
+
+        synchronized (LOCK) {
+            try {
+                classFile.readJasmin(new StringReader(jasminCode), "program.j", true);
+
+                if (classFile.errorCount() > 0) {
+                    throw new RuntimeException("Found " + classFile.errorCount()
+                            + " errors while assembling Jasmin code:\n" + jasminCode);
+                }
+
+                classFile.write(bytes);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Exception while assembling Jasmin code: " + e.getMessage() + "\nCode: "
+                        + jasminCode, e);
+            }
+        }
+
+        return new ClassFileResult(classFile.getClassName().replace('/', '.'), bytes.toByteArray(),
+                Collections.emptyList());
+    }
+}
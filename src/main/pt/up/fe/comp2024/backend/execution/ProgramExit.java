@@ -0,0 +1,20 @@
+package pt.up.fe.comp2024.backend.execution;
+
+/**
+ * Thrown instead of exiting the JVM when a program run by the {@link ExecutionEngine} calls System.exit.
+ * <p>
+ * It is an error, not an exception, so that the program does not catch it with 'catch (Exception e)'.
+ */
+public class ProgramExit extends Error {
+
+    private final int status;
+
+    public ProgramExit(int status) {
+        super("System.exit(" + status + ")", null, false, false);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
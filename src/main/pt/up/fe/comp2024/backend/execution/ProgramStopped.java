@@ -0,0 +1,13 @@
+package pt.up.fe.comp2024.backend.execution;
+
+/**
+ * Thrown in a program run by the {@link ExecutionEngine} when its thread is interrupted, after the timeout.
+ * <p>
+ * It is an error, not an exception, so that the program does not catch it with 'catch (Exception e)'.
+ */
+public class ProgramStopped extends Error {
+
+    public ProgramStopped() {
+        super("Program stopped", null, false, false);
+    }
+}
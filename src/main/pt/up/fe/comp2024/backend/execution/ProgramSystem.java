@@ -0,0 +1,107 @@
+package pt.up.fe.comp2024.backend.execution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * Used by the classes of programs run by the {@link ExecutionEngine} instead of System.out, System.err, System.in and
+ * System.exit, so that programs running at the same time have their own input and output, and cannot end the JVM.
+ * <p>
+ * Each thread that runs a program redirects the streams to its own. In other threads they are the streams of System.
+ */
+public class ProgramSystem {
+
+    private static final ThreadLocal<OutputStream> OUT = new ThreadLocal<>();
+    private static final ThreadLocal<OutputStream> ERR = new ThreadLocal<>();
+    private static final ThreadLocal<InputStream> IN = new ThreadLocal<>();
+
+    public static final PrintStream out = new PrintStream(new RoutedOutput(OUT, () -> System.out), true);
+    public static final PrintStream err = new PrintStream(new RoutedOutput(ERR, () -> System.err), true);
+    public static final InputStream in = new RoutedInput();
+
+    public static void exit(int status) {
+        throw new ProgramExit(status);
+    }
+
+    /**
+     * Called before each backward branch of the program, see {@link InterruptCheckInserter}.
+     */
+    public static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ProgramStopped();
+        }
+    }
+
+    static void redirect(OutputStream out, OutputStream err, InputStream in) {
+        OUT.set(out);
+        ERR.set(err);
+        IN.set(in);
+    }
+
+    static void reset() {
+        // What the program printed can still be in the buffers of the print streams
+        out.flush();
+        err.flush();
+
+        OUT.remove();
+        ERR.remove();
+        IN.remove();
+    }
+
+    private static class RoutedOutput extends OutputStream {
+
+        private final ThreadLocal<OutputStream> redirected;
+        private final Supplier<OutputStream> fallback;
+
+        RoutedOutput(ThreadLocal<OutputStream> redirected, Supplier<OutputStream> fallback) {
+            this.redirected = redirected;
+            this.fallback = fallback;
+        }
+
+        private OutputStream target() {
+            var target = redirected.get();
+            return target != null ? target : fallback.get();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    private static class RoutedInput extends InputStream {
+
+        private InputStream target() {
+            var target = IN.get();
+            return target != null ? target : System.in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return target().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return target().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return target().available();
+        }
+    }
+}
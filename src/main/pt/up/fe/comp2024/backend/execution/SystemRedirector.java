@@ -0,0 +1,137 @@
+package pt.up.fe.comp2024.backend.execution;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes a class file use {@link ProgramSystem} instead of System for the standard streams and System.exit.
+ * <p>
+ * Only the constant pool changes: a class entry for {@link ProgramSystem} is added at its end, and the references to
+ * those fields and that method point to it instead. Every other index of the class file stays the same.
+ */
+class SystemRedirector {
+
+    private static final String SYSTEM = "java/lang/System";
+    private static final String PROGRAM_SYSTEM = ProgramSystem.class.getName().replace('.', '/');
+
+    private static final Set<String> REDIRECTED = Set.of("out:Ljava/io/PrintStream;", "err:Ljava/io/PrintStream;",
+            "in:Ljava/io/InputStream;", "exit:(I)V");
+
+    private static final int UTF8 = 1;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    /**
+     * @return the class file with the references redirected, or the same array if it has none
+     */
+    static byte[] redirect(byte[] classFile) {
+        try {
+            return redirectReferences(classFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the constant pool of the class file", e);
+        }
+    }
+
+    private static byte[] redirectReferences(byte[] classFile) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(classFile));
+        in.skipBytes(8);
+        int count = in.readUnsignedShort();
+
+        Map<Integer, String> strings = new HashMap<>();
+        Map<Integer, Integer> classNames = new HashMap<>();
+        Map<Integer, int[]> namesAndTypes = new HashMap<>();
+        List<int[]> references = new ArrayList<>();
+
+        // Positions are counted from the start of the class file, the constant pool starts after 10 bytes
+        int position = 10;
+        for (int index = 1; index < count; index++) {
+            int tag = in.readUnsignedByte();
+            int start = position;
+            position += 1 + switch (tag) {
+                case UTF8 -> {
+                    strings.put(index, in.readUTF());
+                    yield 2 + (((classFile[start + 1] & 0xFF) << 8) | (classFile[start + 2] & 0xFF));
+                }
+                case CLASS -> {
+                    classNames.put(index, in.readUnsignedShort());
+                    yield 2;
+                }
+                case NAME_AND_TYPE -> {
+                    namesAndTypes.put(index, new int[]{in.readUnsignedShort(), in.readUnsignedShort()});
+                    yield 4;
+                }
+                case FIELD_REF, METHOD_REF -> {
+                    references.add(new int[]{in.readUnsignedShort(), in.readUnsignedShort(), start + 1});
+                    yield 4;
+                }
+                default -> {
+                    int size = getSize(tag);
+                    in.skipBytes(size);
+                    yield size;
+                }
+            };
+
+            // Longs and doubles take two entries
+            if (tag == LONG || tag == DOUBLE) {
+                index++;
+            }
+        }
+
+        List<Integer> redirected = new ArrayList<>();
+        for (var reference : references) {
+            var nameAndType = namesAndTypes.get(reference[1]);
+            if (SYSTEM.equals(strings.get(classNames.get(reference[0])))
+                    && REDIRECTED.contains(strings.get(nameAndType[0]) + ":" + strings.get(nameAndType[1]))) {
+                redirected.add(reference[2]);
+            }
+        }
+
+        if (redirected.isEmpty()) {
+            return classFile;
+        }
+
+        var patched = classFile.clone();
+        for (var classIndexPosition : redirected) {
+            patched[classIndexPosition] = (byte) ((count + 1) >> 8);
+            patched[classIndexPosition + 1] = (byte) (count + 1);
+        }
+
+        var bytes = new ByteArrayOutputStream(classFile.length + PROGRAM_SYSTEM.length() + 8);
+        var out = new DataOutputStream(bytes);
+        out.write(patched, 0, 8);
+        out.writeShort(count + 2);
+        out.write(patched, 10, position - 10);
+        out.writeByte(UTF8);
+        out.writeUTF(PROGRAM_SYSTEM);
+        out.writeByte(CLASS);
+        out.writeShort(count);
+        out.write(patched, position, patched.length - position);
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the size of the entries that are only skipped, without the tag
+     */
+    static int getSize(int tag) {
+        return switch (tag) {
+            case 8, 16, 19, 20 -> 2;
+            case 15 -> 3;
+            case 3, 4, 11, 17, 18 -> 4;
+            case LONG, DOUBLE -> 8;
+            default -> throw new RuntimeException("Unknown constant pool tag " + tag);
+        };
+    }
+}
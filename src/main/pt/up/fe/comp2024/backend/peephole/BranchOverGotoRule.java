@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import java.util.Map;
+
+/**
+ * 'if&lt;cond&gt; L1; goto L2; L1:' becomes 'if&lt;!cond&gt; L2; L1:', the branch jumps where the goto did.
+ */
+public class BranchOverGotoRule implements PeepholeRule {
+
+    private static final Map<String, String> NEGATED = Map.ofEntries(
+            Map.entry("ifeq", "ifne"), Map.entry("ifne", "ifeq"),
+            Map.entry("iflt", "ifge"), Map.entry("ifge", "iflt"),
+            Map.entry("ifgt", "ifle"), Map.entry("ifle", "ifgt"),
+            Map.entry("if_icmpeq", "if_icmpne"), Map.entry("if_icmpne", "if_icmpeq"),
+            Map.entry("if_icmplt", "if_icmpge"), Map.entry("if_icmpge", "if_icmplt"),
+            Map.entry("if_icmpgt", "if_icmple"), Map.entry("if_icmple", "if_icmpgt"),
+            Map.entry("if_acmpeq", "if_acmpne"), Map.entry("if_acmpne", "if_acmpeq"),
+            Map.entry("ifnull", "ifnonnull"), Map.entry("ifnonnull", "ifnull"));
+
+    @Override
+    public String getName() {
+        return "branch-over-goto";
+    }
+
+    @Override
+    public boolean apply(JasminCode code) {
+        var label = code.fromEnd(0);
+        var jump = code.fromEnd(1);
+        var branch = code.fromEnd(2);
+
+        if (label == null || jump == null || branch == null || !label.isLabel() || !jump.isGoto()
+                || !branch.isConditionalBranch() || !branch.operand().equals(label.label())) {
+            return false;
+        }
+
+        var negated = NEGATED.get(branch.opcode());
+        if (negated == null) {
+            return false;
+        }
+
+        code.removeFromEnd(0);
+        code.removeFromEnd(0);
+        code.replaceFromEnd(0, JasminInstruction.of(negated, jump.operand()));
+        code.append(label);
+        return true;
+    }
+}
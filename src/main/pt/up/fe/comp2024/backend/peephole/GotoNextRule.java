@@ -0,0 +1,34 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+/**
+ * A 'goto' to a label that immediately follows it is removed.
+ */
+public class GotoNextRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "goto-next";
+    }
+
+    @Override
+    public boolean apply(JasminCode code) {
+        var last = code.fromEnd(0);
+        if (last == null || !last.isLabel()) {
+            return false;
+        }
+
+        // The labels that follow the goto all mark the same instruction
+        int index = 0;
+        while (code.fromEnd(index) != null && code.fromEnd(index).isLabel()) {
+            index++;
+        }
+
+        var jump = code.fromEnd(index);
+        if (jump == null || !jump.isGoto() || !jump.operand().equals(last.label())) {
+            return false;
+        }
+
+        code.removeFromEnd(index);
+        return true;
+    }
+}
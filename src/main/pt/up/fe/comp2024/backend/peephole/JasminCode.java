@@ -0,0 +1,102 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The code of a method while it is optimized. Rules rewrite the end of the code, as instructions are added.
+ * <p>
+ * Keeps how many times each label is jumped to and each register is read, in the whole method, so that rules can
+ * check them without going through the method.
+ */
+public class JasminCode {
+
+    private final List<JasminInstruction> instructions;
+    private final Map<String, Integer> labelUses;
+    private final Map<Integer, Integer> localReads;
+
+    /**
+     * @param method every instruction of the method, the uses of labels and registers are counted from them
+     */
+    JasminCode(List<JasminInstruction> method) {
+        this.instructions = new ArrayList<>(method.size());
+        this.labelUses = new HashMap<>();
+        this.localReads = new HashMap<>();
+
+        for (var instruction : method) {
+            countUses(instruction, 1);
+        }
+    }
+
+    private void countUses(JasminInstruction instruction, int delta) {
+        var target = instruction.getTarget();
+        if (target != null) {
+            labelUses.merge(target, delta, Integer::sum);
+        }
+
+        if (instruction.readsLocal()) {
+            localReads.merge(instruction.getLocal(), delta, Integer::sum);
+        }
+    }
+
+    void add(JasminInstruction instruction) {
+        instructions.add(instruction);
+    }
+
+    public int size() {
+        return instructions.size();
+    }
+
+    /**
+     * @param index 0 is the last instruction, 1 the one before it, and so on
+     * @return the instruction, or null if there are not that many instructions
+     */
+    public JasminInstruction fromEnd(int index) {
+        int position = instructions.size() - 1 - index;
+        return position < 0 ? null : instructions.get(position);
+    }
+
+    /**
+     * Removes the instruction at the given position, counted from the end as in {@link #fromEnd(int)}.
+     */
+    public void removeFromEnd(int index) {
+        countUses(instructions.remove(instructions.size() - 1 - index), -1);
+    }
+
+    /**
+     * Replaces the instruction at the given position, counted from the end as in {@link #fromEnd(int)}.
+     */
+    public void replaceFromEnd(int index, JasminInstruction instruction) {
+        int position = instructions.size() - 1 - index;
+        countUses(instructions.set(position, instruction), -1);
+        countUses(instruction, 1);
+    }
+
+    /**
+     * Adds an instruction that is the result of a rewrite, counting its uses.
+     */
+    public void append(JasminInstruction instruction) {
+        countUses(instruction, 1);
+        instructions.add(instruction);
+    }
+
+    /**
+     * @return how many instructions in the method jump to the label
+     */
+    public int getLabelUses(String label) {
+        return labelUses.getOrDefault(label, 0);
+    }
+
+    /**
+     * @return how many instructions in the method read the register
+     */
+    public int getLocalReads(int register) {
+        return localReads.getOrDefault(register, 0);
+    }
+
+    List<JasminInstruction> getInstructions() {
+        return instructions;
+    }
+}
@@ -0,0 +1,148 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A line of the body of a Jasmin method: either a label or an instruction with its operands.
+ *
+ * @param label   the name of the label, or null if this is an instruction
+ * @param opcode  the mnemonic of the instruction (e.g. "iload_1" or "if_icmplt"), or null if this is a label
+ * @param operand everything after the mnemonic, or an empty string if there is nothing
+ */
+public record JasminInstruction(String label, String opcode, String operand) {
+
+    public static JasminInstruction label(String label) {
+        return new JasminInstruction(label, null, "");
+    }
+
+    public static JasminInstruction of(String opcode, String operand) {
+        return new JasminInstruction(null, opcode, operand);
+    }
+
+    public static JasminInstruction of(String opcode) {
+        return of(opcode, "");
+    }
+
+    /**
+     * Splits the body of a method into labels and instructions, ignoring blank lines, comments and directives.
+     */
+    public static List<JasminInstruction> parse(CharSequence methodBody) {
+        List<JasminInstruction> instructions = new ArrayList<>();
+
+        for (var line : methodBody.toString().split("\n")) {
+            var stripped = line.strip();
+
+            if (stripped.isEmpty() || stripped.startsWith(";") || stripped.startsWith(".")) {
+                continue;
+            }
+
+            if (stripped.endsWith(":")) {
+                instructions.add(label(stripped.substring(0, stripped.length() - 1)));
+                continue;
+            }
+
+            int space = indexOfWhitespace(stripped);
+            if (space == -1) {
+                instructions.add(of(stripped));
+            } else {
+                instructions.add(of(stripped.substring(0, space), stripped.substring(space + 1).strip()));
+            }
+        }
+
+        return instructions;
+    }
+
+    private static int indexOfWhitespace(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (Character.isWhitespace(line.charAt(i))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public boolean isLabel() {
+        return label != null;
+    }
+
+    public boolean isGoto() {
+        return "goto".equals(opcode);
+    }
+
+    /**
+     * @return true for conditional branches (ifeq, if_icmplt, ifnull, ...)
+     */
+    public boolean isConditionalBranch() {
+        return opcode != null && opcode.startsWith("if");
+    }
+
+    /**
+     * @return the label this instruction jumps to, or null if it is not a jump
+     */
+    public String getTarget() {
+        return isGoto() || isConditionalBranch() ? operand : null;
+    }
+
+    public boolean isLoad() {
+        return opcode != null && (opcode.startsWith("iload") || opcode.startsWith("aload"));
+    }
+
+    public boolean isStore() {
+        return opcode != null && (opcode.startsWith("istore") || opcode.startsWith("astore"));
+    }
+
+    /**
+     * @return true if the local variable is read by this instruction, which is the case of loads and of iinc
+     */
+    public boolean readsLocal() {
+        return isLoad() || "iinc".equals(opcode);
+    }
+
+    /**
+     * @return the register of a load, store or iinc, or -1 for other instructions
+     */
+    public int getLocal() {
+        if (!isLoad() && !isStore() && !"iinc".equals(opcode)) {
+            return -1;
+        }
+
+        // 'iload_1', 'iload 4' or 'iinc 4 1'
+        int underscore = opcode.indexOf('_');
+        if (underscore != -1) {
+            return Integer.parseInt(opcode.substring(underscore + 1));
+        }
+
+        var register = operand.split("\\s+")[0];
+        return Integer.parseInt(register);
+    }
+
+    /**
+     * @return 'i' or 'a', the kind of value a load or store works on
+     */
+    public char getLocalKind() {
+        return opcode.charAt(0);
+    }
+
+    /**
+     * @return true if the instruction only pushes a value, without any other effect
+     */
+    public boolean isPush() {
+        if (opcode == null) {
+            return false;
+        }
+
+        return isLoad() || opcode.startsWith("iconst_") || opcode.equals("bipush") || opcode.equals("sipush")
+                || opcode.equals("ldc") || opcode.equals("dup");
+    }
+
+    @Override
+    public String toString() {
+        if (isLabel()) {
+            return label + ":";
+        }
+
+        return operand.isEmpty() ? opcode : opcode + " " + operand;
+    }
+}
@@ -0,0 +1,26 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+/**
+ * A value that is pushed and then popped (e.g. 'iload_1; pop') is never pushed.
+ */
+public class LoadPopRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "load-pop";
+    }
+
+    @Override
+    public boolean apply(JasminCode code) {
+        var pop = code.fromEnd(0);
+        var push = code.fromEnd(1);
+
+        if (pop == null || push == null || !"pop".equals(pop.opcode()) || !push.isPush()) {
+            return false;
+        }
+
+        code.removeFromEnd(0);
+        code.removeFromEnd(0);
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites short sequences of Jasmin instructions into cheaper ones, with the given rules.
+ * <p>
+ * Instructions are added one at a time, and the rules are tried on the end of the code until none applies, so a
+ * rewrite can expose another one. Counts the rewrites of each rule, over every method it optimized.
+ */
+public class PeepholeOptimizer {
+
+    private final List<PeepholeRule> rules;
+    private final Map<String, Integer> rewrites;
+
+    public PeepholeOptimizer(List<PeepholeRule> rules) {
+        this.rules = rules;
+        this.rewrites = new LinkedHashMap<>();
+
+        for (var rule : rules) {
+            rewrites.put(rule.getName(), 0);
+        }
+    }
+
+    public static PeepholeOptimizer withDefaultRules() {
+        return new PeepholeOptimizer(List.of(
+                new UnusedLabelRule(),
+                new GotoNextRule(),
+                new BranchOverGotoRule(),
+                new StoreLoadRule(),
+                new LoadPopRule()));
+    }
+
+    public List<JasminInstruction> optimize(List<JasminInstruction> method) {
+        var code = new JasminCode(method);
+
+        for (var instruction : method) {
+            code.add(instruction);
+
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (var rule : rules) {
+                    if (rule.apply(code)) {
+                        rewrites.merge(rule.getName(), 1, Integer::sum);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return code.getInstructions();
+    }
+
+    /**
+     * @return the number of rewrites made by each rule, by the name of the rule
+     */
+    public Map<String, Integer> getRewrites() {
+        return Collections.unmodifiableMap(rewrites);
+    }
+}
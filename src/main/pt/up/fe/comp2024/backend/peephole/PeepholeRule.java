@@ -0,0 +1,19 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+/**
+ * A rewrite of a short sequence of Jasmin instructions into a cheaper one.
+ */
+public interface PeepholeRule {
+
+    /**
+     * @return the name the rewrites of this rule are counted under
+     */
+    String getName();
+
+    /**
+     * Tries to rewrite the instructions at the end of the code, which has just had an instruction added.
+     *
+     * @return true if the code was changed
+     */
+    boolean apply(JasminCode code);
+}
@@ -0,0 +1,45 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+/**
+ * 'istore_n; iload_n' is removed when the load is the only read of register n, the value stays on the stack.
+ * <p>
+ * Otherwise, a load with an explicit register ('iload 4') is replaced by 'dup' before the store, which is shorter.
+ */
+public class StoreLoadRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "store-load";
+    }
+
+    @Override
+    public boolean apply(JasminCode code) {
+        var load = code.fromEnd(0);
+        var store = code.fromEnd(1);
+
+        if (load == null || store == null || !load.isLoad() || !store.isStore()) {
+            return false;
+        }
+
+        int register = store.getLocal();
+        if (load.getLocal() != register || load.getLocalKind() != store.getLocalKind()) {
+            return false;
+        }
+
+        if (code.getLocalReads(register) == 1) {
+            code.removeFromEnd(0);
+            code.removeFromEnd(0);
+            return true;
+        }
+
+        // 'iload_n' is as short as 'dup'
+        if (!load.operand().isEmpty()) {
+            code.removeFromEnd(0);
+            code.replaceFromEnd(0, JasminInstruction.of("dup"));
+            code.append(store);
+            return true;
+        }
+
+        return false;
+    }
+}
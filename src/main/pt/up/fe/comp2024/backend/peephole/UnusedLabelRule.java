@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+/**
+ * Labels that nothing jumps to are removed, so they do not keep the instructions around them from being rewritten.
+ */
+public class UnusedLabelRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "unused-label";
+    }
+
+    @Override
+    public boolean apply(JasminCode code) {
+        var last = code.fromEnd(0);
+        if (last == null || !last.isLabel() || code.getLabelUses(last.label()) > 0) {
+            return false;
+        }
+
+        code.removeFromEnd(0);
+        return true;
+    }
+}
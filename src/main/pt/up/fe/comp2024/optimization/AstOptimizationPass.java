@@ -0,0 +1,20 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+/**
+ * Represents an optimization pass that transforms the AST in place.
+ */
+public interface AstOptimizationPass {
+
+    /**
+     * Optimizes the given AST.
+     *
+     * @param root  the root node of the AST
+     * @param table the symbol table
+     * @return true if the AST was changed
+     */
+    boolean optimize(JmmNode root, SymbolTable table);
+
+}
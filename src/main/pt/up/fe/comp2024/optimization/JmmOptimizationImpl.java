@@ -1,27 +1,127 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.optimization.ollir.CopyPropagation;
+import pt.up.fe.comp2024.optimization.ollir.DeadCodeElimination;
+import pt.up.fe.comp2024.optimization.ollir.LocalValueNumbering;
+import pt.up.fe.comp2024.optimization.ollir.LoopInvariantCodeMotion;
+import pt.up.fe.comp2024.optimization.ollir.MethodInliner;
+import pt.up.fe.comp2024.optimization.ollir.MethodUtils;
+import pt.up.fe.comp2024.optimization.ollir.StrengthReduction;
+import pt.up.fe.comp2024.optimization.ollir.TailCallElimination;
+import pt.up.fe.comp2024.optimization.passes.ConstantFolding;
+import pt.up.fe.comp2024.optimization.passes.ConstantPropagation;
+import pt.up.fe.comp2024.optimization.regalloc.RegisterAllocator;
 
 import java.util.Collections;
+import java.util.List;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
+    private final List<AstOptimizationPass> astPasses;
+
+    public JmmOptimizationImpl() {
+
+        this.astPasses = List.of(new ConstantPropagation(), new ConstantFolding());
+
+    }
+
+    @Override
+    public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
+
+        if (!CompilerConfig.getOptimize(semanticsResult.getConfig())) {
+            return semanticsResult;
+        }
+
+        var root = semanticsResult.getRootNode();
+        var table = semanticsResult.getSymbolTable();
+
+        // Each pass can expose new opportunities to the others, run them until nothing changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var pass : astPasses) {
+                changed |= pass.optimize(root, table);
+            }
+        }
+
+        return semanticsResult;
+    }
+
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
         var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+        visitor.visit(semanticsResult.getRootNode());
+
+        // Same as parsing OLLIR code, the var tables are built right away
+        var classUnit = visitor.getClassUnit();
+        classUnit.buildVarTables();
 
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        return new OllirClassResult(semanticsResult, classUnit, Collections.emptyList());
     }
 
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
 
-        //TODO: Do your OLLIR-based optimizations here
+        var config = ollirResult.getConfig();
+        var classUnit = ollirResult.getOllirClass();
+
+        // Parsing OLLIR only builds the var tables
+        classUnit.buildCFGs();
+
+        if (CompilerConfig.getOptimize(config)) {
+            var inliner = new MethodInliner(classUnit);
+            inliner.inline();
+            ollirResult.getReports().add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1, inliner.getStats()));
+
+            ollirResult.getReports().addAll(optimizeMethods(classUnit));
+        }
+
+        int maxRegisters = CompilerConfig.getRegisterAllocation(config);
+        if (maxRegisters >= 0) {
+            var allocator = new RegisterAllocator(maxRegisters);
+            ollirResult.getReports().addAll(allocator.allocate(classUnit));
+        }
 
         return ollirResult;
     }
+
+    /**
+     * Runs the OLLIR passes on each method until none of them changes it, and reports what each pass changed.
+     */
+    private static List<Report> optimizeMethods(ClassUnit classUnit) {
+        // New passes for each class, they keep the stats of the class
+        List<OllirOptimizationPass> passes = List.of(new TailCallElimination(), new LocalValueNumbering(),
+                new CopyPropagation(), new StrengthReduction(), new LoopInvariantCodeMotion(),
+                new DeadCodeElimination());
+
+        for (var method : classUnit.getMethods()) {
+            boolean optimized = false;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (var pass : passes) {
+                    changed |= pass.optimize(method);
+                }
+                optimized |= changed;
+            }
+
+            // Variables that are no longer used would still take a register
+            if (optimized) {
+                MethodUtils.rebuildVarTable(method);
+            }
+        }
+
+        return passes.stream()
+                .map(pass -> new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1, pass.getStats()))
+                .toList();
+    }
 }
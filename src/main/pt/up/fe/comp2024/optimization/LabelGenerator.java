@@ -0,0 +1,29 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Generates names for OLLIR labels.
+ * <p>
+ * Labels are numbered from 0 in each method, every label of a method has a different number whatever its prefix,
+ * so nested and sequential statements never reuse a label.
+ */
+public class LabelGenerator {
+
+    private int labelNumber;
+
+    public LabelGenerator() {
+        labelNumber = 0;
+    }
+
+    public String newLabel(String prefix) {
+
+        return prefix + "_" + labelNumber++;
+    }
+
+    /**
+     * Starts numbering the labels of a new method.
+     */
+    public void reset() {
+
+        labelNumber = 0;
+    }
+}
@@ -0,0 +1,235 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Creates the OLLIR classes (types, elements and instructions) directly, with the same structure the OLLIR parser
+ * builds for the equivalent code.
+ * <p>
+ * Types are given as OLLIR type suffixes (e.g. ".i32" or ".array.String"), as returned by {@link OptUtils}.
+ */
+public class OllirBuilder {
+
+    private static final Pattern INTEGER = Pattern.compile("[+-]?\\d+");
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-zA-Z_$][a-zA-Z_$0-9]*");
+
+    private OllirBuilder() {
+    }
+
+    /**
+     * @param ollirType a type suffix, e.g. ".i32", ".array.i32" or ".MyClass"
+     */
+    public static Type type(String ollirType) {
+        if (!ollirType.startsWith(".")) {
+            throw new RuntimeException("Invalid OLLIR type '" + ollirType + "'");
+        }
+
+        int numDimensions = 0;
+        ElementType elementType = null;
+        String className = null;
+
+        // As in the parser, the last component that is not 'array' is the type of the elements
+        for (var component : ollirType.substring(1).split("\\.", -1)) {
+            switch (component) {
+                case "array" -> numDimensions++;
+                case "i32" -> elementType = ElementType.INT32;
+                case "bool" -> elementType = ElementType.BOOLEAN;
+                case "String" -> elementType = ElementType.STRING;
+                case "V" -> elementType = ElementType.VOID;
+                default -> {
+                    if (!IDENTIFIER.matcher(component).matches()) {
+                        throw new RuntimeException("Invalid OLLIR type '" + ollirType + "'");
+                    }
+                    elementType = ElementType.OBJECTREF;
+                    className = component;
+                }
+            }
+        }
+
+        if (elementType == null) {
+            throw new RuntimeException("OLLIR type '" + ollirType + "' has no element type");
+        }
+
+        if (numDimensions > 0) {
+            var arrayType = new ArrayType();
+            arrayType.setNumDimensions(numDimensions);
+            arrayType.setTypeOfElements(elementType);
+            if (elementType == ElementType.OBJECTREF) {
+                arrayType.setElementClass(className);
+            } else if (elementType == ElementType.STRING) {
+                arrayType.setElementClass("String");
+            }
+            return arrayType;
+        }
+
+        return switch (elementType) {
+            case OBJECTREF -> new ClassType(ElementType.OBJECTREF, className);
+            default -> new Type(elementType);
+        };
+    }
+
+    /**
+     * An integer literal, a variable or 'this'.
+     *
+     * @param value the literal or the name of the variable
+     */
+    public static Element element(String value, String ollirType) {
+        if (INTEGER.matcher(value).matches()) {
+            var literal = value.startsWith("+") ? value.substring(1) : value;
+            return new LiteralElement(literal, type(ollirType));
+        }
+
+        return operand(value, ollirType);
+    }
+
+    public static Operand operand(String name, String ollirType) {
+        checkIdentifier(name);
+        return new Operand(name, type(ollirType));
+    }
+
+    public static ArrayOperand arrayOperand(String name, Element index, String ollirType) {
+        checkIdentifier(name);
+        var indexes = new ArrayList<Element>();
+        indexes.add(index);
+        return new ArrayOperand(name, type(ollirType), indexes);
+    }
+
+    /**
+     * The object of a call: 'this', typed with the given class when it is a class type, or a variable.
+     */
+    public static Operand caller(String name, String ollirType, String className) {
+        if (name.equals("this")) {
+            var type = type(ollirType);
+            var thisClass = type instanceof ClassType classType && !classType.getName().equals("this")
+                    ? classType.getName() : className;
+            return new Operand(name, new ClassType(ElementType.THIS, thisClass));
+        }
+
+        return operand(name, ollirType);
+    }
+
+    /**
+     * The class of a static call. Like the parser, types it with the current class.
+     */
+    public static Operand staticCaller(String name, String className) {
+        checkIdentifier(name);
+        return new Operand(name, new ClassType(ElementType.CLASS, className));
+    }
+
+    public static Operation operation(String op, String ollirType) {
+        var opType = switch (op) {
+            case "*" -> OperationType.MUL;
+            case "+" -> OperationType.ADD;
+            case "-" -> OperationType.SUB;
+            case "/" -> OperationType.DIV;
+            case "||" -> OperationType.ORB;
+            case "&&" -> OperationType.ANDB;
+            case "&" -> OperationType.AND;
+            case "|" -> OperationType.OR;
+            case "^" -> OperationType.XOR;
+            case ">=" -> OperationType.GTE;
+            case "<=" -> OperationType.LTE;
+            case ">" -> OperationType.GTH;
+            case "<" -> OperationType.LTH;
+            case "==" -> OperationType.EQ;
+            case "!=" -> OperationType.NEQ;
+            case "!" -> OperationType.NOTB;
+            case "~" -> OperationType.NOT;
+            default -> throw new RuntimeException("Operator '" + op + "' has no OLLIR operation");
+        };
+
+        return new Operation(opType, type(ollirType));
+    }
+
+    public static AssignInstruction assign(Operand dest, String ollirType, Instruction rhs) {
+        return new AssignInstruction(dest, type(ollirType), rhs);
+    }
+
+    public static AssignInstruction assign(String dest, String ollirType, Instruction rhs) {
+        return assign(operand(dest, ollirType), ollirType, rhs);
+    }
+
+    public static SingleOpInstruction single(Element element) {
+        return new SingleOpInstruction(element);
+    }
+
+    public static BinaryOpInstruction binary(Element left, Operation operation, Element right) {
+        return new BinaryOpInstruction(left, operation, right);
+    }
+
+    public static UnaryOpInstruction unary(Operation operation, Element operand) {
+        return new UnaryOpInstruction(operation, operand);
+    }
+
+    /**
+     * A call to a method.
+     *
+     * @param isolated true if the call is a statement, false if it is the right side of an assignment
+     */
+    public static CallInstruction call(CallType callType, Operand caller, String methodName, List<Element> arguments,
+                                       String ollirType, boolean isolated) {
+        var name = new LiteralElement("\"" + methodName + "\"", new Type(ElementType.STRING));
+        var args = new ArrayList<>(arguments);
+
+        return isolated ? new CallInstruction(callType, caller, name, args, type(ollirType), true)
+                : new CallInstruction(callType, caller, name, args, type(ollirType));
+    }
+
+    /**
+     * Allocation of an object or of an array, 'new(className).T' or 'new(array, size).T'.
+     */
+    public static CallInstruction newInstance(Operand caller, List<Element> arguments, String ollirType) {
+        return new CallInstruction(CallType.NEW, caller, new ArrayList<>(arguments), type(ollirType));
+    }
+
+    public static CallInstruction arrayLength(Element array, String ollirType) {
+        return new CallInstruction(CallType.arraylength, array, type(ollirType));
+    }
+
+    /**
+     * 'if (cond) goto label', the condition must be a boolean operand or an operation of boolean type.
+     */
+    public static CondBranchInstruction branch(Instruction condition, String label) {
+        CondBranchInstruction branch;
+        if (condition instanceof SingleOpInstruction singleOp) {
+            checkBoolean(singleOp.getSingleOperand().getType(), "operand");
+            branch = new SingleOpCondInstruction(singleOp);
+        } else if (condition instanceof OpInstruction op) {
+            checkBoolean(op.getOperation().getTypeInfo(), "operation");
+            branch = new OpCondInstruction(op);
+        } else {
+            throw new RuntimeException("Invalid 'if' condition " + condition.getClass().getSimpleName()
+                    + ", only operands and operations are accepted");
+        }
+
+        branch.setLabel(label);
+        return branch;
+    }
+
+    public static GotoInstruction jump(String label) {
+        return new GotoInstruction(label);
+    }
+
+    public static ReturnInstruction ret(String ollirType, Element operand) {
+        var ret = operand == null ? new ReturnInstruction() : new ReturnInstruction(operand);
+        ret.setReturnType(type(ollirType));
+        return ret;
+    }
+
+    private static void checkBoolean(Type type, String what) {
+        if (type.getTypeOfElement() != ElementType.BOOLEAN) {
+            throw new RuntimeException("Found " + what + " in 'if' condition that is not a " + ElementType.BOOLEAN
+                    + ", is " + type.getTypeOfElement() + " instead");
+        }
+    }
+
+    private static void checkIdentifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new RuntimeException("Invalid OLLIR identifier '" + name + "'");
+        }
+    }
+}
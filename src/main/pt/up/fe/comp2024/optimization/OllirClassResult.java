@@ -0,0 +1,69 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An OLLIR result for a ClassUnit that was built directly, without going through OLLIR code.
+ * <p>
+ * The OLLIR code is only rendered when {@link #getOllirCode()} is called.
+ */
+public class OllirClassResult extends OllirResult {
+
+    // OllirResult can only be created from OLLIR code, it is given the smallest class there is
+    private static final String PLACEHOLDER = "Placeholder {}";
+
+    private final ClassUnit ollirClass;
+    private final SymbolTable symbolTable;
+    private final List<Report> reports;
+    private final Map<String, String> config;
+    private String ollirCode;
+
+    public OllirClassResult(JmmSemanticsResult semanticsResult, ClassUnit ollirClass, List<Report> reports) {
+        super(PLACEHOLDER, Collections.emptyMap());
+
+        this.ollirClass = ollirClass;
+        this.symbolTable = semanticsResult.getSymbolTable();
+        this.reports = new ArrayList<>(semanticsResult.getReports());
+        this.reports.addAll(reports);
+        this.config = semanticsResult.getConfig();
+        this.ollirCode = null;
+    }
+
+    @Override
+    public String getOllirCode() {
+        if (ollirCode == null) {
+            ollirCode = OllirPrinter.print(ollirClass);
+        }
+
+        return ollirCode;
+    }
+
+    @Override
+    public ClassUnit getOllirClass() {
+        return ollirClass;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    @Override
+    public Map<String, String> getConfig() {
+        return config;
+    }
+}
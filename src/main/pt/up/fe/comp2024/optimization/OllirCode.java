@@ -0,0 +1,75 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of OLLIR instructions and labels, generated for part of a method.
+ * <p>
+ * Labels mark the instruction that follows them, as in OLLIR code.
+ */
+public class OllirCode {
+
+    public static final OllirCode EMPTY = new OllirCode(List.of());
+
+    private record Entry(String label, Instruction instruction) {
+    }
+
+    private final List<Entry> entries;
+
+    private OllirCode(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public OllirCode() {
+        this(new ArrayList<>());
+    }
+
+    public OllirCode append(Instruction instruction) {
+        entries.add(new Entry(null, instruction));
+        return this;
+    }
+
+    public OllirCode append(OllirCode code) {
+        entries.addAll(code.entries);
+        return this;
+    }
+
+    public OllirCode label(String label) {
+        entries.add(new Entry(label, null));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Adds the instructions to the method, associating each label to the instruction after it.
+     */
+    public void addTo(Method method) {
+        List<String> labels = new ArrayList<>();
+
+        for (var entry : entries) {
+            if (entry.label() != null) {
+                labels.add(entry.label());
+                continue;
+            }
+
+            for (var label : labels) {
+                method.addLabel(label, entry.instruction());
+            }
+            labels.clear();
+
+            method.addInstr(entry.instruction());
+        }
+
+        if (!labels.isEmpty()) {
+            throw new RuntimeException("Labels " + labels + " of method '" + method.getMethodName()
+                    + "' are not followed by an instruction");
+        }
+    }
+}
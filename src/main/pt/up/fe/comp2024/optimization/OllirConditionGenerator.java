@@ -0,0 +1,258 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Operand;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import static pt.up.fe.comp2024.ast.Kind.METHOD_DECL;
+import static pt.up.fe.comp2024.optimization.OllirBuilder.*;
+
+/**
+ * Lowers boolean expressions into OLLIR branches, so that conditions are never computed as a boolean value.
+ * <p>
+ * '&&' and '||' are short-circuited, the right operand is only evaluated when the left one does not decide the result.
+ */
+public class OllirConditionGenerator {
+
+    /**
+     * Generates a call, assigning its result to the given temporary.
+     */
+    public interface CallGenerator {
+        OllirCode generate(JmmNode call, String temp, String ollirType);
+    }
+
+    private final JmmSymbolTable symbols;
+    private final TempGenerator temps;
+    private final LabelGenerator labels;
+    private final CallGenerator calls;
+
+    public OllirConditionGenerator(JmmSymbolTable symbols, TempGenerator temps, LabelGenerator labels,
+                                   CallGenerator calls) {
+        this.symbols = symbols;
+        this.temps = temps;
+        this.labels = labels;
+        this.calls = calls;
+    }
+
+    /**
+     * Jumps to the label when the condition evaluates to the given value, and falls through otherwise.
+     */
+    public OllirCode jumpIf(JmmNode condition, boolean value, String label) {
+        var code = new OllirCode();
+
+        switch (condition.getKind()) {
+            case "Parentesis" -> code.append(jumpIf(condition.getChild(0), value, label));
+            case "Negate" -> code.append(jumpIf(condition.getChild(0), !value, label));
+            case "BinaryOp" -> {
+                var op = condition.get("op");
+                var left = condition.getChild(0);
+                var right = condition.getChild(1);
+
+                // With '&&', a false left operand decides the result, with '||' a true one does
+                if (op.equals("&&") || op.equals("||")) {
+                    boolean decisive = !op.equals("&&");
+
+                    if (value == decisive) {
+                        code.append(jumpIf(left, value, label));
+                        code.append(jumpIf(right, value, label));
+                    } else {
+                        var skip = labels.newLabel(op.equals("&&") ? "and_end" : "or_end");
+                        code.append(jumpIf(left, decisive, skip));
+                        code.append(jumpIf(right, value, label));
+                        code.label(skip);
+                    }
+                } else {
+                    var leftValue = value(left, ".i32");
+                    var rightValue = value(right, ".i32");
+                    code.append(leftValue.getComputation());
+                    code.append(rightValue.getComputation());
+
+                    var comparison = value ? op : negate(op);
+                    code.append(branch(binary(leftValue.getCode(), operation(comparison, ".bool"),
+                            rightValue.getCode()), label));
+                }
+            }
+            default -> {
+                var constant = getBooleanLiteral(condition);
+                if (constant != null) {
+                    if (constant == value) {
+                        code.append(jump(label));
+                    }
+                    return code;
+                }
+
+                var result = value(condition, ".bool");
+                code.append(result.getComputation());
+                if (value) {
+                    code.append(branch(single(result.getCode()), label));
+                } else {
+                    code.append(branch(unary(operation("!", ".bool"), result.getCode()), label));
+                }
+            }
+        }
+
+        return code;
+    }
+
+    /**
+     * Computes a boolean expression into a new temporary, which is the last one allocated.
+     */
+    public OllirExprResult materialize(JmmNode condition) {
+        var code = new OllirCode();
+        var isTrue = labels.newLabel("true");
+        var end = labels.newLabel("end");
+
+        code.append(jumpIf(condition, true, isTrue));
+        var temp = temps.getTemp();
+        code.append(assign(temp, ".bool", single(element("0", ".bool"))));
+        code.append(jump(end));
+        code.label(isTrue);
+        code.append(assign(temp, ".bool", single(element("1", ".bool"))));
+        code.label(end);
+
+        return new OllirExprResult(operand(temp, ".bool"), code);
+    }
+
+    /**
+     * The value of an operand of a condition.
+     *
+     * @param ollirType the type of the value when it cannot be found otherwise, e.g. for calls to imported methods
+     */
+    private OllirExprResult value(JmmNode node, String ollirType) {
+        var booleanLiteral = getBooleanLiteral(node);
+        if (booleanLiteral != null) {
+            return new OllirExprResult(element(booleanLiteral ? "1" : "0", ".bool"));
+        }
+
+        switch (node.getKind()) {
+            case "Parentesis" -> {
+                return value(node.getChild(0), ollirType);
+            }
+            case "IntegerLiteral" -> {
+                return new OllirExprResult(element(node.get("value"), ".i32"));
+            }
+            case "VarRefExpr" -> {
+                var name = node.get("name");
+                return new OllirExprResult(operand(name, getVariableType(node, name)));
+            }
+            case "BinaryExpr" -> {
+                var left = value(node.getChild(0), ".i32");
+                var right = value(node.getChild(1), ".i32");
+
+                var code = new OllirCode().append(left.getComputation()).append(right.getComputation());
+                var temp = temps.getTemp();
+                code.append(assign(temp, ".i32",
+                        binary(left.getCode(), operation(node.get("op"), ".i32"), right.getCode())));
+                return new OllirExprResult(operand(temp, ".i32"), code);
+            }
+            case "ArrayAccess" -> {
+                var arrayName = node.getChild(0).get("name");
+                var index = value(node.getChild(1), ".i32");
+
+                var code = new OllirCode().append(index.getComputation());
+                var indexOperand = toOperand(index.getCode(), ".i32", code);
+                var temp = temps.getTemp();
+                code.append(assign(temp, ".i32", single(arrayOperand(arrayName, indexOperand, ".i32"))));
+                return new OllirExprResult(operand(temp, ".i32"), code);
+            }
+            case "Length" -> {
+                var array = value(node.getChild(0), ".array.i32");
+
+                var code = new OllirCode().append(array.getComputation());
+                var temp = temps.getTemp();
+                code.append(assign(temp, ".i32", arrayLength(array.getCode(), ".i32")));
+                return new OllirExprResult(operand(temp, ".i32"), code);
+            }
+            case "FunctionCall" -> {
+                var type = getReturnType(node, ollirType);
+                var temp = temps.getTemp();
+                var code = calls.generate(node, temp, type);
+                return new OllirExprResult(operand(temp, type), code);
+            }
+            case "BinaryOp", "Negate" -> {
+                return materialize(node);
+            }
+            default -> throw new RuntimeException("Could not generate OLLIR for condition operand '" + node + "'");
+        }
+    }
+
+    /**
+     * Array indexes must be variables, other values are assigned to a temporary first.
+     */
+    private Element toOperand(Element element, String ollirType, OllirCode code) {
+        if (element instanceof Operand) {
+            return element;
+        }
+
+        var temp = temps.getTemp();
+        code.append(assign(temp, ollirType, single(element)));
+        return operand(temp, ollirType);
+    }
+
+    private String getVariableType(JmmNode node, String name) {
+        var methodName = node.getAncestor(METHOD_DECL).map(method -> method.get("methodName")).orElseThrow();
+
+        return symbols.resolve(methodName, name)
+                .map(symbol -> toOllirType(symbol.getType()))
+                .orElseThrow(() -> new RuntimeException("Variable '" + name + "' not found in method '"
+                        + methodName + "'"));
+    }
+
+    /**
+     * Methods of the class have a known return type, the type of methods of other classes is taken from the context.
+     */
+    private String getReturnType(JmmNode call, String ollirType) {
+        var methodName = call.get("methodName");
+        var caller = call.getChild(0);
+
+        boolean isLocalMethod = caller.hasAttribute("name") && caller.get("name").equals("this")
+                || !symbols.hasImport(caller.hasAttribute("name") ? caller.get("name") : "");
+        if (isLocalMethod && symbols.hasMethod(methodName)) {
+            return toOllirType(symbols.getReturnType(methodName));
+        }
+
+        return ollirType;
+    }
+
+    private static String toOllirType(Type type) {
+        var ollirType = OptUtils.toOllirType(type);
+        return type.isArray() && !ollirType.startsWith(".array") ? ".array" + ollirType : ollirType;
+    }
+
+    /**
+     * @return the value of 'true' or 'false', or null if the node is not one of them
+     */
+    private static Boolean getBooleanLiteral(JmmNode node) {
+        var attribute = switch (node.getKind()) {
+            case "VarRefExpr" -> "name";
+            case "Bolean" -> "value";
+            default -> null;
+        };
+        if (attribute == null) {
+            return null;
+        }
+
+        return switch (node.get(attribute)) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the comparison that holds when the given one does not
+     */
+    private static String negate(String op) {
+        return switch (op) {
+            case "<" -> ">=";
+            case ">=" -> "<";
+            case ">" -> "<=";
+            case "<=" -> ">";
+            case "==" -> "!=";
+            case "!=" -> "==";
+            default -> throw new RuntimeException("Operator '" + op + "' is not a comparison");
+        };
+    }
+}
@@ -1,27 +1,26 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.Element;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 /**
- * Generates OLLIR code from JmmNodes that are expressions.
+ * Generates OLLIR instructions from JmmNodes that are expressions.
  */
 public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult> {
 
-    private static final String SPACE = " ";
-    private static final String ASSIGN = ":=";
-    private final String END_STMT = ";\n";
-
     private final SymbolTable table;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    private final TempGenerator temps;
+
+    public OllirExprGeneratorVisitor(SymbolTable table, TempGenerator temps) {
         this.table = table;
+        this.temps = temps;
     }
 
     @Override
@@ -37,7 +36,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
     private OllirExprResult visitInteger(JmmNode node, Void unused) {
         var intType = new Type(TypeUtils.getIntTypeName(), false);
         String ollirIntType = OptUtils.toOllirType(intType);
-        String code = node.get("value") + ollirIntType;
+        Element code = OllirBuilder.element(node.get("value"), ollirIntType);
         return new OllirExprResult(code);
     }
 
@@ -47,7 +46,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         var lhs = visit(node.getJmmChild(0));
         var rhs = visit(node.getJmmChild(1));
 
-        StringBuilder computation = new StringBuilder();
+        OllirCode computation = new OllirCode();
 
         // code to compute the children
         computation.append(lhs.getComputation());
@@ -56,15 +55,13 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         // code to compute self
         Type resType = TypeUtils.getExprType(node, table);
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
-
-        computation.append(code).append(SPACE)
-                .append(ASSIGN).append(resOllirType).append(SPACE)
-                .append(lhs.getCode()).append(SPACE);
+        String temp = temps.getTemp();
+        Element code = OllirBuilder.operand(temp, resOllirType);
 
         Type type = TypeUtils.getExprType(node, table);
-        computation.append(node.get("op")).append(OptUtils.toOllirType(type)).append(SPACE)
-                .append(rhs.getCode()).append(END_STMT);
+        var operation = OllirBuilder.operation(node.get("op"), OptUtils.toOllirType(type));
+        computation.append(OllirBuilder.assign(temp, resOllirType,
+                OllirBuilder.binary(lhs.getCode(), operation, rhs.getCode())));
 
         return new OllirExprResult(code, computation);
     }
@@ -76,7 +73,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         Type type = TypeUtils.getExprType(node, table);
         String ollirType = OptUtils.toOllirType(type);
 
-        String code = id + ollirType;
+        Element code = OllirBuilder.element(id, ollirType);
 
         return new OllirExprResult(code);
     }
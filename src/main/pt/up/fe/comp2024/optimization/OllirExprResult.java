@@ -1,30 +1,31 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.Element;
+
 public class OllirExprResult {
 
-    public static final OllirExprResult EMPTY = new OllirExprResult("", "");
+    public static final OllirExprResult EMPTY = new OllirExprResult(null, OllirCode.EMPTY);
 
-    private final String computation;
-    private final String code;
+    private final OllirCode computation;
+    private final Element code;
 
-    public OllirExprResult(String code, String computation) {
+    public OllirExprResult(Element code, OllirCode computation) {
         this.code = code;
         this.computation = computation;
     }
 
-    public OllirExprResult(String code) {
-        this(code, "");
-    }
-
-    public OllirExprResult(String code, StringBuilder computation) {
-        this(code, computation.toString());
+    public OllirExprResult(Element code) {
+        this(code, OllirCode.EMPTY);
     }
 
-    public String getComputation() {
+    public OllirCode getComputation() {
         return computation;
     }
 
-    public String getCode() {
+    /**
+     * @return the element with the value of the expression, or null if there is none
+     */
+    public Element getCode() {
         return code;
     }
 
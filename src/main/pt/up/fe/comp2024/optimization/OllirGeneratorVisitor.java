@@ -1,45 +1,61 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.NodeUtils;
-import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
+import static pt.up.fe.comp2024.optimization.OllirBuilder.*;
 
 /**
- * Generates OLLIR code from JmmNodes that are not expressions.
+ * Generates OLLIR from JmmNodes that are not expressions.
+ * <p>
+ * The class, its fields and methods are added to the ClassUnit returned by {@link #getClassUnit()}, statements
+ * return the instructions generated for them.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class OllirGeneratorVisitor extends AJmmVisitor<Void, OllirCode> {
 
-    private static final String SPACE = " ";
-    private static final String ASSIGN = " :=";
-    private final String END_STMT = ";\n";
-    private final String NL = "\n";
-    private final String L_BRACKET = " {\n";
-    private final String R_BRACKET = "}\n";
+    private final SymbolTable table;
 
+    private final JmmSymbolTable symbols;
 
-    private final SymbolTable table;
+    private final TempGenerator temps;
+
+    private final LabelGenerator labels;
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    private final OllirConditionGenerator conditions;
+
+    private final ClassUnit classUnit;
+
     public OllirGeneratorVisitor(SymbolTable table) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.symbols = JmmSymbolTable.of(table);
+        this.temps = new TempGenerator();
+        this.labels = new LabelGenerator();
+        exprVisitor = new OllirExprGeneratorVisitor(table, temps);
+        this.conditions = new OllirConditionGenerator(symbols, temps, labels, this::visitFunctionCall);
+        this.classUnit = new ClassUnit();
+    }
+
+    /**
+     * @return the class generated by visiting the program
+     */
+    public ClassUnit getClassUnit() {
+        return classUnit;
     }
 
     private boolean checkIfImport(String name) {
-        for (var importID : table.getImports()) {
-            if (importID.equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        return symbols.hasImport(name);
     }
 
 
@@ -49,7 +65,6 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         addVisit(PROGRAM, this::visitProgram);
         addVisit(CLASS_DECL, this::visitClass);
         addVisit(METHOD_DECL, this::visitMethodDecl);
-        addVisit(PARAM, this::visitParam);
         addVisit(RETURN_STMT, this::visitReturn);
         addVisit(IMPORT_STATMENT, this::visitImport);
         addVisit(VAR_DECL, this::visitVarDecl);
@@ -64,63 +79,63 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         setDefaultVisit(this::defaultVisit);
     }
 
-    private String visitAssignStmt(JmmNode node, Void unused) {
+    private OllirCode visitAssignStmt(JmmNode node, Void unused) {
 
-        StringBuilder code = new StringBuilder();
+        OllirCode code = new OllirCode();
+        var dest = node.getChild(0).get("name");
 
 
         if (node.getChild(1).getKind().equals("BinaryExpr")){
             var str = visit(node.getChild(1));
             var type = OptUtils.toOllirType(node.getChild(0));
-            if (str == ""){
+            if (str.isEmpty()){
                 var child = node.getChild(1);
+                var operation = operation(child.get("op"), type);
                 if (child.getChild(0).getKind().equals("ArrayAccess")){
-                    code.append(OptUtils.getTemp() + ".i32" + ASSIGN + ".i32 " + child.getChild(0).getChild(0).get("name") + "[" + child.getChild(0).getChild(1).get("value") + ".i32].i32" + END_STMT);
+                    var left = arrayAccessToTemp(child.getChild(0), code);
+                    Element right;
                     if (child.getChild(1).getKind().equals("ArrayAccess")){
-                        code.append(OptUtils.getTemp() + ".i32" + ASSIGN + ".i32 " + child.getChild(1).getChild(0).get("name") + "[" + child.getChild(1).getChild(1).get("value") + ".i32].i32" + END_STMT);
-                        code.append(node.getChild(0).get("name") + ".i32" + ASSIGN + ".i32 " + OptUtils.getPrevTemp() + ".i32" + OptUtils.getCurrTemp() + ".i32");
+                        right = arrayAccessToTemp(child.getChild(1), code);
+                    }
+                    else {
+                        right = element(getNameOrValue(child.getChild(1)), type);
                     }
 
-                    return code.toString();
+                    return code.append(assign(dest, ".i32", binary(left, operation, right)));
                 }
-                code.append(node.getChild(0).get("name") + type);
-                code.append(ASSIGN + type + SPACE);
-
-
 
+                Element left;
                 if (child.getChild(0).hasAttribute("name")){
-                    code.append(child.getChild(0).get("name") + type + SPACE);
+                    left = element(child.getChild(0).get("name"), type);
                 }
                 else{
-                    code.append(child.getChild(0).get("value") + type + SPACE);
+                    left = element(child.getChild(0).get("value"), type);
                 }
-                code.append(child.get("op") + type + SPACE);
 
+                Element right;
                 if (child.getChild(1).getKind().equals("ArrayAccess")){
-                    code.append(OptUtils.getTemp() + ".i32" + ASSIGN + ".i32 " + child.getChild(1).getChild(0).get("name") + "[" + child.getChild(1).getChild(1).get("value") + ".i32].i32" + END_STMT);
+                    right = arrayAccessToTemp(child.getChild(1), code);
                 }
 
                 else if (child.getChild(1).hasAttribute("name")){
-                    code.append(child.getChild(1).get("name") + type);
+                    right = element(child.getChild(1).get("name"), type);
                 }
                 else{
-                    code.append(child.getChild(1).get("value") + type);
+                    right = element(child.getChild(1).get("value"), type);
                 }
-                return code.toString();
+                return code.append(assign(dest, type, binary(left, operation, right)));
             }
             code.append(str);
-            code.append(node.getChild(0).get("name") + type);
-            code.append(ASSIGN + type + SPACE);
-            code.append(OptUtils.getCurrTemp() + type);
-            return code.toString();
+            code.append(assign(dest, type, single(operand(temps.getCurrTemp(), type))));
+            return code;
         }
 
         else if (node.getChild(1).getKind().equals("FunctionCall")){
             var type = OptUtils.toOllirType(node);
             var funcCallCode = visit(node.getChild(1));
             code.append(funcCallCode);
-            code.append(node.getChild(0).get("name") + type + ASSIGN + type + SPACE + OptUtils.getCurrTemp() + type);
-            return code.toString();
+            code.append(assign(dest, type, single(operand(temps.getCurrTemp(), type))));
+            return code;
 
         }
 
@@ -128,234 +143,235 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             var type = OptUtils.toOllirType(node);
             var newClassCode = visit(node.getChild(1));
             code.append(newClassCode);
-            code.append(node.getChild(0).get("name") + type);
-            code.append(ASSIGN + type + SPACE);
-            code.append(OptUtils.getCurrTemp() + type);
-            return code.toString();
+            code.append(assign(dest, type, single(operand(temps.getCurrTemp(), type))));
+            return code;
 
         }
 
         else if (node.getChild(1).getKind().equals("BinaryOp")){
-            var currTemp = OptUtils.getNextTemp();
             var type = OptUtils.toOllirType(node);
             var binaryOpCode = visit(node.getChild(1));
             code.append(binaryOpCode);
-            code.append(node.getChild(0).get("name") + type);
-            code.append(ASSIGN + type + SPACE);
-            code.append(currTemp + type);
-            return code.toString();
+            code.append(assign(dest, type, single(operand(temps.getCurrTemp(), type))));
+            return code;
         }
 
         else if (node.getChild(1).getKind().equals("Negate")){
             var child = node.getChild(1);
             var type = OptUtils.toOllirType(child.getChild(0));
-            code.append(OptUtils.getTemp() + type + ASSIGN + type + SPACE);
-            code.append(child.get("value") + type + SPACE);
+            var temp = temps.getTemp();
 
+            String value = null;
             if (child.getChild(0).hasAttribute("name")){
                 if (child.getChild(0).get("name").equals("true")){
-                    code.append("1");
+                    value = "1";
                 }
                 else if (child.getChild(0).get("name").equals("false")){
-                    code.append("0");
+                    value = "0";
+                }
+                else {
+                    value = child.getChild(0).get("name");
                 }
             }
 
-            code.append(type + END_STMT);
-            code.append(node.getChild(0).get("name") + type);
-            code.append(ASSIGN + type + SPACE);
-            code.append(OptUtils.getCurrTemp() + type);
-            return code.toString();
+            code.append(assign(temp, type, unary(operation(child.get("value"), type), element(value, type))));
+            code.append(assign(dest, type, single(operand(temps.getCurrTemp(), type))));
+            return code;
         }
 
         else if (node.getChild(1).getKind().equals("NewArray")){
             var type = OptUtils.toOllirType(node.getChild(0));
-            code.append(OptUtils.getTemp() + type + ASSIGN + type + SPACE);
-            code.append(node.getChild(1).getChild(0).get("value") + type + END_STMT);
+            var temp = temps.getTemp();
+            code.append(assign(temp, type, single(element(node.getChild(1).getChild(0).get("value"), type))));
 
-            code.append(node.getChild(0).get("name") + ".array" + type + ASSIGN + ".array" + type + SPACE);
-            code.append("new(array, " + OptUtils.getCurrTemp() + type + ").array" + type);
-            return code.toString();
+            var arrayType = ".array" + type;
+            var newArray = newInstance(new Operand("array", new ArrayType()),
+                    List.of(operand(temps.getCurrTemp(), type)), arrayType);
+            code.append(assign(dest, arrayType, newArray));
+            return code;
         }
 
         else if (node.getChild(0).getKind().equals("ArrayAccess")){
             var type = ".i32";
             var child = node.getChild(0);
-            code.append(OptUtils.getTemp() + type + ASSIGN + type + SPACE + child.getChild(1).get("value") + type + END_STMT);
-            code.append(child.getChild(0).get("name") + "[" + OptUtils.getCurrTemp() + type + "]" + type);
-            code.append(ASSIGN + type + SPACE + node.getChild(1).get("value") + type);
-            return code.toString();
+            var temp = temps.getTemp();
+            code.append(assign(temp, type, single(element(getNameOrValue(child.getChild(1)), type))));
+
+            var array = arrayOperand(child.getChild(0).get("name"), operand(temps.getCurrTemp(), type), type);
+            code.append(assign(array, type, single(element(getNameOrValue(node.getChild(1)), type))));
+            return code;
         }
 
         else if (node.getChild(1).getKind().equals("ArrayAccess")){
             var type = ".i32";
-            code.append(node.getChild(0).get("name") + type + ASSIGN + type + SPACE);
-            code.append(node.getChild(1).getChild(0).get("name") + "[" + node.getChild(1).getChild(1).get("value") + type+ "]" + type);
-            return code.toString();
+            var array = node.getChild(1);
+            var index = element(getNameOrValue(array.getChild(1)), type);
+            code.append(assign(dest, type, single(arrayOperand(array.getChild(0).get("name"), index, type))));
+            return code;
+        }
+
+        else if (node.getChild(1).getKind().equals("Length")){
+            var array = operand(node.getChild(1).getChild(0).get("name"), ".array.i32");
+            code.append(assign(dest, ".i32", arrayLength(array, ".i32")));
+            return code;
         }
 
 
         var retType = OptUtils.toOllirType(node.getJmmChild(0));
 
         if (node.getChild(1).hasAttribute("name")){
-            code.append(node.getChild(0).get("name"));
-            code.append(retType + ASSIGN + retType + SPACE);
-            code.append(node.getChild(1).get("name"));
+            code.append(assign(dest, retType, single(element(node.getChild(1).get("name"), retType))));
         }
         else if (node.getChild(1).hasAttribute("value")){
-            code.append(node.getChild(0).get("name"));
-            code.append(retType + ASSIGN + retType + SPACE);
-            code.append(node.getChild(1).get("value"));
+            code.append(assign(dest, retType, single(element(node.getChild(1).get("value"), retType))));
+        }
+        else {
+            throw new RuntimeException("Could not generate OLLIR for assignment of '" + node.getChild(1) + "'");
         }
 
-        code.append(retType);
-        return code.toString();
+        return code;
+    }
+
+    /**
+     * Loads 'array[index]' into a new temporary, returning the temporary.
+     */
+    private Element arrayAccessToTemp(JmmNode arrayAccess, OllirCode code) {
+        var type = ".i32";
+        var temp = temps.getTemp();
+        var index = element(getNameOrValue(arrayAccess.getChild(1)), type);
+        code.append(assign(temp, type, single(arrayOperand(arrayAccess.getChild(0).get("name"), index, type))));
+        return operand(temp, type);
+    }
+
+    private static String getNameOrValue(JmmNode node) {
+        return node.hasAttribute("name") ? node.get("name") : node.get("value");
     }
 
 
-    private String visitReturn(JmmNode node, Void unused) {
+    /**
+     * The type annotated on arguments does not say if they are arrays, which is taken from the symbol table.
+     */
+    private String getArgumentType(JmmNode arg) {
+        var type = OptUtils.toOllirType(arg);
+        var methodName = arg.getAncestor(METHOD_DECL).map(method -> method.get("methodName")).orElseThrow();
+        boolean isArray = symbols.resolve(methodName, arg.get("name"))
+                .map(symbol -> symbol.getType().isArray())
+                .orElse(false);
+
+        return isArray && !type.startsWith(".array") ? ".array" + type : type;
+    }
+
+    private OllirCode visitReturn(JmmNode node, Void unused) {
         String methodName = node.getAncestor(METHOD_DECL).map(method -> method.get("methodName")).orElseThrow();
         Type retType = table.getReturnType(methodName);
 
-        StringBuilder code = new StringBuilder();
+        OllirCode code = new OllirCode();
 
         var expr = OllirExprResult.EMPTY;
 
         if (node.getNumChildren() > 0) {
-            expr = exprVisitor.visit(node.getJmmChild(0));
+            var kind = node.getJmmChild(0).getKind();
+            expr = kind.equals("BinaryOp") || kind.equals("Negate")
+                    ? conditions.materialize(node.getJmmChild(0))
+                    : exprVisitor.visit(node.getJmmChild(0));
         }
 
         code.append(expr.getComputation());
-        code.append("ret");
+
+        var type = OptUtils.toOllirType(retType);
         if(retType.isArray()){
-            code.append(".array");
+            type = ".array" + type;
         }
-        code.append(OptUtils.toOllirType(retType));
-        code.append(SPACE);
 
+        Element operand;
         if(retType.isArray()){
-            code.append(node.getChild(0).get("name"));
-            code.append(".array");
-            code.append(OptUtils.toOllirType(retType));
+            operand = operand(node.getChild(0).get("name"), type);
         }
 
         else {
-            code.append(expr.getCode());
+            operand = expr.getCode();
         }
         if (node.getChild(0).getKind().equals("Bolean")){
             if (node.getChild(0).get("value").equals("true")){
-                code.append("1" + OptUtils.toOllirType(retType));
+                operand = element("1", type);
             }
             else{
-                code.append("0" + OptUtils.toOllirType(retType));
+                operand = element("0", type);
             }
         }
 
-        code.append(END_STMT);
+        if (operand == null && !type.equals(".V")) {
+            throw new RuntimeException("Could not generate OLLIR for return of '" + node.getChild(0) + "'");
+        }
+
+        code.append(ret(type, operand));
 
-        return code.toString();
+        return code;
     }
 
 
-    private String visitParam(JmmNode node, Void unused) {
+    private Operand visitParam(JmmNode node) {
 
         var typeCode = OptUtils.toOllirType(node.getJmmChild(0));
         var id = node.get("name");
 
-        String code = id + typeCode;
-
-        return code;
+        return operand(id, typeCode);
     }
 
 
-    private String visitMethodDecl(JmmNode node, Void unused) {
+    private OllirCode visitMethodDecl(JmmNode node, Void unused) {
 
-        StringBuilder code = new StringBuilder(".method ");
+        var method = new Method(classUnit);
+        labels.reset();
 
         boolean isPublic = NodeUtils.getBooleanAttribute(node, "isPublic", "false");
         boolean isStatic = NodeUtils.getBooleanAttribute(node, "isStatic", "false");
 
         var name = node.get("methodName");
         if (isPublic || Objects.equals(name, "main")) {
-            code.append("public ");
+            method.setMethodAccessModifier(AccessModifier.PUBLIC);
         }
 
         if (isStatic || Objects.equals(name, "main")) {
-            code.append("static ");
+            method.setStaticMethod();
         }
 
         // name
-        code.append(name);
+        method.setMethodName(name);
+        classUnit.addMethod(method);
 
+        // Parameters are numbered from 1 in instance methods, 0 is 'this'
+        int paramId = method.isStaticMethod() ? 0 : 1;
 
-        if (Objects.equals(name, "main")){
-            code.append("(args.array.String).V " + L_BRACKET);
+        OllirCode code = new OllirCode();
 
-            for (var child: node.getChildren()){
-                if (child.getKind().equals("AssignStmt")) {
-                    var result = visit(child);
-                    code.append(result + END_STMT);
-                }
-                else if(child.getKind().equals("Expression")){
-                    var funcCall = visit(child.getChild(0));
+        if (Objects.equals(name, "main")){
+            var args = operand("args", ".array.String");
+            args.setParamId(paramId);
+            method.addParam(args);
+            method.setReturnType(type(".V"));
 
-                    code.append(funcCall);
-                }
-                else if(child.getKind().equals("IfCondition")){
-                    var ifConditionResult = visit(child);
-                    code.append(ifConditionResult);
-                }
-                else if(child.getKind().equals("WhileLoop")){
-                    var whileLoopResult = visit(child);
-                    code.append(whileLoopResult);
-                }
-            }
-            code.append("ret.V ;" + NL + R_BRACKET + NL);
-            return code.toString();
+            code.append(visitBody(node.getChildren()));
+            code.append(ret(".V", null));
+            code.addTo(method);
+            return OllirCode.EMPTY;
         }
 
         // param
-        var paramCode = "";
         var methodChildren = node.getChildren();
-        if (!methodChildren.isEmpty()) {
-            code.append("(");
-            boolean firstParam = true;
-            for (JmmNode child : methodChildren) {
-                if (child.getKind().equals("Param")) {
-                    if (!firstParam) {
-                        code.append(", ");
-                    }
-                    paramCode = visit(child);
-                    code.append(paramCode);
-                    firstParam = false;
-                }
+        for (JmmNode child : methodChildren) {
+            if (child.getKind().equals("Param")) {
+                var param = visitParam(child);
+                param.setParamId(paramId++);
+                method.addParam(param);
             }
-            code.append(")");
         }
 
         // type
         var retType = OptUtils.toOllirType(node.getJmmChild(0));
-        code.append(retType);
-        code.append(L_BRACKET);
+        method.setReturnType(type(retType));
 
-        for (var child: node.getChildren()){
-            if (child.getKind().equals("AssignStmt")) {
-                var result = visit(child);
-                code.append(result + END_STMT);
-            }
-            else if(child.getKind().equals("Expression")){
-                var funcCall = visit(child.getChild(0));
-                code.append(funcCall);
-            }
-            else if(child.getKind().equals("IfCondition")){
-                var ifConditionResult = visit(child);
-                code.append(ifConditionResult);
-            }
-            else if(child.getKind().equals("WhileLoop")){
-                var whileLoopResult = visit(child);
-                code.append(whileLoopResult);
-            }
-        }
+        code.append(visitBody(node.getChildren()));
 
         // rest of its children stmts
         int afterParam = methodChildren.size() - 1;
@@ -366,137 +382,130 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         }
         else if (Objects.equals(returner.getChild(0).getKind(), "FunctionCall")){
             var type = OptUtils.toOllirType(node);
-            code.append(OptUtils.getTemp() + type);
-            code.append(ASSIGN + type + SPACE);
-            var retCode = visit(returner.getChild(0));
-            var len = type.length();
-            String typeComp = retCode.substring(retCode.length() - len);
-            if (!typeComp.equals(type + END_STMT)) {
-                String newCode = retCode.substring(0, retCode.length() - 4);
-                code.append(newCode + type + END_STMT);
-            }
-            else code.append(retCode);
+            var temp = temps.getTemp();
+            // The call returns the type of the method, whatever the type of the return statement is
+            var retCode = visitFunctionCall(returner.getChild(0), temp, type);
+            code.append(retCode);
         }
-        //code.append("ret" + retType + SPACE);
         var str = visit(returner);
         code.append(str);
 
+        code.addTo(method);
+        return OllirCode.EMPTY;
+    }
+
+    private OllirCode visitBody(List<JmmNode> statements) {
+        OllirCode code = new OllirCode();
 
-        code.append(R_BRACKET);
-        code.append(NL);
+        for (var child: statements){
+            code.append(visitStatement(child));
+        }
 
-        return code.toString();
+        return code;
     }
 
+    /**
+     * A statement of a method, the other children of the method (parameters, declarations, ...) generate no code.
+     */
+    private OllirCode visitStatement(JmmNode statement) {
+        return switch (statement.getKind()) {
+            case "Brackets" -> visitBody(statement.getChildren());
+            case "Expression" -> visit(statement.getChild(0));
+            case "AssignStmt", "IfCondition", "WhileLoop" -> visit(statement);
+            default -> OllirCode.EMPTY;
+        };
+    }
 
-    private String visitClass(JmmNode node, Void unused) {
 
-        StringBuilder code = new StringBuilder();
+    private OllirCode visitClass(JmmNode node, Void unused) {
 
-        code.append(table.getClassName());
+        classUnit.setClassName(table.getClassName());
         if (node.hasAttribute("extendedClass")){
-            code.append(" extends " + node.get("extendedClass"));
+            classUnit.setSuperClass(node.get("extendedClass"));
         }
 
-        code.append(L_BRACKET);
-
-        code.append(NL);
-        var needNl = true;
-
         for (var child : node.getChildren()) {
-            var result = visit(child);
-
-            if (METHOD_DECL.check(child) && needNl) {
-                code.append(NL);
-                needNl = false;
-            }
-
-            code.append(result);
+            visit(child);
         }
 
-        code.append(buildConstructor());
-        code.append(R_BRACKET);
+        classUnit.addMethod(buildConstructor());
 
-        return code.toString();
+        return OllirCode.EMPTY;
     }
 
-    private String buildConstructor() {
-
-        return ".construct " + table.getClassName() + "().V {\n" +
-                "invokespecial(this, \"<init>\").V;\n" +
-                "}\n";
-    }
+    private Method buildConstructor() {
 
+        var constructor = new Method(classUnit);
+        constructor.setConstructMethod();
+        constructor.setMethodName(table.getClassName());
+        constructor.setReturnType(type(".V"));
 
-    private String visitProgram(JmmNode node, Void unused) {
+        var superCall = call(CallType.invokespecial, caller("this", ".V", table.getClassName()), "<init>",
+                List.of(), ".V", true);
+        new OllirCode().append(superCall).addTo(constructor);
 
-        StringBuilder code = new StringBuilder();
+        return constructor;
+    }
 
-        node.getChildren().stream()
-                .map(this::visit)
-                .forEach(code::append);
 
-        return code.toString();
-    }
+    private OllirCode visitProgram(JmmNode node, Void unused) {
 
+        node.getChildren().forEach(this::visit);
 
-    private String visitImport(JmmNode node, Void unused) {
+        return OllirCode.EMPTY;
+    }
 
-        StringBuilder code = new StringBuilder();
 
-        code.append("import ");
-        var first = 0;
+    private OllirCode visitImport(JmmNode node, Void unused) {
 
         if (node.hasAttribute("importName")) {
-            for (var value : node.getObjectAsList("importName")) {
-                if (first == 0) {
-                    code.append(value);
-                    first++;
-                    continue;
-                }
-                code.append("." + value);
-            }
+            var names = node.getObjectAsList("importName").stream().map(Object::toString).toList();
+            classUnit.addImport(String.join(".", names));
         }
 
-
-        code.append(END_STMT);
-
-        return code.toString();
+        return OllirCode.EMPTY;
     }
 
 
-    private String visitVarDecl(JmmNode node, Void unused) {
+    private OllirCode visitVarDecl(JmmNode node, Void unused) {
 
-        StringBuilder code = new StringBuilder();
-        JmmNode pai = node.getJmmParent();
         JmmNode id = node.getJmmChild(0);
 
-        if (pai.getKind().equals("ClassStmt")) {
-            code.append(".field public ");
-        }
-        if (id.getKind().equals("Array")) {
-            code.append(node.get("name"));
-            code.append(".array");
+        var field = new Field();
+        field.setFieldAccessModifier(AccessModifier.PUBLIC);
+        field.setFieldName(node.get("name"));
 
-            code.append(";\n");
+        if (id.getKind().equals("Array")) {
+            field.setFieldType(type(".array" + OptUtils.toOllirType(id.getJmmChild(0))));
         }
         else { // working for boolean
-            code.append(".field public ");
-            code.append(node.get("name"));
-            var retType = OptUtils.toOllirType(node.getJmmChild(0));
-            code.append(retType);
-            code.append(";\n");
+            field.setFieldType(type(OptUtils.toOllirType(node.getJmmChild(0))));
         }
 
-        return code.toString();
+        classUnit.addField(field);
+
+        return OllirCode.EMPTY;
     }
 
 
-    private String visitBinaryExpr(JmmNode node, Void unused){
-        StringBuilder code = new StringBuilder();
+    /**
+     * The operand of a binary expression whose value is not computed by previous instructions.
+     */
+    private static Element leafOperand(JmmNode node, String type) {
+        var leaf = node.getKind().equals("Parentesis") ? node.getChild(0) : node;
+
+        if (leaf.hasAttribute("value")) {
+            return element(leaf.get("value"), type);
+        }
+
+        return element(leaf.get("name"), type);
+    }
+
+    private OllirCode visitBinaryExpr(JmmNode node, Void unused){
+        OllirCode code = new OllirCode();
         String retType = OptUtils.toOllirOpType(node);
-        String leftStr = "";
-        String rightStr = "";
+        OllirCode leftStr;
+        OllirCode rightStr;
 
         JmmNode left = node.getChild(0);
         JmmNode right = node.getChild(1);
@@ -507,293 +516,108 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         if (right.getKind().equals("Parentesis")) rightStr = visit(right.getChild(0));
         else rightStr = visit(right);
 
+        var operation = operation(node.get("op"), retType);
 
-        if (Objects.equals(leftStr, "") && Objects.equals(rightStr, "")) {
+        if (leftStr.isEmpty() && rightStr.isEmpty()) {
             if (node.getParent().getKind().equals("AssignStmt")){
-                return "";
-            }
-            code.append(OptUtils.getTemp() + retType);
-            code.append(ASSIGN + retType + SPACE);
-
-            if (node.getChild(0).hasAttribute("value")) {
-                code.append(node.getChild(0).get("value") + retType + SPACE);
-            }
-            else if (node.getChild(0).hasAttribute("name")){
-                code.append(node.getChild(0).get("name") + retType + SPACE);
-            }
-
-            code.append(node.get("op") + retType + SPACE);
-
-            if (node.getChild(1).hasAttribute("value")) {
-                code.append(node.getChild(1).get("value") + retType + END_STMT);
-            }
-            else if (node.getChild(1).hasAttribute("name")){
-                code.append(node.getChild(1).get("name") + retType + END_STMT);
+                return OllirCode.EMPTY;
             }
+            var temp = temps.getTemp();
+            code.append(assign(temp, retType,
+                    binary(leafOperand(left, retType), operation, leafOperand(right, retType))));
         }
 
-        else if (Objects.equals(leftStr, "")){
-            var currTemp = OptUtils.getCurrTemp();
-            code.append(leftStr + rightStr);
-            code.append(OptUtils.getTemp() + retType);
-            code.append(ASSIGN + retType + SPACE);
-
-
-            if (node.getChild(0).hasAttribute("value")) {
-                code.append(node.getChild(0).get("value") + retType + SPACE);
-            }
-            else if (node.getChild(0).hasAttribute("name")){
-                code.append(node.getChild(0).get("name") + retType + SPACE);
-            }
-
-            code.append(node.get("op") + retType + SPACE);
-            code.append(currTemp + retType + END_STMT);
-
+        else if (leftStr.isEmpty()){
+            var currTemp = temps.getCurrTemp();
+            code.append(leftStr).append(rightStr);
+            var temp = temps.getTemp();
+            code.append(assign(temp, retType,
+                    binary(leafOperand(left, retType), operation, operand(currTemp, retType))));
         }
 
-        else if (Objects.equals(rightStr, "")){
-            var currTemp = OptUtils.getCurrTemp();
-            code.append(leftStr + rightStr);
-            code.append(OptUtils.getTemp() + retType);
-            code.append(ASSIGN + retType + SPACE);
-            code.append(currTemp + retType + SPACE);
-            code.append(node.get("op") + retType + SPACE);
-
-            if (node.getChild(1).hasAttribute("value")) {
-                code.append(node.getChild(1).get("value") + retType + END_STMT);
-            }
-            else if (node.getChild(1).hasAttribute("name")){
-                code.append(node.getChild(1).get("name") + retType + END_STMT);
-            }
+        else if (rightStr.isEmpty()){
+            var currTemp = temps.getCurrTemp();
+            code.append(leftStr).append(rightStr);
+            var temp = temps.getTemp();
+            code.append(assign(temp, retType,
+                    binary(operand(currTemp, retType), operation, leafOperand(right, retType))));
         }
 
         else{
-            var currTemp = OptUtils.getCurrTemp();
-            var prevTemp = OptUtils.getPrevTemp();
-            code.append(leftStr + rightStr);
-            code.append(OptUtils.getTemp() + retType);
-            code.append(ASSIGN + retType + SPACE);
-            code.append(prevTemp + retType + SPACE);
-            code.append(node.get("op") + retType + SPACE);
-            code.append(currTemp + retType + END_STMT);
+            var currTemp = temps.getCurrTemp();
+            var prevTemp = temps.getPrevTemp();
+            code.append(leftStr).append(rightStr);
+            var temp = temps.getTemp();
+            code.append(assign(temp, retType,
+                    binary(operand(prevTemp, retType), operation, operand(currTemp, retType))));
         }
 
-        return code.toString();
+        return code;
     }
 
 
-    private String visitBinaryOp(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-        String retType = OptUtils.toOllirOpType(node);
-        String leftStr = "";
-        String rightStr = "";
-
-        JmmNode left = node.getChild(0);
-        JmmNode right = node.getChild(1);
-
-        if (node.get("op").equals("&&")) {
-
-            if (left.getKind().equals("Parentesis")) leftStr = visit(left.getChild(0));
-
-            if (right.getKind().equals("Parentesis")) rightStr = visit(right.getChild(0));
-
-            if (Objects.equals(leftStr, "") && Objects.equals(rightStr, "")) {
-
-                code.append("if(");
-
-                if (node.getChild(0).get("name").equals("true")) {
-                    code.append(1 + retType);
-                } else if (node.getChild(0).get("name").equals("false")) {
-                    code.append(0 + retType);
-                }
-
-                code.append(") goto ");
-                code.append("true_0" + END_STMT); //MUDAR
-
-                code.append(OptUtils.getTemp() + retType);
-                code.append(ASSIGN + retType + SPACE);
-
-                if (node.getChild(0).get("name").equals("true")) {
-                    code.append(0 + retType + END_STMT);
-                } else if (node.getChild(0).get("name").equals("false")) {
-                    code.append(1 + retType + END_STMT);
-                }
-
-                code.append("goto " + "end_0" + END_STMT); //MUDAR
-                code.append("true_0:" + NL); // MUDAR
-
-            }
-
-            var currTemp = OptUtils.getCurrTemp();
-
-            String temp = "";
-            if (!right.getKind().equals("Bolean")) {
-                temp = visit(right);
-            }
-
-            code.append(temp);
-            code.append(currTemp + retType);
-            code.append(ASSIGN + retType + SPACE);
-
-            if (temp.equals("")) {
-                if (node.getChild(0).get("value").equals("true")) {
-                    code.append(1 + retType);
-                } else if (node.getChild(0).get("value").equals("false")) {
-                    code.append(0 + retType);
-                }
-            } else {
-                code.append(OptUtils.getCurrTemp() + retType + END_STMT);
-            }
-            code.append("end_0:" + NL);
-        }
-
-        else{
-            code.append("if(");
-
-            if (left.hasAttribute("name")){
-                code.append(left.get("name") + ".i32 ");
-            }
-            else {
-                code.append(left.get("value") + OptUtils.toOllirType(left) + SPACE);
-            }
-            code.append(node.get("op") + retType + SPACE);
-
-            if (right.hasAttribute("name")){
-                code.append(right.get("name") + ".i32)" + SPACE);
-            }
-            else {
-                code.append(right.get("value") + OptUtils.toOllirType(right) + ")" + SPACE);
-            }
-            code.append("goto true_0" + END_STMT);
-
-
-            var temp = OptUtils.getTemp();
-            code.append(temp + retType);
-            code.append(ASSIGN + retType + SPACE);
-            code.append("0" + retType + END_STMT);
-
-            code.append("goto end_0" + END_STMT);
-            code.append("true_0:" + NL);
-
-            code.append(temp + retType);
-            code.append(ASSIGN + retType + SPACE);
-            code.append("1" + retType + END_STMT);
-
-            code.append("end_0:" + NL);
-
-        }
-
-        return code.toString();
+    /**
+     * A boolean value, computed with branches into a temporary that is the last one allocated.
+     */
+    private OllirCode visitBinaryOp(JmmNode node, Void unused) {
+        return conditions.materialize(node).getComputation();
     }
 
-    private String visitIfCondition(JmmNode node, Void unused){
-        StringBuilder code = new StringBuilder();
-        boolean isBinaryOp = false;
-
-        if(node.getChild(0).getKind().equals("BinaryOp")){
-            var binaryOpResult = visit(node.getChild(0));
-            code.append(binaryOpResult);
-            isBinaryOp = true;
-        }
-
-
-        code.append("if(");
+    /**
+     * Each condition jumps to the next one when it is false, the statement of the first true condition (or of the
+     * else) runs and jumps to the end.
+     */
+    private OllirCode visitIfCondition(JmmNode node, Void unused){
+        OllirCode code = new OllirCode();
+        var end = labels.newLabel("endif");
 
-        if (node.getChild(0).hasAttribute("name")){
-            code.append(node.getChild(0).get("name") + ".bool");
-        }
-        else if(isBinaryOp){
-            code.append(OptUtils.getCurrTemp() + ".bool");
+        // Pairs of condition and statement, for the if and each else if, then the else statement
+        var children = node.getChildren();
+        for (int i = 0; i + 1 < children.size(); i += 2) {
+            var next = labels.newLabel("else");
+            code.append(conditions.jumpIf(children.get(i), false, next));
+            code.append(visitStatement(children.get(i + 1)));
+            code.append(jump(end));
+            code.label(next);
         }
 
-        code.append(")" + SPACE + "goto if_0" + END_STMT);
-
-        var ifResult = visit(node.getChild(2).getChild(0).getChild(0));
-        code.append(ifResult);
-        code.append("goto endif_0" + END_STMT);
-        code.append("if_0:" + NL);
-        var elseResult = visit(node.getChild(1).getChild(0).getChild(0));
-        code.append(elseResult);
-        code.append("endif_0:" + NL);
+        code.append(visitStatement(children.get(children.size() - 1)));
+        code.label(end);
 
-        return code.toString();
+        return code;
     }
 
-    private String visitWhileLoop(JmmNode node, Void unused){
-        StringBuilder code = new StringBuilder();
-
-        code.append("if (");
-        String type = ".bool";
-
-        var child0 = node.getChild(0);
-        if (child0.getKind().equals("BinaryOp")) {
-            String eleType = ".i32";
-            if (child0.get("op").equals("&&")) eleType = ".bool";
-
-            if (child0.getChild(0).hasAttribute("value")) {
-                code.append(child0.getChild(0).get("value") + eleType + SPACE);
-            } else if (child0.getChild(0).hasAttribute("name")) {
-                code.append(child0.getChild(0).get("name") + eleType + SPACE);
-            }
-
-            code.append(child0.get("op") + type + SPACE);
-
-            if (child0.getChild(1).hasAttribute("value")) {
-                code.append(child0.getChild(1).get("value") + eleType);
-            } else if (child0.getChild(1).hasAttribute("name")) {
-                code.append(child0.getChild(1).get("name") + eleType);
-            }
-        }
-
-        code.append(") goto whilebody_0" + END_STMT);
-        code.append("goto endwhile_0" + END_STMT);
-        code.append("whilebody_0:" + NL);
-
-        for (var child : node.getChild(1).getChildren()){
-            String result;
-            if (child.getKind().equals("Expression")){
-                result = visit(child.getChild(0));
-                code.append(result);
-            }
-            else{
-                result = visit(child);
-                code.append(result);
-                code.append(END_STMT);
-            }
-
-        }
-
-        code.append("if (");
+    /**
+     * The condition is tested before the first iteration and then at the bottom of the loop, so that each iteration
+     * takes a single branch.
+     */
+    private OllirCode visitWhileLoop(JmmNode node, Void unused){
+        OllirCode code = new OllirCode();
+        var body = labels.newLabel("whilebody");
+        var end = labels.newLabel("endwhile");
 
-        if (child0.getKind().equals("BinaryOp")) {
-            String eleType = ".i32";
-            if (child0.get("op").equals("&&")) eleType = ".bool";
+        var condition = node.getChild(0);
 
-            if (child0.getChild(0).hasAttribute("value")) {
-                code.append(child0.getChild(0).get("value") + eleType + SPACE);
-            } else if (child0.getChild(0).hasAttribute("name")) {
-                code.append(child0.getChild(0).get("name") + eleType + SPACE);
-            }
+        code.append(conditions.jumpIf(condition, false, end));
+        code.label(body);
+        code.append(visitStatement(node.getChild(1)));
+        code.append(conditions.jumpIf(condition, true, body));
+        code.label(end);
 
-            code.append(child0.get("op") + type + SPACE);
+        return code;
+    }
 
-            if (child0.getChild(1).hasAttribute("value")) {
-                code.append(child0.getChild(1).get("value") + eleType);
-            } else if (child0.getChild(1).hasAttribute("name")) {
-                code.append(child0.getChild(1).get("name") + eleType);
-            }
-        }
 
-        code.append(") goto whilebody_0" + END_STMT);
-        code.append("endwhile_0:" + NL);
 
-        return code.toString();
+    private OllirCode visitExpression(JmmNode node, Void unused){
+        return visitFunctionCall(node, null, null);
     }
 
-
-
-    private String visitExpression(JmmNode node, Void unused){
-        StringBuilder code = new StringBuilder();
+    /**
+     * @param resultTemp if not null, the result of the call is assigned to this temporary, with the given type
+     */
+    private OllirCode visitFunctionCall(JmmNode node, String resultTemp, String resultType){
+        OllirCode code = new OllirCode();
 
         boolean virtual = false;
         boolean hasTemp = false;
@@ -801,27 +625,33 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         for (var child : node.getChildren()){
             if (child.getKind().equals("Length")){
                 hasTemp = true;
-                code.append(OptUtils.getTemp() + ".i32" + ASSIGN + ".i32 arraylength(" + child.getChild(0).get("name") + "array.i32).i32.i32" + END_STMT);
+                var temp = temps.getTemp();
+                var array = operand(child.getChild(0).get("name") + "array", ".i32");
+                code.append(assign(temp, ".i32", arrayLength(array, ".i32")));
             }
         }
-        if (node.getParent().getKind().equals("AssignStmt")){
-            var type = OptUtils.toOllirType(node.getParent());
-            code.append(OptUtils.getTemp() + type);
-            code.append(ASSIGN + type + SPACE);
+
+        String assignTemp = resultTemp;
+        String assignType = resultType;
+        var parentKind = node.getParent().getKind();
+        if (resultTemp == null && parentKind.equals("AssignStmt")){
+            assignType = OptUtils.toOllirType(node.getParent());
+            assignTemp = temps.getTemp();
         }
-        else if (node.getParent().getKind().equals("BinaryExpr") || node.getParent().getKind().equals("BinaryOp")){
-            var type = OptUtils.toOllirOpType(node.getParent());
-            code.append(OptUtils.getTemp() + type);
-            code.append(ASSIGN + type + SPACE);
+        else if (resultTemp == null && (parentKind.equals("BinaryExpr") || parentKind.equals("BinaryOp"))){
+            assignType = OptUtils.toOllirOpType(node.getParent());
+            assignTemp = temps.getTemp();
         }
 
         if (node.getChild(1).getKind().equals("ArrayAccess")){
-            var currTemp = OptUtils.getTemp();
+            var currTemp = temps.getTemp();
             hasTemp = true;
             var type = ".i32";
             var child = node.getChild(1);
-            code.append(OptUtils.getTemp() + type + ASSIGN + type + SPACE + child.getChild(1).get("value") + type + END_STMT);
-            code.append(currTemp + type + ASSIGN + type + SPACE + child.getChild(0).get("name") + "[" + OptUtils.getCurrTemp() + type + "]" + type + END_STMT);
+            var indexTemp = temps.getTemp();
+            code.append(assign(indexTemp, type, single(element(child.getChild(1).get("value"), type))));
+            var array = arrayOperand(child.getChild(0).get("name"), operand(temps.getCurrTemp(), type), type);
+            code.append(assign(currTemp, type, single(array)));
 
         }
 
@@ -832,29 +662,27 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             hasTemp = true;
         }
 
+        var callType = CallType.invokevirtual;
         if (node.getChild(0).get("name").equals("this")){
-            code.append("invokevirtual(");
             node.getChild(0).put("value", table.getClassName());
             virtual=true;
 
         }
         else{
             if (checkIfImport(node.getChild(0).get("name"))){
-                code.append("invokestatic(");
+                callType = CallType.invokestatic;
             }
             else {
-                code.append("invokevirtual(");
                 virtual = true;
             }
         }
 
 
-        code.append(node.getChild(0).get("name"));
-        if (virtual){
-            var type = OptUtils.toOllirType(node.getChild(0));
-            code.append(type);
-        }
-        code.append(", " + "\"" + node.get("methodName") + "\"");
+        var callerName = node.getChild(0).get("name");
+        Operand caller = virtual ? caller(callerName, OptUtils.toOllirType(node.getChild(0)), table.getClassName())
+                : staticCaller(callerName, table.getClassName());
+
+        List<Element> args = new ArrayList<>();
         if (node.getChildren().size() > 1){
             int first = 0;
             for (var child : node.getChildren()){
@@ -863,31 +691,24 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                     continue;
                 }
 
-                String type = "";
                 if (hasTemp){
-                    if (child.getKind().equals("ArrayAccess")){
-                        code.append(", " + OptUtils.getPrevTemp());
-                    }
-                    else code.append(", " + OptUtils.getCurrTemp());
-                    type = OptUtils.toOllirOpType(child);
+                    var temp = child.getKind().equals("ArrayAccess") ? temps.getPrevTemp() : temps.getCurrTemp();
+                    var type = OptUtils.toOllirOpType(child);
                     if (child.getKind().equals("Length") || child.getKind().equals("ArrayAccess")) type = ".i32";
+                    args.add(operand(temp, type));
                 }
                 else if (child.hasAttribute("name")) {
-                    code.append(", " + child.get("name"));
-                    type = OptUtils.toOllirType(child);
+                    args.add(element(child.get("name"), getArgumentType(child)));
                 }
                 else if (child.hasAttribute("value")){
-                    code.append(", " + child.get("value"));
-                    type = OptUtils.toOllirType(child);
+                    args.add(element(child.get("value"), OptUtils.toOllirType(child)));
                 }
-                else if (child.getKind().equals("Length")){
-                    code.append(", " + OptUtils.getTemp());
+                else {
+                    throw new RuntimeException("Could not generate OLLIR for argument '" + child + "'");
                 }
-                code.append(type);
 
             }
         }
-        code.append(")");
         var typeFunc = ".V";
         if (node.getParent().hasAttribute("type")){
             typeFunc = OptUtils.toOllirType(node.getParent());
@@ -895,42 +716,52 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         if (node.getParent().hasAttribute("op")){
             typeFunc = OptUtils.toOllirOpType(node.getParent());
         }
-        code.append(typeFunc);
+        if (resultTemp != null) {
+            typeFunc = resultType;
+        }
 
-        code.append(END_STMT);
+        var methodName = node.get("methodName");
+        if (assignTemp == null) {
+            code.append(call(callType, caller, methodName, args, typeFunc, true));
+        }
+        else {
+            code.append(assign(assignTemp, assignType, call(callType, caller, methodName, args, typeFunc, false)));
+        }
 
-        return code.toString();
+        return code;
     }
 
 
-    private String visitNewClass(JmmNode node, Void unused){
-        StringBuilder code = new StringBuilder();
+    private OllirCode visitNewClass(JmmNode node, Void unused){
+        OllirCode code = new OllirCode();
 
         var type = OptUtils.toOllirType(node.getParent());
-        code.append(OptUtils.getTemp() + type);
-        code.append(ASSIGN + type + SPACE);
-        code.append("new(" + node.get("className") + ")" + type + END_STMT);
-        code.append("invokespecial(" + OptUtils.getCurrTemp() + type + ", " + "\"\").V" + END_STMT);
+        var temp = temps.getTemp();
+        var className = node.get("className");
+        var newObject = newInstance(new Operand(className, new ClassType(ElementType.OBJECTREF, className)),
+                List.of(), type);
+        code.append(assign(temp, type, newObject));
+        code.append(call(CallType.invokespecial, caller(temp, type, className), "", List.of(), ".V", true));
 
-        return code.toString();
+        return code;
     }
 
 
 
 
     /**
-     * Default visitor. Visits every child node and return an empty string.
+     * Default visitor. Visits every child node and returns no instructions.
      *
      * @param node
      * @param unused
      * @return
      */
-    private String defaultVisit(JmmNode node, Void unused) {
+    private OllirCode defaultVisit(JmmNode node, Void unused) {
 
         for (var child : node.getChildren()) {
             visit(child);
         }
 
-        return "";
+        return OllirCode.EMPTY;
     }
 }
@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.Method;
+
+/**
+ * Represents an optimization pass that transforms the instructions of an OLLIR method in place.
+ */
+public interface OllirOptimizationPass {
+
+    /**
+     * Optimizes the given method.
+     *
+     * @param method a method whose CFG is built, it is rebuilt by the pass if the method changes
+     * @return true if the method was changed
+     */
+    boolean optimize(Method method);
+
+    /**
+     * @return what the pass changed, over every method it optimized
+     */
+    String getStats();
+
+}
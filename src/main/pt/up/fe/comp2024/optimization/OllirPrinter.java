@@ -0,0 +1,245 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a ClassUnit as OLLIR code, for debugging and for the tests that look at the generated code.
+ * <p>
+ * The output can be parsed back by the OLLIR parser.
+ */
+public class OllirPrinter {
+
+    private static final String NL = "\n";
+
+    private final StringBuilder code;
+    private final ClassUnit classUnit;
+
+    private OllirPrinter(ClassUnit classUnit) {
+        this.code = new StringBuilder();
+        this.classUnit = classUnit;
+    }
+
+    public static String print(ClassUnit classUnit) {
+        var printer = new OllirPrinter(classUnit);
+        printer.printClass();
+        return printer.code.toString();
+    }
+
+    private void printClass() {
+        for (var importName : classUnit.getImports()) {
+            code.append("import ").append(importName).append(";").append(NL);
+        }
+        if (!classUnit.getImports().isEmpty()) {
+            code.append(NL);
+        }
+
+        code.append(modifiers(classUnit.getClassAccessModifier(), classUnit.isStaticClass(),
+                classUnit.isFinalClass()));
+        code.append(classUnit.getClassName());
+        if (classUnit.getSuperClass() != null) {
+            code.append(" extends ").append(classUnit.getSuperClass());
+        }
+        code.append(" {").append(NL).append(NL);
+
+        for (var field : classUnit.getFields()) {
+            code.append(".field ")
+                    .append(modifiers(field.getFieldAccessModifier(), field.isStaticField(), field.isFinalField()))
+                    .append(field.getFieldName())
+                    .append(type(field.getFieldType()));
+            if (field.isInitialized()) {
+                code.append(" := ").append(field.getInitialValue());
+            }
+            code.append(";").append(NL);
+        }
+        if (!classUnit.getFields().isEmpty()) {
+            code.append(NL);
+        }
+
+        for (var method : classUnit.getMethods()) {
+            printMethod(method);
+        }
+
+        code.append("}").append(NL);
+    }
+
+    private void printMethod(Method method) {
+        code.append(method.isConstructMethod() ? ".construct " : ".method ");
+        code.append(modifiers(method.getMethodAccessModifier(), method.isStaticMethod(), method.isFinalMethod()));
+        if (method.isVarargs()) {
+            code.append("varargs ");
+        }
+
+        code.append(method.getMethodName()).append("(");
+        code.append(method.getParams().stream().map(this::element).collect(Collectors.joining(", ")));
+        code.append(")").append(type(method.getReturnType())).append(" {").append(NL);
+
+        var labels = labelsByInstruction(method);
+        for (var instruction : method.getInstructions()) {
+            for (var label : labels.getOrDefault(instruction, List.of())) {
+                code.append(label).append(":").append(NL);
+            }
+            code.append("    ").append(instruction(instruction)).append(";").append(NL);
+        }
+
+        code.append("}").append(NL).append(NL);
+    }
+
+    private static Map<Instruction, List<String>> labelsByInstruction(Method method) {
+        Map<Instruction, List<String>> labels = new HashMap<>();
+        for (var entry : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(entry.getValue(), instruction -> new ArrayList<>()).add(entry.getKey());
+        }
+        labels.values().forEach(list -> list.sort(null));
+        return labels;
+    }
+
+    private String instruction(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                var assign = (AssignInstruction) instruction;
+                yield element(assign.getDest()) + " :=" + type(assign.getTypeOfAssign()) + " "
+                        + instruction(assign.getRhs());
+            }
+            case CALL -> call((CallInstruction) instruction);
+            case GOTO -> "goto " + ((GotoInstruction) instruction).getLabel();
+            case BRANCH -> {
+                var branch = (CondBranchInstruction) instruction;
+                yield "if (" + instruction(branch.getCondition()) + ") goto " + branch.getLabel();
+            }
+            case RETURN -> {
+                var ret = (ReturnInstruction) instruction;
+                var operand = ret.hasReturnValue() ? " " + element(ret.getOperand()) : "";
+                yield "ret" + type(ret.getReturnType()) + operand;
+            }
+            case PUTFIELD -> {
+                var putField = (PutFieldInstruction) instruction;
+                yield "putfield(" + element(putField.getObject()) + ", " + element(putField.getField()) + ", "
+                        + element(putField.getValue()) + ").V";
+            }
+            case GETFIELD -> {
+                var getField = (GetFieldInstruction) instruction;
+                yield "getfield(" + element(getField.getObject()) + ", " + element(getField.getField()) + ")"
+                        + type(getField.getFieldType());
+            }
+            case UNARYOPER -> {
+                var unary = (UnaryOpInstruction) instruction;
+                yield operation(unary.getOperation()) + " " + element(unary.getOperand());
+            }
+            case BINARYOPER -> {
+                var binary = (BinaryOpInstruction) instruction;
+                yield element(binary.getLeftOperand()) + " " + operation(binary.getOperation()) + " "
+                        + element(binary.getRightOperand());
+            }
+            case NOPER -> element(((SingleOpInstruction) instruction).getSingleOperand());
+        };
+    }
+
+    private String call(CallInstruction call) {
+        var args = new ArrayList<String>();
+
+        switch (call.getInvocationType()) {
+            case NEW -> {
+                var caller = (Operand) call.getCaller();
+                args.add(caller.getType() instanceof ArrayType ? "array" : caller.getName());
+            }
+            case invokestatic -> args.add(((Operand) call.getCaller()).getName());
+            case ldc -> args.add(((LiteralElement) call.getCaller()).getLiteral());
+            default -> args.add(element(call.getCaller()));
+        }
+
+        call.getMethodNameTry().ifPresent(name -> args.add(((LiteralElement) name).getLiteral()));
+        if (call.getArguments() != null) {
+            call.getArguments().stream().map(this::element).forEach(args::add);
+        }
+
+        var name = call.getInvocationType() == CallType.NEW ? "new" : call.getInvocationType().toString();
+        return name + "(" + String.join(", ", args) + ")" + type(call.getReturnType());
+    }
+
+    private String element(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return literal.getLiteral() + type(literal.getType());
+        }
+
+        var operand = (Operand) element;
+        var name = operand.getName();
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            name += arrayOperand.getIndexOperands().stream()
+                    .map(index -> "[" + element(index) + "]")
+                    .collect(Collectors.joining());
+        }
+
+        return name + type(operand.getType());
+    }
+
+    private String operation(Operation operation) {
+        var symbol = switch (operation.getOpType()) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case SHR -> ">>";
+            case SHL -> "<<";
+            case SHRR -> ">>>";
+            case XOR -> "^";
+            case AND -> "&";
+            case OR -> "|";
+            case LTH -> "<";
+            case GTH -> ">";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case LTE -> "<=";
+            case GTE -> ">=";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case NOTB -> "!";
+            case NOT -> "~";
+        };
+
+        return symbol + type(operation.getTypeInfo());
+    }
+
+    private String type(Type type) {
+        if (type instanceof ArrayType arrayType) {
+            return ".array".repeat(Math.max(1, arrayType.getNumDimensions())) + type(arrayType.getElementType());
+        }
+
+        // Arrays created by 'new(array, ...)' have no element type
+        if (type.getTypeOfElement() == null) {
+            return "";
+        }
+
+        if (type instanceof ClassType classType) {
+            return "." + classType.getName();
+        }
+
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> ".i32";
+            case BOOLEAN -> ".bool";
+            case STRING -> ".String";
+            case VOID -> ".V";
+            default -> "." + type.getTypeOfElement();
+        };
+    }
+
+    private static String modifiers(AccessModifier accessModifier, boolean isStatic, boolean isFinal) {
+        var modifiers = new StringBuilder();
+        if (accessModifier != null && accessModifier != AccessModifier.DEFAULT) {
+            modifiers.append(accessModifier.name().toLowerCase()).append(" ");
+        }
+        if (isStatic) {
+            modifiers.append("static ");
+        }
+        if (isFinal) {
+            modifiers.append("final ");
+        }
+        return modifiers.toString();
+    }
+}
@@ -12,71 +12,6 @@ import java.util.Optional;
 import static pt.up.fe.comp2024.ast.Kind.TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-
-    public static String getTemp() {
-
-        return getTemp("tmp");
-    }
-
-    public static String getTemp(String prefix) {
-
-        return prefix + getNextTempNum();
-    }
-
-    public static int getNextTempNum() {
-
-        tempNumber += 1;
-        return tempNumber;
-    }
-
-    public static String getCurrTemp() {
-
-        return getCurrTemp("tmp");
-    }
-
-    public static String getCurrTemp(String prefix) {
-
-        return prefix + getCurrTempNum();
-    }
-
-    public static int getCurrTempNum() {
-
-        return tempNumber;
-    }
-
-    public static String getPrevTemp() {
-
-        return getPrevTemp("tmp");
-    }
-
-    public static String getPrevTemp(String prefix) {
-
-        return prefix + getPrevTempNum();
-    }
-
-    public static int getPrevTempNum() {
-
-        return tempNumber -1;
-    }
-
-    public static String getNextTemp() {
-
-        return getNextTemp("tmp");
-    }
-
-    public static String getNextTemp(String prefix) {
-
-        return prefix + getNextTempNum_();
-    }
-
-    public static int getNextTempNum_() {
-
-        return tempNumber +1;
-    }
-
-
-
 
     public static String toOllirType(JmmNode typeNode) {
 
@@ -0,0 +1,82 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Generates names for OLLIR temporaries.
+ * <p>
+ * One TempGenerator instance per compilation, so that OLLIR generation is reentrant and the names do not depend
+ * on what was compiled before in the same JVM.
+ */
+public class TempGenerator {
+
+    private static final String DEFAULT_PREFIX = "tmp";
+
+    private int tempNumber;
+
+    public TempGenerator() {
+        tempNumber = -1;
+    }
+
+    public String getTemp() {
+
+        return getTemp(DEFAULT_PREFIX);
+    }
+
+    public String getTemp(String prefix) {
+
+        return prefix + getNextTempNum();
+    }
+
+    public int getNextTempNum() {
+
+        tempNumber += 1;
+        return tempNumber;
+    }
+
+    public String getCurrTemp() {
+
+        return getCurrTemp(DEFAULT_PREFIX);
+    }
+
+    public String getCurrTemp(String prefix) {
+
+        return prefix + getCurrTempNum();
+    }
+
+    public int getCurrTempNum() {
+
+        return tempNumber;
+    }
+
+    public String getPrevTemp() {
+
+        return getPrevTemp(DEFAULT_PREFIX);
+    }
+
+    public String getPrevTemp(String prefix) {
+
+        return prefix + getPrevTempNum();
+    }
+
+    public int getPrevTempNum() {
+
+        return tempNumber - 1;
+    }
+
+    public String getNextTemp() {
+
+        return getNextTemp(DEFAULT_PREFIX);
+    }
+
+    public String getNextTemp(String prefix) {
+
+        return prefix + peekNextTempNum();
+    }
+
+    /**
+     * @return the number the next call to {@link #getTemp()} will use, without consuming it
+     */
+    public int peekNextTempNum() {
+
+        return tempNumber + 1;
+    }
+}
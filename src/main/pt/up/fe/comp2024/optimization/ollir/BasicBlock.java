@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.Instruction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of instructions that is only entered at the first one and only left after the last one.
+ */
+public class BasicBlock {
+
+    private final int id;
+    private final List<Instruction> instructions;
+    private final List<BasicBlock> successors;
+    private final List<BasicBlock> predecessors;
+
+    BasicBlock(int id) {
+        this.id = id;
+        this.instructions = new ArrayList<>();
+        this.successors = new ArrayList<>();
+        this.predecessors = new ArrayList<>();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    public Instruction getLast() {
+        return instructions.get(instructions.size() - 1);
+    }
+
+    public List<BasicBlock> getSuccessors() {
+        return successors;
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return predecessors;
+    }
+
+    void addSuccessor(BasicBlock successor) {
+        successors.add(successor);
+        successor.predecessors.add(this);
+    }
+
+    @Override
+    public String toString() {
+        return "B" + id;
+    }
+}
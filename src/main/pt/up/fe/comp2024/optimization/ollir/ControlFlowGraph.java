@@ -0,0 +1,179 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.*;
+
+/**
+ * The basic blocks of an OLLIR method and the jumps between them.
+ * <p>
+ * Built from the list of instructions and the labels of the method, it is not updated when the method changes.
+ */
+public class ControlFlowGraph {
+
+    private final Method method;
+    private final List<BasicBlock> blocks;
+    private final Map<Instruction, BasicBlock> blockOf;
+
+    public ControlFlowGraph(Method method) {
+        this.method = method;
+        this.blocks = new ArrayList<>();
+        this.blockOf = new HashMap<>();
+
+        buildBlocks();
+        buildEdges();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return the first block of the method, or null if the method has no instructions
+     */
+    public BasicBlock getEntry() {
+        return blocks.isEmpty() ? null : blocks.get(0);
+    }
+
+    public BasicBlock getBlock(Instruction instruction) {
+        return blockOf.get(instruction);
+    }
+
+    /**
+     * @return the blocks that can be reached from the entry of the method
+     */
+    public Set<BasicBlock> getReachable() {
+        var reachable = new HashSet<BasicBlock>();
+        if (blocks.isEmpty()) {
+            return reachable;
+        }
+
+        Deque<BasicBlock> pending = new ArrayDeque<>();
+        pending.push(getEntry());
+        while (!pending.isEmpty()) {
+            var block = pending.pop();
+            if (reachable.add(block)) {
+                block.getSuccessors().forEach(pending::push);
+            }
+        }
+
+        return reachable;
+    }
+
+    /**
+     * A block dominates another if every path from the entry of the method to the other block goes through it.
+     *
+     * @return the blocks that dominate each reachable block, including the block itself
+     */
+    public Map<BasicBlock, Set<BasicBlock>> getDominators() {
+        var reachable = getReachable();
+        Map<BasicBlock, Set<BasicBlock>> dominators = new HashMap<>();
+        for (var block : reachable) {
+            dominators.put(block, block == getEntry() ? new HashSet<>(Set.of(block)) : new HashSet<>(reachable));
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var block : blocks) {
+                if (block == getEntry() || !reachable.contains(block)) {
+                    continue;
+                }
+
+                Set<BasicBlock> dominatedBy = new HashSet<>(reachable);
+                for (var predecessor : block.getPredecessors()) {
+                    if (reachable.contains(predecessor)) {
+                        dominatedBy.retainAll(dominators.get(predecessor));
+                    }
+                }
+                dominatedBy.add(block);
+
+                if (!dominatedBy.equals(dominators.get(block))) {
+                    dominators.put(block, dominatedBy);
+                    changed = true;
+                }
+            }
+        }
+
+        return dominators;
+    }
+
+    private void buildBlocks() {
+        var labeled = new HashSet<>(method.getLabels().values());
+
+        BasicBlock current = null;
+        for (var instruction : method.getInstructions()) {
+            // A jump target starts a block, and so does the instruction after a jump or a return
+            if (current == null || labeled.contains(instruction) || endsBlock(current.getLast())) {
+                current = new BasicBlock(blocks.size());
+                blocks.add(current);
+            }
+
+            current.getInstructions().add(instruction);
+            blockOf.put(instruction, current);
+        }
+    }
+
+    private void buildEdges() {
+        for (int i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+            var last = block.getLast();
+
+            switch (last.getInstType()) {
+                case GOTO -> block.addSuccessor(getTarget(((GotoInstruction) last).getLabel()));
+                case BRANCH -> {
+                    block.addSuccessor(getTarget(((CondBranchInstruction) last).getLabel()));
+                    addFallThrough(block, i);
+                }
+                case RETURN -> {
+                }
+                default -> addFallThrough(block, i);
+            }
+        }
+    }
+
+    private void addFallThrough(BasicBlock block, int index) {
+        if (index + 1 < blocks.size()) {
+            block.addSuccessor(blocks.get(index + 1));
+        }
+    }
+
+    private BasicBlock getTarget(String label) {
+        var target = method.getLabels().get(label);
+        if (target == null || !blockOf.containsKey(target)) {
+            throw new RuntimeException("Label '" + label + "' of method '" + method.getMethodName()
+                    + "' is not associated to an instruction");
+        }
+
+        return blockOf.get(target);
+    }
+
+    private static boolean endsBlock(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case GOTO, BRANCH, RETURN -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Rebuilds the CFG of instructions the OLLIR library keeps in the method, after the instructions changed.
+     * <p>
+     * {@link Method#buildCFG()} only adds edges, the old ones are removed first.
+     */
+    public static void rebuildInstructionGraph(Method method) {
+        List<Node> nodes = new ArrayList<>(method.getInstructions());
+        nodes.add(method.getBeginNode());
+        nodes.add(method.getEndNode());
+
+        for (var node : nodes) {
+            node.getSuccessors().clear();
+            node.getPredecessors().clear();
+        }
+
+        method.buildCFG();
+    }
+}
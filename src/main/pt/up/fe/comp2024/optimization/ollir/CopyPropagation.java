@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.OllirOptimizationPass;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Removes the copies between variables that OLLIR generation leaves behind:
+ * <ul>
+ *     <li>a temporary that is only read by the copy right after it, as in 'tmp0 := a + b; c := tmp0', is coalesced
+ *     with the variable it is copied to, 'c := a + b';</li>
+ *     <li>after a copy 'a := b', reads of 'a' in the same basic block read 'b' instead, while neither is assigned
+ *     again. The copy is then usually dead, and removed by {@link DeadCodeElimination}.</li>
+ * </ul>
+ */
+public class CopyPropagation implements OllirOptimizationPass {
+
+    private int coalescedTemps;
+    private int propagatedCopies;
+
+    public CopyPropagation() {
+        this.coalescedTemps = 0;
+        this.propagatedCopies = 0;
+    }
+
+    @Override
+    public boolean optimize(Method method) {
+        boolean changed = coalesce(method);
+        changed |= propagate(method);
+
+        if (changed) {
+            ControlFlowGraph.rebuildInstructionGraph(method);
+        }
+
+        return changed;
+    }
+
+    @Override
+    public String getStats() {
+        return "Copy propagation coalesced " + coalescedTemps + " temporaries and replaced " + propagatedCopies
+                + " reads of copies";
+    }
+
+    private boolean coalesce(Method method) {
+        var uses = MethodUtils.countUses(method);
+        var labeled = new HashSet<>(method.getLabels().values());
+        var instructions = method.getInstructions();
+
+        boolean changed = false;
+        for (int i = 0; i + 1 < instructions.size(); i++) {
+            var temp = MethodUtils.getDefinedVariable(instructions.get(i));
+            var copy = instructions.get(i + 1);
+
+            // The copy must not be a jump target, the temporary would not be assigned when jumping to it
+            if (temp == null || labeled.contains(copy) || uses.getOrDefault(temp.getName(), 0) != 1
+                    || !MethodUtils.isVariable(method, temp.getName())) {
+                continue;
+            }
+
+            var source = getCopySource(copy);
+            var dest = MethodUtils.getDefinedVariable(copy);
+            if (source == null || dest == null || !source.getName().equals(temp.getName())
+                    || !MethodUtils.sameType(temp, dest)) {
+                continue;
+            }
+
+            var definition = (AssignInstruction) instructions.get(i);
+            var coalesced = new AssignInstruction(dest, ((AssignInstruction) copy).getTypeOfAssign(),
+                    definition.getRhs());
+            MethodUtils.replace(method, definition, coalesced);
+            instructions.remove(i + 1);
+
+            coalescedTemps++;
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private boolean propagate(Method method) {
+        boolean changed = false;
+
+        for (var block : new ControlFlowGraph(method).getBlocks()) {
+            // The variable each copied variable was copied from
+            Map<String, Operand> copies = new HashMap<>();
+
+            for (var instruction : new ArrayList<>(block.getInstructions())) {
+                var replaced = MethodUtils.replaceUses(instruction, operand -> {
+                    var source = copies.get(operand.getName());
+                    if (source == null) {
+                        return operand;
+                    }
+
+                    propagatedCopies++;
+                    return new Operand(source.getName(), source.getType());
+                });
+
+                if (replaced != instruction) {
+                    MethodUtils.replace(method, instruction, replaced);
+                    changed = true;
+                }
+
+                var defined = MethodUtils.getDefinedVariable(replaced);
+                if (defined == null) {
+                    continue;
+                }
+
+                // Copies of the assigned variable, or to it, no longer hold
+                var name = defined.getName();
+                copies.remove(name);
+                copies.values().removeIf(source -> source.getName().equals(name));
+
+                var source = getCopySource(replaced);
+                if (source != null && !source.getName().equals(name) && MethodUtils.isVariable(method, name)
+                        && MethodUtils.isVariable(method, source.getName()) && MethodUtils.sameType(source, defined)) {
+                    copies.put(name, source);
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the variable read by a copy 'a := b', or null if the instruction is not a copy of a variable
+     */
+    private static Operand getCopySource(Instruction instruction) {
+        if (instruction instanceof AssignInstruction assign && assign.getRhs() instanceof SingleOpInstruction singleOp
+                && singleOp.getSingleOperand() instanceof Operand source && !(source instanceof ArrayOperand)
+                && !source.isLiteral()) {
+            return source;
+        }
+
+        return null;
+    }
+}
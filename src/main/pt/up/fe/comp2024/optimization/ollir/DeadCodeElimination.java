@@ -0,0 +1,209 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.OllirOptimizationPass;
+import pt.up.fe.comp2024.optimization.regalloc.LivenessAnalysis;
+
+import java.util.ArrayList;
+
+/**
+ * Removes code that has no effect on the result of a method:
+ * <ul>
+ *     <li>branches whose condition is constant become a goto, or are removed if never taken;</li>
+ *     <li>blocks that cannot be reached from the start of the method, e.g. after a return;</li>
+ *     <li>gotos to the instruction right after them;</li>
+ *     <li>assignments to variables that are not read afterwards, if computing the value has no side effects.</li>
+ * </ul>
+ */
+public class DeadCodeElimination implements OllirOptimizationPass {
+
+    private int constantBranches;
+    private int unreachableInstructions;
+    private int jumpsToNext;
+    private int deadStores;
+
+    public DeadCodeElimination() {
+        this.constantBranches = 0;
+        this.unreachableInstructions = 0;
+        this.jumpsToNext = 0;
+        this.deadStores = 0;
+    }
+
+    @Override
+    public boolean optimize(Method method) {
+        boolean changed = foldConstantBranches(method);
+        changed |= removeUnreachable(method);
+        changed |= removeJumpsToNext(method);
+
+        // Removing a store can make the stores of the values it used dead
+        boolean removed = true;
+        while (removed) {
+            ControlFlowGraph.rebuildInstructionGraph(method);
+            removed = removeDeadStores(method);
+            changed |= removed;
+        }
+
+        return changed;
+    }
+
+    @Override
+    public String getStats() {
+        return "Dead code elimination folded " + constantBranches + " constant branches, removed "
+                + unreachableInstructions + " unreachable instructions, " + jumpsToNext + " jumps to the next instruction"
+                + " and " + deadStores + " dead stores";
+    }
+
+    private boolean foldConstantBranches(Method method) {
+        boolean changed = false;
+
+        for (var instruction : new ArrayList<>(method.getInstructions())) {
+            if (!(instruction instanceof CondBranchInstruction branch)) {
+                continue;
+            }
+
+            var value = evaluate(branch.getCondition());
+            if (value == null) {
+                continue;
+            }
+
+            if (value) {
+                MethodUtils.replace(method, branch, new GotoInstruction(branch.getLabel()));
+            } else if (!MethodUtils.remove(method, branch)) {
+                continue;
+            }
+
+            constantBranches++;
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private boolean removeUnreachable(Method method) {
+        var cfg = new ControlFlowGraph(method);
+        var reachable = cfg.getReachable();
+
+        boolean changed = false;
+        for (var block : cfg.getBlocks()) {
+            if (reachable.contains(block)) {
+                continue;
+            }
+
+            for (var instruction : block.getInstructions()) {
+                MethodUtils.removeUnreachable(method, instruction);
+                unreachableInstructions++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean removeJumpsToNext(Method method) {
+        var instructions = method.getInstructions();
+
+        boolean changed = false;
+        for (int i = instructions.size() - 2; i >= 0; i--) {
+            if (instructions.get(i) instanceof GotoInstruction jump
+                    && method.getLabels().get(jump.getLabel()) == instructions.get(i + 1)
+                    && MethodUtils.remove(method, jump)) {
+                jumpsToNext++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean removeDeadStores(Method method) {
+        var liveness = new LivenessAnalysis(method);
+
+        boolean changed = false;
+        for (var instruction : new ArrayList<>(method.getInstructions())) {
+            if (!(instruction instanceof AssignInstruction assign) || !(assign.getDest() instanceof Operand dest)
+                    || dest instanceof ArrayOperand) {
+                continue;
+            }
+
+            var name = dest.getName();
+            if (!liveness.isVariable(name) || liveness.getLiveOut(assign).contains(name)
+                    || !hasNoSideEffects(assign.getRhs())) {
+                continue;
+            }
+
+            if (MethodUtils.remove(method, assign)) {
+                deadStores++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Calls can have any effect, and array accesses and divisions can throw.
+     */
+    private static boolean hasNoSideEffects(Instruction rhs) {
+        return switch (rhs.getInstType()) {
+            case NOPER -> !(((SingleOpInstruction) rhs).getSingleOperand() instanceof ArrayOperand);
+            case UNARYOPER -> !(((UnaryOpInstruction) rhs).getOperand() instanceof ArrayOperand);
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) rhs;
+                yield binaryOp.getOperation().getOpType() != OperationType.DIV
+                        && !(binaryOp.getLeftOperand() instanceof ArrayOperand)
+                        && !(binaryOp.getRightOperand() instanceof ArrayOperand);
+            }
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the value of a condition whose operands are literals, or null if it is not constant
+     */
+    private static Boolean evaluate(Instruction condition) {
+        return switch (condition.getInstType()) {
+            case NOPER -> {
+                var value = literal(((SingleOpInstruction) condition).getSingleOperand());
+                yield value == null ? null : value != 0;
+            }
+            case UNARYOPER -> {
+                var unaryOp = (UnaryOpInstruction) condition;
+                var value = literal(unaryOp.getOperand());
+                yield value == null || unaryOp.getOperation().getOpType() != OperationType.NOTB ? null : value == 0;
+            }
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) condition;
+                var left = literal(binaryOp.getLeftOperand());
+                var right = literal(binaryOp.getRightOperand());
+                if (left == null || right == null) {
+                    yield null;
+                }
+
+                yield switch (binaryOp.getOperation().getOpType()) {
+                    case LTH -> left < right;
+                    case LTE -> left <= right;
+                    case GTH -> left > right;
+                    case GTE -> left >= right;
+                    case EQ -> left.equals(right);
+                    case NEQ -> !left.equals(right);
+                    case ANDB -> left != 0 && right != 0;
+                    case ORB -> left != 0 || right != 0;
+                    default -> null;
+                };
+            }
+            default -> null;
+        };
+    }
+
+    private static Integer literal(Element element) {
+        if (!(element instanceof LiteralElement literal)) {
+            return null;
+        }
+
+        try {
+            return Integer.parseInt(literal.getLiteral());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.OllirOptimizationPass;
+
+import java.util.*;
+
+/**
+ * Reuses computations that were already made in the same basic block, by numbering the values of the block.
+ * <p>
+ * Two computations with the same operation and operands with the same value numbers compute the same value. If a
+ * variable still holds the value computed the first time, the second computation becomes a copy of it, which
+ * {@link CopyPropagation} and {@link DeadCodeElimination} then remove.
+ * <p>
+ * Arithmetic, comparisons, boolean operations, 'arraylength' and array loads are reused. Array loads are forgotten
+ * when an array element is stored or a method is called, since either can change the element.
+ */
+public class LocalValueNumbering implements OllirOptimizationPass {
+
+    private static final Set<OperationType> COMMUTATIVE = EnumSet.of(OperationType.ADD, OperationType.MUL,
+            OperationType.EQ, OperationType.NEQ, OperationType.AND, OperationType.OR, OperationType.XOR,
+            OperationType.ANDB, OperationType.ORB);
+
+    private int reusedValues;
+
+    public LocalValueNumbering() {
+        this.reusedValues = 0;
+    }
+
+    @Override
+    public boolean optimize(Method method) {
+        boolean changed = false;
+        for (var block : new ControlFlowGraph(method).getBlocks()) {
+            changed |= numberBlock(method, block);
+        }
+
+        if (changed) {
+            ControlFlowGraph.rebuildInstructionGraph(method);
+        }
+
+        return changed;
+    }
+
+    @Override
+    public String getStats() {
+        return "Local value numbering reused " + reusedValues + " computed values";
+    }
+
+    private boolean numberBlock(Method method, BasicBlock block) {
+        var values = new ValueTable();
+
+        boolean changed = false;
+        for (var instruction : block.getInstructions()) {
+            var dest = MethodUtils.getDefinedVariable(instruction);
+
+            if (dest == null) {
+                if (writesMemory(instruction)) {
+                    values.forgetLoads();
+                }
+                continue;
+            }
+
+            var assign = (AssignInstruction) instruction;
+            var rhs = assign.getRhs();
+            if (writesMemory(rhs)) {
+                values.forgetLoads();
+            }
+
+            var key = values.getKey(rhs, assign.getTypeOfAssign());
+            if (key == null) {
+                // Copies take the value of what they copy, anything else is a new value
+                var copied = rhs instanceof SingleOpInstruction singleOp ? singleOp.getSingleOperand() : null;
+                values.assign(dest.getName(), copied == null || copied instanceof ArrayOperand
+                        ? values.newValue() : values.valueOf(copied));
+                continue;
+            }
+
+            var holder = values.getHolder(key);
+            if (holder != null && !holder.getName().equals(dest.getName())
+                    && MethodUtils.isVariable(method, holder.getName())) {
+                var copy = new AssignInstruction(dest, assign.getTypeOfAssign(),
+                        new SingleOpInstruction(new Operand(holder.getName(), holder.getType())));
+                MethodUtils.replace(method, assign, copy);
+                values.assign(dest.getName(), values.valueOf(holder));
+
+                reusedValues++;
+                changed = true;
+                continue;
+            }
+
+            values.assign(dest.getName(), values.compute(key, dest));
+        }
+
+        return changed;
+    }
+
+    /**
+     * Calls can store into any array they can reach, 'arraylength' and 'new' do not store anything.
+     */
+    private static boolean writesMemory(Instruction instruction) {
+        if (instruction instanceof AssignInstruction assign) {
+            return assign.getDest() instanceof ArrayOperand || writesMemory(assign.getRhs());
+        }
+
+        return instruction instanceof CallInstruction call && call.getInvocationType() != CallType.arraylength
+                && call.getInvocationType() != CallType.NEW;
+    }
+
+    /**
+     * The value numbers of the variables and computations of a basic block.
+     */
+    private static class ValueTable {
+
+        private final Map<String, Integer> variables;
+        private final Map<String, Integer> literals;
+        private final Map<String, Integer> computations;
+        private final Map<Integer, Operand> holders;
+        private final Set<String> loads;
+        private int nextValue;
+
+        ValueTable() {
+            this.variables = new HashMap<>();
+            this.literals = new HashMap<>();
+            this.computations = new HashMap<>();
+            this.holders = new HashMap<>();
+            this.loads = new HashSet<>();
+            this.nextValue = 0;
+        }
+
+        int newValue() {
+            return nextValue++;
+        }
+
+        int valueOf(Element element) {
+            if (element instanceof LiteralElement literal) {
+                return literals.computeIfAbsent(literal.getLiteral() + element.getType(), key -> newValue());
+            }
+
+            // Variables read before being assigned in the block have a value of their own
+            return variables.computeIfAbsent(((Operand) element).getName(), name -> newValue());
+        }
+
+        void assign(String variable, int value) {
+            variables.put(variable, value);
+        }
+
+        /**
+         * @return the value of a computation, that is now held by the given variable
+         */
+        int compute(String key, Operand holder) {
+            int value = computations.computeIfAbsent(key, k -> newValue());
+            holders.put(value, holder);
+            return value;
+        }
+
+        /**
+         * @return a variable that holds the value of the computation, or null if there is none
+         */
+        Operand getHolder(String key) {
+            var value = computations.get(key);
+            if (value == null) {
+                return null;
+            }
+
+            var holder = holders.get(value);
+            return holder != null && Objects.equals(variables.get(holder.getName()), value) ? holder : null;
+        }
+
+        void forgetLoads() {
+            computations.keySet().removeAll(loads);
+            loads.clear();
+        }
+
+        /**
+         * @return a key that is the same for every computation of the same value, or null if the instruction is not a
+         * computation that can be reused
+         */
+        String getKey(Instruction rhs, Type type) {
+            return switch (rhs.getInstType()) {
+                case BINARYOPER -> {
+                    var binaryOp = (BinaryOpInstruction) rhs;
+                    if (binaryOp.getLeftOperand() instanceof ArrayOperand
+                            || binaryOp.getRightOperand() instanceof ArrayOperand) {
+                        // Array elements are only numbered when they are loaded on their own
+                        yield null;
+                    }
+
+                    var opType = binaryOp.getOperation().getOpType();
+                    int left = valueOf(binaryOp.getLeftOperand());
+                    int right = valueOf(binaryOp.getRightOperand());
+
+                    if (COMMUTATIVE.contains(opType) && left > right) {
+                        yield opType + "(" + right + "," + left + ")" + type;
+                    }
+                    yield opType + "(" + left + "," + right + ")" + type;
+                }
+                case UNARYOPER -> {
+                    var unaryOp = (UnaryOpInstruction) rhs;
+                    if (unaryOp.getOperand() instanceof ArrayOperand) {
+                        yield null;
+                    }
+
+                    yield unaryOp.getOperation().getOpType() + "(" + valueOf(unaryOp.getOperand()) + ")" + type;
+                }
+                case NOPER -> {
+                    if (!(((SingleOpInstruction) rhs).getSingleOperand() instanceof ArrayOperand array)
+                            || array.getIndexOperands().size() != 1) {
+                        yield null;
+                    }
+
+                    var key = "load(" + variables.computeIfAbsent(array.getName(), name -> newValue()) + ","
+                            + valueOf(array.getIndexOperands().get(0)) + ")" + type;
+                    loads.add(key);
+                    yield key;
+                }
+                case CALL -> {
+                    var call = (CallInstruction) rhs;
+                    if (call.getInvocationType() != CallType.arraylength) {
+                        yield null;
+                    }
+
+                    yield "length(" + valueOf(call.getCaller()) + ")";
+                }
+                default -> null;
+            };
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.OllirOptimizationPass;
+import pt.up.fe.comp2024.optimization.regalloc.LivenessAnalysis;
+
+import java.util.*;
+
+/**
+ * Moves computations whose value does not change in a loop to right before the loop, so they run once.
+ * <p>
+ * A computation is invariant if its operands are literals, variables not assigned in the loop, or variables assigned
+ * by another invariant computation. Arithmetic other than division, comparisons, copies, reads of fields of 'this'
+ * that the loop cannot write and 'arraylength' are moved. Divisions and array loads are not, since they can throw
+ * in executions where the loop would not have reached them.
+ * <p>
+ * The instructions are moved right before the header of the loop, which only works if the loop is entered by falling
+ * through from the block before it. The moved code runs whenever the loop is entered, even if the loop test is at the
+ * top and fails, so 'arraylength' is only moved if it runs before the loop can be left.
+ */
+public class LoopInvariantCodeMotion implements OllirOptimizationPass {
+
+    private int hoistedInstructions;
+    private int optimizedLoops;
+
+    public LoopInvariantCodeMotion() {
+        this.hoistedInstructions = 0;
+        this.optimizedLoops = 0;
+    }
+
+    @Override
+    public boolean optimize(Method method) {
+        return NaturalLoop.transformAll(method, this::hoist);
+    }
+
+    @Override
+    public String getStats() {
+        return "Loop-invariant code motion hoisted " + hoistedInstructions + " instructions out of " + optimizedLoops
+                + " loops";
+    }
+
+    private boolean hoist(Method method, ControlFlowGraph cfg, NaturalLoop loop) {
+        var headerLabel = loop.getPreheaderLabel(method, cfg);
+        if (headerLabel == null) {
+            return false;
+        }
+
+        var candidates = new LoopCandidates(method, cfg, loop);
+        var hoisted = candidates.findInvariant();
+        if (hoisted.isEmpty()) {
+            return false;
+        }
+
+        for (var instruction : hoisted) {
+            MethodUtils.remove(method, instruction);
+        }
+        // Removing the first instruction of the header moves its label to the next one
+        MethodUtils.insertBefore(method, method.getLabels().get(headerLabel), hoisted);
+
+        hoistedInstructions += hoisted.size();
+        optimizedLoops++;
+        return true;
+    }
+
+    /**
+     * What is assigned and written in a loop, to find the instructions that compute the same value in every iteration.
+     */
+    private static class LoopCandidates {
+
+        private final Method method;
+        private final ControlFlowGraph cfg;
+        private final NaturalLoop loop;
+        private final Map<BasicBlock, Set<BasicBlock>> dominators;
+        private final List<Instruction> instructions;
+        private final Map<String, Integer> definitions;
+        private final Set<String> writtenFields;
+        private final Set<String> invariant;
+        private final Set<String> liveAtHeader;
+        private final Set<String> liveAfterLoop;
+        private boolean callsMethods;
+        private boolean returns;
+
+        LoopCandidates(Method method, ControlFlowGraph cfg, NaturalLoop loop) {
+            this.method = method;
+            this.cfg = cfg;
+            this.loop = loop;
+            this.dominators = cfg.getDominators();
+            this.instructions = new ArrayList<>();
+            this.definitions = new HashMap<>();
+            this.writtenFields = new HashSet<>();
+            this.invariant = new HashSet<>();
+            this.liveAtHeader = new HashSet<>();
+            this.liveAfterLoop = new HashSet<>();
+            this.callsMethods = false;
+            this.returns = false;
+
+            for (var block : cfg.getBlocks()) {
+                if (loop.contains(block)) {
+                    block.getInstructions().forEach(this::addInstruction);
+                }
+            }
+
+            var liveness = new LivenessAnalysis(method);
+            liveAtHeader.addAll(liveness.getLiveIn(loop.getHeader().getInstructions().get(0)));
+            for (var exit : loop.getExits()) {
+                for (var successor : exit.getSuccessors()) {
+                    if (!loop.contains(successor)) {
+                        liveAfterLoop.addAll(liveness.getLiveIn(successor.getInstructions().get(0)));
+                    }
+                }
+            }
+        }
+
+        private void addInstruction(Instruction instruction) {
+            instructions.add(instruction);
+
+            var dest = MethodUtils.getDefinedVariable(instruction);
+            if (dest != null) {
+                definitions.merge(dest.getName(), 1, Integer::sum);
+            }
+
+            var value = instruction instanceof AssignInstruction assign ? assign.getRhs() : instruction;
+            if (instruction.getInstType() == InstructionType.RETURN) {
+                returns = true;
+            }
+
+            if (value instanceof PutFieldInstruction putField) {
+                writtenFields.add(putField.getField().getName());
+            } else if (value instanceof CallInstruction call && call.getInvocationType() != CallType.arraylength
+                    && call.getInvocationType() != CallType.NEW) {
+                callsMethods = true;
+            }
+        }
+
+        /**
+         * @return the invariant instructions, each one after the invariant instructions it uses
+         */
+        List<Instruction> findInvariant() {
+            List<Instruction> hoisted = new ArrayList<>();
+
+            boolean found = true;
+            while (found) {
+                found = false;
+                for (var instruction : instructions) {
+                    if (!hoisted.contains(instruction) && canHoist(instruction)) {
+                        hoisted.add(instruction);
+                        invariant.add(MethodUtils.getDefinedVariable(instruction).getName());
+                        found = true;
+                    }
+                }
+            }
+
+            return hoisted;
+        }
+
+        private boolean canHoist(Instruction instruction) {
+            var dest = MethodUtils.getDefinedVariable(instruction);
+            if (dest == null || !MethodUtils.isVariable(method, dest.getName())) {
+                return false;
+            }
+
+            // The variable must have the computed value wherever it is read in the loop and after it
+            var name = dest.getName();
+            var block = cfg.getBlock(instruction);
+            if (definitions.get(name) != 1 || liveAtHeader.contains(name)
+                    || liveAfterLoop.contains(name) && !dominatesAll(block, loop.getExits())) {
+                return false;
+            }
+
+            var rhs = ((AssignInstruction) instruction).getRhs();
+            if (!isInvariant(rhs)) {
+                return false;
+            }
+
+            // 'arraylength' throws for null arrays, so it is only moved if it runs in every iteration, and before the
+            // loop can be left
+            return !(rhs instanceof CallInstruction) || !returns && dominatesAll(block, loop.getLatches())
+                    && dominatesAll(block, loop.getExits());
+        }
+
+        private boolean isInvariant(Instruction rhs) {
+            return switch (rhs.getInstType()) {
+                case NOPER -> isInvariant(((SingleOpInstruction) rhs).getSingleOperand());
+                case UNARYOPER -> isInvariant(((UnaryOpInstruction) rhs).getOperand());
+                case BINARYOPER -> {
+                    var binaryOp = (BinaryOpInstruction) rhs;
+                    yield binaryOp.getOperation().getOpType() != OperationType.DIV
+                            && isInvariant(binaryOp.getLeftOperand()) && isInvariant(binaryOp.getRightOperand());
+                }
+                case GETFIELD -> {
+                    var getField = (GetFieldInstruction) rhs;
+                    yield getField.getObject().getName().equals("this") && !callsMethods
+                            && !writtenFields.contains(getField.getField().getName());
+                }
+                case CALL -> {
+                    var call = (CallInstruction) rhs;
+                    yield call.getInvocationType() == CallType.arraylength && isInvariant(call.getCaller());
+                }
+                default -> false;
+            };
+        }
+
+        private boolean isInvariant(Element element) {
+            if (element instanceof ArrayOperand) {
+                return false;
+            }
+
+            if (element.isLiteral()) {
+                return true;
+            }
+
+            var name = ((Operand) element).getName();
+            return !definitions.containsKey(name) || invariant.contains(name);
+        }
+
+        private boolean dominatesAll(BasicBlock block, List<BasicBlock> blocks) {
+            return blocks.stream().allMatch(other -> dominators.get(other).contains(block));
+        }
+    }
+}
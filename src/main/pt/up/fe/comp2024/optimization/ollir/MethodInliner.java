@@ -0,0 +1,388 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.*;
+
+/**
+ * Replaces calls to small methods of the class with the code of the method.
+ * <p>
+ * Only calls whose target cannot be overridden are inlined: calls to static methods of the class, calls on 'this'
+ * when the class or the method is final, and calls on a variable whose only value is an object of the class created
+ * with 'new' in the same method. Methods that can call themselves, through any number of calls, are never inlined.
+ * <p>
+ * The variables and labels of the callee are renamed, its parameters become copies of the arguments, and its returns
+ * become an assignment of the result followed by a jump to the instruction after the call.
+ */
+public class MethodInliner {
+
+    /**
+     * Methods with more instructions are not inlined.
+     */
+    private static final int MAX_CALLEE_SIZE = 12;
+
+    /**
+     * Calls are no longer inlined into a method once it has this many instructions.
+     */
+    private static final int MAX_CALLER_SIZE = 200;
+
+    private final ClassUnit classUnit;
+    private final Map<String, Method> methods;
+    private final Set<String> recursive;
+    private int inlinedCalls;
+    private int nextId;
+
+    public MethodInliner(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+        this.methods = new HashMap<>();
+        this.recursive = new HashSet<>();
+        this.inlinedCalls = 0;
+        this.nextId = 0;
+
+        for (var method : classUnit.getMethods()) {
+            if (!method.isConstructMethod()) {
+                methods.put(method.getMethodName(), method);
+            }
+        }
+
+        findRecursive();
+    }
+
+    /**
+     * Inlines calls in every method of the class, including calls that were part of inlined code.
+     *
+     * @return true if any call was inlined
+     */
+    public boolean inline() {
+        boolean changed = false;
+
+        for (var method : classUnit.getMethods()) {
+            boolean inlinedAny = false;
+
+            boolean inlined = true;
+            while (inlined && method.getInstructions().size() < MAX_CALLER_SIZE) {
+                inlined = false;
+                for (var instruction : method.getInstructions()) {
+                    var callee = getInlinedCallee(method, instruction);
+                    if (callee != null) {
+                        inlineCall(method, instruction, callee);
+                        inlined = true;
+                        break;
+                    }
+                }
+                inlinedAny |= inlined;
+            }
+
+            if (inlinedAny) {
+                MethodUtils.rebuildVarTable(method);
+                ControlFlowGraph.rebuildInstructionGraph(method);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    public String getStats() {
+        return "Inlining replaced " + inlinedCalls + " calls with the code of the called method";
+    }
+
+    /**
+     * Finds the methods that can call themselves, from the calls to methods of the class in each method.
+     */
+    private void findRecursive() {
+        Map<String, Set<String>> calls = new HashMap<>();
+        for (var method : methods.values()) {
+            var callees = new HashSet<String>();
+            for (var instruction : method.getInstructions()) {
+                var call = MethodUtils.getCall(instruction);
+                if (call != null) {
+                    MethodUtils.getCalledMethod(call).filter(methods::containsKey).ifPresent(callees::add);
+                }
+            }
+            calls.put(method.getMethodName(), callees);
+        }
+
+        for (var name : calls.keySet()) {
+            Set<String> reached = new HashSet<>();
+            Deque<String> pending = new ArrayDeque<>(calls.get(name));
+            while (!pending.isEmpty()) {
+                var callee = pending.pop();
+                if (reached.add(callee)) {
+                    pending.addAll(calls.getOrDefault(callee, Set.of()));
+                }
+            }
+
+            if (reached.contains(name)) {
+                recursive.add(name);
+            }
+        }
+    }
+
+    /**
+     * @return the method called by the instruction, if the call can be inlined, otherwise null
+     */
+    private Method getInlinedCallee(Method method, Instruction instruction) {
+        var call = MethodUtils.getCall(instruction);
+        var instructions = method.getInstructions();
+        // The code after the inlined method continues at the next instruction
+        if (call == null || instruction == instructions.get(instructions.size() - 1)) {
+            return null;
+        }
+
+        var callee = MethodUtils.getCalledMethod(call).map(methods::get).orElse(null);
+        if (callee == null || callee == method || recursive.contains(callee.getMethodName())
+                || callee.getInstructions().size() > MAX_CALLEE_SIZE || callee.isVarargs()
+                || callee.getParams().size() != call.getArguments().size()) {
+            return null;
+        }
+
+        if (!(call.getCaller() instanceof Operand caller)) {
+            return null;
+        }
+
+        return switch (call.getInvocationType()) {
+            case invokestatic -> callee.isStaticMethod() && caller.getName().equals(classUnit.getClassName())
+                    ? callee : null;
+            case invokevirtual -> {
+                if (callee.isStaticMethod()) {
+                    yield null;
+                }
+
+                boolean exactClass = caller.getName().equals("this")
+                        ? classUnit.isFinalClass() || callee.isFinalMethod()
+                        : isNewObjectOfClass(method, caller.getName());
+                yield exactClass ? callee : null;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * An object created with 'new' of this class cannot be of a subclass, so its methods are the methods of the class.
+     * <p>
+     * The variable must be assigned only once, with the object or with a copy of a variable that holds it.
+     */
+    private boolean isNewObjectOfClass(Method method, String name) {
+        Set<String> visited = new HashSet<>();
+
+        var current = name;
+        while (visited.add(current)) {
+            var definition = getOnlyDefinition(method, current);
+            if (definition == null) {
+                return false;
+            }
+
+            var rhs = definition.getRhs();
+            if (rhs instanceof SingleOpInstruction singleOp && singleOp.getSingleOperand() instanceof Operand copied
+                    && !(copied instanceof ArrayOperand)) {
+                current = copied.getName();
+                continue;
+            }
+
+            return rhs instanceof CallInstruction call && call.getInvocationType() == CallType.NEW
+                    && call.getReturnType() instanceof ClassType type
+                    && type.getName().equals(classUnit.getClassName());
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the assignment to the variable, or null if it is not assigned exactly once
+     */
+    private static AssignInstruction getOnlyDefinition(Method method, String name) {
+        AssignInstruction definition = null;
+        for (var instruction : method.getInstructions()) {
+            var dest = MethodUtils.getDefinedVariable(instruction);
+            if (dest != null && dest.getName().equals(name)) {
+                if (definition != null) {
+                    return null;
+                }
+                definition = (AssignInstruction) instruction;
+            }
+        }
+
+        return definition;
+    }
+
+    private void inlineCall(Method method, Instruction instruction, Method callee) {
+        var call = MethodUtils.getCall(instruction);
+        var result = instruction instanceof AssignInstruction assign ? assign : null;
+        var renaming = new Renaming(method, callee, call.getInvocationType() == CallType.invokestatic
+                ? null : call.getCaller());
+
+        List<Instruction> inlined = new ArrayList<>();
+        Map<String, Instruction> labels = new HashMap<>();
+
+        for (int i = 0; i < callee.getParams().size(); i++) {
+            var param = (Operand) callee.getParams().get(i);
+            inlined.add(new AssignInstruction(renaming.operand(param), param.getType(),
+                    new SingleOpInstruction(call.getArguments().get(i))));
+        }
+
+        // Labels of instructions that are not copied are given to the next instruction that is
+        List<String> pendingLabels = new ArrayList<>();
+        boolean jumpsToEnd = false;
+        var calleeInstructions = callee.getInstructions();
+        for (int i = 0; i < calleeInstructions.size(); i++) {
+            var calleeInstruction = calleeInstructions.get(i);
+            for (var label : callee.getLabels().entrySet()) {
+                if (label.getValue() == calleeInstruction) {
+                    pendingLabels.add(renaming.label(label.getKey()));
+                }
+            }
+
+            List<Instruction> copies = new ArrayList<>();
+            if (calleeInstruction instanceof ReturnInstruction ret) {
+                if (ret.hasReturnValue() && result != null) {
+                    copies.add(new AssignInstruction(result.getDest(), result.getTypeOfAssign(),
+                            new SingleOpInstruction(renaming.element(ret.getOperand()))));
+                }
+                if (i + 1 < calleeInstructions.size()) {
+                    copies.add(new GotoInstruction(renaming.endLabel()));
+                    jumpsToEnd = true;
+                }
+            } else {
+                copies.add(renaming.copy(calleeInstruction));
+            }
+
+            if (!copies.isEmpty()) {
+                pendingLabels.forEach(label -> labels.put(label, copies.get(0)));
+                pendingLabels.clear();
+                inlined.addAll(copies);
+            }
+        }
+
+        var instructions = method.getInstructions();
+        int index = instructions.indexOf(instruction);
+        var next = instructions.get(index + 1);
+        if (jumpsToEnd) {
+            pendingLabels.add(renaming.endLabel());
+        }
+        pendingLabels.forEach(label -> labels.put(label, next));
+
+        if (inlined.isEmpty()) {
+            MethodUtils.remove(method, instruction);
+        } else {
+            MethodUtils.replace(method, instruction, inlined.get(0));
+            instructions.addAll(index + 1, inlined.subList(1, inlined.size()));
+        }
+        labels.forEach(method::addLabel);
+
+        inlinedCalls++;
+    }
+
+    private static boolean isTaken(Method method, String suffix) {
+        return method.getVarTable().keySet().stream().anyMatch(name -> name.endsWith(suffix))
+                || method.getLabels().keySet().stream().anyMatch(label -> label.endsWith(suffix));
+    }
+
+    /**
+     * The names given to the variables and labels of the callee in the caller, and copies of its instructions with
+     * those names.
+     */
+    private class Renaming {
+
+        private final Method callee;
+        private final Element receiver;
+        private final String suffix;
+
+        /**
+         * @param receiver the object the method is called on, which replaces 'this', or null for static methods
+         */
+        Renaming(Method caller, Method callee, Element receiver) {
+            this.callee = callee;
+            this.receiver = receiver;
+
+            // The suffix must not be taken by a variable or label of the caller, e.g. from an earlier optimization
+            String candidate;
+            do {
+                candidate = "_inl" + nextId++;
+            } while (isTaken(caller, candidate));
+            this.suffix = candidate;
+        }
+
+        String label(String label) {
+            return label + suffix;
+        }
+
+        String endLabel() {
+            return "end" + suffix;
+        }
+
+        Operand operand(Operand operand) {
+            return new Operand(operand.getName() + suffix, operand.getType());
+        }
+
+        Element element(Element element) {
+            if (element instanceof ArrayOperand array) {
+                var indexes = array.getIndexOperands().stream().map(this::element).toList();
+                var name = MethodUtils.isVariable(callee, array.getName()) ? array.getName() + suffix : array.getName();
+                return new ArrayOperand(name, array.getType(), indexes);
+            }
+
+            if (!(element instanceof Operand operand) || element.isLiteral()) {
+                return element;
+            }
+
+            if (operand.getName().equals("this") && receiver != null) {
+                return receiver;
+            }
+
+            return MethodUtils.isVariable(callee, operand.getName()) ? operand(operand) : operand;
+        }
+
+        Instruction copy(Instruction instruction) {
+            return switch (instruction.getInstType()) {
+                case ASSIGN -> {
+                    var assign = (AssignInstruction) instruction;
+                    yield new AssignInstruction(element(assign.getDest()), assign.getTypeOfAssign(),
+                            copy(assign.getRhs()));
+                }
+                case NOPER -> new SingleOpInstruction(element(((SingleOpInstruction) instruction).getSingleOperand()));
+                case UNARYOPER -> {
+                    var unaryOp = (UnaryOpInstruction) instruction;
+                    yield new UnaryOpInstruction(unaryOp.getOperation(), element(unaryOp.getOperand()));
+                }
+                case BINARYOPER -> {
+                    var binaryOp = (BinaryOpInstruction) instruction;
+                    yield new BinaryOpInstruction(element(binaryOp.getLeftOperand()), binaryOp.getOperation(),
+                            element(binaryOp.getRightOperand()));
+                }
+                case CALL -> {
+                    var call = (CallInstruction) instruction;
+                    // The caller of 'new' is the class or 'array', not a variable
+                    var caller = call.getInvocationType() == CallType.NEW ? call.getCaller()
+                            : element(call.getCaller());
+                    var arguments = call.getArguments().stream().map(this::element).toList();
+
+                    yield new CallInstruction(call.getInvocationType(), caller, call.getMethodNameTry().orElse(null),
+                            arguments, call.getReturnType(), call.isIsolated());
+                }
+                case GOTO -> new GotoInstruction(label(((GotoInstruction) instruction).getLabel()));
+                case BRANCH -> {
+                    var branch = (CondBranchInstruction) instruction;
+                    var condition = copy(branch.getCondition());
+
+                    var copy = condition instanceof SingleOpInstruction singleOp
+                            ? new SingleOpCondInstruction(singleOp) : new OpCondInstruction((OpInstruction) condition);
+                    copy.setLabel(label(branch.getLabel()));
+                    yield copy;
+                }
+                case GETFIELD -> {
+                    var getField = (GetFieldInstruction) instruction;
+                    yield new GetFieldInstruction((Operand) element(getField.getObject()), getField.getField(),
+                            getField.getFieldType());
+                }
+                case PUTFIELD -> {
+                    var putField = (PutFieldInstruction) instruction;
+                    yield new PutFieldInstruction((Operand) element(putField.getObject()), putField.getField(),
+                            element(putField.getValue()), putField.getFieldType());
+                }
+                default -> throw new RuntimeException("Could not inline instruction '" + instruction + "' of method '"
+                        + callee.getMethodName() + "'");
+            };
+        }
+    }
+}
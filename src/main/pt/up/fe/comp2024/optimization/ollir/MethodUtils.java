@@ -0,0 +1,295 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Queries and changes of the instructions of an OLLIR method.
+ * <p>
+ * Changes keep the labels of the method associated to instructions of the method.
+ */
+public class MethodUtils {
+
+    /**
+     * Removes the instruction, its labels are moved to the instruction after it.
+     *
+     * @return false if the instruction was not removed, because it is the last one and has labels
+     */
+    public static boolean remove(Method method, Instruction instruction) {
+        var instructions = method.getInstructions();
+        int index = instructions.indexOf(instruction);
+
+        if (index + 1 < instructions.size()) {
+            moveLabels(method, instruction, instructions.get(index + 1));
+        } else if (method.getLabels().containsValue(instruction)) {
+            return false;
+        }
+
+        instructions.remove(index);
+        return true;
+    }
+
+    /**
+     * Removes an instruction that is never executed, with the labels associated to it.
+     */
+    public static void removeUnreachable(Method method, Instruction instruction) {
+        method.getInstructions().remove(instruction);
+        method.getLabels().values().removeIf(labeled -> labeled == instruction);
+    }
+
+    /**
+     * Replaces the instruction, its labels are moved to the new one.
+     */
+    public static void replace(Method method, Instruction instruction, Instruction replacement) {
+        var instructions = method.getInstructions();
+        instructions.set(instructions.indexOf(instruction), replacement);
+        moveLabels(method, instruction, replacement);
+    }
+
+    /**
+     * Replaces the instruction with several, its labels are moved to the first one.
+     */
+    public static void replace(Method method, Instruction instruction, List<Instruction> replacement) {
+        var instructions = method.getInstructions();
+        int index = instructions.indexOf(instruction);
+        replace(method, instruction, replacement.get(0));
+        instructions.addAll(index + 1, replacement.subList(1, replacement.size()));
+    }
+
+    /**
+     * Inserts instructions before the given one, its labels stay with it, so jumps to it skip the new instructions.
+     */
+    public static void insertBefore(Method method, Instruction instruction, List<Instruction> inserted) {
+        var instructions = method.getInstructions();
+        instructions.addAll(instructions.indexOf(instruction), inserted);
+    }
+
+    private static void moveLabels(Method method, Instruction from, Instruction to) {
+        for (var label : method.getLabels().entrySet()) {
+            if (label.getValue() == from) {
+                label.setValue(to);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the table of variables of the method, after the instructions changed, so that variables that are no
+     * longer used do not take a register.
+     */
+    public static void rebuildVarTable(Method method) {
+        method.getVarTable().clear();
+        method.buildVarTable();
+    }
+
+    /**
+     * @return true if the name refers to a local variable or parameter of the method
+     */
+    public static boolean isVariable(Method method, String name) {
+        if (name.equals("this")) {
+            return false;
+        }
+
+        var descriptor = method.getVarTable().get(name);
+        if (descriptor == null || descriptor.getScope() == VarScope.FIELD) {
+            return false;
+        }
+
+        // Class names used as callers of static calls also end up in the var table
+        return descriptor.getVarType().getTypeOfElement() != ElementType.CLASS;
+    }
+
+    /**
+     * @return the variable assigned by the instruction, or null if it does not assign a variable
+     */
+    public static Operand getDefinedVariable(Instruction instruction) {
+        if (instruction instanceof AssignInstruction assign && assign.getDest() instanceof Operand dest
+                && !(dest instanceof ArrayOperand)) {
+            return dest;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the call made by the instruction, on its own or assigned to a variable, or null if it does not call a
+     * method
+     */
+    public static CallInstruction getCall(Instruction instruction) {
+        if (instruction instanceof AssignInstruction assign) {
+            return assign.getRhs() instanceof CallInstruction call ? call : null;
+        }
+
+        return instruction instanceof CallInstruction call ? call : null;
+    }
+
+    /**
+     * @return the name of the called method, empty for calls without one, e.g. 'new'
+     */
+    public static Optional<String> getCalledMethod(CallInstruction call) {
+        return call.getMethodNameTry()
+                .filter(LiteralElement.class::isInstance)
+                .map(name -> ((LiteralElement) name).getLiteral().replace("\"", ""));
+    }
+
+    /**
+     * Calls the consumer for each operand read by the instruction, once for each time it is read.
+     * <p>
+     * Reading or storing an array element reads the array, which is given as the element itself, and the variables in
+     * its indexes.
+     */
+    public static void forEachUse(Instruction instruction, Consumer<Operand> consumer) {
+        replaceUses(instruction, operand -> {
+            consumer.accept(operand);
+            return operand;
+        }, consumer);
+    }
+
+    /**
+     * @return how many times each name is read in the method
+     */
+    public static Map<String, Integer> countUses(Method method) {
+        Map<String, Integer> uses = new HashMap<>();
+        for (var instruction : method.getInstructions()) {
+            forEachUse(instruction, operand -> uses.merge(operand.getName(), 1, Integer::sum));
+        }
+
+        return uses;
+    }
+
+    public static boolean sameType(Element first, Element second) {
+        return first.getType().toString().equals(second.getType().toString());
+    }
+
+    /**
+     * Replaces the operands read by the instruction, the instruction itself is not changed.
+     *
+     * @param replacement gives the element that replaces each operand, or the operand itself to keep it
+     * @return the instruction if no operand was replaced, otherwise a new instruction
+     */
+    public static Instruction replaceUses(Instruction instruction, Function<Operand, Element> replacement) {
+        return replaceUses(instruction, replacement, array -> {
+        });
+    }
+
+    /**
+     * @param arrays called with each array element that is read or stored, whose array is never replaced
+     */
+    private static Instruction replaceUses(Instruction instruction, Function<Operand, Element> replacement,
+                                           Consumer<Operand> arrays) {
+        return switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                var assign = (AssignInstruction) instruction;
+                var dest = assign.getDest() instanceof ArrayOperand array
+                        ? replace(array, replacement, arrays) : assign.getDest();
+                var rhs = replaceUses(assign.getRhs(), replacement, arrays);
+
+                yield dest == assign.getDest() && rhs == assign.getRhs() ? assign
+                        : new AssignInstruction(dest, assign.getTypeOfAssign(), rhs);
+            }
+            case NOPER -> {
+                var singleOp = (SingleOpInstruction) instruction;
+                var operand = replace(singleOp.getSingleOperand(), replacement, arrays);
+
+                yield operand == singleOp.getSingleOperand() ? singleOp : new SingleOpInstruction(operand);
+            }
+            case UNARYOPER -> {
+                var unaryOp = (UnaryOpInstruction) instruction;
+                var operand = replace(unaryOp.getOperand(), replacement, arrays);
+
+                yield operand == unaryOp.getOperand() ? unaryOp
+                        : new UnaryOpInstruction(unaryOp.getOperation(), operand);
+            }
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) instruction;
+                var left = replace(binaryOp.getLeftOperand(), replacement, arrays);
+                var right = replace(binaryOp.getRightOperand(), replacement, arrays);
+
+                yield left == binaryOp.getLeftOperand() && right == binaryOp.getRightOperand() ? binaryOp
+                        : new BinaryOpInstruction(left, binaryOp.getOperation(), right);
+            }
+            case CALL -> {
+                var call = (CallInstruction) instruction;
+                // The caller of 'new' is the class or 'array', not a variable
+                var caller = call.getInvocationType() == CallType.NEW ? call.getCaller()
+                        : replace(call.getCaller(), replacement, arrays);
+
+                boolean changed = caller != call.getCaller();
+                var arguments = new ArrayList<Element>();
+                for (var argument : call.getArguments()) {
+                    var replaced = replace(argument, replacement, arrays);
+                    changed |= replaced != argument;
+                    arguments.add(replaced);
+                }
+
+                yield !changed ? call : new CallInstruction(call.getInvocationType(), caller,
+                        call.getMethodNameTry().orElse(null), arguments, call.getReturnType(), call.isIsolated());
+            }
+            case BRANCH -> {
+                var branch = (CondBranchInstruction) instruction;
+                var condition = replaceUses(branch.getCondition(), replacement, arrays);
+                if (condition == branch.getCondition()) {
+                    yield branch;
+                }
+
+                var replaced = condition instanceof SingleOpInstruction singleOp
+                        ? new SingleOpCondInstruction(singleOp) : new OpCondInstruction((OpInstruction) condition);
+                replaced.setLabel(branch.getLabel());
+                yield replaced;
+            }
+            case RETURN -> {
+                var ret = (ReturnInstruction) instruction;
+                if (!ret.hasReturnValue()) {
+                    yield ret;
+                }
+
+                var operand = replace(ret.getOperand(), replacement, arrays);
+                if (operand == ret.getOperand()) {
+                    yield ret;
+                }
+
+                var replaced = new ReturnInstruction(operand);
+                replaced.setReturnType(ret.getReturnType());
+                yield replaced;
+            }
+            case PUTFIELD -> {
+                var putField = (PutFieldInstruction) instruction;
+                var value = replace(putField.getValue(), replacement, arrays);
+
+                yield value == putField.getValue() ? putField
+                        : new PutFieldInstruction(putField.getObject(), putField.getField(), value,
+                        putField.getFieldType());
+            }
+            default -> instruction;
+        };
+    }
+
+    private static Element replace(Element element, Function<Operand, Element> replacement,
+                                   Consumer<Operand> arrays) {
+        if (element instanceof ArrayOperand array) {
+            arrays.accept(array);
+
+            boolean changed = false;
+            List<Element> indexes = new ArrayList<>();
+            for (var index : array.getIndexOperands()) {
+                var replaced = replace(index, replacement, arrays);
+                changed |= replaced != index;
+                indexes.add(replaced);
+            }
+
+            return changed ? new ArrayOperand(array.getName(), array.getType(), indexes) : array;
+        }
+
+        if (element instanceof Operand operand && !element.isLiteral()) {
+            return replacement.apply(operand);
+        }
+
+        return element;
+    }
+}
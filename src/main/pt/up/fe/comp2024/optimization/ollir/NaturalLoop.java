@@ -0,0 +1,168 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.*;
+
+/**
+ * A loop of a CFG, found from its back edges: jumps to a block that dominates the block they leave from.
+ * <p>
+ * The loop is the header, the target of the back edges, and every block that reaches a back edge without going
+ * through the header. Back edges to the same header make a single loop.
+ */
+public class NaturalLoop {
+
+    private final BasicBlock header;
+    private final Set<BasicBlock> blocks;
+    private final List<BasicBlock> latches;
+
+    private NaturalLoop(BasicBlock header) {
+        this.header = header;
+        this.blocks = new HashSet<>(Set.of(header));
+        this.latches = new ArrayList<>();
+    }
+
+    /**
+     * @return the loops of the CFG, inner loops before the loops that contain them
+     */
+    public static List<NaturalLoop> findAll(ControlFlowGraph cfg) {
+        var dominators = cfg.getDominators();
+        Map<BasicBlock, NaturalLoop> loops = new LinkedHashMap<>();
+
+        for (var block : cfg.getBlocks()) {
+            if (!dominators.containsKey(block)) {
+                continue;
+            }
+
+            for (var successor : block.getSuccessors()) {
+                if (dominators.get(block).contains(successor)) {
+                    loops.computeIfAbsent(successor, NaturalLoop::new).addBackEdge(block, dominators.keySet());
+                }
+            }
+        }
+
+        var sorted = new ArrayList<>(loops.values());
+        sorted.sort(Comparator.comparingInt(loop -> loop.blocks.size()));
+        return sorted;
+    }
+
+    /**
+     * Changes one loop of a method, given the CFG the loop was found in.
+     */
+    public interface Transformation {
+
+        /**
+         * @return true if the method changed
+         */
+        boolean apply(Method method, ControlFlowGraph cfg, NaturalLoop loop);
+    }
+
+    /**
+     * Applies the transformation to the loops of the method, inner loops first, until it changes none of them. The
+     * blocks change after each loop is changed, so the loops are found again.
+     *
+     * @return true if the method changed
+     */
+    public static boolean transformAll(Method method, Transformation transformation) {
+        boolean changed = false;
+
+        boolean transformed = true;
+        while (transformed) {
+            transformed = false;
+            ControlFlowGraph.rebuildInstructionGraph(method);
+
+            var cfg = new ControlFlowGraph(method);
+            for (var loop : findAll(cfg)) {
+                if (transformation.apply(method, cfg, loop)) {
+                    transformed = true;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @param reachable the blocks reachable from the entry, other blocks that jump into the loop are not part of it
+     */
+    private void addBackEdge(BasicBlock latch, Set<BasicBlock> reachable) {
+        latches.add(latch);
+
+        Deque<BasicBlock> pending = new ArrayDeque<>();
+        pending.push(latch);
+        while (!pending.isEmpty()) {
+            var block = pending.pop();
+            if (reachable.contains(block) && blocks.add(block)) {
+                block.getPredecessors().forEach(pending::push);
+            }
+        }
+    }
+
+    public BasicBlock getHeader() {
+        return header;
+    }
+
+    public Set<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return the blocks that jump back to the header
+     */
+    public List<BasicBlock> getLatches() {
+        return latches;
+    }
+
+    public boolean contains(BasicBlock block) {
+        return blocks.contains(block);
+    }
+
+    /**
+     * @return the blocks of the loop that can jump out of it
+     */
+    public List<BasicBlock> getExits() {
+        return blocks.stream()
+                .filter(block -> block.getSuccessors().stream().anyMatch(successor -> !contains(successor)))
+                .toList();
+    }
+
+    /**
+     * Instructions inserted before the header run when the loop is entered, as long as every jump into the header
+     * comes from the loop and the block before the header, which is not part of the loop, falls through to it.
+     *
+     * @return a label of the header, or null if the loop has no such entry
+     */
+    public String getPreheaderLabel(Method method, ControlFlowGraph cfg) {
+        var first = header.getInstructions().get(0);
+
+        int index = cfg.getBlocks().indexOf(header);
+        var previous = index > 0 ? cfg.getBlocks().get(index - 1) : null;
+        if (previous != null && contains(previous)) {
+            return null;
+        }
+
+        for (var predecessor : header.getPredecessors()) {
+            if (!contains(predecessor) && (predecessor != previous || jumpsTo(method, predecessor, first))) {
+                return null;
+            }
+        }
+
+        return method.getLabels().entrySet().stream()
+                .filter(label -> label.getValue() == first)
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean jumpsTo(Method method, BasicBlock block, Instruction target) {
+        var label = switch (block.getLast().getInstType()) {
+            case GOTO -> ((GotoInstruction) block.getLast()).getLabel();
+            case BRANCH -> ((CondBranchInstruction) block.getLast()).getLabel();
+            default -> null;
+        };
+
+        return label != null && method.getLabels().get(label) == target;
+    }
+}
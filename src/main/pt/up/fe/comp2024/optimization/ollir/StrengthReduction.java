@@ -0,0 +1,357 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.OllirOptimizationPass;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Replaces integer arithmetic with cheaper operations that compute the same value.
+ * <p>
+ * Operations on literals are folded, and operations with 0, 1 and -1 become copies or subtractions. Multiplications
+ * by powers of two become left shifts. Divisions by powers of two become right shifts, after adding 2^k - 1 to
+ * negative dividends, since the division rounds towards zero and the shift rounds down.
+ * <p>
+ * In loops, a multiplication of a variable that is only incremented by a literal, by a literal or a variable not
+ * assigned in the loop, becomes a new variable that is computed before the loop and incremented with the other one.
+ * Operands are only dropped if they are not array elements, since reading those can throw.
+ */
+public class StrengthReduction implements OllirOptimizationPass {
+
+    private static final Type INT = new Type(ElementType.INT32);
+
+    private final Map<String, Integer> rewrites;
+    private Set<String> names;
+
+    public StrengthReduction() {
+        this.rewrites = new LinkedHashMap<>();
+    }
+
+    @Override
+    public boolean optimize(Method method) {
+        names = new HashSet<>(method.getVarTable().keySet());
+
+        boolean changed = false;
+        for (var instruction : new ArrayList<>(method.getInstructions())) {
+            var replacement = simplify(instruction);
+            if (replacement != null) {
+                MethodUtils.replace(method, instruction, replacement);
+                changed = true;
+            }
+        }
+
+        changed |= NaturalLoop.transformAll(method, this::reduceInductionVariable);
+
+        // New variables must be in the table for the other passes to know they are variables
+        if (changed) {
+            MethodUtils.rebuildVarTable(method);
+        }
+
+        return changed;
+    }
+
+    @Override
+    public String getStats() {
+        int total = rewrites.values().stream().mapToInt(Integer::intValue).sum();
+        var stats = "Strength reduction made " + total + " rewrites";
+        if (total == 0) {
+            return stats;
+        }
+
+        return stats + ": " + rewrites.entrySet().stream()
+                .map(rule -> rule.getKey() + " (" + rule.getValue() + ")")
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @return the instructions that replace the given one, or null if it cannot be simplified
+     */
+    private List<Instruction> simplify(Instruction instruction) {
+        var dest = MethodUtils.getDefinedVariable(instruction);
+        if (dest == null || !(((AssignInstruction) instruction).getRhs() instanceof BinaryOpInstruction binaryOp)
+                || binaryOp.getOperation().getTypeInfo().getTypeOfElement() != ElementType.INT32) {
+            return null;
+        }
+
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+        var leftValue = getValue(left);
+        var rightValue = getValue(right);
+
+        return switch (binaryOp.getOperation().getOpType()) {
+            case ADD -> {
+                if (leftValue != null && rightValue != null) {
+                    yield fold(dest, leftValue + rightValue);
+                }
+                if (isValue(rightValue, 0)) {
+                    yield copy(dest, left, "add-zero");
+                }
+                yield isValue(leftValue, 0) ? copy(dest, right, "add-zero") : null;
+            }
+            case SUB -> {
+                if (leftValue != null && rightValue != null) {
+                    yield fold(dest, leftValue - rightValue);
+                }
+                if (isValue(rightValue, 0)) {
+                    yield copy(dest, left, "sub-zero");
+                }
+                yield isSameVariable(left, right) ? rewrite("sub-self", assign(dest, literal(0))) : null;
+            }
+            case MUL -> {
+                if (leftValue != null && rightValue != null) {
+                    yield fold(dest, leftValue * rightValue);
+                }
+                yield rightValue != null ? multiply(dest, left, rightValue) : multiply(dest, right, leftValue);
+            }
+            case DIV -> {
+                if (leftValue != null && rightValue != null && rightValue != 0) {
+                    yield fold(dest, leftValue / rightValue);
+                }
+                yield rightValue != null ? divide(dest, left, rightValue) : null;
+            }
+            default -> null;
+        };
+    }
+
+    private List<Instruction> multiply(Operand dest, Element operand, Integer value) {
+        if (value == null || operand instanceof ArrayOperand && value == 0) {
+            return null;
+        }
+
+        if (value == 0) {
+            return rewrite("mul-zero", assign(dest, literal(0)));
+        }
+        if (value == 1) {
+            return copy(dest, operand, "mul-one");
+        }
+        if (value == -1) {
+            return rewrite("mul-minus-one", assign(dest, operation(literal(0), OperationType.SUB, operand)));
+        }
+        if (value > 0 && Integer.bitCount(value) == 1) {
+            var shift = literal(Integer.numberOfTrailingZeros(value));
+            return rewrite("mul-pow2", assign(dest, operation(operand, OperationType.SHL, shift)));
+        }
+
+        return null;
+    }
+
+    private List<Instruction> divide(Operand dest, Element operand, int value) {
+        if (value == 1) {
+            return copy(dest, operand, "div-one");
+        }
+        if (value == -1) {
+            return rewrite("div-minus-one", assign(dest, operation(literal(0), OperationType.SUB, operand)));
+        }
+        if (value <= 1 || Integer.bitCount(value) != 1 || operand instanceof ArrayOperand) {
+            return null;
+        }
+
+        // x / 2^k is (x + (x < 0 ? 2^k - 1 : 0)) >> k, where the bias is the sign bits of x shifted right without sign
+        int k = Integer.numberOfTrailingZeros(value);
+        List<Instruction> instructions = new ArrayList<>();
+
+        Element sign = operand;
+        if (k > 1) {
+            sign = newVariable(dest.getName() + "_sign");
+            instructions.add(assign((Operand) sign, operation(operand, OperationType.SHR, literal(31))));
+        }
+
+        var bias = newVariable(dest.getName() + "_bias");
+        instructions.add(assign(bias, operation(sign, OperationType.SHRR, literal(32 - k))));
+
+        var biased = newVariable(dest.getName() + "_biased");
+        instructions.add(assign(biased, operation(operand, OperationType.ADD, bias)));
+        instructions.add(assign(dest, operation(biased, OperationType.SHR, literal(k))));
+
+        return rewrite("div-pow2", instructions);
+    }
+
+    /**
+     * Replaces the multiplications of a variable of the loop that is only incremented by a literal with a new variable
+     * that holds the product, initialized before the loop and incremented after the variable is.
+     */
+    private boolean reduceInductionVariable(Method method, ControlFlowGraph cfg, NaturalLoop loop) {
+        var headerLabel = loop.getPreheaderLabel(method, cfg);
+        if (headerLabel == null) {
+            return false;
+        }
+
+        List<Instruction> instructions = new ArrayList<>();
+        Map<String, List<Instruction>> definitions = new HashMap<>();
+        for (var block : cfg.getBlocks()) {
+            if (loop.contains(block)) {
+                for (var instruction : block.getInstructions()) {
+                    instructions.add(instruction);
+                    var dest = MethodUtils.getDefinedVariable(instruction);
+                    if (dest != null) {
+                        definitions.computeIfAbsent(dest.getName(), name -> new ArrayList<>()).add(instruction);
+                    }
+                }
+            }
+        }
+
+        for (var instruction : instructions) {
+            var dest = MethodUtils.getDefinedVariable(instruction);
+            if (dest == null || !(((AssignInstruction) instruction).getRhs() instanceof BinaryOpInstruction binaryOp)
+                    || binaryOp.getOperation().getOpType() != OperationType.MUL) {
+                continue;
+            }
+
+            for (var operands : List.of(List.of(binaryOp.getLeftOperand(), binaryOp.getRightOperand()),
+                    List.of(binaryOp.getRightOperand(), binaryOp.getLeftOperand()))) {
+                var variable = operands.get(0);
+                var factor = operands.get(1);
+
+                if (!(variable instanceof Operand operand) || operand instanceof ArrayOperand
+                        || !MethodUtils.isVariable(method, operand.getName()) || !isInvariant(factor, definitions)) {
+                    continue;
+                }
+
+                var increments = definitions.get(operand.getName());
+                var step = increments != null && increments.size() == 1 ? getStep(increments.get(0)) : null;
+                if (step != null) {
+                    reduce(method, headerLabel, instructions, operand, factor, increments.get(0), step);
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void reduce(Method method, String headerLabel, List<Instruction> loopInstructions, Operand variable,
+                        Element factor, Instruction increment, int step) {
+        var product = newVariable(variable.getName() + "_times");
+        List<Instruction> preheader = new ArrayList<>();
+        preheader.add(assign(product, operation(variable, OperationType.MUL, factor)));
+
+        // The product changes by step * factor each time the variable changes by step
+        Element productStep;
+        var factorValue = getValue(factor);
+        if (factorValue != null) {
+            productStep = literal(step * factorValue);
+        } else if (step == 1) {
+            productStep = factor;
+        } else {
+            productStep = newVariable(variable.getName() + "_step");
+            preheader.add(assign((Operand) productStep, operation(factor, OperationType.MUL, literal(step))));
+        }
+        MethodUtils.insertBefore(method, method.getLabels().get(headerLabel), preheader);
+
+        var instructions = method.getInstructions();
+        instructions.add(instructions.indexOf(increment) + 1,
+                assign(product, operation(product, OperationType.ADD, productStep)));
+
+        // Every multiplication of the same variable by the same factor reads the new variable
+        for (var instruction : loopInstructions) {
+            var dest = MethodUtils.getDefinedVariable(instruction);
+            if (dest != null && isProduct(((AssignInstruction) instruction).getRhs(), variable, factor)) {
+                MethodUtils.replace(method, instruction, assign(dest, new SingleOpInstruction(product)));
+                rewrites.merge("induction-mul", 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * @return the literal added to the variable by an instruction such as 'i := i + 1', or null for other instructions
+     */
+    private static Integer getStep(Instruction instruction) {
+        var dest = MethodUtils.getDefinedVariable(instruction);
+        if (!(((AssignInstruction) instruction).getRhs() instanceof BinaryOpInstruction binaryOp)) {
+            return null;
+        }
+
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+        return switch (binaryOp.getOperation().getOpType()) {
+            case ADD -> isSameVariable(left, dest) ? getValue(right)
+                    : isSameVariable(right, dest) ? getValue(left) : null;
+            case SUB -> isSameVariable(left, dest) && getValue(right) != null ? -getValue(right) : null;
+            default -> null;
+        };
+    }
+
+    private static boolean isProduct(Instruction rhs, Operand variable, Element factor) {
+        if (!(rhs instanceof BinaryOpInstruction binaryOp)
+                || binaryOp.getOperation().getOpType() != OperationType.MUL) {
+            return false;
+        }
+
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+        return isSameVariable(left, variable) && isSame(right, factor)
+                || isSameVariable(right, variable) && isSame(left, factor);
+    }
+
+    private static boolean isInvariant(Element element, Map<String, List<Instruction>> definitions) {
+        return getValue(element) != null || element instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && !definitions.containsKey(operand.getName());
+    }
+
+    private static Integer getValue(Element element) {
+        if (element instanceof LiteralElement literal && literal.getType().getTypeOfElement() == ElementType.INT32) {
+            return Integer.parseInt(literal.getLiteral());
+        }
+
+        return null;
+    }
+
+    private static boolean isValue(Integer value, int expected) {
+        return value != null && value == expected;
+    }
+
+    private static boolean isSameVariable(Element first, Element second) {
+        return first instanceof Operand firstOperand && !(first instanceof ArrayOperand)
+                && second instanceof Operand secondOperand && !(second instanceof ArrayOperand)
+                && firstOperand.getName().equals(secondOperand.getName());
+    }
+
+    private static boolean isSame(Element first, Element second) {
+        var value = getValue(first);
+        return value != null ? value.equals(getValue(second)) : isSameVariable(first, second);
+    }
+
+    private List<Instruction> fold(Operand dest, int value) {
+        return rewrite("fold", assign(dest, literal(value)));
+    }
+
+    private List<Instruction> copy(Operand dest, Element operand, String rule) {
+        return rewrite(rule, assign(dest, new SingleOpInstruction(operand)));
+    }
+
+    private List<Instruction> rewrite(String rule, Instruction instruction) {
+        return rewrite(rule, List.of(instruction));
+    }
+
+    private List<Instruction> rewrite(String rule, List<Instruction> instructions) {
+        rewrites.merge(rule, 1, Integer::sum);
+        return instructions;
+    }
+
+    private Operand newVariable(String name) {
+        var unused = name;
+        for (int i = 0; names.contains(unused); i++) {
+            unused = name + i;
+        }
+
+        names.add(unused);
+        return new Operand(unused, INT);
+    }
+
+    private static AssignInstruction assign(Operand dest, Instruction rhs) {
+        return new AssignInstruction(new Operand(dest.getName(), INT), INT, rhs);
+    }
+
+    private static AssignInstruction assign(Operand dest, Element value) {
+        return assign(dest, new SingleOpInstruction(value));
+    }
+
+    private static BinaryOpInstruction operation(Element left, OperationType type, Element right) {
+        return new BinaryOpInstruction(left, new Operation(type, INT), right);
+    }
+
+    private static LiteralElement literal(int value) {
+        return new LiteralElement(String.valueOf(value), INT);
+    }
+}
@@ -0,0 +1,173 @@
+package pt.up.fe.comp2024.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.OllirOptimizationPass;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Turns calls of a method to itself whose result is returned right away into a jump to the start of the method,
+ * after assigning the arguments to the parameters, so that the recursion no longer grows the stack.
+ * <p>
+ * A call is a tail call if only copies of its result and gotos run between it and a return of the result. As in
+ * {@link MethodInliner}, calls on 'this' are only rewritten if the class or the method is final, otherwise a subclass
+ * can override the method and the call must run the override.
+ */
+public class TailCallElimination implements OllirOptimizationPass {
+
+    private final Map<String, Integer> tailCalls;
+
+    public TailCallElimination() {
+        this.tailCalls = new LinkedHashMap<>();
+    }
+
+    @Override
+    public boolean optimize(Method method) {
+        if (method.isConstructMethod() || method.isVarargs()) {
+            return false;
+        }
+
+        boolean changed = false;
+        for (var instruction : new ArrayList<>(method.getInstructions())) {
+            if (isSelfCall(method, instruction) && isTailCall(method, instruction)) {
+                replaceWithJump(method, instruction);
+                tailCalls.merge(method.getMethodName(), 1, Integer::sum);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            ControlFlowGraph.rebuildInstructionGraph(method);
+        }
+
+        return changed;
+    }
+
+    @Override
+    public String getStats() {
+        int total = tailCalls.values().stream().mapToInt(Integer::intValue).sum();
+        var stats = "Tail call elimination turned " + total + " self tail calls into jumps";
+        if (total == 0) {
+            return stats;
+        }
+
+        return stats + ", in " + tailCalls.entrySet().stream()
+                .map(calls -> calls.getKey() + " (" + calls.getValue() + ")")
+                .collect(Collectors.joining(", "));
+    }
+
+    private static boolean isSelfCall(Method method, Instruction instruction) {
+        var call = MethodUtils.getCall(instruction);
+        if (call == null || !(call.getCaller() instanceof Operand caller)
+                || !MethodUtils.getCalledMethod(call).map(method.getMethodName()::equals).orElse(false)
+                || call.getArguments().size() != method.getParams().size()) {
+            return false;
+        }
+
+        return switch (call.getInvocationType()) {
+            case invokevirtual -> !method.isStaticMethod() && caller.getName().equals("this")
+                    && (method.getOllirClass().isFinalClass() || method.isFinalMethod());
+            case invokestatic -> method.isStaticMethod()
+                    && caller.getName().equals(method.getOllirClass().getClassName());
+            default -> false;
+        };
+    }
+
+    /**
+     * Follows the instructions that run after the call, until one that is not a goto or a copy of the result.
+     */
+    private static boolean isTailCall(Method method, Instruction call) {
+        var instructions = method.getInstructions();
+        var result = call instanceof AssignInstruction assign ? ((Operand) assign.getDest()).getName() : null;
+
+        int index = instructions.indexOf(call) + 1;
+        // Gotos that form a loop never reach a return
+        for (int steps = 0; steps < instructions.size() && index < instructions.size(); steps++) {
+            var instruction = instructions.get(index);
+
+            if (instruction instanceof GotoInstruction jump) {
+                index = instructions.indexOf(method.getLabels().get(jump.getLabel()));
+            } else if (instruction instanceof ReturnInstruction ret) {
+                return !ret.hasReturnValue() || result != null && ret.getOperand() instanceof Operand operand
+                        && !(operand instanceof ArrayOperand) && operand.getName().equals(result);
+            } else if (result != null && isCopyOf(instruction, result)) {
+                result = MethodUtils.getDefinedVariable(instruction).getName();
+                index++;
+            } else {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isCopyOf(Instruction instruction, String name) {
+        return MethodUtils.getDefinedVariable(instruction) != null
+                && ((AssignInstruction) instruction).getRhs() instanceof SingleOpInstruction singleOp
+                && singleOp.getSingleOperand() instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && operand.getName().equals(name);
+    }
+
+    private static void replaceWithJump(Method method, Instruction instruction) {
+        var call = MethodUtils.getCall(instruction);
+        var params = method.getParams().stream().map(param -> (Operand) param).toList();
+        var paramNames = params.stream().map(Operand::getName).collect(Collectors.toSet());
+
+        // Arguments that read a parameter are copied first, parameters before them could already have a new value
+        List<Instruction> temps = new ArrayList<>();
+        List<Instruction> assignments = new ArrayList<>();
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+            var argument = call.getArguments().get(i);
+
+            if (argument instanceof Operand operand && !(operand instanceof ArrayOperand)
+                    && operand.getName().equals(param.getName())) {
+                continue;
+            }
+
+            if (argument instanceof Operand operand && paramNames.contains(operand.getName())) {
+                var temp = new Operand(getUnusedName(method, param.getName() + "_next"), param.getType());
+                temps.add(new AssignInstruction(temp, param.getType(), new SingleOpInstruction(argument)));
+                argument = temp;
+            }
+
+            assignments.add(new AssignInstruction(new Operand(param.getName(), param.getType()), param.getType(),
+                    new SingleOpInstruction(argument)));
+        }
+
+        List<Instruction> replacement = new ArrayList<>(temps);
+        replacement.addAll(assignments);
+        replacement.add(new GotoInstruction(getEntryLabel(method)));
+
+        MethodUtils.replace(method, instruction, replacement);
+    }
+
+    /**
+     * @return a label of the first instruction of the method, which is added if there is none
+     */
+    private static String getEntryLabel(Method method) {
+        var first = method.getInstructions().get(0);
+        for (var label : method.getLabels().entrySet()) {
+            if (label.getValue() == first) {
+                return label.getKey();
+            }
+        }
+
+        var label = "entry";
+        for (int i = 0; method.getLabels().containsKey(label); i++) {
+            label = "entry_" + i;
+        }
+        method.addLabel(label, first);
+        return label;
+    }
+
+    private static String getUnusedName(Method method, String name) {
+        var unused = name;
+        for (int i = 0; method.getVarTable().containsKey(unused); i++) {
+            unused = name + i;
+        }
+
+        return unused;
+    }
+}
@@ -0,0 +1,88 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.Optional;
+
+/**
+ * A compile-time value, either an int or a boolean.
+ */
+record Constant(Kind kind, String value) {
+
+    static Constant ofInt(int value) {
+        return new Constant(Kind.INTEGER_LITERAL, String.valueOf(value));
+    }
+
+    static Constant ofBoolean(boolean value) {
+        return new Constant(Kind.BOLEAN, String.valueOf(value));
+    }
+
+    /**
+     * @return the value of the node if it is a literal
+     */
+    static Optional<Constant> of(JmmNode node) {
+        if (Kind.INTEGER_LITERAL.check(node)) {
+            return Optional.of(ofInt(Integer.parseInt(node.get("value"))));
+        }
+
+        if (Kind.BOLEAN.check(node)) {
+            return Optional.of(ofBoolean(Boolean.parseBoolean(node.get("value"))));
+        }
+
+        // 'true' and 'false' are lexed as identifiers
+        if (Kind.VAR_REF_EXPR.check(node) && (node.get("name").equals("true") || node.get("name").equals("false"))) {
+            return Optional.of(ofBoolean(Boolean.parseBoolean(node.get("name"))));
+        }
+
+        return Optional.empty();
+    }
+
+    boolean isInt() {
+        return kind == Kind.INTEGER_LITERAL;
+    }
+
+    boolean isBoolean() {
+        return kind == Kind.BOLEAN;
+    }
+
+    int asInt() {
+        return Integer.parseInt(value);
+    }
+
+    boolean asBoolean() {
+        return Boolean.parseBoolean(value);
+    }
+
+    JmmNode toNode() {
+        var node = new JmmNodeImpl(kind.getNodeName());
+        node.put("value", value);
+        node.put("type", isInt() ? "int" : "boolean");
+        return node;
+    }
+
+    /**
+     * Replaces the node with this value, if the OLLIR generator supports a literal in that position.
+     *
+     * @return true if the node was replaced
+     */
+    boolean replace(JmmNode node) {
+        if (!canReplace(node)) {
+            return false;
+        }
+
+        node.replace(toNode());
+        return true;
+    }
+
+    private boolean canReplace(JmmNode node) {
+        if (isInt()) {
+            return true;
+        }
+
+        // Boolean literals are only lowered when assigned or returned, conditions must stay as a BinaryOp
+        var parent = node.getParent();
+        return (Kind.ASSIGN_STMT.check(parent) && node.getIndexOfSelf() == 1) || Kind.RETURN_STMT.check(parent);
+    }
+}
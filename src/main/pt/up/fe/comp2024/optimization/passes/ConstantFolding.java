@@ -0,0 +1,107 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.optimization.AstOptimizationPass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Replaces arithmetic, comparison and logical expressions whose operands are all literals by their value.
+ */
+public class ConstantFolding implements AstOptimizationPass {
+
+    private boolean changed;
+
+    @Override
+    public boolean optimize(JmmNode root, SymbolTable table) {
+        changed = false;
+        fold(root);
+        return changed;
+    }
+
+    private Optional<Constant> fold(JmmNode node) {
+        // Children first, they can be replaced while folding
+        List<Optional<Constant>> operands = new ArrayList<>();
+        for (var child : List.copyOf(node.getChildren())) {
+            operands.add(fold(child));
+        }
+
+        var value = evaluate(node, operands);
+
+        if (value.isPresent() && Constant.of(node).isEmpty()) {
+            changed |= value.get().replace(node);
+        }
+
+        return value;
+    }
+
+    private static Optional<Constant> evaluate(JmmNode node, List<Optional<Constant>> operands) {
+        var literal = Constant.of(node);
+        if (literal.isPresent()) {
+            return literal;
+        }
+
+        if (Kind.PARENTESIS.check(node)) {
+            return operands.get(0);
+        }
+
+        if (Kind.NEGATE.check(node)) {
+            return operands.get(0)
+                    .filter(Constant::isBoolean)
+                    .map(operand -> Constant.ofBoolean(!operand.asBoolean()));
+        }
+
+        if (!Kind.check(node, Kind.BINARY_EXPR, Kind.BINARY_OP) || operands.size() != 2) {
+            return Optional.empty();
+        }
+
+        var left = operands.get(0);
+        var right = operands.get(1);
+        if (left.isEmpty() || right.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var op = node.get("op");
+
+        if (left.get().isInt() && right.get().isInt()) {
+            return evaluateInt(op, left.get().asInt(), right.get().asInt());
+        }
+
+        if (left.get().isBoolean() && right.get().isBoolean()) {
+            return evaluateBoolean(op, left.get().asBoolean(), right.get().asBoolean());
+        }
+
+        return Optional.empty();
+    }
+
+    private static Optional<Constant> evaluateInt(String op, int left, int right) {
+        return switch (op) {
+            case "+" -> Optional.of(Constant.ofInt(left + right));
+            case "-" -> Optional.of(Constant.ofInt(left - right));
+            case "*" -> Optional.of(Constant.ofInt(left * right));
+            // Division by zero must still throw at runtime
+            case "/" -> right == 0 ? Optional.empty() : Optional.of(Constant.ofInt(left / right));
+            case "<" -> Optional.of(Constant.ofBoolean(left < right));
+            case "<=" -> Optional.of(Constant.ofBoolean(left <= right));
+            case ">" -> Optional.of(Constant.ofBoolean(left > right));
+            case ">=" -> Optional.of(Constant.ofBoolean(left >= right));
+            case "==" -> Optional.of(Constant.ofBoolean(left == right));
+            case "!=" -> Optional.of(Constant.ofBoolean(left != right));
+            default -> Optional.empty();
+        };
+    }
+
+    private static Optional<Constant> evaluateBoolean(String op, boolean left, boolean right) {
+        return switch (op) {
+            case "&&" -> Optional.of(Constant.ofBoolean(left && right));
+            case "||" -> Optional.of(Constant.ofBoolean(left || right));
+            case "==" -> Optional.of(Constant.ofBoolean(left == right));
+            case "!=" -> Optional.of(Constant.ofBoolean(left != right));
+            default -> Optional.empty();
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.optimization.AstOptimizationPass;
+
+import java.util.*;
+
+/**
+ * Replaces reads of local variables by their value, when the variable holds the same constant on every path that
+ * reaches the read.
+ * <p>
+ * Forward dataflow over the statements of each method: branches are merged by keeping only the variables with the
+ * same constant in all of them, and loops are iterated until the constants at the loop head stop changing.
+ */
+public class ConstantPropagation implements AstOptimizationPass {
+
+    private Set<String> locals;
+    private Map<JmmNode, Constant> reads;
+
+    @Override
+    public boolean optimize(JmmNode root, SymbolTable table) {
+        boolean changed = false;
+
+        for (var method : root.getDescendants(Kind.METHOD_DECL)) {
+            changed |= optimizeMethod(method);
+        }
+
+        return changed;
+    }
+
+    private boolean optimizeMethod(JmmNode method) {
+        // Parameters and fields are never constant, fields can be changed by calls
+        locals = new HashSet<>();
+        for (var varDecl : method.getChildren(Kind.VAR_DECL)) {
+            locals.add(varDecl.get("name"));
+        }
+
+        reads = new HashMap<>();
+
+        Map<String, Constant> env = new HashMap<>();
+        for (var stmt : method.getChildren()) {
+            if (Kind.isStmt(stmt)) {
+                env = exec(stmt, env);
+            }
+        }
+
+        boolean changed = false;
+        for (var entry : reads.entrySet()) {
+            changed |= entry.getValue().replace(entry.getKey());
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the constants after executing the statement
+     */
+    private Map<String, Constant> exec(JmmNode stmt, Map<String, Constant> env) {
+        if (Kind.ASSIGN_STMT.check(stmt)) {
+            var dest = stmt.getChild(0);
+            var value = stmt.getChild(1);
+
+            recordReads(value, env);
+
+            if (!Kind.VAR_REF_EXPR.check(dest)) {
+                // Array element, the array reference and index are reads
+                recordReads(dest, env);
+                return env;
+            }
+
+            var name = dest.get("name");
+            if (locals.contains(name)) {
+                var constant = valueOf(value, env);
+                if (constant.isPresent()) {
+                    env.put(name, constant.get());
+                } else {
+                    env.remove(name);
+                }
+            }
+
+            return env;
+        }
+
+        if (Kind.check(stmt, Kind.EXPRESSION, Kind.RETURN_STMT)) {
+            stmt.getChildren().forEach(child -> recordReads(child, env));
+            return env;
+        }
+
+        if (Kind.BRACKETS.check(stmt)) {
+            var current = env;
+            for (var child : stmt.getChildren()) {
+                current = exec(child, current);
+            }
+            return current;
+        }
+
+        if (Kind.IF_CONDITION.check(stmt)) {
+            // cond, stmt, (else if cond, stmt)*, else stmt
+            var children = stmt.getChildren();
+            List<Map<String, Constant>> branches = new ArrayList<>();
+            for (int i = 0; i < children.size(); i++) {
+                boolean isCondition = i % 2 == 0 && i < children.size() - 1;
+                if (isCondition) {
+                    recordReads(children.get(i), env);
+                } else {
+                    branches.add(exec(children.get(i), new HashMap<>(env)));
+                }
+            }
+            return meet(branches);
+        }
+
+        if (Kind.WHILE_LOOP.check(stmt)) {
+            var head = env;
+            while (true) {
+                recordReads(stmt.getChild(0), head);
+                var bodyOut = exec(stmt.getChild(1), new HashMap<>(head));
+
+                var newHead = meet(List.of(env, bodyOut));
+                if (newHead.equals(head)) {
+                    return head;
+                }
+                head = newHead;
+            }
+        }
+
+        // Other statements, assume they can change any variable
+        recordReads(stmt, Collections.emptyMap());
+        return new HashMap<>();
+    }
+
+    private void recordReads(JmmNode expr, Map<String, Constant> env) {
+        if (Kind.VAR_REF_EXPR.check(expr) && locals.contains(expr.get("name"))) {
+            var constant = env.get(expr.get("name"));
+            if (constant != null) {
+                reads.put(expr, constant);
+            } else {
+                reads.remove(expr);
+            }
+        }
+
+        for (var child : expr.getChildren()) {
+            recordReads(child, env);
+        }
+    }
+
+    private Optional<Constant> valueOf(JmmNode expr, Map<String, Constant> env) {
+        var literal = Constant.of(expr);
+        if (literal.isPresent() || !Kind.VAR_REF_EXPR.check(expr)) {
+            return literal;
+        }
+
+        return Optional.ofNullable(env.get(expr.get("name")));
+    }
+
+    private static Map<String, Constant> meet(List<Map<String, Constant>> envs) {
+        var result = new HashMap<>(envs.get(0));
+        for (var env : envs.subList(1, envs.size())) {
+            result.entrySet().removeIf(entry -> !entry.getValue().equals(env.get(entry.getKey())));
+        }
+        return result;
+    }
+}
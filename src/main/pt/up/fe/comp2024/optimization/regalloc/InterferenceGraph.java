@@ -0,0 +1,156 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import java.util.*;
+
+/**
+ * Undirected graph where two variables are connected if they are live at the same time, and therefore cannot share a
+ * register.
+ */
+public class InterferenceGraph {
+
+    private final Map<String, Set<String>> edges;
+
+    public InterferenceGraph() {
+        // Sorted, so that the coloring does not depend on hashing order
+        this.edges = new TreeMap<>();
+    }
+
+    public static InterferenceGraph build(LivenessAnalysis liveness) {
+        var graph = new InterferenceGraph();
+        var method = liveness.getMethod();
+
+        for (var name : method.getVarTable().keySet()) {
+            if (liveness.isVariable(name)) {
+                graph.addNode(name);
+            }
+        }
+
+        // Whatever is defined interferes with everything else that is still alive after the definition
+        for (var inst : method.getInstructions()) {
+            for (var def : liveness.getDefs(inst)) {
+                for (var live : liveness.getLiveOut(inst)) {
+                    graph.addEdge(def, live);
+                }
+            }
+        }
+
+        // Variables live at the start of the method (parameters, or variables read before being written) all hold
+        // values at the same time
+        var liveAtEntry = List.copyOf(liveness.getLiveAtEntry());
+        for (int i = 0; i < liveAtEntry.size(); i++) {
+            for (int j = i + 1; j < liveAtEntry.size(); j++) {
+                graph.addEdge(liveAtEntry.get(i), liveAtEntry.get(j));
+            }
+        }
+
+        return graph;
+    }
+
+    public void addNode(String name) {
+        edges.computeIfAbsent(name, key -> new TreeSet<>());
+    }
+
+    public void addEdge(String first, String second) {
+        if (first.equals(second)) {
+            return;
+        }
+
+        addNode(first);
+        addNode(second);
+        edges.get(first).add(second);
+        edges.get(second).add(first);
+    }
+
+    public Set<String> getNodes() {
+        return edges.keySet();
+    }
+
+    public Set<String> getNeighbors(String name) {
+        return edges.getOrDefault(name, Collections.emptySet());
+    }
+
+    /**
+     * Colors the graph with the registers in the range [firstColor, numColors), using Chaitin-style simplification
+     * with optimistic coloring of spill candidates.
+     *
+     * @param numColors  the number of registers available
+     * @param firstColor registers below this one are reserved and never assigned (e.g., 'this')
+     * @param precolored nodes whose register is fixed (e.g., parameters)
+     * @return the register of each node, or empty if the graph could not be colored with the given registers
+     */
+    public Optional<Map<String, Integer>> color(int numColors, int firstColor, Map<String, Integer> precolored) {
+        int available = numColors - firstColor;
+
+        var remaining = new LinkedHashSet<String>();
+        for (var node : edges.keySet()) {
+            if (!precolored.containsKey(node)) {
+                remaining.add(node);
+            }
+        }
+
+        // Simplify: remove nodes with less neighbors than available registers, they can always be colored
+        Deque<String> stack = new ArrayDeque<>();
+        while (!remaining.isEmpty()) {
+            String next = null;
+            String maxDegreeNode = null;
+            int maxDegree = -1;
+
+            for (var node : remaining) {
+                int degree = getDegree(node, remaining, precolored);
+                if (degree < available) {
+                    next = node;
+                    break;
+                }
+                if (degree > maxDegree) {
+                    maxDegree = degree;
+                    maxDegreeNode = node;
+                }
+            }
+
+            // No trivially colorable node, optimistically push the one most likely to spill
+            if (next == null) {
+                next = maxDegreeNode;
+            }
+
+            remaining.remove(next);
+            stack.push(next);
+        }
+
+        // Select: give each node the lowest register not taken by its neighbors
+        var colors = new HashMap<>(precolored);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+
+            var taken = new HashSet<Integer>();
+            for (var neighbor : getNeighbors(node)) {
+                var color = colors.get(neighbor);
+                if (color != null) {
+                    taken.add(color);
+                }
+            }
+
+            int color = firstColor;
+            while (taken.contains(color)) {
+                color++;
+            }
+
+            if (color >= numColors) {
+                return Optional.empty();
+            }
+
+            colors.put(node, color);
+        }
+
+        return Optional.of(colors);
+    }
+
+    private int getDegree(String node, Set<String> remaining, Map<String, Integer> precolored) {
+        int degree = 0;
+        for (var neighbor : getNeighbors(node)) {
+            if (remaining.contains(neighbor) || precolored.containsKey(neighbor)) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+}
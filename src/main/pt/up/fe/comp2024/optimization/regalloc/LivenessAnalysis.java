@@ -0,0 +1,173 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.ollir.MethodUtils;
+
+import java.util.*;
+
+/**
+ * Computes, for each instruction of an OLLIR method, the variables defined and used by it and the variables that are
+ * live before (in) and after (out) it.
+ * <p>
+ * Requires the CFG of the method to be built.
+ */
+public class LivenessAnalysis {
+
+    private final Method method;
+    private final Map<Instruction, Set<String>> defs;
+    private final Map<Instruction, Set<String>> uses;
+    private final Map<Instruction, Set<String>> liveIn;
+    private final Map<Instruction, Set<String>> liveOut;
+
+    public LivenessAnalysis(Method method) {
+        this.method = method;
+        this.defs = new HashMap<>();
+        this.uses = new HashMap<>();
+        this.liveIn = new HashMap<>();
+        this.liveOut = new HashMap<>();
+
+        for (var inst : method.getInstructions()) {
+            defs.put(inst, computeDefs(inst));
+            uses.put(inst, computeUses(inst));
+            liveIn.put(inst, new HashSet<>());
+            liveOut.put(inst, new HashSet<>());
+        }
+
+        solve();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public Set<String> getDefs(Instruction inst) {
+        return defs.get(inst);
+    }
+
+    public Set<String> getUses(Instruction inst) {
+        return uses.get(inst);
+    }
+
+    public Set<String> getLiveIn(Instruction inst) {
+        return liveIn.get(inst);
+    }
+
+    public Set<String> getLiveOut(Instruction inst) {
+        return liveOut.get(inst);
+    }
+
+    /**
+     * @return the variables that are live when the method starts, e.g. parameters that are read
+     */
+    public Set<String> getLiveAtEntry() {
+        var instructions = method.getInstructions();
+        return instructions.isEmpty() ? Collections.emptySet() : liveIn.get(instructions.get(0));
+    }
+
+    /**
+     * @return true if the name refers to a local variable or parameter that needs a register
+     */
+    public boolean isVariable(String name) {
+        return MethodUtils.isVariable(method, name);
+    }
+
+    private void solve() {
+        var instructions = method.getInstructions();
+
+        // Backwards problem, iterating in reverse order converges faster
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                var inst = instructions.get(i);
+
+                var out = new HashSet<String>();
+                for (var successor : inst.getSuccessors()) {
+                    if (successor instanceof Instruction successorInst) {
+                        out.addAll(liveIn.get(successorInst));
+                    }
+                }
+
+                var in = new HashSet<>(out);
+                in.removeAll(defs.get(inst));
+                in.addAll(uses.get(inst));
+
+                if (!out.equals(liveOut.get(inst)) || !in.equals(liveIn.get(inst))) {
+                    liveOut.put(inst, out);
+                    liveIn.put(inst, in);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private Set<String> computeDefs(Instruction inst) {
+        var result = new HashSet<String>();
+
+        if (inst instanceof AssignInstruction assign && !(assign.getDest() instanceof ArrayOperand)) {
+            var dest = (Operand) assign.getDest();
+            if (isVariable(dest.getName())) {
+                result.add(dest.getName());
+            }
+        }
+
+        return result;
+    }
+
+    private Set<String> computeUses(Instruction inst) {
+        var result = new HashSet<String>();
+        addUses(inst, result);
+        return result;
+    }
+
+    private void addUses(Instruction inst, Set<String> result) {
+        switch (inst.getInstType()) {
+            case ASSIGN -> {
+                var assign = (AssignInstruction) inst;
+                // Storing into an array element reads the array reference and the index
+                if (assign.getDest() instanceof ArrayOperand) {
+                    addUses(assign.getDest(), result);
+                }
+                addUses(assign.getRhs(), result);
+            }
+            case CALL -> ((CallInstruction) inst).getOperands().forEach(operand -> addUses(operand, result));
+            case BRANCH -> ((CondBranchInstruction) inst).getOperands().forEach(operand -> addUses(operand, result));
+            case RETURN -> {
+                var returnInst = (ReturnInstruction) inst;
+                if (returnInst.hasReturnValue()) {
+                    addUses(returnInst.getOperand(), result);
+                }
+            }
+            case PUTFIELD -> {
+                var putField = (PutFieldInstruction) inst;
+                addUses(putField.getObject(), result);
+                addUses(putField.getValue(), result);
+            }
+            case GETFIELD -> addUses(((GetFieldInstruction) inst).getObject(), result);
+            case UNARYOPER -> addUses(((UnaryOpInstruction) inst).getOperand(), result);
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) inst;
+                addUses(binaryOp.getLeftOperand(), result);
+                addUses(binaryOp.getRightOperand(), result);
+            }
+            case NOPER -> addUses(((SingleOpInstruction) inst).getSingleOperand(), result);
+            default -> {
+            }
+        }
+    }
+
+    private void addUses(Element element, Set<String> result) {
+        if (element.isLiteral() || !(element instanceof Operand operand)) {
+            return;
+        }
+
+        if (isVariable(operand.getName())) {
+            result.add(operand.getName());
+        }
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            arrayOperand.getIndexOperands().forEach(index -> addUses(index, result));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns JVM local variable slots to the variables of each method, so that variables which are never live at the
+ * same time share a slot.
+ * <p>
+ * Requires the CFG of the methods to be built.
+ */
+public class RegisterAllocator {
+
+    private final int maxRegisters;
+    private final List<Report> reports;
+
+    /**
+     * @param maxRegisters the maximum number of registers (JVM locals, including 'this' and parameters) a method can
+     *                     use, or 0 to use as few as possible
+     */
+    public RegisterAllocator(int maxRegisters) {
+        if (maxRegisters < 0) {
+            throw new IllegalArgumentException("Expected a non-negative number of registers, got " + maxRegisters);
+        }
+
+        this.maxRegisters = maxRegisters;
+        this.reports = new ArrayList<>();
+    }
+
+    public List<Report> allocate(ClassUnit classUnit) {
+        for (var method : classUnit.getMethods()) {
+            allocate(method);
+        }
+
+        return reports;
+    }
+
+    private void allocate(Method method) {
+        var liveness = new LivenessAnalysis(method);
+        var graph = InterferenceGraph.build(liveness);
+
+        // 'this' is always in register 0, and parameters keep the registers the JVM passes them in
+        int firstColor = method.isStaticMethod() ? 0 : 1;
+        Map<String, Integer> precolored = new HashMap<>();
+        for (var param : method.getParams()) {
+            var name = ((Operand) param).getName();
+            if (graph.getNodes().contains(name)) {
+                precolored.put(name, method.getVarTable().get(name).getVirtualReg());
+            }
+        }
+
+        int minRegisters = firstColor + method.getParams().size();
+
+        // Even with a cap, the fewest registers are used, the cap only decides whether that is acceptable
+        var coloring = colorWithFewest(graph, minRegisters, firstColor, precolored);
+        int numRegisters = coloring.values().stream()
+                .mapToInt(reg -> reg + 1)
+                .max()
+                .orElse(0);
+        numRegisters = Math.max(numRegisters, minRegisters);
+
+        if (maxRegisters > 0 && numRegisters > maxRegisters) {
+            reports.add(new Report(ReportType.ERROR, Stage.OPTIMIZATION, -1, -1,
+                    "Method '" + method.getMethodName() + "' needs at least " + numRegisters
+                            + " registers, but the maximum allowed is " + maxRegisters));
+            return;
+        }
+
+        for (var entry : coloring.entrySet()) {
+            method.getVarTable().get(entry.getKey()).setVirtualReg(entry.getValue());
+        }
+    }
+
+    private static Map<String, Integer> colorWithFewest(InterferenceGraph graph, int minRegisters, int firstColor,
+                                                        Map<String, Integer> precolored) {
+
+        // Always succeeds at the latest when every variable gets its own register
+        int maxNeeded = minRegisters + graph.getNodes().size();
+        for (int numRegisters = Math.max(minRegisters, 1); numRegisters <= maxNeeded; numRegisters++) {
+            var coloring = graph.color(numRegisters, firstColor, precolored);
+            if (coloring.isPresent()) {
+                return coloring.get();
+            }
+        }
+
+        throw new IllegalStateException("Could not color interference graph with " + maxNeeded + " registers");
+    }
+}
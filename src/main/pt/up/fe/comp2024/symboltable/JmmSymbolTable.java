@@ -8,8 +8,12 @@ import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public class JmmSymbolTable implements SymbolTable {
 
@@ -22,6 +26,13 @@ public class JmmSymbolTable implements SymbolTable {
     private final Map<String, List<Symbol>> locals;
     private final List<String> imports;
 
+    // Name indexes, the first declaration wins when a name is repeated
+    private final Map<String, ResolvedSymbol> fieldsByName;
+    private final Set<String> methodNames;
+    private final Set<String> importNames;
+    private final Map<String, Map<String, ResolvedSymbol>> paramsByName;
+    private final Map<String, Map<String, ResolvedSymbol>> localsByName;
+
     public JmmSymbolTable(String className,
                           String superClassName,
                           List<Symbol> fields,
@@ -38,6 +49,57 @@ public class JmmSymbolTable implements SymbolTable {
         this.params = params;
         this.locals = locals;
         this.imports = imports;
+
+        this.fieldsByName = index(fields, ResolvedSymbol.Scope.FIELD);
+        this.methodNames = methods == null ? new HashSet<>() : new HashSet<>(methods);
+        this.importNames = new HashSet<>();
+        if (imports != null) {
+            for (var importName : imports) {
+                importNames.add(importName.substring(importName.lastIndexOf('.') + 1));
+            }
+        }
+        this.paramsByName = new HashMap<>();
+        if (params != null) {
+            params.forEach((method, symbols) -> paramsByName.put(method, index(symbols, ResolvedSymbol.Scope.PARAMETER)));
+        }
+        this.localsByName = new HashMap<>();
+        if (locals != null) {
+            locals.forEach((method, symbols) -> localsByName.put(method, index(symbols, ResolvedSymbol.Scope.LOCAL)));
+        }
+    }
+
+    /**
+     * @return the given table, or a copy of it that supports the lookups by name
+     */
+    public static JmmSymbolTable of(SymbolTable table) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable;
+        }
+
+        Map<String, Type> returnTypes = new HashMap<>();
+        Map<String, List<Symbol>> params = new HashMap<>();
+        Map<String, List<Symbol>> locals = new HashMap<>();
+        for (var method : table.getMethods()) {
+            returnTypes.put(method, table.getReturnType(method));
+            params.put(method, table.getParameters(method));
+            locals.put(method, table.getLocalVariables(method));
+        }
+
+        return new JmmSymbolTable(table.getClassName(), table.getSuper(), table.getFields(), table.getMethods(),
+                returnTypes, params, locals, table.getImports());
+    }
+
+    private static Map<String, ResolvedSymbol> index(List<Symbol> symbols, ResolvedSymbol.Scope scope) {
+        Map<String, ResolvedSymbol> byName = new HashMap<>();
+        if (symbols == null) {
+            return byName;
+        }
+
+        for (int slot = 0; slot < symbols.size(); slot++) {
+            var symbol = symbols.get(slot);
+            byName.putIfAbsent(symbol.getName(), new ResolvedSymbol(symbol, scope, slot));
+        }
+        return byName;
     }
 
     @Override
@@ -89,4 +151,47 @@ public class JmmSymbolTable implements SymbolTable {
         return content;
     }
 
+    public Optional<ResolvedSymbol> getField(String name) {
+        return Optional.ofNullable(fieldsByName.get(name));
+    }
+
+    public Optional<ResolvedSymbol> getParameter(String methodSignature, String name) {
+        return Optional.ofNullable(paramsByName.getOrDefault(methodSignature, Collections.emptyMap()).get(name));
+    }
+
+    public Optional<ResolvedSymbol> getLocalVariable(String methodSignature, String name) {
+        return Optional.ofNullable(localsByName.getOrDefault(methodSignature, Collections.emptyMap()).get(name));
+    }
+
+    /**
+     * Resolves a name as seen from inside a method: locals shadow parameters, which shadow fields.
+     */
+    public Optional<ResolvedSymbol> resolve(String methodSignature, String name) {
+        return getLocalVariable(methodSignature, name)
+                .or(() -> getParameter(methodSignature, name))
+                .or(() -> getField(name));
+    }
+
+    /**
+     * @return every declaration of the name visible from the method, in the order local, parameter, field
+     */
+    public List<ResolvedSymbol> resolveAll(String methodSignature, String name) {
+        List<ResolvedSymbol> symbols = new ArrayList<>(3);
+        getLocalVariable(methodSignature, name).ifPresent(symbols::add);
+        getParameter(methodSignature, name).ifPresent(symbols::add);
+        getField(name).ifPresent(symbols::add);
+        return symbols;
+    }
+
+    public boolean hasMethod(String methodSignature) {
+        return methodNames.contains(methodSignature);
+    }
+
+    /**
+     * @param simpleName the name of the class, without the package
+     */
+    public boolean hasImport(String simpleName) {
+        return importNames.contains(simpleName);
+    }
+
 }
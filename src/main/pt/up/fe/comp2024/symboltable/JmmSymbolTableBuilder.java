@@ -16,9 +16,9 @@ import static pt.up.fe.comp2024.ast.TypeUtils.*;
 public class JmmSymbolTableBuilder {
 
     public static JmmSymbolTable build(JmmNode root) {
-        var classDecl = root.getJmmChild(0);
         var importDecl = root.getChildren("ImportStatment"); // Nodes relacionados com declarações de imports
         var classDeclarations = root.getChildren("ClassDecl"); // Nodes relacionados com declarações de classes
+        var classDecl = classDeclarations.get(0); // Os imports vêm antes, a classe não é necessariamente o primeiro filho
         var fieldDeclarations = root.getDescendants("VarDecl"); // Retira tudo o que exista de VarDecl
         var methodDeclarations = root.getDescendants("MethodDecl"); // Retira tudo o que exista de declarações de métodos (funções)
 
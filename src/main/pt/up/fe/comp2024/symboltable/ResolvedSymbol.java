@@ -0,0 +1,28 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * A symbol found by name, together with where it was declared.
+ *
+ * @param symbol the declared symbol
+ * @param scope  whether it is a local variable, a parameter or a field
+ * @param slot   the position of the declaration among the others of the same scope, starting at 0
+ */
+public record ResolvedSymbol(Symbol symbol, Scope scope, int slot) {
+
+    public enum Scope {
+        LOCAL,
+        PARAMETER,
+        FIELD
+    }
+
+    public String getName() {
+        return symbol.getName();
+    }
+
+    public Type getType() {
+        return symbol.getType();
+    }
+}
@@ -0,0 +1,131 @@
+package pt.up.fe.comp;
+
+import org.junit.Before;
+import org.junit.Test;
+import pt.up.fe.comp2024.BatchCompiler;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BatchCompilerTest {
+
+    private static final String CODE = """
+            class %s {
+                public int f(int a) {
+                    int b;
+                    b = a + 1;
+                    return b;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private File folder;
+
+    @Before
+    public void createFolder() {
+        folder = new File("build/test-batch").getAbsoluteFile();
+        SpecsIo.deleteFolderContents(SpecsIo.mkdir(folder));
+    }
+
+    private File write(String path, String className) {
+        var file = new File(folder, path);
+        SpecsIo.write(file, CODE.formatted(className));
+        return file;
+    }
+
+    private static BatchCompiler.Summary run(Map<String, String> config, ByteArrayOutputStream output) {
+        return new BatchCompiler(config).run(new PrintStream(output, true));
+    }
+
+    @Test
+    public void compilesDirectory() {
+        write("units/First.jmm", "First");
+        write("units/nested/Second.jmm", "Second");
+        write("units/notes.txt", "Ignored");
+
+        var output = new ByteArrayOutputStream();
+        var summary = run(CompilerConfig.parseArgs(new String[]{"-b=" + new File(folder, "units"), "-j=2"}), output);
+
+        assertEquals(2, summary.results().size());
+        assertEquals(0, summary.numFailed());
+        assertTrue(summary.results().stream().allMatch(BatchCompiler.UnitResult::success));
+        assertEquals(List.of("First", "Second"), summary.results().stream()
+                .map(BatchCompiler.UnitResult::message)
+                .sorted()
+                .toList());
+
+        var lines = output.toString().lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0), lines.get(0).startsWith("[OK]"));
+        assertTrue(lines.get(1), lines.get(1).startsWith("[OK]"));
+        assertTrue(lines.get(2), lines.get(2).startsWith("Compiled 2 files (0 failed) in "));
+        assertTrue(lines.get(2), lines.get(2).contains("using 2 threads"));
+        assertTrue(lines.get(2), lines.get(2).endsWith(" files/sec"));
+        assertTrue(summary.filesPerSecond() > 0);
+    }
+
+    @Test
+    public void compilesFileList() {
+        var first = write("First.jmm", "First");
+        write("list/Second.jmm", "Second");
+        write("Unlisted.jmm", "Unlisted");
+
+        // Relative paths are resolved against the folder of the list
+        var list = new File(folder, "list/units.txt");
+        SpecsIo.write(list, "# units of the batch\n" + first.getAbsolutePath() + "\n\nSecond.jmm\n");
+
+        var summary = run(CompilerConfig.parseArgs(new String[]{"-b=" + list}), new ByteArrayOutputStream());
+
+        assertEquals(List.of(first, new File(folder, "list/Second.jmm")), summary.results().stream()
+                .map(BatchCompiler.UnitResult::file)
+                .toList());
+        assertEquals(0, summary.numFailed());
+    }
+
+    @Test
+    public void failedUnitDoesNotStopTheOthers() {
+        write("units/First.jmm", "First");
+        var brokenCode = CODE.formatted("Broken").replace("b = a + 1;", "b = true;");
+        SpecsIo.write(new File(folder, "units/Broken.jmm"), brokenCode);
+        write("units/Third.jmm", "Third");
+
+        var output = new ByteArrayOutputStream();
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + new File(folder, "units")});
+        var summary = run(config, output);
+
+        assertEquals(3, summary.results().size());
+        assertEquals(1, summary.numFailed());
+
+        var broken = summary.results().stream().filter(result -> !result.success()).findFirst().orElseThrow();
+        assertEquals("Broken.jmm", broken.file().getName());
+        assertTrue(broken.message(), broken.message().startsWith("RuntimeException: Found at least one error report"));
+        assertTrue(output.toString(), output.toString().contains("[FAIL] " + broken.file().getPath()));
+        assertTrue(output.toString(), output.toString().contains("Compiled 3 files (1 failed)"));
+
+        // The compiler exits with a non-zero status when a unit fails
+        assertEquals(1, Launcher.run(config, null, new PrintStream(new ByteArrayOutputStream())).status());
+    }
+
+    @Test
+    public void writesClassFiles() {
+        write("units/First.jmm", "First");
+        var classes = new File(folder, "classes");
+
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + new File(folder, "units"), "-c=" + classes});
+        var result = Launcher.run(config, null, new PrintStream(new ByteArrayOutputStream()));
+
+        assertEquals(0, result.status());
+        assertEquals(List.of(new File(classes, "First.class")), result.outputs());
+        assertTrue(result.outputs().get(0).isFile());
+    }
+}
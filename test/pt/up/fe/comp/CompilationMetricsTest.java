@@ -0,0 +1,62 @@
+package pt.up.fe.comp;
+
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilationMetrics;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompilationMetricsTest {
+
+    private static final String CODE = """
+            class Simple {
+                public int f(int a) {
+                    int b;
+                    b = a + 1;
+                    return b;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    @Test
+    public void recordsEveryStage() {
+        var metrics = new CompilationMetrics();
+        var jasminResult = Launcher.compile(CODE, CompilerConfig.getDefault(), metrics);
+
+        var stages = metrics.getStages();
+        assertEquals(List.of("parse", "semantic", "optimize-ast", "ollir", "optimize-ollir", "jasmin"),
+                stages.stream().map(CompilationMetrics.StageMetrics::stage).toList());
+
+        for (var stage : stages) {
+            assertTrue(stage.wallNanos() >= 0);
+            assertTrue(stage.count() > 0);
+        }
+
+        assertEquals("astNodes", stages.get(0).countName());
+        assertEquals("ollirInstructions", stages.get(3).countName());
+        assertEquals(CompilationMetrics.countLines(jasminResult.getJasminCode()), stages.get(5).count());
+    }
+
+    @Test
+    public void json() {
+        var metrics = new CompilationMetrics();
+        Launcher.compile(CODE, CompilerConfig.getDefault(), metrics);
+
+        var json = JsonParser.parseString(CompilationMetrics.toJson(metrics.toJsonObject(new File("Simple.jmm"))))
+                .getAsJsonObject();
+
+        assertEquals("Simple.jmm", json.get("file").getAsString());
+        var stages = json.getAsJsonArray("stages");
+        assertEquals(6, stages.size());
+        assertEquals("parse", stages.get(0).getAsJsonObject().get("stage").getAsString());
+        assertTrue(stages.get(0).getAsJsonObject().has("allocatedBytes"));
+        assertTrue(stages.get(5).getAsJsonObject().get("jasminLines").getAsLong() > 0);
+    }
+}
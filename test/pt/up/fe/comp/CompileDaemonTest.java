@@ -0,0 +1,134 @@
+package pt.up.fe.comp;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pt.up.fe.comp2024.CompileDaemon;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.DaemonClient;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class CompileDaemonTest {
+
+    private static final String CODE = """
+            class Simple {
+                public int f(int a) {
+                    int b;
+                    b = a + 1;
+                    return b;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static File folder;
+    private static File portFile;
+    private static CompileDaemon daemon;
+    private static DaemonClient client;
+
+    @BeforeClass
+    public static void startDaemon() throws InterruptedException {
+        folder = SpecsIo.mkdir(new File("build/test-daemon")).getAbsoluteFile();
+        portFile = new File(folder, "jmm-daemon.port");
+        portFile.delete();
+
+        daemon = new CompileDaemon(CompilerConfig.parseArgs(new String[]{"-d=" + portFile}, folder));
+        var thread = new Thread(daemon::run);
+        thread.setDaemon(true);
+        thread.start();
+
+        // The port file is written after the warm-up
+        for (int i = 0; i < 600 && !portFile.isFile(); i++) {
+            Thread.sleep(100);
+        }
+
+        client = DaemonClient.fromPortFile(portFile).orElseThrow();
+    }
+
+    @AfterClass
+    public static void stopDaemon() {
+        daemon.close();
+    }
+
+    @Test
+    public void compilesCode() {
+        var response = client.compile(folder, List.of("-c=classes"), CODE);
+
+        assertEquals(response.errors().toString(), 0, response.status());
+        assertEquals(List.of(new File(folder, "classes/Simple.class").getAbsoluteFile()), response.outputs());
+        assertTrue(response.outputs().get(0).isFile());
+    }
+
+    @Test
+    public void pathsAreRelativeToTheWorkingFolder() {
+        SpecsIo.write(new File(folder, "Simple.jmm"), CODE);
+
+        var response = client.compile(folder, List.of("-i=Simple.jmm", "-t"), null);
+
+        assertEquals(response.errors().toString(), 0, response.status());
+        assertTrue(response.output().toString(), response.output().get(0).startsWith("stage"));
+    }
+
+    @Test
+    public void reportsErrors() {
+        var response = client.compile(folder, List.of(), CODE.replace("b = a + 1;", "b = true;"));
+
+        assertEquals(1, response.status());
+        assertTrue(response.errors().toString(), response.errors().get(0).contains("Found at least one error report"));
+
+        assertEquals(1, client.compile(folder, List.of("-i=Missing.jmm"), null).status());
+    }
+
+    @Test
+    public void rejectsRequestsWithoutTheToken() {
+        var response = new DaemonClient(daemon.getPort(), "wrong").compile(folder, List.of("-c=classes"), CODE);
+
+        assertEquals(1, response.status());
+        assertTrue(response.errors().toString(), response.errors().get(0).contains("token"));
+        assertTrue(response.outputs().isEmpty());
+    }
+
+    @Test
+    public void closesSilentConnections() throws IOException {
+        // Clients that never send the token do not keep the threads of the daemon
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            socket.setSoTimeout(4 * CompileDaemon.REQUEST_TIMEOUT_MS);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void onlyTheOwnerCanReadThePortFile() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(portFile.toPath()));
+    }
+
+    @Test
+    public void handlesRequestsConcurrently() {
+        List<CompletableFuture<DaemonClient.Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            var code = CODE.replace("Simple", "Simple" + i);
+            responses.add(CompletableFuture.supplyAsync(() -> client.compile(folder, List.of(), code)));
+        }
+
+        for (var response : responses) {
+            assertEquals(0, response.join().status());
+        }
+    }
+}
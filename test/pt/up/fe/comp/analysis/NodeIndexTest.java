@@ -0,0 +1,45 @@
+package pt.up.fe.comp.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.analysis.NodeIndex;
+import pt.up.fe.specs.util.SpecsIo;
+
+import static org.junit.Assert.*;
+
+public class NodeIndexTest {
+
+    private static final String[] KINDS = {"MethodDecl", "VarRefExpr", "ReturnStmt", "AssignStmt", "BinaryExpr",
+            "BinaryOp", "ArrayAccess", "VarArgs", "Void"};
+
+    @Test
+    public void sameAsGetDescendants() {
+        var root = TestUtils.parse(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/control_flow/IfWhileNested.jmm")).getRootNode();
+        var index = NodeIndex.build(root);
+
+        for (var node : root.getDescendantsAndSelfStream().toList()) {
+            assertEquals(node.getDescendants(), index.getDescendants(node));
+
+            for (var kind : KINDS) {
+                assertEquals(node.getDescendants(kind), index.getDescendants(node, kind));
+                assertEquals(node.getDescendants(kind).size(), index.countDescendants(node, kind));
+            }
+        }
+    }
+
+    @Test
+    public void generatedMethod() {
+        var root = TestUtils.parse(SemanticAnalysisBenchmark.generate(2_000)).getRootNode();
+        var index = NodeIndex.build(root);
+
+        var method = root.getDescendants("MethodDecl").get(0);
+        assertEquals(method.getDescendants("IfCondition"), index.getDescendants(method, "IfCondition"));
+        assertEquals(0, index.countDescendants(method.getChildren("AssignStmt").get(0), "IfCondition"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownNode() {
+        var index = NodeIndex.build(TestUtils.parse("class A { }").getRootNode());
+        index.getDescendants(TestUtils.parse("class B { }").getRootNode());
+    }
+}
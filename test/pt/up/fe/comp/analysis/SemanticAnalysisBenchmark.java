@@ -0,0 +1,98 @@
+package pt.up.fe.comp.analysis;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+
+import java.util.function.IntFunction;
+
+/**
+ * Measures the semantic analysis of a class with a single method of N statements, and of a class with N/10 fields
+ * and N/10 methods.
+ * <p>
+ * Run with 'gradle analysisBenchmark', optionally passing the sizes with '--args="1000 10000"'. Analysis time per
+ * statement or member should stay roughly the same as the class grows.
+ */
+public class SemanticAnalysisBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 5;
+
+    public static String generate(int numStatements) {
+        var code = new StringBuilder();
+        code.append("import io;\n");
+        code.append("class Big {\n");
+        code.append("    int field;\n");
+        code.append("    public int f(int a) {\n");
+        code.append("        int x;\n        int y;\n        boolean b;\n");
+        code.append("        x = 0;\n        y = 0;\n        b = true;\n");
+
+        for (int i = 0; i < numStatements; i++) {
+            switch (i % 4) {
+                case 0 -> code.append("        x = x + a * 2;\n");
+                case 1 -> code.append("        if (x < 10) { y = y + 1; } else { y = y - 1; }\n");
+                case 2 -> code.append("        y = x * 3;\n");
+                default -> code.append("        while (y < x) { y = y + 1; }\n");
+            }
+        }
+
+        code.append("        return x;\n");
+        code.append("    }\n");
+        code.append("    public static void main(String[] args) {\n    }\n");
+        code.append("}\n");
+        return code.toString();
+    }
+
+    public static String generateMembers(int numMembers) {
+        var code = new StringBuilder();
+        code.append("class Wide {\n");
+        for (int i = 0; i < numMembers; i++) {
+            code.append("    int f").append(i).append(";\n");
+        }
+        for (int i = 0; i < numMembers; i++) {
+            code.append("    public int m").append(i).append("(int a) {\n");
+            code.append("        int x;\n");
+            code.append("        x = a + 1;\n");
+            code.append("        return x;\n");
+            code.append("    }\n");
+        }
+        code.append("    public static void main(String[] args) {\n    }\n");
+        code.append("}\n");
+        return code.toString();
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        run("statements", sizes, SemanticAnalysisBenchmark::generate);
+        run("members", sizes, size -> generateMembers(size / 10));
+    }
+
+    private static void run(String unit, int[] sizes, IntFunction<String> generator) {
+        System.out.printf("%12s %12s %12s%n", unit, "ms", "ns/" + unit);
+        for (var size : sizes) {
+            var parserResult = TestUtils.parse(generator.apply(size));
+            TestUtils.noErrors(parserResult.getReports());
+
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                new JmmAnalysisImpl().semanticAnalysis(parserResult);
+            }
+
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                var result = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+                best = Math.min(best, System.nanoTime() - start);
+                TestUtils.noErrors(result.getReports());
+            }
+
+            System.out.printf("%12d %12.1f %12d%n", size, best / 1e6, best / size);
+        }
+    }
+}
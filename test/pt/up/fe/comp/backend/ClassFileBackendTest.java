@@ -0,0 +1,81 @@
+package pt.up.fe.comp.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClassFileBackendTest {
+
+    private static final List<String> SAME_AS_JASMIN = List.of("arithmetic/Arithmetic_and.ollir",
+            "arithmetic/Arithmetic_less.ollir", "arithmetic/Arithmetic_not.ollir", "arrays/ArrayAccess.ollir",
+            "arrays/ArrayAsArg.ollir", "arrays/ArrayInit.ollir", "arrays/ArrayInitialization.ollir",
+            "arrays/ArrayNew.ollir", "arrays/ArrayVarArgs.ollir", "arrays/ComplexArrayAccess.ollir",
+            "arrays/VarargsAndArrayInit.ollir", "control_flow/IfElseInMain.ollir",
+            "control_flow/SimpleIfElseNot.ollir");
+
+    private static OllirResult getOllirResult(String filename) {
+        return new OllirResult(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/" + filename),
+                Collections.emptyMap());
+    }
+
+    private static ProcessOutputAsString run(String filename) throws IOException, InterruptedException {
+        var result = new ClassFileBackendImpl().toClassFile(getOllirResult(filename));
+        TestUtils.noErrors(result.reports());
+
+        var outputDir = SpecsIo.getTempFolder("classfile");
+        SpecsIo.deleteFolderContents(outputDir);
+        result.write(outputDir);
+
+        List<String> classpath = new ArrayList<>();
+        classpath.add(outputDir.getAbsolutePath());
+        classpath.addAll(Arrays.asList(TestUtils.getLibsClasspath()));
+
+        var process = new ProcessBuilder("java", "-cp", String.join(File.pathSeparator, classpath), result.className())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        var output = new String(process.getInputStream().readAllBytes());
+        return new ProcessOutputAsString(process.waitFor(), output, "");
+    }
+
+    @Test
+    public void sameOutputAsJasmin() throws Exception {
+        for (var file : SAME_AS_JASMIN) {
+            var jasminResult = new JasminBackendImpl().toJasmin(getOllirResult(file));
+            TestUtils.noErrors(jasminResult);
+            var expected = jasminResult.runWithFullOutput();
+
+            var output = run(file);
+
+            assertEquals(file, expected.getReturnValue(), output.getReturnValue());
+            assertEquals(file, expected.getStdOut().strip(), output.getStdOut().strip());
+        }
+    }
+
+    @Test
+    public void controlFlow() throws Exception {
+        assertEquals("Result: 3", run("control_flow/SimpleControlFlow.ollir").getStdOut().strip());
+        assertEquals("Result: 5\nResult: 8", run("control_flow/SimpleIfElseStat.ollir").getStdOut().strip());
+        assertEquals("Result: 0\nResult: 1\nResult: 2", run("control_flow/SimpleWhileStat.ollir").getStdOut().strip());
+        assertEquals("Result: 1\nResult: 2\nResult: 1", run("control_flow/IfWhileNested.ollir").getStdOut().strip());
+        assertEquals("Result: 1\nResult: 2\nResult: 3\nResult: 4\nResult: 5\nResult: 6\nResult: 7",
+                run("control_flow/SwitchStat.ollir").getStdOut().strip());
+    }
+
+    @Test
+    public void calls() throws Exception {
+        assertEquals("Result: 10", run("calls/ConditionArgsFuncCall.ollir").getStdOut().strip());
+    }
+}
@@ -0,0 +1,102 @@
+package pt.up.fe.comp.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompareAndBranchTest {
+
+    /**
+     * Jasmin code of a method 'f(a, b)' of class Test, with the given body.
+     */
+    private static String getJasminCode(String body) {
+        return getJasminCode(body, Collections.emptyMap());
+    }
+
+    private static String getJasminCode(String body, Map<String, String> config) {
+        var ollirCode = """
+                Test {
+                    .construct Test().V {
+                        invokespecial(this, "<init>").V;
+                    }
+
+                    .method public f(a.i32, b.i32).bool {
+                %s
+                    }
+                }
+                """.formatted(body);
+
+        var jasminResult = TestUtils.backend(new OllirResult(ollirCode, config));
+        TestUtils.noErrors(jasminResult.getReports());
+        return jasminResult.getJasminCode();
+    }
+
+    private static String getBranch(String condition) {
+        return getJasminCode("""
+                if (%s) goto true_0;
+                ret.bool 0.bool;
+                true_0:
+                ret.bool 1.bool;
+                """.formatted(condition));
+    }
+
+    @Test
+    public void comparesTwoValues() {
+        assertTrue(getBranch("a.i32 <.bool b.i32").contains("if_icmplt true_0"));
+        assertTrue(getBranch("a.i32 <=.bool b.i32").contains("if_icmple true_0"));
+        assertTrue(getBranch("a.i32 >.bool b.i32").contains("if_icmpgt true_0"));
+        assertTrue(getBranch("a.i32 >=.bool b.i32").contains("if_icmpge true_0"));
+        assertTrue(getBranch("a.i32 ==.bool b.i32").contains("if_icmpeq true_0"));
+        assertTrue(getBranch("a.i32 !=.bool b.i32").contains("if_icmpne true_0"));
+    }
+
+    @Test
+    public void comparesWithZero() {
+        var code = getBranch("a.i32 <.bool 0.i32");
+        assertTrue(code, code.contains("iflt true_0"));
+        assertFalse(code, code.contains("iconst_0\n   iflt"));
+
+        // The operands are swapped, '0 < a' is 'a > 0'
+        code = getBranch("0.i32 <.bool a.i32");
+        assertTrue(code, code.contains("ifgt true_0"));
+
+        code = getBranch("a.i32 !=.bool 0.i32");
+        assertTrue(code, code.contains("ifne true_0"));
+    }
+
+    @Test
+    public void invertsBranchOverGoto() {
+        var code = getJasminCode("""
+                i.i32 :=.i32 0.i32;
+                if (i.i32 <.bool a.i32) goto whilebody_0;
+                goto endwhile_0;
+                whilebody_0:
+                i.i32 :=.i32 i.i32 +.i32 1.i32;
+                if (i.i32 <.bool a.i32) goto whilebody_0;
+                endwhile_0:
+                ret.bool 1.bool;
+                """, Map.of("optimize", "true"));
+
+        // The peephole optimizer leaves one compare-and-branch at each end of the loop, and no goto
+        assertTrue(code, code.contains("if_icmpge endwhile_0"));
+        assertTrue(code, code.contains("if_icmplt whilebody_0"));
+        assertFalse(code, code.contains("goto"));
+        assertFalse(code, code.contains("ifne"));
+    }
+
+    @Test
+    public void computesComparisonAsValue() {
+        var code = getJasminCode("""
+                c.bool :=.bool a.i32 <.bool b.i32;
+                ret.bool c.bool;
+                """);
+
+        assertTrue(code, code.contains("if_icmpge cmp_false_0"));
+        assertTrue(code, code.contains("cmp_end_0:"));
+    }
+}
@@ -0,0 +1,253 @@
+package pt.up.fe.comp.backend;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.backend.execution.ExecutionEngine;
+import pt.up.fe.comp2024.backend.execution.JasminAssembler;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ExecutionEngineTest {
+
+    private static final ExecutionEngine ENGINE = new ExecutionEngine();
+
+    @AfterClass
+    public static void closeEngine() {
+        ENGINE.close();
+    }
+
+    private static String getJasmin(String ollirFile) {
+        var ollirResult = new OllirResult(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/" + ollirFile),
+                Collections.emptyMap());
+        var jasminResult = new JasminBackendImpl().toJasmin(ollirResult);
+        TestUtils.noErrors(jasminResult);
+        return jasminResult.getJasminCode();
+    }
+
+    @Test
+    public void sameOutputAsNewProcess() {
+        for (var file : List.of("control_flow/IfWhileNested.ollir", "control_flow/SwitchStat.ollir",
+                "arrays/ArrayVarArgs.ollir", "calls/ConditionArgsFuncCall.ollir")) {
+            var jasminCode = getJasmin(file);
+            var expected = TestUtils.backend(new OllirResult(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/" + file),
+                    Collections.emptyMap())).runWithFullOutput();
+
+            var output = ENGINE.runJasmin(jasminCode);
+
+            assertEquals(file, expected.getReturnValue(), output.getReturnValue());
+            assertEquals(file, expected.getOutput(), output.getOutput());
+        }
+    }
+
+    @Test
+    public void runsClassFilesAndReadsInput() {
+        // The frontend does not support calls without arguments yet, so the program is written in OLLIR
+        var ollirCode = """
+                import io;
+                Reader {
+                    .construct Reader().V {
+                        invokespecial(this, "<init>").V;
+                    }
+
+                    .method public static main(args.array.String).V {
+                        a.i32 :=.i32 invokestatic(io, "read").i32;
+                        b.i32 :=.i32 invokestatic(io, "read").i32;
+                        c.i32 :=.i32 a.i32 *.i32 b.i32;
+                        invokestatic(io, "println", c.i32).V;
+                        ret.V;
+                    }
+                }
+                """;
+
+        var program = new ClassFileBackendImpl().toClassFile(new OllirResult(ollirCode, Collections.emptyMap()));
+        assertEquals("42", ENGINE.run(program, Collections.emptyList(), "6 7\n").getStdOut().strip());
+
+        // Each run has its own copy of 'io', whose buffer is a static field
+        assertEquals("20", ENGINE.run(program, Collections.emptyList(), "4 5\n").getStdOut().strip());
+    }
+
+    @Test
+    public void reportsUncaughtExceptions() {
+        var code = """
+                import io;
+                class Divide {
+                    public static void main(String[] args) {
+                        int a; int b;
+                        a = 1;
+                        io.println(a);
+                        b = 0;
+                        a = a / b;
+                    }
+                }
+                """;
+
+        var output = ENGINE.runJasmin(TestUtils.backend(code).getJasminCode());
+
+        assertEquals(1, output.getReturnValue());
+        assertEquals("1", output.getStdOut().strip());
+        assertTrue(output.getStdErr(), output.getStdErr().startsWith("Exception in thread \"main\" java.lang.ArithmeticException"));
+    }
+
+    @Test
+    public void exitDoesNotEndTheJvm() {
+        var jasminCode = """
+                .class public Exit
+                .super java/lang/Object
+
+                .method public static main([Ljava/lang/String;)V
+                    .limit stack 2
+                    .limit locals 1
+                    getstatic java/lang/System/out Ljava/io/PrintStream;
+                    ldc "before"
+                    invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                    iconst_3
+                    invokestatic java/lang/System/exit(I)V
+                    getstatic java/lang/System/out Ljava/io/PrintStream;
+                    ldc "after"
+                    invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                    return
+                .end method
+                """;
+
+        var output = ENGINE.runJasmin(jasminCode);
+
+        assertEquals(3, output.getReturnValue());
+        assertEquals("before", output.getStdOut().strip());
+    }
+
+    @Test
+    public void stopsProgramsAfterTimeout() {
+        var code = """
+                class Forever {
+                    public static void main(String[] args) {
+                        int i;
+                        i = 0;
+                        while (true) {
+                            i = i + 1;
+                        }
+                    }
+                }
+                """;
+
+        try (var engine = new ExecutionEngine(new File(ExecutionEngine.RUNTIME_FOLDER), 1, 200)) {
+            var jasminOutput = engine.runJasmin(TestUtils.backend(code).getJasminCode());
+            var classFile = new ClassFileBackendImpl().toClassFile(TestUtils.optimize(code));
+            var classFileOutput = engine.run(classFile);
+
+            for (var output : List.of(jasminOutput, classFileOutput)) {
+                assertEquals(-1, output.getReturnValue());
+                assertTrue(output.getStdErr(), output.getStdErr().contains("stopped after running for 200 ms"));
+            }
+        }
+
+        // The programs are stopped by interrupting them, not left running
+        assertTrue(Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.getName().equals("jmm-Forever")));
+    }
+
+    @Test
+    public void interruptChecksKeepSwitchesAndHandlers() {
+        // The checks before the backward branches move the switches, which changes their padding
+        var jasminCode = """
+                .class public Switches
+                .super java/lang/Object
+
+                .method public static main([Ljava/lang/String;)V
+                    .limit stack 3
+                    .limit locals 2
+                    iconst_0
+                    istore_1
+                Loop:
+                    iload_1
+                    tableswitch 0
+                        Zero
+                        One
+                        default : Other
+                Zero:
+                    getstatic java/lang/System/out Ljava/io/PrintStream;
+                    ldc "zero"
+                    invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                    goto Next
+                One:
+                    getstatic java/lang/System/out Ljava/io/PrintStream;
+                    ldc "one"
+                    invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                    goto Next
+                Other:
+                    iload_1
+                    lookupswitch
+                        2 : Two
+                        default : Divide
+                Two:
+                    getstatic java/lang/System/out Ljava/io/PrintStream;
+                    ldc "two"
+                    invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                Next:
+                    iinc 1 1
+                    goto Loop
+                Divide:
+                    iconst_1
+                    iconst_0
+                    idiv
+                    pop
+                    return
+                Caught:
+                    pop
+                    getstatic java/lang/System/out Ljava/io/PrintStream;
+                    ldc "caught"
+                    invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                    return
+                .catch java/lang/ArithmeticException from Divide to Caught using Caught
+                .end method
+                """;
+
+        var output = ENGINE.runJasmin(jasminCode);
+
+        assertEquals(output.getStdErr(), 0, output.getReturnValue());
+        assertEquals(List.of("zero", "one", "two", "caught"), output.getStdOut().lines().toList());
+    }
+
+    @Test
+    public void runsProgramsConcurrently() throws Exception {
+        var template = """
+                import io;
+                class Count%d {
+                    public static void main(String[] args) {
+                        int i;
+                        i = 0;
+                        while (i < %d) {
+                            io.println(i);
+                            i = i + 1;
+                        }
+                    }
+                }
+                """;
+
+        List<Future<ProcessOutputAsString>> outputs = new ArrayList<>();
+        for (int n = 0; n < 16; n++) {
+            var jasminCode = TestUtils.backend(template.formatted(n, n * 10)).getJasminCode();
+            outputs.add(ENGINE.submit(JasminAssembler.assemble(jasminCode)));
+        }
+
+        for (int n = 0; n < outputs.size(); n++) {
+            var expected = new StringBuilder();
+            for (int i = 0; i < n * 10; i++) {
+                expected.append(i).append(System.lineSeparator());
+            }
+
+            assertEquals(expected.toString(), outputs.get(n).get().getStdOut());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package pt.up.fe.comp.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JasminStreamingTest {
+
+    private static final List<String> FILES = List.of("arithmetic/Arithmetic_and.ollir",
+            "arithmetic/ByteCodeIndexes1.ollir", "arrays/ArrayVarArgs.ollir", "arrays/ComplexArrayAccess.ollir",
+            "basic/BasicMethodsArray.ollir", "calls/ConditionArgsFuncCall.ollir");
+
+    private static OllirResult getOllirResult(String filename) {
+        return new OllirResult(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/" + filename),
+                Collections.emptyMap());
+    }
+
+    @Test
+    public void sameAsBuild() throws IOException {
+        for (var file : FILES) {
+            var expected = new JasminBackendImpl().toJasmin(getOllirResult(file));
+            TestUtils.noErrors(expected);
+
+            var out = new StringWriter();
+            var reports = new JasminBackendImpl().toJasmin(getOllirResult(file), out);
+            TestUtils.noErrors(reports);
+
+            assertEquals(file, expected.getJasminCode(), out.toString());
+        }
+    }
+
+    @Test
+    public void writesEachMethod() throws IOException {
+        var ollirResult = getOllirResult("basic/BasicMethodsArray.ollir");
+        int numMethods = ollirResult.getOllirClass().getNumMethods();
+
+        var out = new StringWriter() {
+            int numEndMethods = 0;
+
+            @Override
+            public StringWriter append(CharSequence csq) {
+                if (csq.toString().equals(".end method\n")) {
+                    numEndMethods++;
+                }
+                return super.append(csq);
+            }
+        };
+        new JasminBackendImpl().toJasmin(ollirResult, out);
+
+        // Default constructor is part of the class header, the others are written one at a time
+        assertTrue(numMethods > 1);
+        assertEquals(numMethods - 1, out.numEndMethods);
+    }
+}
@@ -0,0 +1,162 @@
+package pt.up.fe.comp.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.peephole.JasminInstruction;
+import pt.up.fe.comp2024.backend.peephole.PeepholeOptimizer;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class PeepholeOptimizerTest {
+
+    private static String optimize(PeepholeOptimizer optimizer, String code) {
+        return optimizer.optimize(JasminInstruction.parse(code)).stream()
+                .map(JasminInstruction::toString)
+                .collect(Collectors.joining("\n", "", "\n"));
+    }
+
+    @Test
+    public void removesStoreLoadOfTemporary() {
+        var optimizer = PeepholeOptimizer.withDefaultRules();
+        var code = optimize(optimizer, """
+                iload_1
+                iconst_2
+                imul
+                istore_2
+                iload_2
+                istore 4
+                iload 4
+                ireturn
+                """);
+
+        assertEquals("""
+                iload_1
+                iconst_2
+                imul
+                ireturn
+                """, code);
+        assertEquals(2, (int) optimizer.getRewrites().get("store-load"));
+    }
+
+    @Test
+    public void keepsStoreOfVariableReadLater() {
+        var code = optimize(PeepholeOptimizer.withDefaultRules(), """
+                iconst_1
+                istore_2
+                iload_2
+                istore 5
+                iload 5
+                iload 5
+                iadd
+                iload_2
+                iadd
+                ireturn
+                """);
+
+        assertEquals("""
+                iconst_1
+                istore_2
+                iload_2
+                dup
+                iadd
+                iload_2
+                iadd
+                ireturn
+                """, code);
+    }
+
+    @Test
+    public void removesGotoToNextLabel() {
+        var optimizer = PeepholeOptimizer.withDefaultRules();
+        var code = optimize(optimizer, """
+                iload_1
+                ifeq else_0
+                iconst_1
+                istore_2
+                goto end_0
+                else_0:
+                end_0:
+                iload_2
+                ireturn
+                """);
+
+        assertEquals("""
+                iload_1
+                ifeq else_0
+                iconst_1
+                istore_2
+                else_0:
+                iload_2
+                ireturn
+                """, code);
+        assertEquals(1, (int) optimizer.getRewrites().get("goto-next"));
+        assertEquals(1, (int) optimizer.getRewrites().get("unused-label"));
+    }
+
+    @Test
+    public void invertsBranchOverGoto() {
+        var optimizer = PeepholeOptimizer.withDefaultRules();
+        var code = optimize(optimizer, """
+                loop:
+                iload_1
+                iload_2
+                if_icmplt body
+                goto end
+                body:
+                iinc 1 1
+                goto loop
+                end:
+                return
+                """);
+
+        assertEquals("""
+                loop:
+                iload_1
+                iload_2
+                if_icmpge end
+                iinc 1 1
+                goto loop
+                end:
+                return
+                """, code);
+        assertEquals(1, (int) optimizer.getRewrites().get("branch-over-goto"));
+    }
+
+    @Test
+    public void removesPushedValueThatIsPopped() {
+        var optimizer = PeepholeOptimizer.withDefaultRules();
+        var code = optimize(optimizer, """
+                aload_0
+                invokevirtual A/f()I
+                pop
+                iload_1
+                pop
+                return
+                """);
+
+        assertEquals("""
+                aload_0
+                invokevirtual A/f()I
+                pop
+                return
+                """, code);
+        assertEquals(1, (int) optimizer.getRewrites().get("load-pop"));
+    }
+
+    @Test
+    public void onlyWithOptimize() {
+        var ollirCode = SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/arrays/ComplexArrayAccess.ollir");
+
+        var unoptimized = TestUtils.backend(new OllirResult(ollirCode, Map.of()));
+        var optimized = TestUtils.backend(new OllirResult(ollirCode, Map.of("optimize", "true")));
+
+        assertTrue(optimized.getJasminCode().length() < unoptimized.getJasminCode().length());
+        assertEquals(unoptimized.run(), optimized.run());
+        assertTrue(optimized.getReports().stream().anyMatch(report -> report.getMessage().contains("store-load")));
+    }
+}
@@ -0,0 +1,201 @@
+package pt.up.fe.comp.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.backend.StackLimitCalculator;
+import pt.up.fe.comp2024.backend.execution.JasminAssembler;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+public class StackLimitCalculatorTest {
+
+    private static final Pattern LIMIT_STACK = Pattern.compile("\\.limit stack ([0-9]+)");
+    private static final String FIXTURES = "test/pt/up/fe/comp/cpf/4_jasmin";
+
+    @Test
+    public void straightLine() {
+        var code = """
+                iconst_1
+                bipush 10
+                iload_1
+                imul
+                iadd
+                istore_2
+                return
+                """;
+        assertEquals(3, StackLimitCalculator.maxStack(code));
+    }
+
+    @Test
+    public void calls() {
+        var code = """
+                new Foo
+                dup
+                invokespecial Foo/<init>()V
+                astore_1
+                aload_1
+                iload_2
+                aload_3
+                invokevirtual Foo/bar(I[I)I
+                pop
+                return
+                """;
+        assertEquals(3, StackLimitCalculator.maxStack(code));
+    }
+
+    @Test
+    public void branches() {
+        // The deepest path is only reachable through the branch
+        var code = """
+                iload_1
+                ifne then
+                iconst_0
+                ireturn
+                then:
+                iconst_1
+                iconst_2
+                iconst_3
+                iadd
+                iadd
+                ireturn
+                """;
+        assertEquals(3, StackLimitCalculator.maxStack(code));
+    }
+
+    @Test
+    public void loop() {
+        var code = """
+                iconst_0
+                istore_1
+                loop:
+                iload_1
+                bipush 10
+                if_icmpge end
+                getstatic Foo/a [I
+                iload_1
+                iload_1
+                iastore
+                iinc 1 1
+                goto loop
+                end:
+                return
+                """;
+        assertEquals(3, StackLimitCalculator.maxStack(code));
+    }
+
+    @Test
+    public void emptyMethod() {
+        assertEquals(0, StackLimitCalculator.maxStack("return\n"));
+    }
+
+    @Test
+    public void rejectsMalformedCode() {
+        assertRejected(IllegalArgumentException.class, "lconst_1\nreturn\n");
+        assertRejected(IllegalStateException.class, "iadd\nreturn\n");
+        assertRejected(IllegalStateException.class, "goto missing\n");
+
+        // The join point is reached with one value from a path and none from the other
+        var code = """
+                iload_1
+                ifne push
+                goto end
+                push:
+                iconst_1
+                end:
+                return
+                """;
+        assertRejected(IllegalStateException.class, code);
+    }
+
+    private static void assertRejected(Class<? extends RuntimeException> exception, String code) {
+        try {
+            StackLimitCalculator.maxStack(code);
+            fail("Expected " + exception.getSimpleName() + " for:\n" + code);
+        } catch (RuntimeException e) {
+            assertEquals(exception, e.getClass());
+        }
+    }
+
+    /**
+     * For every method of every Jasmin fixture that assembles and links, the computed limit must be accepted by the
+     * JVM verifier, and be the smallest one that is.
+     */
+    @Test
+    public void limitIsMinimal() {
+        var fixtures = SpecsIo.getFilesRecursive(new File(FIXTURES), "ollir");
+        int checkedLimits = 0;
+
+        for (var fixture : fixtures) {
+            var jasminCode = new JasminBackendImpl()
+                    .toJasmin(new OllirResult(SpecsIo.read(fixture), Collections.emptyMap()))
+                    .getJasminCode();
+
+            LinkageError error;
+            try {
+                error = link(jasminCode);
+            } catch (RuntimeException e) {
+                // Does not assemble
+                continue;
+            }
+
+            // Classes whose superclass is not available cannot be verified
+            if (error instanceof NoClassDefFoundError) {
+                continue;
+            }
+            assertNull(fixture + ":\n" + jasminCode, error);
+
+            Matcher matcher = LIMIT_STACK.matcher(jasminCode);
+            while (matcher.find()) {
+                var limit = Integer.parseInt(matcher.group(1));
+                if (limit == 0) {
+                    continue;
+                }
+
+                var smaller = jasminCode.substring(0, matcher.start(1)) + (limit - 1)
+                        + jasminCode.substring(matcher.end(1));
+                assertTrue(fixture + ": expected the verifier to reject a stack limit of " + (limit - 1) + ":\n"
+                        + smaller, link(smaller) instanceof VerifyError);
+                checkedLimits++;
+            }
+        }
+
+        assertTrue("Only checked " + checkedLimits + " stack limits", checkedLimits > fixtures.size());
+    }
+
+    /**
+     * Loads and initializes the class with a class loader of its own, which makes the JVM verify every method.
+     *
+     * @return the error that linking the class threw, or null if there was none
+     */
+    private static LinkageError link(String jasminCode) {
+        var classFile = JasminAssembler.assemble(jasminCode);
+        var loader = new ClassLoader(ClassLoader.getPlatformClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                if (!name.equals(classFile.className())) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, classFile.bytes(), 0, classFile.bytes().length);
+            }
+        };
+
+        try {
+            Class.forName(classFile.className(), true, loader);
+            return null;
+        } catch (LinkageError e) {
+            return e;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
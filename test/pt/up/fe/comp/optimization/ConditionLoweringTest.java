@@ -0,0 +1,130 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import static org.junit.Assert.*;
+
+public class ConditionLoweringTest {
+
+    private static String toOllir(String code) {
+        var ollirResult = TestUtils.optimize(code);
+        TestUtils.noErrors(ollirResult.getReports());
+        return ollirResult.getOllirCode();
+    }
+
+    @Test
+    public void shortCircuitsAnd() {
+        var ollir = toOllir("""
+                class A {
+                    public int f(int n) {
+                        int i;
+                        i = 0;
+                        while (i < n && i < 3) { i = i + 1; }
+                        return i;
+                    }
+                    public static void main(String[] args) { }
+                }
+                """);
+
+        // The second comparison is skipped when the first one is false
+        assertTrue(ollir, ollir.contains("if (i.i32 >=.bool n.i32) goto and_end_"));
+        assertTrue(ollir, ollir.contains("if (i.i32 <.bool 3.i32) goto whilebody_0"));
+        assertFalse(ollir, ollir.contains("&&"));
+    }
+
+    @Test
+    public void shortCircuitsOr() {
+        var ollir = toOllir("""
+                class A {
+                    public int f(int n) {
+                        int i;
+                        i = 0;
+                        while (i < 1 || i < n) { i = i + 1; }
+                        return i;
+                    }
+                    public static void main(String[] args) { }
+                }
+                """);
+
+        assertTrue(ollir, ollir.contains("if (i.i32 <.bool 1.i32) goto whilebody_0"));
+        assertTrue(ollir, ollir.contains("if (i.i32 <.bool n.i32) goto whilebody_0"));
+        assertFalse(ollir, ollir.contains("||"));
+    }
+
+    @Test
+    public void runsConditions() {
+        var result = TestUtils.backend("""
+                import io;
+                class A {
+                    public int f(int n) {
+                        int i; int s;
+                        i = 0; s = 0;
+                        while (i < n && !(i < 4 && 1 < i)) { s = s + i; i = i + 1; }
+                        return s;
+                    }
+                    public static void main(String[] args) {
+                        A a; int r;
+                        a = new A();
+                        r = a.f(10);
+                        io.println(r);
+                    }
+                }
+                """);
+
+        // Stops when i is 2, after adding 0 and 1
+        assertEquals("1", result.run().trim());
+    }
+
+    @Test
+    public void invertsLoops() {
+        var ollir = toOllir("""
+                class A {
+                    public int f(int n) {
+                        int i;
+                        i = 0;
+                        while (i < n) { i = i + 1; }
+                        return i;
+                    }
+                    public static void main(String[] args) { }
+                }
+                """);
+
+        // Tested once before the loop, then only at the bottom
+        assertTrue(ollir, ollir.contains("if (i.i32 >=.bool n.i32) goto endwhile_1"));
+        assertTrue(ollir, ollir.contains("if (i.i32 <.bool n.i32) goto whilebody_0"));
+        assertFalse(ollir, ollir.contains("    goto "));
+    }
+
+    @Test
+    public void runsNestedStatements() {
+        var result = TestUtils.backend("""
+                import io;
+                class A {
+                    public int f(int n) {
+                        int i; int j; int s;
+                        i = 0; s = 0;
+                        while (i < n) {
+                            j = 0;
+                            while (j < i) {
+                                if (j < 2) { s = s + 1; } else if (j < 4) { s = s + 10; } else { s = s + 100; }
+                                j = j + 1;
+                            }
+                            i = i + 1;
+                        }
+                        i = 0;
+                        while (i < 3) { s = s + 1000; i = i + 1; }
+                        return s;
+                    }
+                    public static void main(String[] args) {
+                        A a; int r;
+                        a = new A();
+                        r = a.f(7);
+                        io.println(r);
+                    }
+                }
+                """);
+
+        assertEquals("3381", result.run().trim());
+    }
+}
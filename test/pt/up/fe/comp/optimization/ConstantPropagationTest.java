@@ -0,0 +1,91 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConstantPropagationTest {
+
+    private static String optimize(String method, boolean optimize) {
+        var code = "class A { " + method + " public static void main(String[] args) { } }";
+        var ollirResult = TestUtils.optimize(code, Map.of("optimize", String.valueOf(optimize)));
+        TestUtils.noErrors(ollirResult.getReports());
+        return ollirResult.getOllirCode();
+    }
+
+    @Test
+    public void foldsExpressions() {
+        var ollir = optimize("public int f() { int a; a = 2 + 3 * 4; return a; }", true);
+
+        assertTrue(ollir, ollir.contains("ret.i32 14.i32"));
+    }
+
+    @Test
+    public void mergesBranches() {
+        var ollir = optimize("""
+                public int f(int y) {
+                    int a; int b;
+                    if (y < 1) { a = 3; b = 1; } else { a = 3; b = 2; }
+                    return a + b;
+                }
+                """, true);
+
+        assertTrue(ollir, ollir.contains("3.i32 +.i32 b.i32"));
+    }
+
+    @Test
+    public void keepsLoopVariables() {
+        var ollir = optimize("""
+                public int f() {
+                    int i; int n;
+                    i = 0; n = 5;
+                    while (i < n) { i = i + 1; }
+                    return i;
+                }
+                """, true);
+
+        assertTrue(ollir, ollir.contains("i.i32 <.bool 5.i32"));
+        assertTrue(ollir, ollir.contains("ret.i32 i.i32"));
+    }
+
+    @Test
+    public void disabledWithoutOptimize() {
+        var ollir = optimize("public int f() { int a; a = 2 + 3; return a; }", false);
+
+        assertTrue(ollir, ollir.contains("2.i32 +.i32 3.i32"));
+        assertTrue(ollir, ollir.contains("ret.i32 a.i32"));
+    }
+
+    @Test
+    public void foldedBranchesReachTheBackend() {
+        var code = """
+                import io;
+                class A {
+                    public int f(int a) {
+                        int b;
+                        b = 3;
+                        if (true) { a = a + b; } else { a = 0; }
+                        while (false) { a = 5; }
+                        if (b < 5 && false) { a = 7; } else { }
+                        if (!(b < 5) || true) { a = a * 2; } else { }
+                        return a;
+                    }
+                    public static void main(String[] args) {
+                        A x;
+                        int r;
+                        x = new A();
+                        r = x.f(1);
+                        io.println(r);
+                    }
+                }
+                """;
+
+        // The stack limit of every method is computed from the folded code
+        var jasminResult = TestUtils.backend(code, Map.of("optimize", "true"));
+        TestUtils.noErrors(jasminResult.getReports());
+        assertEquals("8", jasminResult.run().trim());
+    }
+}
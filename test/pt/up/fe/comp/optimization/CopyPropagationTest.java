@@ -0,0 +1,109 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp.optimization.OllirTestUtils.*;
+
+public class CopyPropagationTest {
+
+    private static final String SIGNATURE = "f(a.i32, b.i32).i32";
+
+    @Test
+    public void coalescesTemporaries() {
+        var code = """
+                class A {
+                    public int f(int b, int c, int d) {
+                        int a;
+                        a = b + c * d;
+                        return a;
+                    }
+                    public static void main(String[] args) { }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var ollir = optimized.getOllirCode();
+        assertFalse(ollir, ollir.contains("a.i32 :=.i32 tmp"));
+        assertTrue(optimized.getReports().stream().anyMatch(report -> report.getMessage().contains("coalesced")));
+
+        // The temporaries that are gone do not take a register
+        var unoptimized = TestUtils.backend(TestUtils.optimize(code, Map.of("optimize", "false"))).getJasminCode();
+        var jasmin = TestUtils.backend(optimized).getJasminCode();
+        assertTrue(unoptimized, unoptimized.contains(".limit locals 7"));
+        assertTrue(jasmin, jasmin.contains(".limit locals 6"));
+    }
+
+    @Test
+    public void propagatesCopies() {
+        var ollir = print(optimizeMethod(SIGNATURE, """
+                c.i32 :=.i32 a.i32;
+                d.i32 :=.i32 c.i32 +.i32 b.i32;
+                e.i32 :=.i32 d.i32;
+                ret.i32 e.i32;
+                """));
+
+        assertFalse(ollir, ollir.contains("c.i32"));
+        assertFalse(ollir, ollir.contains("d.i32"));
+        assertTrue(ollir, ollir.contains("e.i32 :=.i32 a.i32 +.i32 b.i32"));
+    }
+
+    @Test
+    public void keepsCopyOfReassignedVariable() {
+        var ollir = print(optimizeMethod(SIGNATURE, """
+                c.i32 :=.i32 a.i32;
+                a.i32 :=.i32 b.i32;
+                d.i32 :=.i32 c.i32 *.i32 a.i32;
+                ret.i32 d.i32;
+                """));
+
+        // 'c' holds the value 'a' had before it was assigned, the parameter
+        assertTrue(ollir, ollir.contains("d.i32 :=.i32 a.i32 *.i32 b.i32"));
+        assertFalse(ollir, ollir.contains("b.i32 *.i32 b.i32"));
+    }
+
+    @Test
+    public void keepsCopiesAcrossJumps() {
+        var ollir = print(optimizeMethod(SIGNATURE, """
+                c.i32 :=.i32 a.i32;
+                if (b.i32 <.bool 0.i32) goto neg_0;
+                c.i32 :=.i32 b.i32;
+                neg_0:
+                d.i32 :=.i32 c.i32 +.i32 1.i32;
+                ret.i32 d.i32;
+                """));
+
+        assertTrue(ollir, ollir.contains("c.i32 +.i32 1.i32"));
+    }
+
+    @Test
+    public void keepsArraysStoredThroughOtherNames() {
+        var ollirCode = """
+                import io;
+                Test {
+                    .construct Test().V {
+                        invokespecial(this, "<init>").V;
+                    }
+
+                    .method public static main(args.array.String).V {
+                        i.i32 :=.i32 0.i32;
+                        b.array.i32 :=.array.i32 new(array, 2.i32).array.i32;
+                        a.array.i32 :=.array.i32 b.array.i32;
+                        b[i.i32].i32 :=.i32 7.i32;
+                        t.i32 :=.i32 a[i.i32].i32;
+                        invokestatic(io, "println", t.i32).V;
+                        ret.V;
+                    }
+                }
+                """;
+
+        // 'b' is read by the store, its definition is not coalesced into the copy
+        var optimized = new JmmOptimizationImpl().optimize(new OllirResult(ollirCode, Map.of("optimize", "true")));
+        assertEquals("7", TestUtils.backend(optimized).run().trim());
+    }
+}
@@ -0,0 +1,100 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp.optimization.OllirTestUtils.*;
+
+public class DeadCodeEliminationTest {
+
+    private static final String SIGNATURE = "f(a.i32, b.i32).i32";
+
+    @Test
+    public void removesCodeAfterReturn() {
+        var result = optimizeMethod(SIGNATURE, """
+                c.i32 :=.i32 a.i32 +.i32 b.i32;
+                ret.i32 c.i32;
+                d.i32 :=.i32 c.i32 *.i32 2.i32;
+                invokestatic(io, "println", d.i32).V;
+                ret.i32 d.i32;
+                """, "2.i32", "5.i32");
+        var method = getMethod(print(result), ".method public f(");
+
+        assertFalse(method, method.contains("println"));
+        assertFalse(method, method.contains("d.i32"));
+        assertEquals("7", TestUtils.backend(result).run().trim());
+    }
+
+    @Test
+    public void foldsConstantBranches() {
+        var result = optimizeMethod(SIGNATURE, """
+                if (1.i32 <.bool 0.i32) goto debug_0;
+                if (!.bool 0.bool) goto end_1;
+                debug_0:
+                invokestatic(io, "println", a.i32).V;
+                end_1:
+                ret.i32 b.i32;
+                """, "2.i32", "5.i32");
+        var method = getMethod(print(result), ".method public f(");
+
+        assertFalse(method, method.contains("if ("));
+        assertFalse(method, method.contains("println"));
+        assertFalse(method, method.contains("goto"));
+        // Both branches are folded in f and in the copy of f inlined into main
+        assertTrue(result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("folded 4 constant branches")));
+    }
+
+    @Test
+    public void removesDeadStores() {
+        var result = optimizeMethod(SIGNATURE, """
+                c.i32 :=.i32 a.i32 *.i32 3.i32;
+                d.i32 :=.i32 c.i32 +.i32 1.i32;
+                e.i32 :=.i32 invokevirtual(this, "f", a.i32, 0.i32).i32;
+                d.i32 :=.i32 a.i32 +.i32 b.i32;
+                ret.i32 d.i32;
+                """, "2.i32", "5.i32");
+        var method = getMethod(print(result), ".method public f(");
+
+        // The first store to d is never read, and then neither is c
+        assertFalse(method, method.contains("c.i32"));
+        assertFalse(method, method.contains("+.i32 1.i32"));
+        // Calls are kept, even if their result is not read
+        assertTrue(method, method.contains("invokevirtual"));
+    }
+
+    @Test
+    public void removesDebugCode() {
+        var code = """
+                import io;
+                class A {
+                    public int f(int n) {
+                        int i; int s;
+                        i = 0; s = 0;
+                        while (i < n) {
+                            if (false) { io.println(i); } else { s = s + i; }
+                            i = i + 1;
+                        }
+                        return s;
+                    }
+                    public static void main(String[] args) {
+                        A a; int r;
+                        a = new A();
+                        r = a.f(5);
+                        io.println(r);
+                    }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var ollir = optimized.getOllirCode();
+        assertEquals(1, ollir.split("println").length - 1);
+        assertEquals("10", TestUtils.backend(optimized).run().trim());
+
+        var unoptimized = TestUtils.optimize(code, Map.of("optimize", "false")).getOllirCode();
+        assertEquals(2, unoptimized.split("println").length - 1);
+    }
+}
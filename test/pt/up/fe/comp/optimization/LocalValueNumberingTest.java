@@ -0,0 +1,115 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp.optimization.OllirTestUtils.*;
+
+public class LocalValueNumberingTest {
+
+    private static final String SIGNATURE = "f(a.array.i32, i.i32, j.i32).i32";
+
+    private static int count(String code, String part) {
+        return code.split(part, -1).length - 1;
+    }
+
+    @Test
+    public void reusesComputations() {
+        var ollir = TestUtils.optimize("""
+                class A {
+                    public int f(int[] a, int i, int x, int y) {
+                        int s; int t; int n; int m;
+                        s = a[i] + a[i];
+                        t = x * y + y * x;
+                        n = a.length;
+                        m = a.length;
+                        return s + t + n + m;
+                    }
+                    public static void main(String[] args) { }
+                }
+                """, Map.of("optimize", "true")).getOllirCode();
+
+        assertEquals(ollir, 1, count(ollir, "a\\[i.i32\\]"));
+        assertEquals(ollir, 1, count(ollir, "\\*.i32"));
+        assertEquals(ollir, 1, count(ollir, "arraylength"));
+    }
+
+    @Test
+    public void reloadsAfterStore() {
+        var ollir = print(optimizeMethod(SIGNATURE, """
+                b.i32 :=.i32 a[i.i32].i32;
+                a[j.i32].i32 :=.i32 5.i32;
+                c.i32 :=.i32 a[i.i32].i32;
+                d.i32 :=.i32 b.i32 +.i32 c.i32;
+                ret.i32 d.i32;
+                """));
+
+        // The store can change a[i], if i and j are the same
+        assertEquals(ollir, 2, count(ollir, "a\\[i.i32\\]"));
+    }
+
+    @Test
+    public void distinguishesElementsInOperations() {
+        var ollir = print(optimizeMethod(SIGNATURE, """
+                t.i32 :=.i32 a[i.i32].i32 +.i32 1.i32;
+                u.i32 :=.i32 a[j.i32].i32 +.i32 1.i32;
+                d.i32 :=.i32 t.i32 +.i32 u.i32;
+                ret.i32 d.i32;
+                """));
+
+        // a[i] and a[j] are different elements, the second sum is not a copy of the first
+        assertEquals(ollir, 1, count(ollir, "a\\[i.i32\\]"));
+        assertEquals(ollir, 1, count(ollir, "a\\[j.i32\\]"));
+    }
+
+    @Test
+    public void recomputesAfterOperandChanges() {
+        var ollir = print(optimizeMethod(SIGNATURE, """
+                b.i32 :=.i32 i.i32 *.i32 j.i32;
+                i.i32 :=.i32 i.i32 +.i32 1.i32;
+                c.i32 :=.i32 i.i32 *.i32 j.i32;
+                d.i32 :=.i32 b.i32 +.i32 c.i32;
+                ret.i32 d.i32;
+                """));
+
+        assertEquals(ollir, 2, count(ollir, "\\*.i32"));
+    }
+
+    @Test
+    public void keepsResultsOfKernel() {
+        var code = """
+                import io;
+                class A {
+                    public int f(int[] a) {
+                        int i; int s; int v; int n;
+                        i = 0; s = 0;
+                        while (i < a.length) {
+                            v = a[i] * a[i];
+                            n = a.length;
+                            s = s + v;
+                            s = s + n;
+                            i = i + 1;
+                        }
+                        return s;
+                    }
+                    public static void main(String[] args) {
+                        A o; int[] a; int r;
+                        o = new A();
+                        a = new int[5];
+                        r = o.f(a);
+                        io.println(r);
+                    }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var unoptimized = TestUtils.optimize(code, Map.of("optimize", "false"));
+
+        assertTrue(count(optimized.getOllirCode(), "a\\[i.i32\\]") < count(unoptimized.getOllirCode(), "a\\[i.i32\\]"));
+        assertEquals("25", TestUtils.backend(optimized).run().trim());
+        assertEquals("25", TestUtils.backend(unoptimized).run().trim());
+    }
+}
@@ -0,0 +1,106 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.optimization.OllirPrinter;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LoopInvariantCodeMotionTest {
+
+    private static final String FIXTURES = "pt/up/fe/comp/cpf/5_optimizations/licm/";
+
+    /**
+     * @return the number of instructions from the label of the loop to the branch back to it
+     */
+    private static int countLoopInstructions(String ollirCode) {
+        var lines = ollirCode.lines().map(String::trim).toList();
+        int start = lines.indexOf("whilebody_0:");
+        int end = start;
+        while (!lines.get(end).endsWith("goto whilebody_0;")) {
+            end++;
+        }
+
+        return end - start;
+    }
+
+    private static void assertHoisted(String filename, String expectedOutput) {
+        var code = SpecsIo.getResource(FIXTURES + filename);
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var unoptimized = TestUtils.optimize(code, Map.of("optimize", "false"));
+
+        var optimizedCode = optimized.getOllirCode();
+        assertTrue(optimizedCode, countLoopInstructions(optimizedCode) < countLoopInstructions(unoptimized.getOllirCode()));
+        assertTrue(optimized.getReports().stream().anyMatch(report -> report.getMessage().contains("hoisted")));
+
+        assertEquals(expectedOutput, TestUtils.backend(optimized).run().trim());
+        assertEquals(expectedOutput, TestUtils.backend(unoptimized).run().trim());
+    }
+
+    @Test
+    public void hoistsArithmetic() {
+        assertHoisted("InvariantArithmetic.jmm", "140");
+    }
+
+    @Test
+    public void hoistsArrayLength() {
+        assertHoisted("InvariantLength.jmm", "1\n2\n3\n3");
+    }
+
+    @Test
+    public void hoistsOnlyFieldsNotWritten() {
+        var code = SpecsIo.getResource(FIXTURES + "InvariantField.ollir");
+        var optimized = new JmmOptimizationImpl().optimize(new OllirResult(code, Map.of("optimize", "true")));
+        var optimizedCode = OllirPrinter.print(optimized.getOllirClass());
+
+        // 'step' is only written before the loop, 'total' is written in it
+        var loop = optimizedCode.substring(optimizedCode.indexOf("whilebody_0:"), optimizedCode.indexOf("endwhile_1:"));
+        assertFalse(loop, loop.contains("getfield(this.InvariantField, step.i32)"));
+        assertTrue(loop, loop.contains("getfield(this.InvariantField, total.i32)"));
+        assertTrue(countLoopInstructions(optimizedCode) < countLoopInstructions(code));
+
+        assertEquals("15", TestUtils.backend(optimized).run().trim());
+    }
+
+    @Test
+    public void keepsArrayLengthAfterTopTest() {
+        var code = SpecsIo.getResource(FIXTURES + "TopTestedLength.ollir");
+        var optimized = new JmmOptimizationImpl().optimize(new OllirResult(code, Map.of("optimize", "true")));
+        var optimizedCode = OllirPrinter.print(optimized.getOllirClass());
+
+        // The loop runs 0 times, the length of the null array is never read
+        var sum = optimizedCode.substring(optimizedCode.indexOf(".method public sum("));
+        assertTrue(sum, sum.indexOf("arraylength") > sum.indexOf("loop:"));
+        assertEquals("0", TestUtils.backend(optimized).run().trim());
+    }
+
+    @Test
+    public void keepsLoopVariantCode() {
+        var code = """
+                class A {
+                    public int f(int n, int x) {
+                        int i; int s; int d;
+                        i = 0; s = 0;
+                        while (i < n) {
+                            d = s * x;
+                            s = s + d;
+                            i = i + 1;
+                        }
+                        return s;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var loop = optimized.getOllirCode().substring(optimized.getOllirCode().indexOf("whilebody_0:"));
+        // 'i * x' would be strength reduced, 's' is not an induction variable
+        assertTrue(loop, loop.contains("s.i32 *.i32 x.i32"));
+    }
+}
@@ -0,0 +1,110 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.optimization.OllirPrinter;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp.optimization.OllirTestUtils.*;
+
+public class MethodInlinerTest {
+
+    @Test
+    public void inlinesCallsOnNewObject() {
+        var code = """
+                import io;
+                class MathUtils {
+                    public int square(int x) {
+                        return x * x;
+                    }
+                    public int max(int a, int b) {
+                        int m;
+                        if (a < b) { m = b; } else { m = a; }
+                        return m;
+                    }
+                    public static void main(String[] args) {
+                        MathUtils m; int r;
+                        m = new MathUtils();
+                        r = m.square(7);
+                        io.println(r);
+                        r = m.max(r, 50);
+                        io.println(r);
+                    }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var main = getMethod(optimized.getOllirCode(), ".method public static main");
+        assertFalse(main, main.contains("\"square\""));
+        assertFalse(main, main.contains("\"max\""));
+        assertTrue(optimized.getReports().stream().anyMatch(report -> report.getMessage().contains("replaced 2 calls")));
+
+        assertEquals("49\n50", TestUtils.backend(optimized).run().trim());
+    }
+
+    @Test
+    public void respectsRecursionAndDispatch() {
+        var ollirCode = """
+                import io;
+                Calls {
+                    .construct Calls().V {
+                        invokespecial(this, "<init>").V;
+                    }
+
+                    .method public static twice(x.i32).i32 {
+                        y.i32 :=.i32 x.i32 *.i32 2.i32;
+                        ret.i32 y.i32;
+                    }
+
+                    .method public fact(n.i32).i32 {
+                        if (n.i32 <.bool 2.i32) goto base;
+                        m.i32 :=.i32 n.i32 -.i32 1.i32;
+                        r.i32 :=.i32 invokevirtual(this, "fact", m.i32).i32;
+                        s.i32 :=.i32 n.i32 *.i32 r.i32;
+                        ret.i32 s.i32;
+                    base:
+                        ret.i32 1.i32;
+                    }
+
+                    .method public id(x.i32).i32 {
+                        ret.i32 x.i32;
+                    }
+
+                    .method public run(n.i32).i32 {
+                        a.i32 :=.i32 invokestatic(Calls, "twice", n.i32).i32;
+                        b.i32 :=.i32 invokevirtual(this, "fact", a.i32).i32;
+                        c.i32 :=.i32 invokevirtual(this, "id", b.i32).i32;
+                        ret.i32 c.i32;
+                    }
+
+                    .method public static main(args.array.String).V {
+                        o.Calls :=.Calls new(Calls).Calls;
+                        invokespecial(o.Calls, "<init>").V;
+                        r.i32 :=.i32 invokevirtual(o.Calls, "run", 2.i32).i32;
+                        invokestatic(io, "println", r.i32).V;
+                        ret.V;
+                    }
+                }
+                """;
+
+        var optimized = new JmmOptimizationImpl().optimize(new OllirResult(ollirCode, Map.of("optimize", "true")));
+        var code = OllirPrinter.print(optimized.getOllirClass());
+
+        // Static methods are inlined, calls on 'this' can be overridden by a subclass
+        var run = getMethod(code, ".method public run");
+        assertFalse(run, run.contains("\"twice\""));
+        assertTrue(run, run.contains("\"id\""));
+
+        // In main the object is known to be of class Calls, but 'fact' calls itself
+        var main = getMethod(code, ".method public static main");
+        assertFalse(main, main.contains("\"run\""));
+        assertFalse(main, main.contains("\"id\""));
+        assertTrue(main, main.contains("\"fact\""));
+
+        assertEquals("24", TestUtils.backend(optimized).run().trim());
+    }
+}
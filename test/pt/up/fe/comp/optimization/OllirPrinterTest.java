@@ -0,0 +1,80 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.InstructionType;
+import org.specs.comp.ollir.Operand;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.OllirPrinter;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class OllirPrinterTest {
+
+    private static String print(String ollirCode) {
+        return OllirPrinter.print(new OllirResult(ollirCode, Collections.emptyMap()).getOllirClass());
+    }
+
+    private static void testRoundTrip(String filename) {
+        var printed = print(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/" + filename));
+
+        assertEquals(printed, print(printed));
+    }
+
+    @Test
+    public void roundTripArithmetic() {
+        testRoundTrip("arithmetic/Arithmetic_and.ollir");
+        testRoundTrip("arithmetic/Arithmetic_not.ollir");
+    }
+
+    @Test
+    public void roundTripArrays() {
+        testRoundTrip("arrays/ArrayAccess.ollir");
+        testRoundTrip("arrays/ArrayVarArgs.ollir");
+        testRoundTrip("arrays/ComplexArrayAccess.ollir");
+    }
+
+    @Test
+    public void roundTripControlFlow() {
+        testRoundTrip("control_flow/IfWhileNested.ollir");
+        testRoundTrip("control_flow/SwitchStat.ollir");
+    }
+
+    @Test
+    public void roundTripCalls() {
+        testRoundTrip("calls/ConditionArgsFuncCall.ollir");
+        testRoundTrip("limits/LocalLimits.ollir");
+    }
+
+    @Test
+    public void buildsClassUnitDirectly() {
+        var ollirResult = TestUtils.optimize("""
+                import io;
+                class A {
+                    int f;
+                    public int sum(int a, int b) { int c; c = a + b; return c; }
+                    public static void main(String[] args) { io.println(1); }
+                }
+                """);
+        TestUtils.noErrors(ollirResult.getReports());
+
+        ClassUnit classUnit = ollirResult.getOllirClass();
+        assertEquals("A", classUnit.getClassName());
+        assertEquals(1, classUnit.getNumFields());
+        assertEquals(3, classUnit.getNumMethods());
+
+        var sum = classUnit.getMethods().stream()
+                .filter(method -> method.getMethodName().equals("sum"))
+                .findFirst().orElseThrow();
+        assertEquals(1, ((Operand) sum.getParam(0)).getParamId());
+        assertEquals(InstructionType.RETURN, sum.getInstr(sum.getInstructions().size() - 1).getInstType());
+
+        // The printed code is valid OLLIR for the same class
+        var ollirCode = ollirResult.getOllirCode();
+        assertEquals(ollirCode, print(ollirCode));
+    }
+}
@@ -0,0 +1,62 @@
+package pt.up.fe.comp.optimization;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.optimization.OllirPrinter;
+
+import java.util.Map;
+
+/**
+ * Builds, optimizes and reads OLLIR code in the tests of the optimizations.
+ */
+public class OllirTestUtils {
+
+    private static final String TEST_CLASS = """
+            import io;
+            Test {
+                .construct Test().V {
+                    invokespecial(this, "<init>").V;
+                }
+
+                .method public %s {
+            %s
+                }
+            %s}
+            """;
+
+    private static final String MAIN = """
+
+                .method public static main(args.array.String).V {
+                    tmp0.Test :=.Test new(Test).Test;
+                    invokespecial(tmp0.Test, "<init>").V;
+                    tmp1.i32 :=.i32 invokevirtual(tmp0.Test, "f", %s).i32;
+                    invokestatic(io, "println", tmp1.i32).V;
+                    ret.V;
+                }
+            """;
+
+    /**
+     * Optimizes a class Test with a method with the given signature, e.g. 'f(a.i32).i32', and body. If arguments are
+     * given, the class also has a main method that prints what 'f' returns for them.
+     */
+    public static OllirResult optimizeMethod(String signature, String body, String... arguments) {
+        var main = arguments.length == 0 ? "" : MAIN.formatted(String.join(", ", arguments));
+        var ollirCode = TEST_CLASS.formatted(signature, body, main);
+
+        return new JmmOptimizationImpl().optimize(new OllirResult(ollirCode, Map.of("optimize", "true")));
+    }
+
+    public static String print(OllirResult ollirResult) {
+        return OllirPrinter.print(ollirResult.getOllirClass());
+    }
+
+    /**
+     * @param signature the start of the declaration of the method, e.g. '.method public f('
+     * @return the code of the method, from its declaration to its closing brace
+     */
+    public static String getMethod(String code, String signature) {
+        int start = code.indexOf(signature);
+        int end = code.indexOf("\n}", start);
+        return code.substring(start, end);
+    }
+}
@@ -0,0 +1,73 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that OLLIR generation is reentrant: compilations running concurrently must produce exactly the same code as
+ * when they run one after the other.
+ */
+public class ReentrantOllirTest {
+
+    private static final List<String> RESOURCES = List.of(
+            "pt/up/fe/comp/cp2/ollir/CompileBasic.jmm",
+            "pt/up/fe/comp/cp2/ollir/CompileArithmetic.jmm",
+            "pt/up/fe/comp/cp2/ollir/CompileMethodInvocation.jmm",
+            "pt/up/fe/comp/cp2/ollir/CompileAssignment.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/arithmetic/Arithmetic_and.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/arithmetic/Arithmetic_less.jmm");
+
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_COMPILATIONS = 64;
+
+    private static String generateOllir(String resource) {
+        var semanticsResult = TestUtils.analyse(SpecsIo.getResource(resource));
+        TestUtils.noErrors(semanticsResult.getReports());
+
+        return new JmmOptimizationImpl().toOllir(semanticsResult).getOllirCode();
+    }
+
+    @Test
+    public void sameCodeWhenRepeated() {
+        for (var resource : RESOURCES) {
+            assertEquals("OLLIR of " + resource + " changed between compilations",
+                    generateOllir(resource), generateOllir(resource));
+        }
+    }
+
+    @Test
+    public void concurrentMatchesSerial() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (var resource : RESOURCES) {
+            expected.add(generateOllir(resource));
+        }
+
+        var pool = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < NUM_COMPILATIONS; i++) {
+                var resource = RESOURCES.get(i % RESOURCES.size());
+                Callable<String> task = () -> generateOllir(resource);
+                futures.add(pool.submit(task));
+            }
+
+            for (int i = 0; i < NUM_COMPILATIONS; i++) {
+                var index = i % RESOURCES.size();
+                assertEquals("Concurrent OLLIR of " + RESOURCES.get(index) + " differs from serial output",
+                        expected.get(index), futures.get(i).get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
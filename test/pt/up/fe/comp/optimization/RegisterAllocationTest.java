@@ -0,0 +1,99 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RegisterAllocationTest {
+
+    private static final String LOOP_OLLIR = """
+            RegAllocLoop {
+                .construct RegAllocLoop().V {
+                    invokespecial(this, "<init>").V;
+                }
+
+                .method public sum(n.i32).i32 {
+                    i.i32 :=.i32 0.i32;
+                    acc.i32 :=.i32 0.i32;
+                    goto cond_0;
+                    body_0:
+                    t.i32 :=.i32 i.i32 *.i32 2.i32;
+                    acc.i32 :=.i32 acc.i32 +.i32 t.i32;
+                    i.i32 :=.i32 i.i32 +.i32 1.i32;
+                    cond_0:
+                    if (i.i32 <.bool n.i32) goto body_0;
+                    u.i32 :=.i32 acc.i32;
+                    ret.i32 u.i32;
+                }
+            }
+            """;
+
+    private static String getResource(String filename) {
+        return SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/reg_alloc/" + filename);
+    }
+
+    private static int getLimitLocals(String methodCode) {
+        return Integer.parseInt(SpecsStrings.getRegexGroup(methodCode, CpUtils.getLimitLocalsRegex(), 1));
+    }
+
+    @Test
+    public void minimalLocals() {
+        var jasminResult = TestUtils.backend(getResource("regalloc.jmm"), Map.of("registerAllocation", "0"));
+
+        // 'this' plus a single register shared by the parameter, which is never read, and all the locals
+        assertEquals(2, getLimitLocals(CpUtils.getJasminMethod(jasminResult, "soManyRegisters")));
+    }
+
+    @Test
+    public void reusedRegistersKeepSemantics() {
+        var jasminResult = TestUtils.backend(getResource("RegAllocReuse.jmm"), Map.of("registerAllocation", "0"));
+
+        assertEquals(4, getLimitLocals(CpUtils.getJasminMethod(jasminResult, "compute")));
+        CpUtils.runJasmin(jasminResult, "68");
+    }
+
+    @Test
+    public void loopVariablesInterfere() {
+        var ollirResult = new OllirResult(LOOP_OLLIR, Map.of("registerAllocation", "0"));
+        ollirResult = new JmmOptimizationImpl().optimize(ollirResult);
+        TestUtils.noErrors(ollirResult.getReports());
+
+        var method = ollirResult.getOllirClass().getMethods().stream()
+                .filter(m -> m.getMethodName().equals("sum"))
+                .findFirst()
+                .orElseThrow();
+        var varTable = method.getVarTable();
+
+        // 'n', 'i' and 'acc' are live around the whole loop, 't' while 'acc' is updated
+        var loopRegs = new HashSet<Integer>();
+        for (var name : new String[]{"n", "i", "acc", "t"}) {
+            loopRegs.add(varTable.get(name).getVirtualReg());
+        }
+        assertEquals(4, loopRegs.size());
+        assertFalse(loopRegs.contains(0));
+
+        // 'u' is only defined after the loop, and can reuse one of the registers
+        assertTrue(varTable.get("u").getVirtualReg() <= 4);
+    }
+
+    @Test
+    public void tooFewRegisters() {
+        var ollirResult = TestUtils.optimize(getResource("regalloc.jmm"), Map.of("registerAllocation", "1"));
+
+        var errors = ollirResult.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .toList();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage(), errors.get(0).getMessage().contains("soManyRegisters"));
+    }
+}
@@ -0,0 +1,107 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp.optimization.OllirTestUtils.*;
+
+public class StrengthReductionTest {
+
+    private static final String FIXTURES = "pt/up/fe/comp/cpf/5_optimizations/strength_reduction/";
+
+    private static boolean hasRewrites(OllirResult result, String rule) {
+        return result.getReports().stream().anyMatch(report -> report.getMessage().contains(rule));
+    }
+
+    @Test
+    public void shiftsPowersOfTwo() {
+        var code = SpecsIo.getResource(FIXTURES + "PowerOfTwo.jmm");
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var unoptimized = TestUtils.optimize(code, Map.of("optimize", "false"));
+
+        var scale = getMethod(optimized.getOllirCode(), ".method public scale(");
+        assertFalse(scale, scale.contains("*.i32"));
+        assertFalse(scale, scale.contains("/.i32"));
+        assertTrue(hasRewrites(optimized, "mul-pow2"));
+        assertTrue(hasRewrites(optimized, "div-pow2"));
+
+        var jasmin = TestUtils.backend(optimized);
+        assertTrue(jasmin.getJasminCode().contains("ishl"));
+        assertTrue(jasmin.getJasminCode().contains("iushr"));
+
+        // Negative dividends round towards zero, as idiv does
+        var expected = "-5\n-10\n-3\n-6\n-1\n-3\n0\n0\n2\n4\n3\n7\n-120";
+        assertEquals(expected, jasmin.run().trim());
+        assertEquals(expected, TestUtils.backend(unoptimized).run().trim());
+    }
+
+    @Test
+    public void reducesInductionVariableMultiplies() {
+        var code = SpecsIo.getResource(FIXTURES + "InductionMultiply.jmm");
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+
+        var sum = getMethod(optimized.getOllirCode(), ".method public sum(");
+        var loop = sum.substring(sum.indexOf("whilebody_0:"));
+        assertFalse(loop, loop.contains("*.i32"));
+        assertTrue(hasRewrites(optimized, "induction-mul"));
+
+        assertEquals("1620", TestUtils.backend(optimized).run().trim());
+    }
+
+    @Test
+    public void simplifiesIdentities() {
+        var code = """
+                import io;
+                class Identities {
+                    public int f(int x, int y) {
+                        int a; int b; int c; int d;
+                        a = x * 1;
+                        b = y + 0;
+                        c = a - a;
+                        d = b * 0;
+                        a = a + c;
+                        a = a + d;
+                        b = b / 1;
+                        a = a - b;
+                        return a;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var f = getMethod(optimized.getOllirCode(), ".method public f(");
+        assertFalse(f, f.contains("*.i32"));
+        assertFalse(f, f.contains("/.i32"));
+        assertTrue(hasRewrites(optimized, "mul-one"));
+        assertTrue(hasRewrites(optimized, "sub-self"));
+    }
+
+    @Test
+    public void keepsDivisionsThatCanThrow() {
+        var code = """
+                class Divisions {
+                    public int f(int x) {
+                        int a; int b;
+                        a = x / 0;
+                        b = x / 3;
+                        a = a + b;
+                        return a;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var f = getMethod(optimized.getOllirCode(), ".method public f(");
+        assertTrue(f, f.contains("x.i32 /.i32 0.i32"));
+        assertTrue(f, f.contains("x.i32 /.i32 3.i32"));
+    }
+}
@@ -0,0 +1,85 @@
+package pt.up.fe.comp.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp.optimization.OllirTestUtils.*;
+
+public class TailCallEliminationTest {
+
+    private static final String FIXTURES = "pt/up/fe/comp/cpf/5_optimizations/tail_calls/";
+
+    private static void assertLoop(String ollirCode, String method, String expectedOutput) {
+        var optimized = new JmmOptimizationImpl().optimize(new OllirResult(ollirCode, Map.of("optimize", "true")));
+
+        var optimizedMethod = getMethod(print(optimized), method + "(");
+        assertFalse(optimizedMethod, optimizedMethod.contains("\"" + method + "\""));
+        assertTrue(optimized.getReports().stream().anyMatch(report -> report.getMessage().contains("1 self tail calls")));
+        assertEquals(expectedOutput, TestUtils.backend(optimized).run().trim());
+
+        // Without the optimization the recursion is too deep for the stack
+        var unoptimized = new OllirResult(ollirCode, Collections.emptyMap());
+        assertTrue(TestUtils.backend(unoptimized).run().contains("StackOverflowError"));
+    }
+
+    @Test
+    public void turnsStaticTailCallIntoLoop() {
+        assertLoop(SpecsIo.getResource(FIXTURES + "TailSum.ollir"), "count", "100000");
+    }
+
+    @Test
+    public void copiesArgumentsThatReadParameters() {
+        // Calls on 'this' of a final method cannot be overridden
+        assertLoop(SpecsIo.getResource(FIXTURES + "TailFib.ollir"), "fib", "-1059319835");
+    }
+
+    @Test
+    public void keepsCallsThatCanBeOverridden() {
+        // A subclass written in Java can override 'count', the recursive call must run the override
+        var code = SpecsIo.getResource(FIXTURES + "TailSum.jmm");
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+
+        var count = getMethod(optimized.getOllirCode(), ".method public count(");
+        assertTrue(count, count.contains("invokevirtual(this"));
+        assertTrue(count, count.contains("\"count\""));
+        assertTrue(optimized.getReports().stream().anyMatch(report -> report.getMessage().contains("0 self tail calls")));
+    }
+
+    @Test
+    public void keepsCallsWhoseResultIsUsed() {
+        var code = """
+                import io;
+                class Fact {
+                    public int fact(int n) {
+                        int r; int m;
+                        if (n < 2) {
+                            r = 1;
+                        } else {
+                            m = n - 1;
+                            r = this.fact(m);
+                            r = n * r;
+                        }
+                        return r;
+                    }
+                    public static void main(String[] args) {
+                        Fact f; int r;
+                        f = new Fact();
+                        r = f.fact(5);
+                        io.println(r);
+                    }
+                }
+                """;
+
+        var optimized = TestUtils.optimize(code, Map.of("optimize", "true"));
+        var fact = getMethod(optimized.getOllirCode(), ".method public fact(");
+        assertTrue(fact, fact.contains("\"fact\""));
+        assertEquals("120", TestUtils.backend(optimized).run().trim());
+    }
+}
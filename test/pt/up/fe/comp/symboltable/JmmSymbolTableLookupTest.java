@@ -0,0 +1,88 @@
+package pt.up.fe.comp.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JmmSymbolTableLookupTest {
+
+    private static final String CODE = """
+            import io;
+            import a.b.Helper;
+            class Lookup {
+                int x;
+                boolean y;
+                public int f(int x, int z) {
+                    int y;
+                    int w;
+                    y = x;
+                    return y;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static JmmSymbolTable table() {
+        return (JmmSymbolTable) TestUtils.analyse(CODE).getSymbolTable();
+    }
+
+    @Test
+    public void localsShadowParametersAndFields() {
+        var table = table();
+
+        var y = table.resolve("f", "y").orElseThrow();
+        assertEquals(ResolvedSymbol.Scope.LOCAL, y.scope());
+        assertEquals("int", y.getType().getName());
+
+        var x = table.resolve("f", "x").orElseThrow();
+        assertEquals(ResolvedSymbol.Scope.PARAMETER, x.scope());
+        assertEquals(0, x.slot());
+
+        assertEquals(ResolvedSymbol.Scope.FIELD, table.resolve("main", "y").orElseThrow().scope());
+        assertEquals(2, table.resolveAll("f", "y").size());
+        assertTrue(table.resolve("f", "unknown").isEmpty());
+    }
+
+    @Test
+    public void slots() {
+        var table = table();
+
+        assertEquals(1, table.getParameter("f", "z").orElseThrow().slot());
+        assertEquals(1, table.getLocalVariable("f", "w").orElseThrow().slot());
+        assertEquals(1, table.getField("y").orElseThrow().slot());
+        assertTrue(table.getLocalVariable("main", "w").isEmpty());
+    }
+
+    @Test
+    public void methods() {
+        // The imports come before the class declaration
+        var table = table();
+
+        assertEquals(List.of("f", "main"), table.getMethods());
+        assertTrue(table.hasMethod("f"));
+        assertTrue(table.hasMethod("main"));
+        assertFalse(table.hasMethod("g"));
+    }
+
+    @Test
+    public void imports() {
+        var table = table();
+
+        assertTrue(table.hasImport("io"));
+        assertTrue(table.hasImport("Helper"));
+        assertFalse(table.hasImport("Lookup"));
+    }
+
+    @Test
+    public void ofReturnsSameTable() {
+        var table = table();
+
+        assertSame(table, JmmSymbolTable.of(table));
+    }
+}
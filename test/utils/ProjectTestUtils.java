@@ -3,6 +3,7 @@ package utils;
 import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.execution.ExecutionEngine;
 import pt.up.fe.specs.util.SpecsCollections;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
@@ -25,6 +26,8 @@ import static org.junit.Assert.assertTrue;
 
 public class ProjectTestUtils {
 
+    private static final ExecutionEngine ENGINE = new ExecutionEngine();
+
     // private static final File RANDOM_TEST_FOLDER = SpecsIo.newRandomFolder();
 
     public static File getRandomFolder() {
@@ -323,8 +326,15 @@ public class ProjectTestUtils {
         assertTrue("Expected code to match /" + regex + "/:\n" + code + "", matches);
     }
 
+    /**
+     * Runs the Jasmin code in the current JVM, which is much faster than {@link JasminResult#runWithFullOutput()}.
+     */
+    public static ProcessOutputAsString runInProcess(JasminResult jasminResult) {
+        return ENGINE.runJasmin(jasminResult.getJasminCode());
+    }
+
     public static void runJasmin(JasminResult jasminResult, String expected) {
-        var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+        var output = SpecsStrings.normalizeFileContents(runInProcess(jasminResult).getOutput(), true);
 
         // No expected output, just run test
         if (expected == null) {